@@ -12,31 +12,62 @@ import play.libs.F.Function0;
 import com.google.common.io.Files;
 import com.google.common.io.InputSupplier;
 
+import auth.AuthService;
+import auth.SessionTokens;
 import data.DBPediaDataInserter;
+import data.ImportStatus;
 import data.JSONDataInserter;
+import data.TextColumnMigration;
+import highscore.HighScorePublisher;
+import history.AnswerLog;
+import match.Matchmaker;
+import models.GameListeners;
+import models.QuestionCatalog;
+import models.QuizDAO;
+import models.SelectionStrategies;
+import ranking.Leaderboard;
+import stats.QuestionStatistics;
+import store.GameStateStores;
+import twitter.TwitterPublisher;
 
 public class Global extends GlobalSettings {
 
+	private Thread dbpediaImport;
+
 	@play.db.jpa.Transactional
 	public static void insertJSonData() throws IOException {
+		if (JSONDataInserter.isImported()) {
+			Logger.info("Data from json file is already stored.");
+			return;
+		}
 		File file = new File(Play.application().configuration()
 				.getString("questions.filePath"));
 		InputSupplier<FileInputStream> inputStreamSupplier = Files
 				.newInputStreamSupplier(file);
 		FileInputStream inputStream = inputStreamSupplier.getInput();
-		JSONDataInserter.insertData(inputStream);
+		Integer batchSize = Play.application().configuration()
+				.getInt("questions.batchSize");
+		JSONDataInserter.insertData(inputStream,
+				batchSize != null ? batchSize : JSONDataInserter.DEFAULT_BATCH_SIZE);
 		Logger.info("Data from json file '" + file.getName() + "' inserted.");
 	}
 
 	@play.db.jpa.Transactional
 	public void onStart(Application app) {
+		ImportStatus.INSTANCE.start();
+		SelectionStrategies.configure(app.configuration());
+		SessionTokens.INSTANCE.configure(app.configuration());
+		final boolean statistics = Boolean.TRUE.equals(app.configuration()
+				.getBoolean("jpa.statistics"));
 		try {
 			JPA.withTransaction(new Function0<Boolean>() {
 
 				@Override
 				public Boolean apply() throws Throwable {
+					QuizDAO.INSTANCE.getStatistics().setStatisticsEnabled(
+							statistics);
+					TextColumnMigration.migrate();
 					insertJSonData();
-					DBPediaDataInserter.insertData();
 					return true;
 				}
 
@@ -45,9 +76,96 @@ public class Global extends GlobalSettings {
 			e.printStackTrace();
 		}
 
+		QuestionCatalog.reload();
+		ImportStatus.INSTANCE.catalogFinished(!QuestionCatalog.current()
+				.isEmpty());
+		Logger.info("Question catalog ready after "
+				+ ImportStatus.INSTANCE.getCatalogMillis() + " ms, cold start "
+				+ ImportStatus.INSTANCE.getColdStartMillis() + " ms.");
+
+		// the filter only knows the names registered on this node
+		if (!GameStateStores.isClustered()) {
+			try {
+				JPA.withTransaction(new Function0<Boolean>() {
+
+					@Override
+					public Boolean apply() throws Throwable {
+						QuizDAO.INSTANCE.loadUserNames();
+						return true;
+					}
+
+				});
+			} catch (Throwable e) {
+				Logger.error("Could not load the user names.", e);
+			}
+		}
+
+		AuthService.INSTANCE.start(app.configuration());
+		TwitterPublisher.INSTANCE.start(app.configuration());
+		HighScorePublisher.INSTANCE.start(app.configuration());
+		AnswerLog.INSTANCE.start(app.configuration());
+		GameListeners.INSTANCE.add(AnswerLog.INSTANCE);
+		Leaderboard.INSTANCE.start(app.configuration());
+		GameListeners.INSTANCE.add(Leaderboard.INSTANCE);
+		QuestionStatistics.INSTANCE.start(app.configuration());
+		GameListeners.INSTANCE.add(QuestionStatistics.INSTANCE);
+		Matchmaker.INSTANCE.start();
+		startDBPediaImport();
+	}
+
+	/**
+	 * Add the DBPedia questions in the background, the catalog is replaced
+	 * once they are stored
+	 */
+	private synchronized void startDBPediaImport() {
+		dbpediaImport = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				ImportStatus.INSTANCE.dbpediaStarted();
+				try {
+					JPA.withTransaction(new Function0<Boolean>() {
+
+						@Override
+						public Boolean apply() throws Throwable {
+							DBPediaDataInserter.insertData();
+							return true;
+						}
+
+					});
+					QuestionCatalog.reload();
+					ImportStatus.INSTANCE.dbpediaFinished(true,
+							!QuestionCatalog.current().isEmpty());
+					Logger.info("DBPedia import finished after "
+							+ ImportStatus.INSTANCE.getDBPediaMillis()
+							+ " ms.");
+				} catch (Throwable e) {
+					ImportStatus.INSTANCE.dbpediaFinished(false,
+							!QuestionCatalog.current().isEmpty());
+					Logger.error("DBPedia import failed.", e);
+				}
+			}
+		}, "dbpedia-import");
+		dbpediaImport.setDaemon(true);
+		dbpediaImport.start();
 	}
 
 	public void onStop(Application app) {
+		synchronized (this) {
+			if (dbpediaImport != null)
+				dbpediaImport.interrupt();
+		}
+		Matchmaker.INSTANCE.stop();
+		GameStateStores.shutdown();
+		GameListeners.INSTANCE.remove(QuestionStatistics.INSTANCE);
+		QuestionStatistics.INSTANCE.stop();
+		GameListeners.INSTANCE.remove(Leaderboard.INSTANCE);
+		Leaderboard.INSTANCE.stop();
+		GameListeners.INSTANCE.remove(AnswerLog.INSTANCE);
+		AnswerLog.INSTANCE.stop();
+		HighScorePublisher.INSTANCE.stop();
+		TwitterPublisher.INSTANCE.stop();
+		AuthService.INSTANCE.stop();
 		Logger.info("Application shutdown...");
 	}
 
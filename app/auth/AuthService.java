@@ -0,0 +1,217 @@
+package auth;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import models.QuizDAO;
+import models.QuizUser;
+import play.Configuration;
+import play.Logger;
+import play.db.jpa.JPA;
+import play.libs.F.Function0;
+import play.libs.F.Promise;
+import scala.concurrent.ExecutionContext;
+import scala.concurrent.ExecutionContext$;
+import util.Services;
+
+/**
+ * Verifies logins and hashes the passwords of new users on a small pool of
+ * its own, so expensive password hashing does not block the threads serving
+ * requests. The pool has a bounded queue, tasks which don't fit in are
+ * rejected right away instead of piling up.
+ * <p>
+ * Users whose password is stored as plain text or hashed with an outdated
+ * cost get a new hash on their next successful login. Logins of unknown
+ * users are verified against a dummy hash, so they take as long as the
+ * logins of registered users.
+ */
+public class AuthService {
+
+	public static final AuthService INSTANCE = new AuthService();
+
+	private static final int DEFAULT_ITERATIONS = 10000;
+
+	private volatile PasswordHasher hasher = new PasswordHasher(
+			DEFAULT_ITERATIONS);
+	// verified for unknown users, created with the cost of the hasher
+	private volatile String dummyHash = hasher.hash("dummy");
+	private volatile ThreadPoolExecutor executor;
+	private volatile ExecutionContext context;
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong migrated = new AtomicLong();
+
+	private AuthService() {
+	}
+
+	/**
+	 * Start the pool with the settings of application.conf
+	 *
+	 * @param config
+	 */
+	public void start(Configuration config) {
+		start(Services.intValue(config, "auth.iterations", DEFAULT_ITERATIONS),
+				Services.intValue(config, "auth.threads", Runtime.getRuntime()
+						.availableProcessors()),
+				Services.intValue(config, "auth.queueSize", 100));
+	}
+
+	/**
+	 * Start the pool
+	 *
+	 * @param iterations
+	 *            cost of new password hashes
+	 * @param threads
+	 *            number of threads verifying passwords
+	 * @param queueSize
+	 *            maximum number of waiting logins, further logins are
+	 *            rejected
+	 */
+	public synchronized void start(int iterations, int threads, int queueSize) {
+		if (executor != null)
+			stop();
+
+		PasswordHasher started = new PasswordHasher(iterations);
+		long start = System.nanoTime();
+		dummyHash = started.hash("dummy");
+		long hashMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+				- start);
+		hasher = started;
+		int poolSize = Math.max(1, threads);
+		executor = new ThreadPoolExecutor(poolSize, poolSize, 0,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+						Math.max(1, queueSize)), Services.daemonThreads("auth"));
+		context = ExecutionContext$.MODULE$.fromExecutorService(executor);
+		Logger.info("Authentication started with " + poolSize
+				+ " threads, hashing a password takes " + hashMillis
+				+ " ms with " + started.getIterations() + " iterations.");
+	}
+
+	public synchronized void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+			context = null;
+		}
+	}
+
+	/**
+	 * Verify the credentials on the authentication pool
+	 *
+	 * @param userName
+	 * @param password
+	 * @return the user or null if the credentials are wrong
+	 * @throws RejectedExecutionException
+	 *             if the pool is saturated
+	 */
+	public Promise<QuizUser> authenticate(final String userName,
+			final String password) {
+		return submit(new Function0<QuizUser>() {
+
+			@Override
+			public QuizUser apply() throws Throwable {
+				return verify(userName, password);
+			}
+		});
+	}
+
+	/**
+	 * Hash the password of a new user on the authentication pool
+	 *
+	 * @param password
+	 * @return the hash to store
+	 * @throws RejectedExecutionException
+	 *             if the pool is saturated
+	 */
+	public Promise<String> hash(final String password) {
+		return submit(new Function0<String>() {
+
+			@Override
+			public String apply() throws Throwable {
+				return hasher.hash(password);
+			}
+		});
+	}
+
+	public int getQueueDepth() {
+		ThreadPoolExecutor current = executor;
+		return current == null ? 0 : current.getQueue().size();
+	}
+
+	public int getActiveCount() {
+		ThreadPoolExecutor current = executor;
+		return current == null ? 0 : current.getActiveCount();
+	}
+
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	public long getMigratedCount() {
+		return migrated.get();
+	}
+
+	private <T> Promise<T> submit(Function0<T> task) {
+		ExecutionContext current = context;
+		if (current == null) {
+			rejected.incrementAndGet();
+			throw new RejectedExecutionException("Authentication is stopped.");
+		}
+		try {
+			return Promise.promise(task, current);
+		} catch (RejectedExecutionException e) {
+			rejected.incrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * Load the user and check the password. The DB connection is not held
+	 * while hashing.
+	 */
+	private QuizUser verify(final String userName, String password)
+			throws Throwable {
+		QuizUser user = JPA.withTransaction("default", true,
+				new Function0<QuizUser>() {
+
+					@Override
+					public QuizUser apply() throws Throwable {
+						return QuizDAO.INSTANCE.findByUserName(userName);
+					}
+				});
+		PasswordHasher current = hasher;
+		if (user == null) {
+			current.verify(password, dummyHash);
+			return null;
+		}
+		if (!user.authenticate(password, current))
+			return null;
+
+		if (user.getPasswordHash() == null
+				|| current.needsRehash(user.getPasswordHash())) {
+			rehash(user, current.hash(password));
+		}
+		return user;
+	}
+
+	private void rehash(final QuizUser user, final String hash) {
+		try {
+			JPA.withTransaction("default", false, new Function0<Void>() {
+
+				@Override
+				public Void apply() throws Throwable {
+					QuizDAO.INSTANCE.updatePasswordHash(user.getId(), hash);
+					return null;
+				}
+			});
+			user.setPasswordHash(hash);
+			migrated.incrementAndGet();
+		} catch (Throwable e) {
+			// the old password still works, try again on the next login
+			Logger.error("Could not rehash the password of user "
+					+ user.getId() + ".", e);
+		}
+	}
+}
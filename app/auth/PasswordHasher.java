@@ -0,0 +1,133 @@
+package auth;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Hashes passwords with PBKDF2. The number of iterations is the cost of a
+ * hash, it is stored with the salt in the hash, so hashes of different costs
+ * can be verified and outdated ones recognized. The format is
+ * <code>pbkdf2$iterations$salt$hash</code> with a Base64 salt and hash.
+ */
+public final class PasswordHasher {
+
+	private static final String PREFIX = "pbkdf2";
+	// PBKDF2WithHmacSHA256 needs Java 8
+	private static final String ALGORITHM = "PBKDF2WithHmacSHA1";
+	private static final int SALT_BYTES = 16;
+	private static final int HASH_BYTES = 20;
+	private static final BaseEncoding BASE64 = BaseEncoding.base64();
+
+	private final int iterations;
+	private final SecureRandom random = new SecureRandom();
+
+	/**
+	 * @param iterations
+	 *            cost of new hashes
+	 */
+	public PasswordHasher(int iterations) {
+		this.iterations = Math.max(1, iterations);
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Hash the password with a new random salt
+	 *
+	 * @param password
+	 * @return
+	 */
+	public String hash(String password) {
+		byte[] salt = new byte[SALT_BYTES];
+		random.nextBytes(salt);
+		byte[] hash = pbkdf2(password, salt, iterations);
+		return PREFIX + "$" + iterations + "$" + BASE64.encode(salt) + "$"
+				+ BASE64.encode(hash);
+	}
+
+	/**
+	 * Check the password against a hash, in time independent of where the
+	 * hashes differ
+	 *
+	 * @param password
+	 * @param stored
+	 *            a hash created by {@link #hash(String)}
+	 * @return false if the password does not match or the hash is malformed
+	 */
+	public boolean verify(String password, String stored) {
+		if (password == null || stored == null)
+			return false;
+		String[] parts = stored.split("\\$");
+		if (parts.length != 4 || !PREFIX.equals(parts[0]))
+			return false;
+		try {
+			int storedIterations = Integer.parseInt(parts[1]);
+			byte[] salt = BASE64.decode(parts[2]);
+			byte[] hash = BASE64.decode(parts[3]);
+			return MessageDigest.isEqual(hash,
+					pbkdf2(password, salt, storedIterations));
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Check the password against one stored as plain text. The passwords are
+	 * compared by their digests in constant time, and the password is hashed
+	 * once like in {@link #verify(String, String)}, so the time of a login
+	 * does not tell how the password is stored.
+	 *
+	 * @param password
+	 * @param plain
+	 *            the stored plain text password
+	 * @return false if the password does not match or none is stored
+	 */
+	public boolean verifyPlain(String password, String plain) {
+		byte[] salt = new byte[SALT_BYTES];
+		pbkdf2(String.valueOf(password), salt, iterations);
+		if (password == null || plain == null)
+			return false;
+		return MessageDigest.isEqual(sha256(password), sha256(plain));
+	}
+
+	/**
+	 * @param stored
+	 * @return true if the hash was created with a different cost
+	 */
+	public boolean needsRehash(String stored) {
+		String[] parts = stored.split("\\$");
+		return parts.length != 4 || !PREFIX.equals(parts[0])
+				|| !String.valueOf(iterations).equals(parts[1]);
+	}
+
+	private static byte[] sha256(String value) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(
+					value.getBytes(Charsets.UTF_8));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("SHA-256 is not available.", e);
+		}
+	}
+
+	private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+		PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt,
+				iterations, HASH_BYTES * 8);
+		try {
+			return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec)
+					.getEncoded();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(ALGORITHM + " is not available.", e);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package auth;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import models.QuizUser.Gender;
+import models.UserView;
+import play.Configuration;
+import play.Logger;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Signed tokens holding everything the {@link UserView} of a logged in user
+ * needs, so requests are authenticated without looking up the user. A token
+ * is <code>keyId.payload.signature</code>, the payload is the binary encoded
+ * view and the expiry, the signature its HMAC-SHA256 with the key of the id.
+ * <p>
+ * New tokens are signed with the current key, tokens of all configured keys
+ * are accepted. To rotate keys add a new key, make it the current one and
+ * remove the old key once its tokens have expired.
+ */
+public class SessionTokens {
+
+	public static final SessionTokens INSTANCE = new SessionTokens();
+
+	private static final String ALGORITHM = "HmacSHA256";
+	private static final byte VERSION = 1;
+	private static final BaseEncoding BASE64 = BaseEncoding.base64Url()
+			.omitPadding();
+
+	private volatile Keys keys = new Keys(null,
+			Collections.<String, SecretKeySpec> emptyMap(), 0);
+	private final AtomicLong rejected = new AtomicLong();
+
+	private SessionTokens() {
+	}
+
+	/**
+	 * Use the keys and the time to live of application.conf. Without keys the
+	 * application secret is used as the key "app".
+	 *
+	 * @param config
+	 */
+	public void configure(Configuration config) {
+		Map<String, SecretKeySpec> secrets = new HashMap<>();
+		Configuration keyConfig = config.getConfig("auth.token.keys");
+		if (keyConfig != null) {
+			for (String keyId : keyConfig.keys())
+				secrets.put(keyId, key(keyConfig.getString(keyId)));
+		}
+		String current = config.getString("auth.token.currentKey");
+		if (secrets.isEmpty()) {
+			current = "app";
+			secrets.put(current, key(config.getString("application.secret")));
+		}
+		if (current == null || !secrets.containsKey(current))
+			throw config.reportError("auth.token.currentKey",
+					"Unknown key " + current, null);
+
+		Integer ttl = config.getInt("auth.token.ttl");
+		keys = new Keys(current, secrets, TimeUnit.SECONDS.toMillis(ttl != null
+				? ttl : 86400));
+		Logger.info("Session tokens are signed with key " + current + " of "
+				+ secrets.size() + " keys.");
+	}
+
+	/**
+	 * Create a token for the user, signed with the current key
+	 *
+	 * @param user
+	 * @return
+	 */
+	public String issue(UserView user) {
+		Keys current = keys;
+		if (current.currentKey == null)
+			throw new IllegalStateException("Session tokens are not configured.");
+		String payload = BASE64.encode(encode(user, System.currentTimeMillis()
+				+ current.timeToLiveMillis));
+		String signed = current.currentKey + "." + payload;
+		return signed + "."
+				+ BASE64.encode(sign(current.secrets.get(current.currentKey),
+						signed));
+	}
+
+	/**
+	 * Check the signature and the expiry of a token
+	 *
+	 * @param token
+	 * @return the view of the user or null if the token is invalid, expired
+	 *         or signed with an unknown key
+	 */
+	public UserView verify(String token) {
+		if (token == null)
+			return null;
+		int keyEnd = token.indexOf('.');
+		int payloadEnd = token.lastIndexOf('.');
+		if (keyEnd <= 0 || payloadEnd <= keyEnd)
+			return reject();
+		SecretKeySpec secret = keys.secrets.get(token.substring(0, keyEnd));
+		if (secret == null)
+			return reject();
+		try {
+			byte[] signature = BASE64.decode(token.substring(payloadEnd + 1));
+			if (!MessageDigest.isEqual(signature,
+					sign(secret, token.substring(0, payloadEnd))))
+				return reject();
+			return decode(BASE64.decode(token
+					.substring(keyEnd + 1, payloadEnd)));
+		} catch (IllegalArgumentException | IOException e) {
+			return reject();
+		}
+	}
+
+	/**
+	 * @param token
+	 *            a valid token
+	 * @return true if less than half of the time to live of the token is
+	 *         left or it is not signed with the current key
+	 */
+	public boolean needsRenewal(String token) {
+		Keys current = keys;
+		if (!token.startsWith(current.currentKey + "."))
+			return true;
+		try {
+			int keyEnd = token.indexOf('.');
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+					BASE64.decode(token.substring(keyEnd + 1,
+							token.lastIndexOf('.')))));
+			in.readByte();
+			long expiresAt = in.readLong();
+			return expiresAt - System.currentTimeMillis() < current.timeToLiveMillis / 2;
+		} catch (IllegalArgumentException | IOException e) {
+			return true;
+		}
+	}
+
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	private UserView reject() {
+		rejected.incrementAndGet();
+		return null;
+	}
+
+	private static byte[] encode(UserView user, long expiresAt) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeByte(VERSION);
+			out.writeLong(expiresAt);
+			out.writeLong(user.getId());
+			out.writeUTF(user.getUserName());
+			writeNullable(out, user.getFirstName());
+			writeNullable(out, user.getLastName());
+			Date birthDate = user.getBirthDate();
+			out.writeBoolean(birthDate != null);
+			if (birthDate != null)
+				out.writeLong(birthDate.getTime());
+			out.writeByte(user.getGender() == null ? -1 : user.getGender()
+					.ordinal());
+		} catch (IOException e) {
+			// not thrown by a ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @return the view or null if the token has expired
+	 */
+	private UserView decode(byte[] payload) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				payload));
+		if (in.readByte() != VERSION)
+			return reject();
+		long expiresAt = in.readLong();
+		if (expiresAt < System.currentTimeMillis())
+			return reject();
+		long id = in.readLong();
+		String userName = in.readUTF();
+		String firstName = readNullable(in);
+		String lastName = readNullable(in);
+		Date birthDate = in.readBoolean() ? new Date(in.readLong()) : null;
+		int gender = in.readByte();
+		if (gender >= Gender.values().length)
+			return reject();
+		return new UserView(id, userName, firstName, lastName, birthDate,
+				gender < 0 ? null : Gender.values()[gender]);
+	}
+
+	private static void writeNullable(DataOutputStream out, String value)
+			throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null)
+			out.writeUTF(value);
+	}
+
+	private static String readNullable(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static byte[] sign(SecretKeySpec secret, String data) {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(secret);
+			return mac.doFinal(data.getBytes(Charsets.UTF_8));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(ALGORITHM + " is not available.", e);
+		}
+	}
+
+	private static SecretKeySpec key(String secret) {
+		return new SecretKeySpec(secret.getBytes(Charsets.UTF_8), ALGORITHM);
+	}
+
+	private static class Keys {
+
+		private final String currentKey;
+		private final Map<String, SecretKeySpec> secrets;
+		private final long timeToLiveMillis;
+
+		Keys(String currentKey, Map<String, SecretKeySpec> secrets,
+				long timeToLiveMillis) {
+			this.currentKey = currentKey;
+			this.secrets = secrets;
+			this.timeToLiveMillis = timeToLiveMillis;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package cluster;
+
+/**
+ * A node of the cluster, identified by its id and reachable via its base url
+ */
+public class ClusterNode {
+
+	private final String id;
+	private final String baseUrl;
+
+	public ClusterNode(String id, String baseUrl) {
+		if (id == null)
+			throw new IllegalArgumentException("Id must not be null.");
+
+		if (baseUrl == null)
+			throw new IllegalArgumentException("Base url must not be null.");
+
+		this.id = id;
+		this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0,
+				baseUrl.length() - 1) : baseUrl;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getBaseUrl() {
+		return baseUrl;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof ClusterNode && id.equals(((ClusterNode) obj).id);
+	}
+
+	@Override
+	public int hashCode() {
+		return id.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return id + "@" + baseUrl;
+	}
+}
@@ -0,0 +1,251 @@
+package cluster;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import play.Logger;
+import store.IGameStateStore;
+import util.Services;
+
+/**
+ * Game state store spanning several nodes. Every key is owned by one node of
+ * the {@link ConsistentHashRing}, the following nodes on the ring hold
+ * replicas. Writes go to the owner synchronously and to the replicas in the
+ * background. If the owner is unreachable, the state is kept locally.
+ * <p>
+ * Every state is stored with a version, which is higher than the versions of
+ * all states this node has written or read before (a Lamport clock), so a
+ * write following a read wins even if the clock of the node which wrote the
+ * read state is ahead. Reads ask the owner, the replicas and the local store
+ * and return the newest copy, so a write kept locally is not hidden by an
+ * outdated copy of the owner. Nodes which returned an outdated copy get the
+ * newest one in the background.
+ */
+public class ClusteredGameStateStore implements IGameStateStore {
+
+	private final ClusterNode self;
+	private final ConsistentHashRing ring;
+	private final IGameStateStore localStore;
+	private final IClusterTransport transport;
+	private final int replicas;
+	private final ExecutorService replicationExecutor;
+	private final AtomicLong lastVersion = new AtomicLong();
+
+	public ClusteredGameStateStore(ClusterNode self, ConsistentHashRing ring,
+			IGameStateStore localStore, IClusterTransport transport,
+			int replicas) {
+		if (!ring.getNodes().contains(self))
+			throw new IllegalArgumentException("Node " + self
+					+ " is not part of the ring.");
+
+		this.self = self;
+		this.ring = ring;
+		this.localStore = localStore;
+		this.transport = transport;
+		this.replicas = Math.max(1, replicas);
+		this.replicationExecutor = new ThreadPoolExecutor(1, 2, 60,
+				TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1000),
+				Services.daemonThreads("game-state-replication"),
+				new ThreadPoolExecutor.DiscardOldestPolicy());
+	}
+
+	@Override
+	public byte[] get(final String key) {
+		byte[] local = localStore.get(key);
+		byte[] newest = local;
+		List<ClusterNode> outdated = new ArrayList<>();
+		for (ClusterNode node : ring.nodesFor(key, replicas)) {
+			if (node.equals(self))
+				continue;
+			byte[] state = remoteGet(node, key);
+			if (state == null)
+				continue;
+			if (newest == null || version(state) > version(newest)) {
+				if (newest != null)
+					outdated.add(node);
+				newest = state;
+			} else if (version(state) < version(newest)) {
+				outdated.add(node);
+			}
+		}
+		if (newest == null)
+			return null;
+
+		observe(version(newest));
+		if (local != null && newest != local)
+			localStore.put(key, newest);
+		final byte[] repaired = newest;
+		for (final ClusterNode node : outdated) {
+			replicate(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						transport.put(node, key, repaired);
+					} catch (IOException e) {
+						Logger.warn("Could not repair game on " + node + ".", e);
+					}
+				}
+			});
+		}
+		return unwrap(newest);
+	}
+
+	@Override
+	public void put(final String key, byte[] state) {
+		final byte[] versioned = wrap(nextVersion(), state);
+		List<ClusterNode> nodes = ring.nodesFor(key, replicas);
+		ClusterNode owner = nodes.get(0);
+		if (owner.equals(self)) {
+			localStore.put(key, versioned);
+		} else {
+			try {
+				transport.put(owner, key, versioned);
+			} catch (IOException e) {
+				Logger.warn("Could not store game on owner " + owner
+						+ ", keeping it locally.", e);
+				localStore.put(key, versioned);
+			}
+		}
+
+		for (final ClusterNode replica : nodes.subList(1, nodes.size())) {
+			if (replica.equals(self)) {
+				localStore.put(key, versioned);
+			} else {
+				replicate(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							transport.put(replica, key, versioned);
+						} catch (IOException e) {
+							Logger.warn("Could not replicate game to "
+									+ replica + ".", e);
+						}
+					}
+				});
+			}
+		}
+	}
+
+	@Override
+	public void remove(final String key) {
+		localStore.remove(key);
+		for (final ClusterNode node : ring.nodesFor(key, replicas)) {
+			if (!node.equals(self)) {
+				replicate(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							transport.remove(node, key);
+						} catch (IOException e) {
+							Logger.warn("Could not remove game from " + node
+									+ ".", e);
+						}
+					}
+				});
+			}
+		}
+	}
+
+	@Override
+	public int getMaxStateSize() {
+		// the version is stored in front of the state
+		return localStore.getMaxStateSize() - 8;
+	}
+
+	/**
+	 * Get the store holding the games of this node, used to answer requests
+	 * of other nodes
+	 *
+	 * @return
+	 */
+	public IGameStateStore getLocalStore() {
+		return localStore;
+	}
+
+	public ClusterNode getSelf() {
+		return self;
+	}
+
+	public void shutdown() {
+		replicationExecutor.shutdown();
+	}
+
+	private byte[] remoteGet(ClusterNode node, String key) {
+		try {
+			return transport.get(node, key);
+		} catch (IOException e) {
+			Logger.warn("Could not load game from " + node + ".", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Get a version newer than all versions written or read by this node
+	 * before, the current time unless the clock is behind
+	 */
+	private long nextVersion() {
+		while (true) {
+			long last = lastVersion.get();
+			long next = Math.max(now(), last + 1);
+			if (lastVersion.compareAndSet(last, next))
+				return next;
+		}
+	}
+
+	/**
+	 * Advance the clock of this node past a version read from any node
+	 */
+	private void observe(long version) {
+		while (true) {
+			long last = lastVersion.get();
+			if (last >= version || lastVersion.compareAndSet(last, version))
+				return;
+		}
+	}
+
+	/**
+	 * @return the current time of this node, overridden by tests to skew it
+	 */
+	long now() {
+		return System.currentTimeMillis();
+	}
+
+	private static byte[] wrap(long version, byte[] state) {
+		return ByteBuffer.allocate(8 + state.length).putLong(version)
+				.put(state).array();
+	}
+
+	/**
+	 * @return the version of a stored state, -1 if it has none
+	 */
+	private static long version(byte[] stored) {
+		return stored.length < 8 ? -1 : ByteBuffer.wrap(stored).getLong();
+	}
+
+	private static byte[] unwrap(byte[] stored) {
+		if (stored.length < 8)
+			return null;
+		byte[] state = new byte[stored.length - 8];
+		System.arraycopy(stored, 8, state, 0, state.length);
+		return state;
+	}
+
+	private void replicate(Runnable task) {
+		try {
+			replicationExecutor.execute(task);
+		} catch (RejectedExecutionException e) {
+			Logger.warn("Replication queue rejected task.", e);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package cluster;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Consistent hash ring which assigns keys to cluster nodes. Every node is
+ * placed on the ring several times (virtual nodes), so keys are spread evenly
+ * and only a small share of them moves when a node joins or leaves.
+ */
+public class ConsistentHashRing {
+
+	private static final int DEFAULT_VIRTUAL_NODES = 128;
+
+	private final TreeMap<Long, ClusterNode> ring = new TreeMap<>();
+	private final List<ClusterNode> nodes;
+
+	public ConsistentHashRing(Collection<ClusterNode> nodes) {
+		this(nodes, DEFAULT_VIRTUAL_NODES);
+	}
+
+	public ConsistentHashRing(Collection<ClusterNode> nodes, int virtualNodes) {
+		if (nodes.isEmpty())
+			throw new IllegalArgumentException("Ring needs at least one node.");
+
+		this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+		for (ClusterNode node : nodes) {
+			for (int i = 0; i < virtualNodes; i++)
+				ring.put(hash(node.getId() + "#" + i), node);
+		}
+	}
+
+	/**
+	 * Get the node owning the given key
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public ClusterNode ownerOf(String key) {
+		return nodesFor(key, 1).get(0);
+	}
+
+	/**
+	 * Get the owner of the given key followed by the next distinct nodes on
+	 * the ring, which hold the replicas
+	 * 
+	 * @param key
+	 * @param count
+	 *            number of nodes, at most the size of the cluster
+	 * @return
+	 */
+	public List<ClusterNode> nodesFor(String key, int count) {
+		int wanted = Math.min(count, nodes.size());
+		List<ClusterNode> result = new ArrayList<>(wanted);
+		long hash = hash(key);
+
+		SortedMap<Long, ClusterNode> tail = ring.tailMap(hash);
+		collect(tail, result, wanted);
+		if (result.size() < wanted)
+			collect(ring, result, wanted);
+		return result;
+	}
+
+	public List<ClusterNode> getNodes() {
+		return nodes;
+	}
+
+	private static void collect(Map<Long, ClusterNode> section,
+			List<ClusterNode> result, int wanted) {
+		for (ClusterNode node : section.values()) {
+			if (result.size() == wanted)
+				return;
+			if (!result.contains(node))
+				result.add(node);
+		}
+	}
+
+	private static long hash(String value) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(
+					value.getBytes(Charsets.UTF_8));
+			long hash = 0;
+			for (int i = 0; i < 8; i++)
+				hash = (hash << 8) | (digest[i] & 0xFF);
+			return hash;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
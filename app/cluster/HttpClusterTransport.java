@@ -0,0 +1,120 @@
+package cluster;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+
+/**
+ * Transfers game state over HTTP to the {@code /cluster/games} routes of the
+ * other nodes. Requests carry the shared cluster secret, so nodes only accept
+ * state from their peers.
+ */
+public class HttpClusterTransport implements IClusterTransport {
+
+	public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+	private final String secret;
+	private final int connectTimeout;
+	private final int readTimeout;
+
+	public HttpClusterTransport(String secret, int connectTimeout,
+			int readTimeout) {
+		this.secret = secret;
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+	}
+
+	@Override
+	public byte[] get(ClusterNode node, String key) throws IOException {
+		HttpURLConnection connection = open(node, key, "GET");
+		int status = connection.getResponseCode();
+		if (status != HttpURLConnection.HTTP_OK) {
+			release(connection);
+			if (status == HttpURLConnection.HTTP_NOT_FOUND)
+				return null;
+			checkStatus(node, status);
+		}
+		return readFully(connection.getInputStream());
+	}
+
+	@Override
+	public void put(ClusterNode node, String key, byte[] state)
+			throws IOException {
+		HttpURLConnection connection = open(node, key, "PUT");
+		try {
+			connection.setDoOutput(true);
+			connection.setFixedLengthStreamingMode(state.length);
+			connection.setRequestProperty("Content-Type",
+					"application/octet-stream");
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(state);
+			}
+			checkStatus(node, connection.getResponseCode());
+		} finally {
+			release(connection);
+		}
+	}
+
+	@Override
+	public void remove(ClusterNode node, String key) throws IOException {
+		HttpURLConnection connection = open(node, key, "DELETE");
+		try {
+			checkStatus(node, connection.getResponseCode());
+		} finally {
+			release(connection);
+		}
+	}
+
+	private HttpURLConnection open(ClusterNode node, String key, String method)
+			throws IOException {
+		URL url = new URL(node.getBaseUrl() + "/cluster/games/"
+				+ URLEncoder.encode(key, "UTF-8"));
+		HttpURLConnection connection = (HttpURLConnection) url
+				.openConnection();
+		connection.setRequestMethod(method);
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		connection.setUseCaches(false);
+		connection.setRequestProperty(SECRET_HEADER, secret);
+		return connection;
+	}
+
+	/**
+	 * Drain and close the response, so the underlying connection is kept
+	 * alive and reused for the next request to the same node
+	 */
+	private static void release(HttpURLConnection connection) {
+		try {
+			InputStream in = connection.getResponseCode() < 400 ? connection
+					.getInputStream() : connection.getErrorStream();
+			if (in != null)
+				readFully(in);
+		} catch (IOException e) {
+			connection.disconnect();
+		}
+	}
+
+	private static void checkStatus(ClusterNode node, int status)
+			throws IOException {
+		if (status < 200 || status >= 300)
+			throw new IOException("Node " + node + " answered with status "
+					+ status);
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+			byte[] buffer = new byte[512];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+				out.write(buffer, 0, read);
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+}
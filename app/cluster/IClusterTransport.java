@@ -0,0 +1,17 @@
+package cluster;
+
+import java.io.IOException;
+
+/**
+ * Interface for transferring game state between cluster nodes
+ */
+public interface IClusterTransport {
+
+	public byte[] get(ClusterNode node, String key) throws IOException;
+
+	public void put(ClusterNode node, String key, byte[] state)
+			throws IOException;
+
+	public void remove(ClusterNode node, String key) throws IOException;
+
+}
@@ -0,0 +1,16 @@
+package controllers;
+
+import play.mvc.Http.Context;
+import play.mvc.Result;
+
+/**
+ * Authentication of the JSON API, answers with 401 instead of redirecting to
+ * the login page
+ */
+public class ApiSecured extends Secured {
+
+	@Override
+	public Result onUnauthorized(Context ctx) {
+		return unauthorized();
+	}
+}
@@ -1,15 +1,22 @@
 package controllers;
 
-import models.QuizDAO;
+import java.util.concurrent.RejectedExecutionException;
+
+import auth.AuthService;
 import models.QuizUser;
 import play.data.DynamicForm;
 import play.data.Form;
+import play.libs.F.Function;
+import play.libs.F.Promise;
 import play.mvc.Controller;
 import play.mvc.Result;
 import views.html.authentication;
 
 public class Authentication extends Controller {
 
+	// seconds a client should wait before retrying a rejected login
+	private static final String RETRY_AFTER_SECONDS = "1";
+
 	public static Result login() {
 		return ok(authentication.render(Form.form()));
 	}
@@ -19,29 +26,42 @@ public class Authentication extends Controller {
 		return redirect(routes.Authentication.login());
 	}
 
-	@play.db.jpa.Transactional(readOnly = true)
-	public static Result authenticate() {
-		DynamicForm loginForm = Form.form().bindFromRequest();
-		QuizUser user = obtainAuthenticatedQuizUser(loginForm);
-		if (user != null) {
-			Secured.addAuthentication(session(), user);
-			return redirect(routes.Application.index());
-		} else {
-			loginForm.reject("authentication.unsuccessful");
-			return badRequest(authentication.render(loginForm));
+	/**
+	 * Verify the login on the authentication pool, respond with 503 if too
+	 * many logins are waiting
+	 * 
+	 * @return
+	 */
+	public static Promise<Result> authenticate() {
+		final DynamicForm loginForm = Form.form().bindFromRequest();
+		if (loginForm.hasErrors()) {
+			return Promise.pure(rejectLogin(loginForm));
 		}
-	}
+		try {
+			return AuthService.INSTANCE.authenticate(getUserName(loginForm),
+					getPassword(loginForm)).map(
+					new Function<QuizUser, Result>() {
 
-	private static QuizUser obtainAuthenticatedQuizUser(DynamicForm loginForm) {
-		if (!loginForm.hasErrors()) {
-			String userName = getUserName(loginForm);
-			String password = getPassword(loginForm);
-			QuizUser user = QuizDAO.INSTANCE.findByUserName(userName);
-			if (user != null && user.authenticate(password)) {
-				return user;
-			}
+						@Override
+						public Result apply(QuizUser user) {
+							if (user == null) {
+								return rejectLogin(loginForm);
+							}
+							Secured.addAuthentication(session(), user);
+							return redirect(routes.Application.index());
+						}
+					});
+		} catch (RejectedExecutionException e) {
+			loginForm.reject("authentication.busy");
+			response().setHeader(RETRY_AFTER, RETRY_AFTER_SECONDS);
+			return Promise.<Result> pure(status(SERVICE_UNAVAILABLE,
+					authentication.render(loginForm)));
 		}
-		return null;
+	}
+
+	private static Result rejectLogin(DynamicForm loginForm) {
+		loginForm.reject("authentication.unsuccessful");
+		return badRequest(authentication.render(loginForm));
 	}
 
 	private static String getPassword(DynamicForm loginForm) {
@@ -0,0 +1,69 @@
+package controllers;
+
+import java.security.MessageDigest;
+
+import play.Play;
+import play.mvc.BodyParser;
+import play.mvc.Controller;
+import play.mvc.Result;
+import store.GameStateStores;
+import store.IGameStateStore;
+import cluster.HttpClusterTransport;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Serves the games stored on this node to the other nodes of the cluster.
+ * The routes don't exist unless clustering is configured, requests must carry
+ * the cluster secret.
+ */
+public class Cluster extends Controller {
+
+	public static Result getGame(String key) {
+		if (!GameStateStores.isClustered())
+			return notFound();
+		if (!isPeer())
+			return forbidden();
+		byte[] state = store().get(key);
+		if (state == null)
+			return notFound();
+		return ok(state).as("application/octet-stream");
+	}
+
+	@BodyParser.Of(value = BodyParser.Raw.class, maxLength = 64 * 1024)
+	public static Result putGame(String key) {
+		if (!GameStateStores.isClustered())
+			return notFound();
+		if (!isPeer())
+			return forbidden();
+		byte[] state = request().body().asRaw().asBytes();
+		if (state == null)
+			return badRequest();
+		store().put(key, state);
+		return noContent();
+	}
+
+	public static Result removeGame(String key) {
+		if (!GameStateStores.isClustered())
+			return notFound();
+		if (!isPeer())
+			return forbidden();
+		store().remove(key);
+		return noContent();
+	}
+
+	private static IGameStateStore store() {
+		return GameStateStores.local();
+	}
+
+	private static boolean isPeer() {
+		String secret = Play.application().configuration()
+				.getString("cluster.secret");
+		String sent = request().getHeader(HttpClusterTransport.SECRET_HEADER);
+		if (secret == null || secret.isEmpty() || sent == null)
+			return false;
+		// in constant time, so the secret can't be guessed byte by byte
+		return MessageDigest.isEqual(secret.getBytes(Charsets.UTF_8),
+				sent.getBytes(Charsets.UTF_8));
+	}
+}
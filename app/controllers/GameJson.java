@@ -0,0 +1,72 @@
+package controllers;
+
+import models.Answer;
+import models.QuestionPayloadCache;
+import models.QuizGame;
+import models.QuizUser;
+import models.Round;
+import play.i18n.Lang;
+import play.i18n.Messages;
+import play.libs.Json;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * JSON representation of the state of a single player game, shared by the
+ * quiz WebSocket and the JSON API. The type of the state is
+ * <code>question</code>, <code>roundOver</code> or <code>gameOver</code>.
+ */
+final class GameJson {
+
+	private GameJson() {
+	}
+
+	static ObjectNode state(GameSession session, QuizGame game, Lang lang) {
+		Round round = game.getCurrentRound();
+		ObjectNode result = Json.newObject();
+		result.put("id", game.getId());
+		result.put("round", game.getCurrentRoundCount());
+
+		ArrayNode players = result.putArray("players");
+		for (QuizUser player : game.getPlayers()) {
+			ObjectNode node = players.addObject();
+			node.put("name", player.getName());
+			node.put("wonRounds", game.getWonRounds(player));
+			ArrayNode answers = node.putArray("answers");
+			for (int i = 0; i < round.getQuestions().size(); i++)
+				answers.add(answerState(round.getAnswer(i, player)));
+		}
+
+		if (game.isGameOver()) {
+			QuizUser winner = game.getWinner();
+			result.put("type", "gameOver");
+			result.put("winner", winner == null ? null : winner.getName());
+			result.put("message", winner == null ? Messages.get(lang,
+					"quiz.tie") : Messages.get(lang, "quiz.winner",
+					winner.getName()));
+		} else if (game.isRoundOver()) {
+			QuizUser winner = round.getRoundWinner();
+			result.put("type", "roundOver");
+			result.put("roundWinner", winner == null ? null : winner.getName());
+		} else {
+			result.put("type", "question");
+			result.put("question", QuestionPayloadCache.INSTANCE.get(
+					session.currentQuestion(game), lang.code()).getNode());
+		}
+		return result;
+	}
+
+	static ObjectNode error(String message) {
+		ObjectNode result = Json.newObject();
+		result.put("type", "error");
+		result.put("message", message);
+		return result;
+	}
+
+	private static String answerState(Answer answer) {
+		if (answer == null)
+			return "unknown";
+		return answer.isCorrect() ? "correct" : "incorrect";
+	}
+}
@@ -0,0 +1,145 @@
+package controllers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import models.Choice;
+import models.GameListeners;
+import models.GameStateCodec;
+import models.Question;
+import models.QuestionCatalog;
+import models.QuizGame;
+import models.QuizUser;
+import models.UserView;
+import play.Logger;
+import play.mvc.Http.Context;
+import store.GameStateStores;
+import store.IGameStateStore;
+
+/**
+ * The single player game of a browser session. Holds everything needed to
+ * load, play and save the game, so it can also be used outside of an HTTP
+ * request, e.g. by the WebSocket of the quiz page.
+ */
+final class GameSession {
+
+	private final UserView user;
+	private final String key;
+
+	/**
+	 * @param user
+	 *            the logged in user
+	 * @param uuid
+	 *            the game uuid stored in the session cookie
+	 */
+	GameSession(UserView user, String uuid) {
+		this.user = user;
+		this.key = "game." + uuid;
+	}
+
+	/**
+	 * Get the game session of the current request, a new game uuid is stored
+	 * in the session cookie if there is none yet
+	 *
+	 * @param ctx
+	 * @return
+	 */
+	static GameSession of(Context ctx) {
+		String uuid = ctx.session().get("uuid");
+		if (uuid == null) {
+			uuid = UUID.randomUUID().toString();
+			ctx.session().put("uuid", uuid);
+		}
+		return new GameSession(Secured.getUser(ctx), uuid);
+	}
+
+	UserView getUser() {
+		return user;
+	}
+
+	/**
+	 * Load the game from the game state store
+	 *
+	 * @return the game or null if there is no game or it can't be decoded
+	 */
+	QuizGame load() {
+		byte[] state = gameStore().get(key);
+		if (state == null)
+			return null;
+		QuizGame game = GameStateCodec.decode(state,
+				QuestionCatalog.current(), user.toPlayer());
+		// set after decoding, restored answers are not logged again
+		if (game != null)
+			game.setListener(GameListeners.INSTANCE);
+		return game;
+	}
+
+	/**
+	 * Start a new game against the computer and save it
+	 *
+	 * @return
+	 */
+	QuizGame newGame() {
+		QuestionCatalog catalog = QuestionCatalog.current();
+		Logger.info("Start game with " + catalog.getCategories().size()
+				+ " categories.");
+		QuizGame game = new QuizGame(catalog, user.toPlayer());
+		game.setListener(GameListeners.INSTANCE);
+		game.startNewRound();
+		save(game);
+		return game;
+	}
+
+	void save(QuizGame game) {
+		IGameStateStore store = gameStore();
+		byte[] state = GameStateCodec.encode(game);
+		if (state.length > store.getMaxStateSize())
+			throw new IllegalStateException("Game " + game.getId() + " of "
+					+ state.length + " bytes exceeds the maximum state size of "
+					+ store.getMaxStateSize() + " bytes, increase "
+					+ "game.store.slotSize.");
+		store.put(key, state);
+	}
+
+	QuizUser player(QuizGame game) {
+		return game.getPlayer(user.getId());
+	}
+
+	Question currentQuestion(QuizGame game) {
+		if (game == null || game.getCurrentRound() == null)
+			return null;
+		return game.getCurrentRound().getCurrentQuestion(player(game));
+	}
+
+	/**
+	 * Answer the current question of the user. Answers to any other question,
+	 * e.g. sent twice, are ignored.
+	 *
+	 * @param game
+	 * @param questionId
+	 *            id of the answered question
+	 * @param choiceIds
+	 *            ids of the selected choices, unknown ids are ignored
+	 * @param time
+	 *            the time left
+	 * @return true if the answer has been counted
+	 */
+	boolean answer(QuizGame game, long questionId, List<Long> choiceIds,
+			long time) {
+		Question question = currentQuestion(game);
+		if (question == null || question.getId() != questionId)
+			return false;
+		List<Choice> choices = new ArrayList<Choice>();
+		for (Choice choice : question.getChoices()) {
+			if (choiceIds.contains(choice.getId()))
+				choices.add(choice);
+		}
+		game.answerCurrentQuestion(player(game), choices, time);
+		return true;
+	}
+
+	private static IGameStateStore gameStore() {
+		return GameStateStores.get();
+	}
+}
@@ -0,0 +1,69 @@
+package controllers;
+
+import java.util.List;
+
+import models.AnswerEvent;
+import models.GameReplay;
+import models.Question;
+import models.QuestionCatalog;
+import models.QuizDAO;
+import models.QuizGame;
+import models.QuizUser;
+import models.Round;
+import play.db.jpa.Transactional;
+import play.libs.Json;
+import play.mvc.Controller;
+import play.mvc.Result;
+import play.mvc.Security;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Replays games from the answer log. Users can replay the games they took
+ * part in, even after the game state has expired.
+ */
+@Security.Authenticated(Secured.class)
+public class History extends Controller {
+
+	@Transactional(readOnly = true)
+	public static Result replay(String id) {
+		List<AnswerEvent> events = QuizDAO.INSTANCE.findAnswerEvents(id);
+		QuizGame game = GameReplay.replay(id, events,
+				QuestionCatalog.current());
+		long userId = Secured.getUser(ctx()).getId();
+		if (game == null || game.getPlayer(userId) == null) {
+			return notFound();
+		}
+
+		ObjectNode result = Json.newObject();
+		result.put("id", game.getId());
+		result.put("answers", events.size());
+		result.put("gameOver", game.isGameOver());
+		QuizUser winner = game.getWinner();
+		result.put("winner", winner == null ? null : winner.getName());
+
+		ArrayNode rounds = result.putArray("rounds");
+		for (int r = 1; r <= game.getCurrentRoundCount(); r++) {
+			Round round = game.getRound(r);
+			ObjectNode roundNode = rounds.addObject();
+			roundNode.put("number", r);
+			QuizUser roundWinner = round.getRoundWinner();
+			roundNode.put("winner", roundWinner == null ? null : roundWinner
+					.getName());
+			ArrayNode questions = roundNode.putArray("questions");
+			for (Question question : round.getQuestions()) {
+				questions.add(question.getId());
+			}
+			ArrayNode players = roundNode.putArray("players");
+			for (QuizUser player : game.getPlayers()) {
+				ObjectNode playerNode = players.addObject();
+				playerNode.put("name", player.getName());
+				playerNode.put("answered", round.getAnsweredQuestions(player));
+				playerNode.put("correct", round.getCorrectAnswers(player));
+				playerNode.put("time", round.getTotalTime(player));
+			}
+		}
+		return ok(result);
+	}
+}
@@ -0,0 +1,64 @@
+package controllers;
+
+import java.util.List;
+
+import models.Category;
+import models.QuestionCatalog;
+import play.libs.Json;
+import play.mvc.Controller;
+import play.mvc.Result;
+import play.mvc.Security;
+import ranking.LeaderboardSnapshot;
+import ranking.ScoreEntry;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Shows the global and per category leaderboards, as HTML or as JSON if the
+ * client accepts it. The boards are served from the current snapshot, so no
+ * DB access is needed.
+ */
+@Security.Authenticated(Secured.class)
+public class Leaderboard extends Controller {
+
+	public static Result index() {
+		LeaderboardSnapshot snapshot = ranking.Leaderboard.INSTANCE
+				.getSnapshot();
+		QuestionCatalog catalog = QuestionCatalog.current();
+		if (!request().accepts("text/html")
+				&& request().accepts("application/json")) {
+			return ok(json(snapshot, catalog, lang().code()));
+		}
+		return ok(views.html.quiz.leaderboard.render(snapshot, catalog));
+	}
+
+	private static ObjectNode json(LeaderboardSnapshot snapshot,
+			QuestionCatalog catalog, String lang) {
+		ObjectNode result = Json.newObject();
+		result.put("createdAt", snapshot.getCreatedAt());
+		addScores(result.putArray("global"), snapshot.getGlobal());
+		ArrayNode categories = result.putArray("categories");
+		for (Long categoryId : snapshot.getCategoryIds()) {
+			Category category = catalog.findCategory(categoryId);
+			ObjectNode categoryNode = categories.addObject();
+			categoryNode.put("id", categoryId);
+			categoryNode.put("name",
+					category == null ? null : category.getName(lang));
+			addScores(categoryNode.putArray("scores"),
+					snapshot.getCategory(categoryId));
+		}
+		return result;
+	}
+
+	private static void addScores(ArrayNode node, List<ScoreEntry> scores) {
+		int rank = 1;
+		for (ScoreEntry score : scores) {
+			ObjectNode scoreNode = node.addObject();
+			scoreNode.put("rank", rank++);
+			scoreNode.put("user", score.getUserName());
+			scoreNode.put("score", score.getScore());
+			scoreNode.put("time", score.getTime());
+		}
+	}
+}
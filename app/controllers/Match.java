@@ -0,0 +1,215 @@
+package controllers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import match.MatchTicket;
+import match.Matchmaker;
+import models.Choice;
+import models.Question;
+import models.QuestionCatalog;
+import models.QuizGame;
+import models.QuizUser;
+import models.Round;
+import models.UserView;
+import play.data.DynamicForm;
+import play.data.Form;
+import play.db.jpa.Transactional;
+import play.i18n.Messages;
+import play.libs.Json;
+import play.mvc.Controller;
+import play.mvc.Result;
+import play.mvc.Security;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Games of two human players. Users join the matchmaking queue, poll their
+ * ticket until they have been paired and then play the game through JSON
+ * requests. Both players answer concurrently.
+ */
+@Security.Authenticated(Secured.class)
+public class Match extends Controller {
+
+	@Transactional(readOnly = true)
+	public static Result join() {
+		if (QuestionCatalog.current().isEmpty()) {
+			return status(SERVICE_UNAVAILABLE, Messages.get("quiz.not-ready"));
+		}
+		MatchTicket ticket = Matchmaker.INSTANCE.join(user().toPlayer(),
+				QuestionCatalog.current());
+		return ok(ticketJson(ticket));
+	}
+
+	public static Result ticket(String id) {
+		MatchTicket ticket = ownTicket(id);
+		if (ticket == null) {
+			return notFound();
+		}
+		return ok(ticketJson(ticket));
+	}
+
+	public static Result cancel(String id) {
+		MatchTicket ticket = ownTicket(id);
+		if (ticket == null) {
+			return notFound();
+		}
+		Matchmaker.INSTANCE.cancel(ticket);
+		return ok(ticketJson(ticket));
+	}
+
+	public static Result game(String id) {
+		QuizGame game = Matchmaker.INSTANCE.getGame(id);
+		QuizUser player = playerOf(game);
+		if (player == null) {
+			return notFound();
+		}
+		return ok(gameJson(game, player));
+	}
+
+	/**
+	 * Answer the current question of the player, the number of the question
+	 * has to be sent along so repeated requests are not counted twice
+	 *
+	 * @param id
+	 * @return
+	 */
+	public static Result answer(String id) {
+		QuizGame game = Matchmaker.INSTANCE.getGame(id);
+		QuizUser player = playerOf(game);
+		if (player == null) {
+			return notFound();
+		}
+		DynamicForm form = Form.form().bindFromRequest();
+		Round round = game.getCurrentRound();
+		int questionNumber;
+		long time;
+		try {
+			questionNumber = Integer.parseInt(form.get("questionnumber"));
+			time = Long.parseLong(form.get("timeleft"));
+		} catch (NumberFormatException e) {
+			return badRequest(Messages.get("quiz.no-current-question"));
+		}
+		Question question = round.getQuestion(questionNumber);
+		if (question == null) {
+			return badRequest(Messages.get("quiz.no-current-question"));
+		}
+		if (!round.answerQuestion(questionNumber,
+				selectedChoices(form.data(), question), time, player)) {
+			return status(CONFLICT, gameJson(game, player));
+		}
+		return ok(gameJson(game, player));
+	}
+
+	/**
+	 * Start the next round, whichever player asks first starts it
+	 *
+	 * @param id
+	 * @return
+	 */
+	public static Result newRound(String id) {
+		QuizGame game = Matchmaker.INSTANCE.getGame(id);
+		QuizUser player = playerOf(game);
+		if (player == null) {
+			return notFound();
+		}
+		if (!game.isRoundOver() || game.isGameOver()) {
+			return badRequest(Messages.get("quiz.no-round-ended"));
+		}
+		game.startRound(game.getCurrentRoundCount() + 1);
+		return ok(gameJson(game, player));
+	}
+
+	private static UserView user() {
+		return Secured.getUser(ctx());
+	}
+
+	private static long userId() {
+		return user().getId();
+	}
+
+	private static MatchTicket ownTicket(String id) {
+		MatchTicket ticket = Matchmaker.INSTANCE.getTicket(id);
+		if (ticket == null || ticket.getUser().getId() == null
+				|| ticket.getUser().getId() != userId()) {
+			return null;
+		}
+		return ticket;
+	}
+
+	private static QuizUser playerOf(QuizGame game) {
+		return game == null ? null : game.getPlayer(userId());
+	}
+
+	private static List<Choice> selectedChoices(Map<String, String> formData,
+			Question question) {
+		List<Choice> choices = new ArrayList<Choice>();
+		String chosenId;
+		for (int i = 0; (chosenId = formData.get("choices[" + i + "]")) != null; i++) {
+			for (Choice choice : question.getChoices()) {
+				if (String.valueOf(choice.getId()).equals(chosenId)) {
+					choices.add(choice);
+				}
+			}
+		}
+		return choices;
+	}
+
+	private static ObjectNode ticketJson(MatchTicket ticket) {
+		ObjectNode result = Json.newObject();
+		result.put("ticket", ticket.getId());
+		result.put("matched", ticket.isMatched());
+		if (ticket.isMatched()) {
+			result.put("game", ticket.getGame().getId());
+		}
+		return result;
+	}
+
+	private static ObjectNode gameJson(QuizGame game, QuizUser player) {
+		String lang = lang().code();
+		Round round = game.getCurrentRound();
+		ObjectNode result = Json.newObject();
+		result.put("id", game.getId());
+		result.put("round", game.getCurrentRoundCount());
+		result.put("roundOver", game.isRoundOver());
+		result.put("gameOver", game.isGameOver());
+
+		ArrayNode players = result.putArray("players");
+		for (QuizUser participant : game.getPlayers()) {
+			ObjectNode node = players.addObject();
+			node.put("name", participant.getName());
+			node.put("self", participant == player);
+			node.put("wonRounds", game.getWonRounds(participant));
+			node.put("answered", round.getAnsweredQuestions(participant));
+			node.put("correct", round.getCorrectAnswers(participant));
+		}
+
+		if (game.isRoundOver()) {
+			QuizUser roundWinner = round.getRoundWinner();
+			result.put("roundWinner", roundWinner == null ? null : roundWinner
+					.getName());
+		}
+		if (game.isGameOver()) {
+			QuizUser winner = game.getWinner();
+			result.put("winner", winner == null ? null : winner.getName());
+		}
+
+		Question question = round.getCurrentQuestion(player);
+		if (question != null) {
+			ObjectNode node = result.putObject("question");
+			node.put("number", round.getAnsweredQuestions(player));
+			node.put("id", question.getId());
+			node.put("text", question.getText(lang));
+			node.put("maxTime", question.getMaxTime());
+			ArrayNode choices = node.putArray("choices");
+			for (Choice choice : question.getChoices()) {
+				ObjectNode choiceNode = choices.addObject();
+				choiceNode.put("id", choice.getId());
+				choiceNode.put("text", choice.getText(lang));
+			}
+		}
+		return result;
+	}
+}
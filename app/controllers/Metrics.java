@@ -0,0 +1,105 @@
+package controllers;
+
+import auth.AuthService;
+import auth.SessionTokens;
+import highscore.HighScorePublisher;
+import history.AnswerLog;
+import match.Matchmaker;
+import models.QuestionPayloadCache;
+import models.QuizDAO;
+import play.db.jpa.Transactional;
+import play.libs.Json;
+import ranking.Leaderboard;
+import ranking.LeaderboardSnapshot;
+import stats.QuestionStatistics;
+import play.mvc.Controller;
+import play.mvc.Result;
+import twitter.TwitterPublisher;
+
+import org.hibernate.stat.Statistics;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Reports runtime metrics of the background components as JSON
+ */
+public class Metrics extends Controller {
+
+	@Transactional(readOnly = true)
+	public static Result index() {
+		ObjectNode metrics = Json.newObject();
+
+		ObjectNode highscore = metrics.putObject("highscore");
+		highscore.put("queueDepth", HighScorePublisher.INSTANCE.getQueueDepth());
+
+		TwitterPublisher twitterPublisher = TwitterPublisher.INSTANCE;
+		ObjectNode twitter = metrics.putObject("twitter");
+		twitter.put("queueDepth", twitterPublisher.getQueueDepth());
+		twitter.put("sentStatuses", twitterPublisher.getSentStatuses());
+		twitter.put("publishedMessages",
+				twitterPublisher.getPublishedMessages());
+		twitter.put("failedMessages", twitterPublisher.getFailedMessages());
+		twitter.put("averageLatencyMillis",
+				twitterPublisher.getAverageLatencyMillis());
+		twitter.put("maxLatencyMillis", twitterPublisher.getMaxLatencyMillis());
+
+		ObjectNode tokens = metrics.putObject("sessionTokens");
+		tokens.put("rejected", SessionTokens.INSTANCE.getRejectedCount());
+
+		QuestionPayloadCache payloadCache = QuestionPayloadCache.INSTANCE;
+		ObjectNode payloads = metrics.putObject("questionPayloads");
+		payloads.put("size", payloadCache.size());
+		payloads.put("hits", payloadCache.getHits());
+		payloads.put("misses", payloadCache.getMisses());
+
+		ObjectNode fragments = metrics.putObject("questionFragments");
+		fragments.put("size", QuestionFragments.INSTANCE.size());
+		fragments.put("hits", QuestionFragments.INSTANCE.getHits());
+		fragments.put("misses", QuestionFragments.INSTANCE.getMisses());
+
+		Statistics statistics = QuizDAO.INSTANCE.getStatistics();
+		ObjectNode hibernate = metrics.putObject("hibernate");
+		// counted only if jpa.statistics is set
+		hibernate.put("enabled", statistics.isStatisticsEnabled());
+		hibernate.put("statements", statistics.getPrepareStatementCount());
+		hibernate.put("queries", statistics.getQueryExecutionCount());
+		hibernate.put("entityLoads", statistics.getEntityLoadCount());
+		hibernate.put("collectionLoads", statistics.getCollectionLoadCount());
+		hibernate.put("secondLevelCacheHits",
+				statistics.getSecondLevelCacheHitCount());
+		hibernate.put("secondLevelCacheMisses",
+				statistics.getSecondLevelCacheMissCount());
+
+		ObjectNode history = metrics.putObject("answerLog");
+		history.put("pending", AnswerLog.INSTANCE.getPendingCount());
+		history.put("written", AnswerLog.INSTANCE.getWrittenCount());
+		history.put("dropped", AnswerLog.INSTANCE.getDroppedCount());
+
+		LeaderboardSnapshot snapshot = Leaderboard.INSTANCE.getSnapshot();
+		ObjectNode leaderboard = metrics.putObject("leaderboard");
+		leaderboard.put("scores", snapshot.getGlobal().size());
+		leaderboard.put("categories", snapshot.getCategoryIds().size());
+		leaderboard.put("snapshotAgeMillis", System.currentTimeMillis()
+				- snapshot.getCreatedAt());
+
+		ObjectNode questionStats = metrics.putObject("questionStats");
+		questionStats.put("questions",
+				QuestionStatistics.INSTANCE.getQuestionCount());
+		questionStats.put("writtenRows",
+				QuestionStatistics.INSTANCE.getWrittenRows());
+		questionStats.put("failedFlushes",
+				QuestionStatistics.INSTANCE.getFailedFlushes());
+
+		ObjectNode auth = metrics.putObject("auth");
+		auth.put("queueDepth", AuthService.INSTANCE.getQueueDepth());
+		auth.put("active", AuthService.INSTANCE.getActiveCount());
+		auth.put("rejected", AuthService.INSTANCE.getRejectedCount());
+		auth.put("migrated", AuthService.INSTANCE.getMigratedCount());
+
+		ObjectNode matches = metrics.putObject("matchmaking");
+		matches.put("waiting", Matchmaker.INSTANCE.getWaitingCount());
+		matches.put("games", Matchmaker.INSTANCE.getGameCount());
+
+		return ok(metrics);
+	}
+}
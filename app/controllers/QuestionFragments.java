@@ -0,0 +1,126 @@
+package controllers;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import models.Languages;
+import models.Question;
+import models.QuestionCatalog;
+import play.api.templates.Html;
+import play.api.templates.HtmlFormat;
+import views.html.quiz.questionfragment;
+
+/**
+ * Rendered markup of questions for the quiz page, built once per question
+ * and language. Only the progress of the players is rendered per request.
+ * The fragments belong to a {@link QuestionCatalog} and are dropped when the
+ * catalog is replaced.
+ */
+public class QuestionFragments {
+
+	public static final QuestionFragments INSTANCE = new QuestionFragments();
+
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(
+			new Snapshot(null));
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * The escaped markup of a question in one language
+	 */
+	public static final class Fragment {
+
+		private final Html category;
+		private final Html question;
+		private final String maxTime;
+
+		Fragment(Question question, int lang) {
+			this.category = HtmlFormat.escape(question.getCategory().getName(
+					lang));
+			this.question = questionfragment.render(question, lang);
+			this.maxTime = String.valueOf(question.getMaxTime());
+		}
+
+		/**
+		 * @return the name of the category of the question
+		 */
+		public Html getCategory() {
+			return category;
+		}
+
+		/**
+		 * @return text, choices and id of the question
+		 */
+		public Html getQuestion() {
+			return question;
+		}
+
+		public String getMaxTime() {
+			return maxTime;
+		}
+	}
+
+	private static final class Snapshot {
+
+		private final QuestionCatalog catalog;
+		private final ConcurrentMap<Long, Fragment> fragments = new ConcurrentHashMap<>();
+
+		private Snapshot(QuestionCatalog catalog) {
+			this.catalog = catalog;
+		}
+	}
+
+	/**
+	 * Get the fragment of a question of the current catalog
+	 *
+	 * @param question
+	 * @param lang
+	 *            language code of the texts
+	 * @return
+	 */
+	public Fragment get(Question question, String lang) {
+		Snapshot current = snapshot();
+		int language = Languages.id(lang);
+		Long key = question.getId() * Languages.MAX_LANGUAGES + language;
+		Fragment fragment = current.fragments.get(key);
+		if (fragment != null) {
+			hits.incrementAndGet();
+			return fragment;
+		}
+		misses.incrementAndGet();
+		fragment = new Fragment(question, language);
+		Fragment existing = current.fragments.putIfAbsent(key, fragment);
+		return existing != null ? existing : fragment;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public int size() {
+		return snapshot.get().fragments.size();
+	}
+
+	/**
+	 * Get the snapshot of the current catalog. Of concurrent requests noticing
+	 * a new catalog only one replaces the snapshot, the others use it, so no
+	 * fragments are rendered into a snapshot which is lost right away.
+	 */
+	private Snapshot snapshot() {
+		QuestionCatalog catalog = QuestionCatalog.current();
+		while (true) {
+			Snapshot current = snapshot.get();
+			if (current.catalog == catalog)
+				return current;
+			Snapshot replacement = new Snapshot(catalog);
+			if (snapshot.compareAndSet(current, replacement))
+				return replacement;
+		}
+	}
+}
@@ -1,53 +1,36 @@
 package controllers;
 
-import java.net.URL;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
-import javax.xml.soap.MessageFactory;
-import javax.xml.soap.Name;
-import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPBodyElement;
-import javax.xml.soap.SOAPConnection;
-import javax.xml.soap.SOAPConnectionFactory;
-import javax.xml.soap.SOAPElement;
-import javax.xml.soap.SOAPEnvelope;
-import javax.xml.soap.SOAPFactory;
-import javax.xml.soap.SOAPFault;
-import javax.xml.soap.SOAPMessage;
-import javax.xml.soap.SOAPPart;
-
-import models.Category;
+import data.ImportStatus;
+import highscore.HighScorePublisher;
 import models.Choice;
+import models.PublishJob;
 import models.Question;
 import models.QuizDAO;
 import models.QuizGame;
 import models.QuizUser;
-import play.Logger;
+import models.UserView;
 import play.Play;
-import play.api.Application;
-import play.api.cache.Cache;
 import play.data.DynamicForm;
 import play.data.Form;
 import play.db.jpa.Transactional;
 import play.i18n.Messages;
+import play.libs.Json;
 import play.mvc.Controller;
 import play.mvc.Result;
 import play.mvc.Security;
-import scala.Option;
-import twitter.ITwitterClient;
-import twitter.TwitterClientImpl;
-import twitter.TwitterStatusMessage;
+import play.mvc.WebSocket;
 import views.html.quiz.index;
 import views.html.quiz.quiz;
 import views.html.quiz.quizover;
 import views.html.quiz.roundover;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 @Security.Authenticated(Secured.class)
 public class Quiz extends Controller {
 
@@ -57,19 +40,52 @@ public class Quiz extends Controller {
 
 	@play.db.jpa.Transactional(readOnly = true)
 	public static Result newGame() {
+		if (!ImportStatus.INSTANCE.isReady()) {
+			return status(SERVICE_UNAVAILABLE, Messages.get("quiz.not-ready"));
+		}
 		createNewGame();
 		return redirect(routes.Quiz.question());
 	}
 
 	@play.db.jpa.Transactional(readOnly = true)
 	private static QuizGame createNewGame() {
-		List<Category> allCategories = QuizDAO.INSTANCE
-				.findEntities(Category.class);
-		Logger.info("Start game with " + allCategories.size() + " categories.");
-		QuizGame game = new QuizGame(allCategories, user());
-		game.startNewRound();
-		cacheGame(game);
-		return game;
+		return gameSession().newGame();
+	}
+
+	/**
+	 * Open the WebSocket of the quiz page, which is used instead of posting
+	 * the answers if the browser supports it. WebSockets are not covered by
+	 * {@link Security.Authenticated}, so the session is checked here.
+	 * 
+	 * @return
+	 */
+	public static WebSocket<JsonNode> socket() {
+		final UserView user = Secured.getUser(ctx());
+		final String uuid = session("uuid");
+		if (user == null || uuid == null) {
+			return rejectedSocket();
+		}
+		return new QuizSocket(new GameSession(user, uuid),
+				Secured.getToken(ctx()), lang());
+	}
+
+	/**
+	 * A socket which only sends an error and is closed, the client falls back
+	 * to posting the answers
+	 */
+	private static WebSocket<JsonNode> rejectedSocket() {
+		final ObjectNode error = Json.newObject();
+		error.put("type", "error");
+		error.put("message", Messages.get("quiz.no-current-question"));
+		return new WebSocket<JsonNode>() {
+
+			@Override
+			public void onReady(WebSocket.In<JsonNode> in,
+					WebSocket.Out<JsonNode> out) {
+				out.write(error);
+				out.close();
+			}
+		};
 	}
 
 	@SuppressWarnings("unused")
@@ -78,16 +94,32 @@ public class Quiz extends Controller {
 				.getString("questions.filePath");
 	}
 
-	private static QuizUser user() {
-		String userId = Secured.getAuthentication(session());
-		return QuizDAO.INSTANCE.findById(Long.valueOf(userId));
+	/**
+	 * Get the view of the logged in user from the session token
+	 * 
+	 * @return
+	 */
+	private static UserView user() {
+		return Secured.getUser(ctx());
 	}
 
 	@play.db.jpa.Transactional(readOnly = true)
 	public static Result question() {
 		QuizGame game = cachedGame();
-		if (currentQuestion(game) != null) {
-			return ok(quiz.render(game));
+		if (game == null) {
+			if (!ImportStatus.INSTANCE.isReady()) {
+				return status(SERVICE_UNAVAILABLE,
+						Messages.get("quiz.not-ready"));
+			}
+			game = createNewGame();
+		}
+		Question question = currentQuestion(game);
+		if (question != null) {
+			return ok(quiz.render(game,
+					QuestionFragments.INSTANCE.get(question, lang().code())));
+		} else if (game.isRoundOver()) {
+			// rounds without questions are over right away
+			return redirectAccordingToGameState(game);
 		} else {
 			return badRequest(Messages.get("quiz.no-current-question"));
 		}
@@ -96,7 +128,7 @@ public class Quiz extends Controller {
 	@Transactional(readOnly = true)
 	private static Question currentQuestion(QuizGame game) {
 		if (game != null && game.getCurrentRound() != null) {
-			QuizUser user = game.getPlayers().get(0);
+			QuizUser user = game.getPlayer(user().getId());
 			return game.getCurrentRound().getCurrentQuestion(user);
 		} else {
 			return null;
@@ -109,6 +141,7 @@ public class Quiz extends Controller {
 		Question question = currentQuestion(game);
 		if (question != null) {
 			processAnswerIfSent(game);
+			cacheGame(game);
 			return redirectAccordingToGameState(game);
 		} else {
 			return badRequest(Messages.get("quiz.no-current-question"));
@@ -118,7 +151,7 @@ public class Quiz extends Controller {
 	@Transactional
 	private static void processAnswerIfSent(QuizGame game) {
 		DynamicForm form = Form.form().bindFromRequest();
-		QuizUser user = game.getPlayers().get(0);
+		QuizUser user = game.getPlayer(user().getId());
 		Question question = game.getCurrentRound().getCurrentQuestion(user);
 		int sentQuestionId = Integer.valueOf(form.data().get("questionid"));
 		if (question.getId() == sentQuestionId) {
@@ -171,7 +204,7 @@ public class Quiz extends Controller {
 	}
 
 	private static void cacheGame(QuizGame game) {
-		Cache.set(gameId(), game, 3600, application());
+		gameSession().save(game);
 	}
 
 	@play.db.jpa.Transactional(readOnly = true)
@@ -184,230 +217,72 @@ public class Quiz extends Controller {
 		}
 	}
 
-	@play.db.jpa.Transactional(readOnly = true)
 	public static Result endResult() {
 		QuizGame game = cachedGame();
 		if (game != null && isGameOver(game)) {
-			
-			String uuid = createSoapRequest(game);
-			
-			if(uuid != null){
-				
-				String userName = user().getUserName();
-				TwitterStatusMessage twitterMsg = new TwitterStatusMessage(userName, uuid, new Date());
-				ITwitterClient twitterClient = new TwitterClientImpl();
-				
-				try {
-					
-					twitterClient.publishUuid(twitterMsg);
-					flash("twitter.successful", "uuid.sent");
-				} catch (Exception e) {
-					Logger.error("Could not send/receive data to/from Twitter!");
-				}
+			// not transactional, publishing runs its own transactions
+			PublishJob job = HighScorePublisher.INSTANCE.publish(game, user()
+					.getUserName());
+			String uuid = null;
+			if (job.getStatus() == PublishJob.Status.PUBLISHED) {
+				uuid = job.getResultUuid();
+				flash("twitter.successful", "uuid.sent");
 			}
-			
 			return ok(quizover.render(game, uuid));
 		} else {
 			return badRequest(Messages.get("quiz.no-end-result"));
 		}
 	}
 
+	/**
+	 * Get the state of the publication of the finished game as JSON, used by
+	 * the result page to show the UUID once it has been published
+	 * 
+	 * @return
+	 */
+	@play.db.jpa.Transactional(readOnly = true)
+	public static Result publication() {
+		QuizGame game = cachedGame();
+		if (game == null) {
+			return notFound();
+		}
+		PublishJob job = QuizDAO.INSTANCE.findPublishJob(game.getId());
+		if (job == null) {
+			return notFound();
+		}
+		ObjectNode result = Json.newObject();
+		result.put("status", job.getStatus().name());
+		if (job.getStatus() == PublishJob.Status.PUBLISHED) {
+			result.put("uuid", job.getResultUuid());
+			result.put("message",
+					Messages.get("uuid.sent", job.getResultUuid()));
+		}
+		return ok(result);
+	}
+
 	@play.db.jpa.Transactional(readOnly = true)
 	public static Result newRound() {
 		QuizGame game = cachedGame();
 		if (game != null && isRoundOver(game)) {
 			game.startNewRound();
+			cacheGame(game);
 			return redirect(routes.Quiz.question());
 		} else {
 			return badRequest(Messages.get("quiz.no-round-ended"));
 		}
 	}
 
+	/**
+	 * Get the game of the session. Only the question page and newGame start
+	 * a game, after checking that the catalog is ready.
+	 * 
+	 * @return the game or null if the session has none
+	 */
 	private static QuizGame cachedGame() {
-		Option<Object> option = Cache.get(gameId(), application());
-		if (option.isDefined() && option.get() instanceof QuizGame) {
-			return (QuizGame) option.get();
-		} else {
-			return createNewGame();
-		}
-	}
-
-	private static String gameId() {
-		return "game." + uuid();
-	}
-
-	private static String uuid() {
-		String uuid = session("uuid");
-		if (uuid == null) {
-			uuid = UUID.randomUUID().toString();
-			session("uuid", uuid);
-		}
-		return uuid;
-	}
-
-	private static Application application() {
-		return Play.application().getWrappedApplication();
-	}
-
-	private static String createSoapRequest(QuizGame game) {
-
-		try {
-
-			String userKey = "rkf4394dwqp49x";
-			String data = "http://big.tuwien.ac.at/we/highscore/data";
-			URL endpoint = new URL(
-					"http://playground.big.tuwien.ac.at:8080/highscore/PublishHighScoreService");
-
-			SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-			QuizUser playerOne = game.getPlayers().get(0);
-			QuizUser playerTwo = game.getPlayers().get(1);
-
-			SOAPFactory soapFactory = SOAPFactory.newInstance();
-
-			MessageFactory messageFactory = MessageFactory.newInstance();
-			SOAPMessage message = messageFactory.createMessage();
-			SOAPPart soapPart = message.getSOAPPart();
-
-			// Names
-			Name bodyName = soapFactory.createName("HighScoreRequest");
-			Name quizName = soapFactory.createName("quiz");
-			Name usersName = soapFactory.createName("users");
-			Name userName = soapFactory.createName("user");
-			Name passwordName = soapFactory.createName("password");
-			Name firstNameName = soapFactory.createName("firstname");
-			Name lastNameName = soapFactory.createName("lastname");
-			Name birthDateName = soapFactory.createName("birthdate");
-
-			// Create envelope
-			SOAPEnvelope envelope = soapPart.getEnvelope();
-			envelope.addNamespaceDeclaration("data", data);
-
-			// Create bodyElement
-			SOAPBody body = envelope.getBody();
-			SOAPBodyElement bodyElement = body.addBodyElement(bodyName);
-			bodyElement.setPrefix("data");
-
-			// Set node "UserKey" as child element of bodyElement
-			SOAPElement userKeyElement = bodyElement.addChildElement("UserKey",
-					"data");
-			userKeyElement.addTextNode(userKey);
-
-			// Set node "quiz" as child element of bodyElement
-			SOAPElement quizElement = bodyElement.addChildElement(quizName);
-
-			// Set node "users" as child element of quizElement
-			SOAPElement usersElement = quizElement.addChildElement(usersName);
-
-			// Set node "user" (player1) as child element of usersElement
-			SOAPElement userOneElement = usersElement.addChildElement(userName);
-			userOneElement.setAttribute("gender", playerOne.getGender()
-					.toString());
-			if (game.getWinner().equals(playerOne))
-				userOneElement.setAttribute("name", "winner");
-			else
-				userOneElement.setAttribute("name", "loser");
-
-			SOAPElement passwordElementOne = userOneElement
-					.addChildElement(passwordName);
-			SOAPElement firstNameElementOne = userOneElement
-					.addChildElement(firstNameName);
-			SOAPElement lastNameElementOne = userOneElement
-					.addChildElement(lastNameName);
-			SOAPElement birthDateElementOne = userOneElement
-					.addChildElement(birthDateName);
-			passwordElementOne.addTextNode("");
-			firstNameElementOne.addTextNode(playerOne.getFirstName());
-			lastNameElementOne.addTextNode(playerOne.getLastName());
-			if (playerOne.getBirthDate() == null)
-				birthDateElementOne.addTextNode("");
-			else
-				birthDateElementOne.addTextNode(sdf.format(playerOne
-						.getBirthDate()));
-
-			// Set node "user" (player2) as child element of usersElement
-			SOAPElement userTwoElement = usersElement.addChildElement(userName);
-			userTwoElement.setAttribute("gender", playerTwo.getGender()
-					.toString());
-			if (game.getWinner().equals(playerTwo))
-				userTwoElement.setAttribute("name", "winner");
-			else
-				userTwoElement.setAttribute("name", "loser");
-
-			SOAPElement passwordElementTwo = userTwoElement
-					.addChildElement(passwordName);
-			SOAPElement firstNameElementTwo = userTwoElement
-					.addChildElement(firstNameName);
-			SOAPElement lastNameElementTwo = userTwoElement
-					.addChildElement(lastNameName);
-			SOAPElement birthDateElementTwo = userTwoElement
-					.addChildElement(birthDateName);
-			passwordElementTwo.addTextNode("");
-			firstNameElementTwo.addTextNode(playerTwo.getFirstName());
-			lastNameElementTwo.addTextNode(playerTwo.getLastName());
-			birthDateElementTwo
-					.addTextNode(sdf.format(playerTwo.getBirthDate()));
-
-			Logger.info("SOAP-Request created!");
-
-			return getSoapResponse(message, endpoint);
-
-		} catch (Exception e) {
-
-			Logger.error(e.getMessage(), e);
-			return null;
-		}
+		return gameSession().load();
 	}
 
-	private static String getSoapResponse(SOAPMessage message, URL endpoint) {
-
-		try {
-
-			String uuid;
-			
-			SOAPConnectionFactory soapConnectionFactory = SOAPConnectionFactory
-					.newInstance();
-			SOAPConnection soapConnection = soapConnectionFactory
-					.createConnection();
-
-			Logger.info("SOAP-Request: Sending!");
-			SOAPMessage response = soapConnection.call(message, endpoint);
-			Logger.info("SOAP-Response: Received!");
-
-			SOAPBody body = response.getSOAPBody();
-			if (body.hasFault()) {
-
-				Logger.info("SOAP-Response contains failure!");
-
-				SOAPFault fault = body.getFault();
-				Name code = fault.getFaultCodeAsName();
-				String string = fault.getFaultString();
-				String actor = fault.getFaultActor();
-
-				Logger.error("Fault at SOAP-Response:" + "\n\tFault code: "
-						+ code.getQualifiedName() + "\n\tFault string: "
-						+ string + "\n\tFault actor: " + actor);
-
-				return null;
-			}
-
-			@SuppressWarnings("rawtypes")
-			Iterator iterator = body.getChildElements();
-			if (!iterator.hasNext()) {
-				Logger.error("SOAP-Response has no child elements!");
-				return null;
-			}
-			
-			SOAPBodyElement uuidElement = (SOAPBodyElement) iterator.next();
-			uuid = uuidElement.getValue();
-
-			Logger.info("UUID caught: " + uuid);
-			
-			return uuid;
-
-		} catch (Exception e) {
-
-			Logger.error(e.getMessage(), e);
-			return null;
-		}
+	private static GameSession gameSession() {
+		return GameSession.of(ctx());
 	}
 }
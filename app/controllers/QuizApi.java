@@ -0,0 +1,171 @@
+package controllers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import data.ImportStatus;
+import highscore.HighScorePublisher;
+import models.PublishJob;
+import models.Question;
+import models.QuestionPayloadCache;
+import models.QuizGame;
+import play.db.jpa.Transactional;
+import play.i18n.Messages;
+import play.mvc.BodyParser;
+import play.mvc.Controller;
+import play.mvc.Result;
+import play.mvc.Security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * JSON interface to the single player game of the session, for clients which
+ * do not use the HTML pages. It plays the same game as {@link Quiz}, the
+ * states are described in {@link GameJson}. The payload of the current
+ * question is served from the {@link QuestionPayloadCache} with an entity
+ * tag, so clients can revalidate it with <code>If-None-Match</code>.
+ */
+@Security.Authenticated(ApiSecured.class)
+public class QuizApi extends Controller {
+
+	private static final String JSON = "application/json; charset=utf-8";
+
+	@Transactional(readOnly = true)
+	public static Result newGame() {
+		if (!ImportStatus.INSTANCE.isReady()) {
+			return status(SERVICE_UNAVAILABLE,
+					GameJson.error(Messages.get("quiz.not-ready")));
+		}
+		GameSession session = gameSession();
+		return created(GameJson.state(session, session.newGame(), lang()));
+	}
+
+	@Transactional(readOnly = true)
+	public static Result game() {
+		GameSession session = gameSession();
+		QuizGame game = session.load();
+		if (game == null) {
+			return notFound(GameJson.error(Messages
+					.get("quiz.no-current-question")));
+		}
+		return ok(GameJson.state(session, game, lang()));
+	}
+
+	/**
+	 * Get the current question of the user. Answers with 304 if the client
+	 * already has the payload.
+	 *
+	 * @return
+	 */
+	@Transactional(readOnly = true)
+	public static Result question() {
+		GameSession session = gameSession();
+		Question question = session.currentQuestion(session.load());
+		if (question == null) {
+			return notFound(GameJson.error(Messages
+					.get("quiz.no-current-question")));
+		}
+		QuestionPayloadCache.Payload payload = QuestionPayloadCache.INSTANCE
+				.get(question, lang().code());
+		response().setHeader(ETAG, payload.getETag());
+		// the current question changes, clients have to revalidate
+		response().setHeader(CACHE_CONTROL, "private, no-cache");
+		if (matches(request().getHeader(IF_NONE_MATCH), payload.getETag())) {
+			return status(NOT_MODIFIED);
+		}
+		return ok(payload.getBytes()).as(JSON);
+	}
+
+	/**
+	 * Answer the current question. Expects
+	 * <code>{"question":id,"choices":[ids],"timeleft":t}</code>, answers
+	 * with 409 if the question is not the current question of the user.
+	 *
+	 * @return
+	 */
+	@Transactional(readOnly = true)
+	@BodyParser.Of(value = BodyParser.Json.class, maxLength = 16 * 1024)
+	public static Result answer() {
+		JsonNode body = request().body().asJson();
+		GameSession session = gameSession();
+		QuizGame game = session.load();
+		if (game == null) {
+			return notFound(GameJson.error(Messages
+					.get("quiz.no-current-question")));
+		}
+		if (body == null || !body.path("question").canConvertToLong()) {
+			return badRequest(GameJson.error(Messages
+					.get("quiz.no-current-question")));
+		}
+		List<Long> choices = new ArrayList<Long>();
+		for (JsonNode id : body.path("choices")) {
+			choices.add(id.asLong());
+		}
+		if (!session.answer(game, body.path("question").asLong(), choices,
+				body.path("timeleft").asLong())) {
+			return status(CONFLICT, GameJson.state(session, game, lang()));
+		}
+		session.save(game);
+		return ok(GameJson.state(session, game, lang()));
+	}
+
+	/**
+	 * Get the result of the finished round or game. The result of a finished
+	 * game is published like on the result page.
+	 *
+	 * @return
+	 */
+	public static Result result() {
+		GameSession session = gameSession();
+		QuizGame game = session.load();
+		if (game == null || !game.isRoundOver()) {
+			return badRequest(GameJson.error(Messages
+					.get("quiz.no-round-result")));
+		}
+		ObjectNode result = GameJson.state(session, game, lang());
+		if (game.isGameOver()) {
+			PublishJob job = HighScorePublisher.INSTANCE.publish(game,
+					session.getUser().getUserName());
+			ObjectNode publication = result.putObject("publication");
+			publication.put("status", job.getStatus().name());
+			if (job.getStatus() == PublishJob.Status.PUBLISHED) {
+				publication.put("uuid", job.getResultUuid());
+			}
+		}
+		return ok(result);
+	}
+
+	@Transactional(readOnly = true)
+	public static Result newRound() {
+		GameSession session = gameSession();
+		QuizGame game = session.load();
+		if (game == null || !game.isRoundOver() || game.isGameOver()) {
+			return badRequest(GameJson.error(Messages
+					.get("quiz.no-round-ended")));
+		}
+		game.startNewRound();
+		session.save(game);
+		return ok(GameJson.state(session, game, lang()));
+	}
+
+	private static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if (tag.equals("*") || tag.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static GameSession gameSession() {
+		return GameSession.of(ctx());
+	}
+}
@@ -0,0 +1,91 @@
+package controllers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import auth.SessionTokens;
+import models.QuizGame;
+import play.Logger;
+import play.i18n.Lang;
+import play.i18n.Messages;
+import play.libs.F.Callback;
+import play.libs.Json;
+import play.mvc.WebSocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * WebSocket of the quiz page. The client sends its answers as
+ * <code>{"type":"answer","question":id,"choices":[ids],"timeleft":t}</code>
+ * and receives the new state of the game in return, see {@link GameJson}, so
+ * answering a question does not need a redirect and a rendering of the whole
+ * page. Round and game results contain the URL of the corresponding HTML page
+ * in <code>next</code>. A <code>{"type":"state"}</code> message only asks for
+ * the current state.
+ * <p>
+ * The session token the socket was opened with is verified again for every
+ * message. Once it has expired the socket sends an error and is closed, the
+ * client falls back to posting the answers and is sent to the login.
+ */
+final class QuizSocket extends WebSocket<JsonNode> {
+
+	private final GameSession session;
+	private final String token;
+	private final Lang lang;
+
+	QuizSocket(GameSession session, String token, Lang lang) {
+		this.session = session;
+		this.token = token;
+		this.lang = lang;
+	}
+
+	@Override
+	public void onReady(WebSocket.In<JsonNode> in,
+			final WebSocket.Out<JsonNode> out) {
+		in.onMessage(new Callback<JsonNode>() {
+
+			@Override
+			public void invoke(JsonNode message) {
+				if (SessionTokens.INSTANCE.verify(token) == null) {
+					out.write(GameJson.error(Messages.get(lang,
+							"quiz.session-expired")));
+					out.close();
+					return;
+				}
+				try {
+					out.write(handle(message));
+				} catch (RuntimeException e) {
+					Logger.error("Could not handle quiz message " + message, e);
+					out.write(GameJson.error(Messages.get(lang,
+							"quiz.no-current-question")));
+				}
+			}
+		});
+		out.write(handle(Json.newObject().put("type", "state")));
+	}
+
+	private JsonNode handle(JsonNode message) {
+		QuizGame game = session.load();
+		if (game == null)
+			return GameJson.error(Messages.get(lang,
+					"quiz.no-current-question"));
+
+		if ("answer".equals(message.path("type").asText())) {
+			List<Long> choices = new ArrayList<Long>();
+			for (JsonNode id : message.path("choices"))
+				choices.add(id.asLong());
+			if (session.answer(game, message.path("question").asLong(),
+					choices, message.path("timeleft").asLong()))
+				session.save(game);
+		}
+
+		ObjectNode state = GameJson.state(session, game, lang);
+		if (game.isGameOver()) {
+			state.put("next", routes.Quiz.endResult().url());
+		} else if (game.isRoundOver()) {
+			state.put("next", routes.Quiz.roundResult().url());
+		}
+		return state;
+	}
+}
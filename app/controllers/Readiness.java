@@ -0,0 +1,36 @@
+package controllers;
+
+import data.ImportStatus;
+import models.QuestionCatalog;
+import play.libs.Json;
+import play.mvc.Controller;
+import play.mvc.Result;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Reports whether the application can serve games and the progress of the
+ * data import. Answers with 503 until the question catalog is loaded.
+ */
+public class Readiness extends Controller {
+
+	public static Result index() {
+		ImportStatus status = ImportStatus.INSTANCE;
+		ObjectNode result = Json.newObject();
+		result.put("ready", status.isReady());
+		result.put("categories", QuestionCatalog.current().getCategories()
+				.size());
+		result.put("coldStartMillis", status.getColdStartMillis());
+
+		ObjectNode catalog = result.putObject("catalog");
+		catalog.put("phase", status.getCatalogPhase().name());
+		catalog.put("millis", status.getCatalogMillis());
+
+		ObjectNode dbpedia = result.putObject("dbpedia");
+		dbpedia.put("phase", status.getDBPediaPhase().name());
+		dbpedia.put("millis", status.getDBPediaMillis());
+
+		return status.isReady() ? ok(result) : status(SERVICE_UNAVAILABLE,
+				result);
+	}
+}
@@ -1,29 +1,89 @@
 package controllers;
 
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.persistence.PersistenceException;
+
+import auth.AuthService;
 import models.QuizDAO;
 import models.QuizUser;
 import play.data.Form;
+import play.db.jpa.JPA;
+import play.libs.F.Function;
+import play.libs.F.Function0;
+import play.libs.F.Promise;
 import play.mvc.Controller;
 import play.mvc.Result;
 import views.html.registration;
 
 public class Registration extends Controller {
 
+	// seconds a client should wait before retrying a rejected registration
+	private static final String RETRY_AFTER_SECONDS = "1";
+
 	public static Result index() {
 		return ok(registration.render(Form.form(QuizUser.class)));
 	}
 
-	@play.db.jpa.Transactional
-	public static Result create() {
-		Form<QuizUser> form = Form.form(QuizUser.class).bindFromRequest();
+	/**
+	 * Validate the form, hash the password on the authentication pool and
+	 * store the user. Responds with 503 if too many passwords are waiting to
+	 * be hashed.
+	 * 
+	 * @return
+	 */
+	public static Promise<Result> create() throws Throwable {
+		// validating the user name needs the DB
+		final Form<QuizUser> form = JPA.withTransaction("default", true,
+				new Function0<Form<QuizUser>>() {
+
+					@Override
+					public Form<QuizUser> apply() throws Throwable {
+						return Form.form(QuizUser.class).bindFromRequest();
+					}
+				});
 		if (form.hasErrors()) {
-			return badRequest(registration.render(form));
-		} else {
-			QuizUser user = form.get();
-            QuizDAO.INSTANCE.persist(user);
-			flash("registration.successful", "user.created-successfully");
-			return redirect(routes.Authentication.login());
+			return Promise.<Result> pure(badRequest(registration.render(form)));
 		}
+		final QuizUser user = form.get();
+		try {
+			return AuthService.INSTANCE.hash(user.getPassword()).map(
+					new Function<String, Result>() {
+
+						@Override
+						public Result apply(String hash) throws Throwable {
+							user.setPasswordHash(hash);
+							return store(form, user);
+						}
+					});
+		} catch (RejectedExecutionException e) {
+			form.reject("registration.busy");
+			response().setHeader(RETRY_AFTER, RETRY_AFTER_SECONDS);
+			return Promise.<Result> pure(status(SERVICE_UNAVAILABLE,
+					registration.render(form)));
+		}
+	}
+
+	private static Result store(final Form<QuizUser> form, final QuizUser user)
+			throws Throwable {
+		return JPA.withTransaction(new Function0<Result>() {
+
+			@Override
+			public Result apply() throws Throwable {
+				try {
+					QuizDAO.INSTANCE.persist(user);
+					JPA.em().flush();
+				} catch (PersistenceException e) {
+					// the name was registered concurrently, caught by the
+					// unique constraint on the user name
+					JPA.em().getTransaction().setRollbackOnly();
+					form.reject("userName", "user.user-name-not-unique");
+					return badRequest(registration.render(form));
+				}
+				flash("registration.successful", "user.created-successfully");
+				return redirect(routes.Authentication.login());
+			}
+		});
 	}
 
 }
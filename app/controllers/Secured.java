@@ -1,31 +1,65 @@
 package controllers;
 
+import auth.SessionTokens;
 import models.QuizUser;
+import models.UserView;
 import play.mvc.Http.Context;
 import play.mvc.Http.Session;
 import play.mvc.Result;
 import play.mvc.Security;
 
+/**
+ * Authenticates requests by the signed token in the session, see
+ * {@link SessionTokens}. The token carries the {@link UserView}, so the user
+ * is neither looked up in the DB nor kept in a cache of views.
+ */
 public class Secured extends Security.Authenticator {
 
-	private static final String USER_ID = "userId";
+	private static final String TOKEN = "token";
+	private static final String USER_ARG = "secured.user";
 
 	public static void addAuthentication(Session session, QuizUser user) {
 		session.clear();
-		session.put(USER_ID, String.valueOf(user.getId()));
+		session.put(TOKEN, SessionTokens.INSTANCE.issue(UserView.of(user)));
 	}
-	
-	public static String getAuthentication(Session session) {
-		return session.get(USER_ID);
+
+	/**
+	 * Get the view of the logged in user from the token, verified at most
+	 * once per request. Tokens past half of their lifetime are renewed.
+	 * 
+	 * @param ctx
+	 * @return the view or null if the token is missing or invalid
+	 */
+	public static UserView getUser(Context ctx) {
+		if (ctx.args.containsKey(USER_ARG))
+			return (UserView) ctx.args.get(USER_ARG);
+		String token = ctx.session().get(TOKEN);
+		UserView user = SessionTokens.INSTANCE.verify(token);
+		if (user != null && SessionTokens.INSTANCE.needsRenewal(token))
+			ctx.session().put(TOKEN, SessionTokens.INSTANCE.issue(user));
+		ctx.args.put(USER_ARG, user);
+		return user;
+	}
+
+	/**
+	 * Get the token of the session, renewed by {@link #getUser(Context)} if
+	 * necessary
+	 * 
+	 * @param ctx
+	 * @return the token or null if the user is not logged in
+	 */
+	public static String getToken(Context ctx) {
+		return ctx.session().get(TOKEN);
 	}
 
 	@Override
 	public String getUsername(Context ctx) {
-		return ctx.session().get(USER_ID);
+		UserView user = getUser(ctx);
+		return user == null ? null : String.valueOf(user.getId());
 	}
 
 	@Override
 	public Result onUnauthorized(Context ctx) {
 		return redirect(routes.Authentication.login());
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,178 @@
+package data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import play.Logger;
+import at.ac.tuwien.big.we14.lab4.dbpedia.vocabulary.DBPedia;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+
+/**
+ * Caches the models loaded by another source. Every resource and query is
+ * loaded only once per run, concurrent requests for the same key wait for
+ * the first one. Loaded models are also written to a directory as
+ * N-Triples, so a restart reads them from disk instead of querying DBPedia
+ * again.
+ */
+public class CachingDBPediaSource implements IDBPediaSource {
+
+	private static final String FORMAT = "N-TRIPLE";
+	private static final String SUFFIX = ".nt";
+
+	private final IDBPediaSource delegate;
+	private final File directory;
+	private final ConcurrentMap<String, FutureTask<Model>> models = new ConcurrentHashMap<>();
+
+	/**
+	 * @param delegate
+	 *            source used for keys which are not cached
+	 * @param directory
+	 *            directory of the on-disk cache, null to cache in memory
+	 *            only
+	 */
+	public CachingDBPediaSource(IDBPediaSource delegate, File directory) {
+		this.delegate = delegate;
+		this.directory = directory;
+		if (directory != null && !directory.isDirectory()
+				&& !directory.mkdirs()) {
+			Logger.warn("Could not create DBPedia cache directory "
+					+ directory);
+		}
+	}
+
+	/**
+	 * Available if the delegate is, or if models of a previous run are
+	 * cached on disk
+	 */
+	@Override
+	public boolean isAvailable() {
+		return hasCachedModels() || delegate.isAvailable();
+	}
+
+	@Override
+	public Resource loadResource(final String name) {
+		String uri = DBPedia.createResource(name).getURI();
+		Model model = load("resource:" + uri, new Callable<Model>() {
+
+			@Override
+			public Model call() throws Exception {
+				Resource resource = delegate.loadResource(name);
+				return resource == null ? null : resource.getModel();
+			}
+		});
+		return model == null ? null : model.getResource(uri);
+	}
+
+	@Override
+	public Model loadModel(final String selectQuery) {
+		return load("query:" + selectQuery, new Callable<Model>() {
+
+			@Override
+			public Model call() throws Exception {
+				return delegate.loadModel(selectQuery);
+			}
+		});
+	}
+
+	/**
+	 * Get the model cached under the given key, loading it from disk or from
+	 * the delegate. Failed loads are not cached.
+	 */
+	private Model load(final String key, final Callable<Model> loader) {
+		FutureTask<Model> task = new FutureTask<>(new Callable<Model>() {
+
+			@Override
+			public Model call() throws Exception {
+				Model model = read(key);
+				if (model == null) {
+					model = loader.call();
+					if (model != null)
+						write(key, model);
+				}
+				return model;
+			}
+		});
+		FutureTask<Model> existing = models.putIfAbsent(key, task);
+		if (existing == null) {
+			existing = task;
+			task.run();
+		}
+
+		Model model = null;
+		try {
+			model = existing.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			Logger.warn("Could not load DBPedia statements for " + key,
+					e.getCause());
+		}
+		if (model == null)
+			models.remove(key, existing);
+		return model;
+	}
+
+	private boolean hasCachedModels() {
+		if (directory == null)
+			return false;
+		String[] files = directory.list();
+		return files != null && files.length > 0;
+	}
+
+	private File fileFor(String key) {
+		return new File(directory, Hashing.md5()
+				.hashString(key, Charsets.UTF_8).toString()
+				+ SUFFIX);
+	}
+
+	private Model read(String key) {
+		if (directory == null)
+			return null;
+		File file = fileFor(key);
+		if (!file.isFile())
+			return null;
+		try (InputStream in = new FileInputStream(file)) {
+			Model model = ModelFactory.createDefaultModel();
+			model.read(in, null, FORMAT);
+			return model;
+		} catch (Exception e) {
+			Logger.warn("Ignoring unreadable DBPedia cache file " + file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Write the model to a temporary file first, so a crash never leaves a
+	 * partially written cache file behind
+	 */
+	private void write(String key, Model model) {
+		if (directory == null)
+			return;
+		File file = fileFor(key);
+		File tmp = new File(directory, file.getName() + ".tmp");
+		try (OutputStream out = new FileOutputStream(tmp)) {
+			model.write(out, FORMAT);
+		} catch (IOException e) {
+			Logger.warn("Could not write DBPedia cache file " + file, e);
+			tmp.delete();
+			return;
+		}
+		if (!tmp.renameTo(file)) {
+			tmp.delete();
+		}
+	}
+}
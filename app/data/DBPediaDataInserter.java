@@ -1,16 +1,26 @@
 package data;
 
+import java.io.File;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import models.Category;
 import models.Choice;
 import models.Question;
 import models.QuizDAO;
+import play.Configuration;
 import play.Logger;
+import play.Play;
 import play.db.jpa.Transactional;
 import at.ac.tuwien.big.we14.lab4.dbpedia.api.DBPediaService;
 import at.ac.tuwien.big.we14.lab4.dbpedia.api.SelectQueryBuilder;
@@ -32,15 +42,48 @@ import com.hp.hpl.jena.vocabulary.RDFS;
  */
 public class DBPediaDataInserter {
 
+	private static final int DEFAULT_THREADS = 4;
+	private static final String DEFAULT_CACHE_DIRECTORY = "target/dbpedia-cache";
+	private static final long QUERY_TIMEOUT_SECONDS = 120;
+	static final String IMPORT_NAME = "dbpedia";
+
+	/**
+	 * Insert the questions built from the source configured in
+	 * application.conf
+	 */
 	@Transactional
 	public static void insertData() {
+		Configuration config = Play.application().configuration();
+		String directory = config.getString("dbpedia.cacheDir");
+		Integer threads = config.getInt("dbpedia.threads");
+		insertData(new CachingDBPediaSource(new RemoteDBPediaSource(),
+				new File(directory != null ? directory
+						: DEFAULT_CACHE_DIRECTORY)),
+				threads != null ? threads : DEFAULT_THREADS);
+	}
+
+	/**
+	 * Build the questions from the given source and insert them
+	 * 
+	 * @param source
+	 * @param threads
+	 *            number of queries run concurrently
+	 */
+	@Transactional
+	public static void insertData(IDBPediaSource source, int threads) {
 
-		if (!isAvailable()) {
+		if (QuizDAO.INSTANCE.isImported(IMPORT_NAME)) {
+			Logger.info("DBPedia questions are already stored.");
+			return;
+		}
+
+		if (!source.isAvailable()) {
 			Logger.info("DBPedia is not available!");
 			return;
 		}
 
-		Category category = buildQueries();
+		long start = System.currentTimeMillis();
+		Category category = buildQueries(source, threads);
 
 		if (category == null) {
 			Logger.debug("Category is null");
@@ -49,40 +92,80 @@ public class DBPediaDataInserter {
 		}
 
 		QuizDAO.INSTANCE.persist(category);
-		Logger.info("Data from DBPedia created!");
+		QuizDAO.INSTANCE.markImported(IMPORT_NAME);
+		Logger.info("Data from DBPedia created in "
+				+ (System.currentTimeMillis() - start) + " ms!");
 	}
 
 	/**
-	 * Build 5 queries, which creates {@link Choice}s and returns
-	 * {@link Question}. Returned questions packed in a list and creates
-	 * {@link Category} related to questions.
+	 * Run the 5 queries concurrently, each creates {@link Choice}s and
+	 * returns a {@link Question}. Returned questions packed in a list and
+	 * creates {@link Category} related to questions.
 	 * 
+	 * @param source
+	 * @param threads
+	 *            maximum number of queries run at the same time
 	 * @return newly created {@link Category} object
 	 */
-	private static Category buildQueries() {
+	private static Category buildQueries(final IDBPediaSource source,
+			int threads) {
 
-		List<Question> questions = new ArrayList<Question>();
+		List<Callable<Question>> queries = new ArrayList<Callable<Question>>();
+		queries.add(new Callable<Question>() {
+
+			@Override
+			public Question call() {
+				return queryOne(source);
+			}
+		});
+		queries.add(new Callable<Question>() {
 
-		Question q = null;
-		q = queryOne();
-		if (q != null)
-			questions.add(q);
+			@Override
+			public Question call() {
+				return queryTwo(source);
+			}
+		});
+		queries.add(new Callable<Question>() {
 
-		q = queryTwo();
-		if (q != null)
-			questions.add(q);
+			@Override
+			public Question call() {
+				return queryThree(source);
+			}
+		});
+		queries.add(new Callable<Question>() {
 
-		q = queryThree();
-		if (q != null)
-			questions.add(q);
+			@Override
+			public Question call() {
+				return queryFour(source);
+			}
+		});
+		queries.add(new Callable<Question>() {
 
-		q = queryFour();
-		if (q != null)
-			questions.add(q);
+			@Override
+			public Question call() {
+				return queryFive(source);
+			}
+		});
 
-		q = queryFive();
-		if (q != null)
-			questions.add(q);
+		List<Question> questions = new ArrayList<Question>();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,
+				Math.min(threads, queries.size())));
+		try {
+			for (Future<Question> result : executor.invokeAll(queries,
+					QUERY_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				try {
+					Question q = result.get();
+					if (q != null)
+						questions.add(q);
+				} catch (ExecutionException | CancellationException e) {
+					Logger.debug("DBPedia query did not complete!");
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
 
 		if (questions.isEmpty()) {
 			Logger.debug("Question list is empty!");
@@ -91,13 +174,14 @@ public class DBPediaDataInserter {
 
 		Logger.info("Question list created with " + questions.size()
 				+ " questions!");
-		return createCategory(questions, "Europe", "Austria");
+		return createCategory(source, questions, "Europe", "Austria");
 	}
 
 	/**
 	 * Creates a new {@link Category} object. Sets its name and questions.
 	 * Relates also the questions to this category.
 	 * 
+	 * @param source
 	 * @param questions
 	 *            a list of {@link Question} object, which belongs to this
 	 *            category
@@ -106,8 +190,8 @@ public class DBPediaDataInserter {
 	 *            they will be separated by '/'.
 	 * @return newly created {@link Category} object
 	 */
-	private static Category createCategory(List<Question> questions,
-			String... strings) {
+	private static Category createCategory(IDBPediaSource source,
+			List<Question> questions, String... strings) {
 
 		Category category = new Category();
 
@@ -116,7 +200,7 @@ public class DBPediaDataInserter {
 
 		for (int i = 0; i < strings.length; i++) {
 
-			Resource tmp = getResourceFor(strings[i]);
+			Resource tmp = getResourceFor(source, strings[i]);
 			Text text = getTextFor(tmp);
 			nameEN.append(text.getEnText() + " / ");
 			nameDE.append(text.getDeText() + " / ");
@@ -216,16 +300,17 @@ public class DBPediaDataInserter {
 	 * 
 	 * Query: Cities in Austria and not in Germany.
 	 * 
+	 * @param source
 	 * @return newly created Question related the query
 	 */
-	private static Question queryOne() {
+	private static Question queryOne(IDBPediaSource source) {
 
 		Logger.info("Query 1 start!");
 
 		try {
 			
-			Resource austria = getResourceFor("Austria");
-			Resource germany = getResourceFor("Germany");
+			Resource austria = getResourceFor(source, "Austria");
+			Resource germany = getResourceFor(source, "Germany");
 
 			SelectQueryBuilder sqb = DBPediaService.createQueryBuilder()
 					.setLimit(4).addWhereClause(RDF.type, DBPediaOWL.City)
@@ -234,12 +319,12 @@ public class DBPediaDataInserter {
 					.addFilterClause(RDFS.label, Locale.ENGLISH)
 					.addFilterClause(RDFS.label, Locale.GERMAN);
 
-			Model citiesInAustria = getModelFor(sqb);
+			Model citiesInAustria = getModelFor(source, sqb);
 
 			sqb.removeWhereClause(DBPediaOWL.country, austria);
 			sqb.addWhereClause(DBPediaOWL.country, germany);
 
-			Model citiesInGermany = getModelFor(sqb);
+			Model citiesInGermany = getModelFor(source, sqb);
 
 			List<Text> citiesInAustriaTexts = getTextsFor(citiesInAustria);
 			List<Text> citiesInGermanyTexts = getTextsFor(citiesInGermany);
@@ -268,15 +353,16 @@ public class DBPediaDataInserter {
 	 * 
 	 * Query: Countries, which uses euro as currency.
 	 * 
+	 * @param source
 	 * @return newly created Question related the query
 	 */
-	private static Question queryTwo() {
+	private static Question queryTwo(IDBPediaSource source) {
 
 		Logger.info("Query 2 start!");
 		
 		try {
 			
-			Resource euro = getResourceFor("Euro");
+			Resource euro = getResourceFor(source, "Euro");
 
 			SelectQueryBuilder sqb = DBPediaService.createQueryBuilder()
 					.setLimit(4).addWhereClause(RDF.type, DBPediaOWL.Country)
@@ -285,12 +371,12 @@ public class DBPediaDataInserter {
 					.addFilterClause(RDFS.label, Locale.ENGLISH)
 					.addFilterClause(RDFS.label, Locale.GERMAN);
 
-			Model countriesUsingEuro = getModelFor(sqb);
+			Model countriesUsingEuro = getModelFor(source, sqb);
 
 			sqb.removeWhereClause(DBPediaOWL.currency, euro);
 			sqb.addMinusClause(DBPediaOWL.currency, euro);
 
-			Model countriesNotUsingEuro = getModelFor(sqb);
+			Model countriesNotUsingEuro = getModelFor(source, sqb);
 
 			List<Text> countriesUsingEuroTexts = getTextsFor(countriesUsingEuro);
 			List<Text> countriesNotUsingEuroTexts = getTextsFor(countriesNotUsingEuro);
@@ -324,16 +410,17 @@ public class DBPediaDataInserter {
 	 * 
 	 * Query: Rivers passing through Austria and not through Germany.
 	 * 
+	 * @param source
 	 * @return newly created Question related the query
 	 */
-	private static Question queryThree() {
+	private static Question queryThree(IDBPediaSource source) {
 
 		Logger.info("Query 3 start!");
 		
 		try {
 			
-			Resource austria = getResourceFor("Austria");
-			Resource germany = getResourceFor("Germany");
+			Resource austria = getResourceFor(source, "Austria");
+			Resource germany = getResourceFor(source, "Germany");
 
 			SelectQueryBuilder sqb = DBPediaService.createQueryBuilder()
 					.setLimit(4).addWhereClause(RDF.type, DBPediaOWL.River)
@@ -342,12 +429,12 @@ public class DBPediaDataInserter {
 					.addFilterClause(RDFS.label, Locale.ENGLISH)
 					.addFilterClause(RDFS.label, Locale.GERMAN);
 
-			Model riversThroughAustria = getModelFor(sqb);
+			Model riversThroughAustria = getModelFor(source, sqb);
 
 			sqb.removeWhereClause(DBPediaOWL.country, austria);
 			sqb.addWhereClause(DBPediaOWL.country, germany);
 
-			Model riversThroughGermany = getModelFor(sqb);
+			Model riversThroughGermany = getModelFor(source, sqb);
 
 			List<Text> riversThroughAustriaTexts = getTextsFor(riversThroughAustria);
 			List<Text> riversThroughGermanyTexts = getTextsFor(riversThroughGermany);
@@ -381,16 +468,17 @@ public class DBPediaDataInserter {
 	 * 
 	 * Query: Lakes in Austria and not in Switzerland.
 	 * 
+	 * @param source
 	 * @return newly created Question related the query
 	 */
-	private static Question queryFour() {
+	private static Question queryFour(IDBPediaSource source) {
 
 		Logger.info("Query 4 start!");
 		
 		try {
 			
-			Resource austria = getResourceFor("Austria");
-			Resource switzerland = getResourceFor("Switzerland");
+			Resource austria = getResourceFor(source, "Austria");
+			Resource switzerland = getResourceFor(source, "Switzerland");
 
 			SelectQueryBuilder sqb = DBPediaService.createQueryBuilder()
 					.setLimit(4).addWhereClause(RDF.type, DBPediaOWL.Lake)
@@ -399,12 +487,12 @@ public class DBPediaDataInserter {
 					.addFilterClause(RDFS.label, Locale.ENGLISH)
 					.addFilterClause(RDFS.label, Locale.GERMAN);
 
-			Model lakesInAustria = getModelFor(sqb);
+			Model lakesInAustria = getModelFor(source, sqb);
 
 			sqb.removeWhereClause(DBPediaOWL.country, austria);
 			sqb.addWhereClause(DBPediaOWL.country, switzerland);
 
-			Model lakesInSwitzerland = getModelFor(sqb);
+			Model lakesInSwitzerland = getModelFor(source, sqb);
 
 			List<Text> lakesInAustriaTexts = getTextsFor(lakesInAustria);
 			List<Text> lakesInSwitzerlandTexts = getTextsFor(lakesInSwitzerland);
@@ -438,16 +526,17 @@ public class DBPediaDataInserter {
 	 * 
 	 * Query: Rivers sources at Austria and not in Switzerland.
 	 * 
+	 * @param source
 	 * @return newly created Question related the query
 	 */
-	private static Question queryFive() {
+	private static Question queryFive(IDBPediaSource source) {
 
 		Logger.info("Query 5 start!");
 
 		try {
 			
-			Resource austria = getResourceFor("Austria");
-			Resource switzerland = getResourceFor("Switzerland");
+			Resource austria = getResourceFor(source, "Austria");
+			Resource switzerland = getResourceFor(source, "Switzerland");
 
 			SelectQueryBuilder sqb = DBPediaService.createQueryBuilder()
 					.setLimit(4).addWhereClause(RDF.type, DBPediaOWL.River)
@@ -456,12 +545,12 @@ public class DBPediaDataInserter {
 					.addFilterClause(RDFS.label, Locale.ENGLISH)
 					.addFilterClause(RDFS.label, Locale.GERMAN);
 
-			Model riversFromAustria = getModelFor(sqb);
+			Model riversFromAustria = getModelFor(source, sqb);
 
 			sqb.removeWhereClause(DBPediaOWL.sourceCountry, austria);
 			sqb.addWhereClause(DBPediaOWL.sourceCountry, switzerland);
 
-			Model riversFromswitzerland = getModelFor(sqb);
+			Model riversFromswitzerland = getModelFor(source, sqb);
 
 			List<Text> riversFromAustriaTexts = getTextsFor(riversFromAustria);
 			List<Text> riversFromSwitzerlandTexts = getTextsFor(riversFromswitzerland);
@@ -490,38 +579,32 @@ public class DBPediaDataInserter {
 	}
 
 	/**
-	 * Checks if {@link DBPediaService} is available.
-	 * 
-	 * @return true if available, false otherwise
-	 */
-	private static boolean isAvailable() {
-		return DBPediaService.isAvailable();
-	}
-
-	/**
-	 * Creates a {@link Resource} from {@link DBPediaService} for the given
+	 * Loads a {@link Resource} from the given source for the given
 	 * {@link String} and returns it.
 	 * 
+	 * @param source
 	 * @param resourceString
 	 *            String for the {@link Resource}
 	 * @return retrieved {@link Resource}
 	 */
-	private static Resource getResourceFor(String resourceString) {
-		return DBPediaService.loadStatements(DBPedia
-				.createResource(resourceString));
+	private static Resource getResourceFor(IDBPediaSource source,
+			String resourceString) {
+		return source.loadResource(resourceString);
 	}
 
 	/**
-	 * Creates a {@link Model} from {@link DBPediaService} for the given
+	 * Loads a {@link Model} from the given source for the given
 	 * {@link SelectQueryBuilder} and returns it.
 	 * 
+	 * @param source
 	 * @param sqb
 	 *            {@link SelectQueryBuilder} from which the {@link Model}
 	 *            created
 	 * @return retrieved {@link Model}
 	 */
-	private static Model getModelFor(SelectQueryBuilder sqb) {
-		return DBPediaService.loadStatements(sqb.toQueryString());
+	private static Model getModelFor(IDBPediaSource source,
+			SelectQueryBuilder sqb) {
+		return source.loadModel(sqb.toQueryString());
 	}
 
 	/**
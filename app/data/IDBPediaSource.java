@@ -0,0 +1,39 @@
+package data;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Resource;
+
+/**
+ * Source of the DBPedia statements used to build questions. Implementations
+ * must be thread-safe, the questions are built concurrently.
+ */
+public interface IDBPediaSource {
+
+	/**
+	 * Check if the source can answer queries
+	 * 
+	 * @return
+	 */
+	public boolean isAvailable();
+
+	/**
+	 * Load all statements about the resource with the given name
+	 * 
+	 * @param name
+	 *            local name of the DBPedia resource, e.g. "Austria"
+	 * @return the resource in a model holding its statements, null if it
+	 *         could not be loaded
+	 */
+	public Resource loadResource(String name);
+
+	/**
+	 * Load all statements about the subjects selected by the given query
+	 * 
+	 * @param selectQuery
+	 *            SPARQL select query binding the subjects
+	 * @return the model holding the statements, null if it could not be
+	 *         loaded
+	 */
+	public Model loadModel(String selectQuery);
+
+}
@@ -0,0 +1,106 @@
+package data;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Progress of the data import at startup. The application is ready as soon
+ * as the local question catalog is loaded; the DBPedia questions are added
+ * in the background afterwards. If the local catalog is empty, it becomes
+ * ready once the DBPedia questions are there.
+ */
+public class ImportStatus {
+
+	public static final ImportStatus INSTANCE = new ImportStatus();
+
+	public enum Phase {
+		PENDING, RUNNING, DONE, FAILED
+	}
+
+	private volatile Phase catalog = Phase.PENDING;
+	private volatile Phase dbpedia = Phase.PENDING;
+	private volatile long startedAt = System.currentTimeMillis();
+	private volatile long catalogMillis = -1;
+	private volatile long dbpediaMillis = -1;
+
+	private ImportStatus() {
+	}
+
+	public void start() {
+		startedAt = System.currentTimeMillis();
+		catalog = Phase.RUNNING;
+		dbpedia = Phase.PENDING;
+		catalogMillis = -1;
+		dbpediaMillis = -1;
+	}
+
+	public void catalogFinished(boolean successful) {
+		catalogMillis = System.currentTimeMillis() - startedAt;
+		catalog = successful ? Phase.DONE : Phase.FAILED;
+	}
+
+	public void dbpediaStarted() {
+		dbpedia = Phase.RUNNING;
+	}
+
+	/**
+	 * @param successful
+	 * @param hasCategories
+	 *            true if the catalog has categories after the import
+	 */
+	public void dbpediaFinished(boolean successful, boolean hasCategories) {
+		dbpediaMillis = System.currentTimeMillis() - startedAt;
+		dbpedia = successful ? Phase.DONE : Phase.FAILED;
+		if (hasCategories && catalog != Phase.DONE) {
+			catalogMillis = dbpediaMillis;
+			catalog = Phase.DONE;
+		}
+	}
+
+	/**
+	 * Check if games can be served, i.e. the local catalog has been loaded
+	 * 
+	 * @return
+	 */
+	public boolean isReady() {
+		return catalog == Phase.DONE;
+	}
+
+	public Phase getCatalogPhase() {
+		return catalog;
+	}
+
+	public Phase getDBPediaPhase() {
+		return dbpedia;
+	}
+
+	/**
+	 * Get the time from the start of the import until the catalog was
+	 * loaded
+	 * 
+	 * @return the duration or -1 if the catalog is not loaded yet
+	 */
+	public long getCatalogMillis() {
+		return catalogMillis;
+	}
+
+	/**
+	 * Get the time from the start of the import until the DBPedia questions
+	 * were added
+	 * 
+	 * @return the duration or -1 if the DBPedia import has not finished yet
+	 */
+	public long getDBPediaMillis() {
+		return dbpediaMillis;
+	}
+
+	/**
+	 * Get the time from the start of the JVM until the catalog was loaded,
+	 * i.e. the cold start time until games can be served
+	 * 
+	 * @return the duration or -1 if the catalog is not loaded yet
+	 */
+	public long getColdStartMillis() {
+		return catalogMillis < 0 ? -1 : startedAt + catalogMillis
+				- ManagementFactory.getRuntimeMXBean().getStartTime();
+	}
+}
@@ -10,10 +10,12 @@
  */
 package data;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Type;
 import java.util.List;
+import java.util.Map;
 
 import play.db.jpa.Transactional;
 import models.Category;
@@ -33,6 +35,10 @@ import com.google.gson.reflect.TypeToken;
 
 public class JSONDataInserter {
 
+	public static final int DEFAULT_BATCH_SIZE = 50;
+
+	static final String IMPORT_NAME = "json";
+
 	private static Gson createGson() {
 		GsonBuilder gsonBuilder = new GsonBuilder();
 		gsonBuilder.registerTypeAdapter(Category.class, new CategoryDeserializer());
@@ -52,10 +58,33 @@ public class JSONDataInserter {
 	}
 	
 	@Transactional
-	public static void insertData(InputStream inputStream) {
-		List<Category> jsonCategories = loadCategoryData(inputStream);
-		for(Category category : jsonCategories)
-			QuizDAO.INSTANCE.persist(category);
+	public static void insertData(InputStream inputStream) throws IOException {
+		insertData(inputStream, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Stream the categories into the DB, see {@link JSONStreamInserter}
+	 * 
+	 * @param inputStream
+	 * @param batchSize
+	 *            number of entities inserted per flush
+	 * @throws IOException
+	 */
+	@Transactional
+	public static void insertData(InputStream inputStream, int batchSize)
+			throws IOException {
+		new JSONStreamInserter(batchSize).insertData(inputStream);
+		QuizDAO.INSTANCE.markImported(IMPORT_NAME);
+	}
+
+	/**
+	 * Check whether the questions of the JSON file are already stored
+	 * 
+	 * @return
+	 */
+	@Transactional(readOnly = true)
+	public static boolean isImported() {
+		return QuizDAO.INSTANCE.isImported(IMPORT_NAME);
 	}
 }
 
@@ -68,8 +97,11 @@ class CategoryDeserializer implements JsonDeserializer<Category> {
 		Category category = new Category();
 		JsonObject object = json.getAsJsonObject();
 		
-		category.setNameDE(object.get("nameDE").getAsString());
-		category.setNameEN(object.get("nameEN").getAsString());
+		for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+			String lang = JSONStreamInserter.languageOf(entry.getKey(), "name");
+			if (lang != null)
+				category.setName(entry.getValue().getAsString(), lang);
+		}
 		
 		for (JsonElement jsonQuestion : object.get("questions").getAsJsonArray()) {
 			Question question = context.deserialize(jsonQuestion,
@@ -91,8 +123,11 @@ class QuestionDeserializer implements JsonDeserializer<Question> {
 		Question question = new Question();
 
 		JsonObject object = json.getAsJsonObject();
-		question.setTextDE(object.get("textDE").getAsString());
-		question.setTextEN(object.get("textEN").getAsString());
+		for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+			String lang = JSONStreamInserter.languageOf(entry.getKey(), "text");
+			if (lang != null)
+				question.setText(entry.getValue().getAsString(), lang);
+		}
 		question.setMaxTime(object.get("maxTime").getAsBigDecimal());
 
 		for (JsonElement wrongChoice : object.get("wrongChoices").getAsJsonArray()) {
@@ -120,8 +155,11 @@ class ChoiceDeserializer implements JsonDeserializer<Choice> {
 		
 		Choice choice = new Choice();
 		JsonObject object = json.getAsJsonObject();
-		choice.setTextDE(object.get("textDE").getAsString());
-		choice.setTextEN(object.get("textEN").getAsString());
+		for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+			String lang = JSONStreamInserter.languageOf(entry.getKey(), "text");
+			if (lang != null)
+				choice.setText(entry.getValue().getAsString(), lang);
+		}
 		
 		return choice;
 	}
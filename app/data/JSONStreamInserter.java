@@ -0,0 +1,238 @@
+package data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.util.regex.Pattern;
+
+import javax.persistence.EntityManager;
+
+import models.Category;
+import models.Choice;
+import models.Question;
+import play.Logger;
+import play.db.jpa.JPA;
+
+import com.google.common.base.Charsets;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Imports categories from a JSON document without building it in memory.
+ * The document is read token by token, every question is persisted as soon
+ * as it is complete and the persistence context is flushed and cleared every
+ * <code>batchSize</code> entities, so the inserts can be batched by the JDBC
+ * driver and memory use does not grow with the size of the question bank.
+ * Texts are accepted in any language, e.g. <code>textFR</code>. Requires an
+ * active transaction.
+ */
+public class JSONStreamInserter {
+
+	// language and optional region of a localized property, e.g. DE or de-AT
+	private static final Pattern LANGUAGE = Pattern
+			.compile("(?:[a-z]{2,3}|[A-Z]{2,3})(?:[-_][A-Za-z0-9]{2,8})?");
+
+	private final int batchSize;
+
+	private long categories;
+	private long questions;
+	private long choices;
+	private int unflushed;
+
+	/**
+	 * @param batchSize
+	 *            number of entities after which the entity manager is flushed
+	 *            and cleared, should match hibernate.jdbc.batch_size
+	 */
+	public JSONStreamInserter(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Import all categories of the given document
+	 *
+	 * @param inputStream
+	 *            UTF-8 encoded JSON array of categories
+	 * @return number of inserted rows
+	 * @throws IOException
+	 */
+	public long insertData(InputStream inputStream) throws IOException {
+		long start = System.currentTimeMillis();
+		JsonReader reader = new JsonReader(new InputStreamReader(inputStream,
+				Charsets.UTF_8));
+		try {
+			reader.beginArray();
+			while (reader.hasNext()) {
+				readCategory(reader);
+			}
+			reader.endArray();
+		} finally {
+			reader.close();
+		}
+		flush();
+
+		long rows = categories + questions + choices;
+		long millis = Math.max(1, System.currentTimeMillis() - start);
+		Logger.info("Imported " + categories + " categories, " + questions
+				+ " questions and " + choices + " choices in " + millis
+				+ " ms (" + (rows * 1000 / millis) + " rows/s).");
+		return rows;
+	}
+
+	private void readCategory(JsonReader reader) throws IOException {
+		Category category = new Category();
+		// names are collected here, so names following the questions do not
+		// modify the persisted category
+		Category names = new Category();
+		boolean persisted = false;
+		boolean namesChanged = false;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			String lang = languageOf(name, "name");
+			if (lang != null) {
+				names.setName(nextString(reader), lang);
+				namesChanged = persisted;
+			} else if ("questions".equals(name)) {
+				if (!persisted) {
+					category.setLocalizedText(names.getLocalizedText());
+					persist(category);
+					categories++;
+					persisted = true;
+				}
+				reader.beginArray();
+				while (reader.hasNext()) {
+					Question question = readQuestion(reader);
+					// only the reference is needed, the category's list of
+					// questions is not kept in memory
+					question.setCategory(category);
+					persist(question);
+					questions++;
+					choices += question.getChoices().size();
+					if (unflushed >= batchSize) {
+						flush();
+						category = em().getReference(Category.class,
+								category.getId());
+					}
+				}
+				reader.endArray();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		if (!persisted) {
+			category.setLocalizedText(names.getLocalizedText());
+			persist(category);
+			categories++;
+		} else if (namesChanged) {
+			// categories are cached read-only, a bulk update evicts them
+			// instead of updating the cached entity
+			flush();
+			em().createQuery(
+					"update Category c set c.texts = :texts where c.id = :id")
+					.setParameter("texts", names.getLocalizedText().encode())
+					.setParameter("id", category.getId())
+					.executeUpdate();
+		}
+	}
+
+	private Question readQuestion(JsonReader reader) throws IOException {
+		Question question = new Question();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			String lang = languageOf(name, "text");
+			if (lang != null) {
+				question.setText(nextString(reader), lang);
+			} else if ("maxTime".equals(name)) {
+				String maxTime = nextString(reader);
+				question.setMaxTime(maxTime == null ? null : new BigDecimal(
+						maxTime));
+			} else if ("wrongChoices".equals(name)) {
+				reader.beginArray();
+				while (reader.hasNext()) {
+					question.addWrongChoice(readChoice(reader));
+				}
+				reader.endArray();
+			} else if ("correctChoices".equals(name)) {
+				reader.beginArray();
+				while (reader.hasNext()) {
+					question.addRightChoice(readChoice(reader));
+				}
+				reader.endArray();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return question;
+	}
+
+	private Choice readChoice(JsonReader reader) throws IOException {
+		Choice choice = new Choice();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			String lang = languageOf(name, "text");
+			if (lang != null) {
+				choice.setText(nextString(reader), lang);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return choice;
+	}
+
+	/**
+	 * Get the language of a localized property, e.g. <code>DE</code> of
+	 * <code>textDE</code> or <code>de-AT</code> of <code>textde-AT</code>.
+	 * The language is two or three letters of the same case, so properties
+	 * like <code>textSize</code> are not taken for a language.
+	 *
+	 * @param name
+	 *            name of the property
+	 * @param prefix
+	 *            name of the property without language
+	 * @return the language code or null if it is not a localized property
+	 */
+	static String languageOf(String name, String prefix) {
+		if (name.length() <= prefix.length() || !name.startsWith(prefix))
+			return null;
+		String lang = name.substring(prefix.length());
+		return LANGUAGE.matcher(lang).matches() ? lang : null;
+	}
+
+	private static String nextString(JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return null;
+		}
+		// numbers are returned as their literal text
+		return reader.nextString();
+	}
+
+	private void persist(Category category) {
+		em().persist(category);
+		unflushed++;
+	}
+
+	private void persist(Question question) {
+		em().persist(question);
+		unflushed += 1 + question.getChoices().size();
+	}
+
+	private void flush() {
+		EntityManager em = em();
+		em.flush();
+		em.clear();
+		unflushed = 0;
+	}
+
+	private static EntityManager em() {
+		return JPA.em();
+	}
+}
@@ -0,0 +1,77 @@
+package data;
+
+import play.Logger;
+import at.ac.tuwien.big.we14.lab4.dbpedia.api.DBPediaService;
+import at.ac.tuwien.big.we14.lab4.dbpedia.vocabulary.DBPedia;
+
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+
+/**
+ * Queries the DBPedia SPARQL endpoint. Unlike {@link DBPediaService}, which
+ * collects all statements in one shared model, every query is constructed
+ * into a model of its own, so queries can run concurrently.
+ */
+public class RemoteDBPediaSource implements IDBPediaSource {
+
+	private static final String SINGLE_RESOURCE_TEMPLATE = "CONSTRUCT { <%s> ?predicate ?object } WHERE { <%1$s> ?predicate ?object }";
+	private static final String MULTIPLE_RESOURCES_TEMPLATE = "CONSTRUCT { ?subject ?predicate ?object } WHERE { { %s } ?subject ?predicate ?object . } ORDER BY ?subject";
+	private static final String ASK_QUERY = "ASK { }";
+
+	private final String serviceUrl;
+
+	public RemoteDBPediaSource() {
+		this(DBPediaService.getServiceURL());
+	}
+
+	/**
+	 * @param serviceUrl
+	 *            URL of the SPARQL endpoint
+	 */
+	public RemoteDBPediaSource(String serviceUrl) {
+		this.serviceUrl = serviceUrl;
+	}
+
+	@Override
+	public boolean isAvailable() {
+		QueryExecution execution = QueryExecutionFactory.sparqlService(
+				serviceUrl, ASK_QUERY);
+		try {
+			return execution.execAsk();
+		} catch (Exception e) {
+			Logger.warn("DBPedia is not available: " + e.getMessage());
+			return false;
+		} finally {
+			execution.close();
+		}
+	}
+
+	@Override
+	public Resource loadResource(String name) {
+		String uri = DBPedia.createResource(name).getURI();
+		Model model = construct(String.format(SINGLE_RESOURCE_TEMPLATE, uri));
+		return model == null ? null : model.getResource(uri);
+	}
+
+	@Override
+	public Model loadModel(String selectQuery) {
+		return construct(String.format(MULTIPLE_RESOURCES_TEMPLATE,
+				selectQuery));
+	}
+
+	private Model construct(String query) {
+		QueryExecution execution = QueryExecutionFactory.sparqlService(
+				serviceUrl, query);
+		try {
+			return execution.execConstruct(ModelFactory.createDefaultModel());
+		} catch (Exception e) {
+			Logger.warn("DBPedia query failed: " + e.getMessage());
+			return null;
+		} finally {
+			execution.close();
+		}
+	}
+}
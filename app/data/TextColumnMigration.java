@@ -0,0 +1,113 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import models.Languages;
+import models.LocalizedEntity;
+import models.LocalizedText;
+import models.QuizDAO;
+import play.Logger;
+import play.db.jpa.JPA;
+
+/**
+ * Moves the texts of DBs created before they were stored in one JSON column
+ * (see {@link LocalizedEntity}) from the old textDE/textEN and nameDE/nameEN
+ * columns into that column. hbm2ddl adds the new column but neither fills it
+ * nor drops the old ones.
+ */
+public class TextColumnMigration {
+
+	// table, German column, English column
+	private static final String[][] COLUMNS = {
+			{ "CATEGORY", "NAMEDE", "NAMEEN" },
+			{ "QUESTION", "TEXTDE", "TEXTEN" },
+			{ "CHOICE", "TEXTDE", "TEXTEN" } };
+
+	private TextColumnMigration() {
+	}
+
+	/**
+	 * Copy the texts of the old columns and drop them. The old schema was
+	 * created from scratch and filled by the imports on every start, so the
+	 * imports of a migrated DB are recorded as done. Requires an active
+	 * transaction.
+	 *
+	 * @return the number of migrated rows
+	 */
+	public static int migrate() {
+		EntityManager em = JPA.em();
+		List<String[]> migrated = new ArrayList<>();
+		int rows = 0;
+		for (String[] columns : COLUMNS) {
+			if (hasColumn(em, columns[0], columns[1])) {
+				rows += copyTexts(em, columns[0], columns[1], columns[2]);
+				migrated.add(columns);
+			}
+		}
+		if (migrated.isEmpty())
+			return 0;
+
+		if (rows > 0) {
+			markImported(JSONDataInserter.IMPORT_NAME);
+			// the DBPedia importer joins the names of its category with " / "
+			if (hasColumn(em, "CATEGORY", "NAMEEN") && hasDBPediaCategory(em))
+				markImported(DBPediaDataInserter.IMPORT_NAME);
+		}
+		// H2 commits the transaction before altering a table
+		em.flush();
+		for (String[] columns : migrated) {
+			em.createNativeQuery(
+					"alter table " + columns[0] + " drop column " + columns[1])
+					.executeUpdate();
+			em.createNativeQuery(
+					"alter table " + columns[0] + " drop column " + columns[2])
+					.executeUpdate();
+		}
+		Logger.info("Moved the texts of " + rows
+				+ " rows into the texts column.");
+		return rows;
+	}
+
+	private static boolean hasColumn(EntityManager em, String table,
+			String column) {
+		Number count = (Number) em
+				.createNativeQuery(
+						"select count(*) from INFORMATION_SCHEMA.COLUMNS "
+								+ "where TABLE_NAME = ? and COLUMN_NAME = ?")
+				.setParameter(1, table).setParameter(2, column)
+				.getSingleResult();
+		return count.intValue() > 0;
+	}
+
+	private static int copyTexts(EntityManager em, String table,
+			String germanColumn, String englishColumn) {
+		List<?> rows = em.createNativeQuery(
+				"select id, " + germanColumn + ", " + englishColumn + " from "
+						+ table + " where texts is null").getResultList();
+		for (Object row : rows) {
+			Object[] values = (Object[]) row;
+			LocalizedText text = LocalizedText.EMPTY.with(Languages.DE,
+					(String) values[1]).with(Languages.EN, (String) values[2]);
+			em.createNativeQuery(
+					"update " + table + " set texts = ? where id = ?")
+					.setParameter(1, text.encode())
+					.setParameter(2, values[0]).executeUpdate();
+		}
+		return rows.size();
+	}
+
+	private static boolean hasDBPediaCategory(EntityManager em) {
+		return !em
+				.createNativeQuery(
+						"select id from CATEGORY where NAMEEN like '% / %'")
+				.setMaxResults(1).getResultList().isEmpty();
+	}
+
+	private static void markImported(String name) {
+		if (!QuizDAO.INSTANCE.isImported(name))
+			QuizDAO.INSTANCE.markImported(name);
+	}
+}
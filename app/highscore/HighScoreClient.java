@@ -0,0 +1,217 @@
+package highscore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.Semaphore;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import models.PublishJob;
+import models.QuizUser.Gender;
+import play.Logger;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Reusable SOAP client for the high score board. Unlike
+ * {@link SoapHighScoreService} it does not build a SAAJ DOM per request: the
+ * constant part of the envelope is rendered once, the players are streamed
+ * with StAX and the response is parsed with a streaming reader. Requests are
+ * sent over keep-alive HTTP connections, the number of concurrently open
+ * connections is bounded by a semaphore. Instances are thread-safe.
+ */
+public class HighScoreClient implements IHighScoreService {
+
+	private static final String SOAP_NAMESPACE = "http://schemas.xmlsoap.org/soap/envelope/";
+	private static final String DATA_NAMESPACE = "http://big.tuwien.ac.at/we/highscore/data";
+
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory
+			.newInstance();
+	private static final XMLInputFactory INPUT_FACTORY = inputFactory();
+
+	private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+
+		@Override
+		protected SimpleDateFormat initialValue() {
+			return new SimpleDateFormat("yyyy-MM-dd");
+		}
+	};
+
+	private final URL endpoint;
+	private final byte[] envelopeStart;
+	private final byte[] envelopeEnd;
+	private final Semaphore connections;
+	private final int connectTimeout;
+	private final int readTimeout;
+
+	public HighScoreClient(URL endpoint, String userKey, int maxConnections,
+			int connectTimeout, int readTimeout) {
+		this.endpoint = endpoint;
+		this.connections = new Semaphore(maxConnections);
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+		this.envelopeStart = ("<SOAP-ENV:Envelope xmlns:SOAP-ENV=\""
+				+ SOAP_NAMESPACE + "\" xmlns:data=\"" + DATA_NAMESPACE + "\">"
+				+ "<SOAP-ENV:Header/><SOAP-ENV:Body><data:HighScoreRequest>"
+				+ "<data:UserKey>" + escape(userKey) + "</data:UserKey>"
+				+ "<quiz><users>").getBytes(Charsets.UTF_8);
+		this.envelopeEnd = ("</users></quiz></data:HighScoreRequest>"
+				+ "</SOAP-ENV:Body></SOAP-ENV:Envelope>")
+				.getBytes(Charsets.UTF_8);
+	}
+
+	@Override
+	public String publish(PublishJob job) throws Exception {
+		byte[] request = createRequest(job);
+		connections.acquire();
+		try {
+			return send(request);
+		} finally {
+			connections.release();
+		}
+	}
+
+	/**
+	 * Render the SOAP request for the given job
+	 *
+	 * @param job
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	byte[] createRequest(PublishJob job) throws XMLStreamException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+		out.write(envelopeStart, 0, envelopeStart.length);
+
+		XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out,
+				"UTF-8");
+		writeUser(writer, job.getPlayerOneGender(), job.isPlayerOneWinner(),
+				job.getPlayerOneFirstName(), job.getPlayerOneLastName(),
+				job.getPlayerOneBirthDate());
+		writeUser(writer, job.getPlayerTwoGender(), job.isPlayerTwoWinner(),
+				job.getPlayerTwoFirstName(), job.getPlayerTwoLastName(),
+				job.getPlayerTwoBirthDate());
+		writer.flush();
+		writer.close();
+
+		out.write(envelopeEnd, 0, envelopeEnd.length);
+		return out.toByteArray();
+	}
+
+	private void writeUser(XMLStreamWriter writer, Gender gender,
+			boolean winner, String firstName, String lastName, Date birthDate)
+			throws XMLStreamException {
+		writer.writeStartElement("user");
+		writer.writeAttribute("gender", String.valueOf(gender));
+		writer.writeAttribute("name", winner ? "winner" : "loser");
+		writeElement(writer, "password", "");
+		writeElement(writer, "firstname", firstName);
+		writeElement(writer, "lastname", lastName);
+		writeElement(writer, "birthdate", birthDate == null ? "" : DATE_FORMAT
+				.get().format(birthDate));
+		writer.writeEndElement();
+	}
+
+	private static void writeElement(XMLStreamWriter writer, String name,
+			String text) throws XMLStreamException {
+		writer.writeStartElement(name);
+		writer.writeCharacters(text == null ? "" : text);
+		writer.writeEndElement();
+	}
+
+	private String send(byte[] request) throws IOException, XMLStreamException {
+		HttpURLConnection connection = (HttpURLConnection) endpoint
+				.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		connection.setFixedLengthStreamingMode(request.length);
+		connection.setRequestProperty("Content-Type", "text/xml; charset=utf-8");
+		connection.setRequestProperty("SOAPAction", "\"\"");
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(request);
+		}
+
+		int status = connection.getResponseCode();
+		InputStream in = status < 400 ? connection.getInputStream()
+				: connection.getErrorStream();
+		if (in == null)
+			throw new IOException("High score board answered with status "
+					+ status);
+		try {
+			return parseResponse(in);
+		} finally {
+			// closing the fully read stream returns the connection to the
+			// keep-alive cache
+			in.close();
+		}
+	}
+
+	/**
+	 * Get the UUID from the first child of the response body, a fault is
+	 * turned into an exception
+	 */
+	private String parseResponse(InputStream in) throws IOException,
+			XMLStreamException {
+		XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+		try {
+			boolean inBody = false;
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT)
+					continue;
+				if (!inBody) {
+					inBody = "Body".equals(reader.getLocalName())
+							&& SOAP_NAMESPACE.equals(reader.getNamespaceURI());
+				} else if ("Fault".equals(reader.getLocalName())) {
+					throw new IOException("Fault at SOAP-Response: "
+							+ readFaultString(reader));
+				} else {
+					String uuid = reader.getElementText().trim();
+					Logger.info("UUID caught: " + uuid);
+					return uuid;
+				}
+			}
+			throw new IOException("SOAP-Response has no child elements!");
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static String readFaultString(XMLStreamReader reader)
+			throws XMLStreamException {
+		while (reader.hasNext()) {
+			if (reader.next() == XMLStreamConstants.START_ELEMENT
+					&& "faultstring".equals(reader.getLocalName()))
+				return reader.getElementText();
+		}
+		return "unknown";
+	}
+
+	/**
+	 * The response comes from the network, so DTDs and external entities
+	 * are not resolved
+	 */
+	private static XMLInputFactory inputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+				false);
+		return factory;
+	}
+
+		private static String escape(String text) {
+		return text.replace("&", "&amp;").replace("<", "&lt;")
+				.replace(">", "&gt;").replace("\"", "&quot;");
+	}
+}
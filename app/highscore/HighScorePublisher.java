@@ -0,0 +1,417 @@
+package highscore;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.PersistenceException;
+
+import models.PublishJob;
+import models.PublishJob.Status;
+import models.QuizDAO;
+import models.QuizGame;
+import play.Configuration;
+import play.Logger;
+import play.db.jpa.JPA;
+import play.libs.F.Function0;
+import twitter.IPublicationCallback;
+import twitter.TwitterPublisher;
+import twitter.TwitterStatusMessage;
+import util.Services;
+
+/**
+ * Publishes results of finished games in the background. Every result is
+ * written to the {@link PublishJob} outbox first, so the request never waits
+ * for the high score service or Twitter. Worker threads take job ids from a
+ * bounded queue; failed jobs are retried with exponential backoff and a
+ * periodic sweep re-queues due jobs from the outbox, including those left
+ * over from a previous run.
+ * <p>
+ * A job is published once the {@link TwitterPublisher} reports the status as
+ * sent. Until then it is queued, jobs still queued when the application
+ * stopped are submitted again on start.
+ */
+public class HighScorePublisher {
+
+	public static final HighScorePublisher INSTANCE = new HighScorePublisher();
+
+	private static final String DEFAULT_ENDPOINT = "http://playground.big.tuwien.ac.at:8080/highscore/PublishHighScoreService";
+	private static final String DEFAULT_USER_KEY = "rkf4394dwqp49x";
+
+	private static final long SWEEP_INTERVAL_MILLIS = 5000;
+	private static final long BASE_BACKOFF_MILLIS = 2000;
+	private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+	private static final int MAX_ERROR_LENGTH = 255;
+
+	private final Set<Long> inFlight = Collections
+			.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+	private IHighScoreService highScoreService;
+	private TwitterPublisher twitterPublisher;
+	private int maxAttempts;
+	private BlockingQueue<Long> queue;
+	private ExecutorService workers;
+	private ScheduledExecutorService scheduler;
+	private volatile boolean running;
+
+	private HighScorePublisher() {
+	}
+
+	/**
+	 * Start the publisher with the services configured in application.conf
+	 *
+	 * @param config
+	 */
+	public void start(Configuration config) {
+		IHighScoreService service;
+		String type = config.getString("highscore.service");
+		if ("stub".equalsIgnoreCase(type)) {
+			service = new StubHighScoreService(Services.intValue(config,
+					"highscore.stub.delay", 0));
+		} else {
+			String endpoint = config.getString("highscore.endpoint");
+			String userKey = config.getString("highscore.userKey");
+			URL url;
+			try {
+				url = new URL(endpoint != null ? endpoint : DEFAULT_ENDPOINT);
+			} catch (MalformedURLException e) {
+				throw new IllegalArgumentException(
+						"Invalid high score endpoint " + endpoint, e);
+			}
+			userKey = userKey != null ? userKey : DEFAULT_USER_KEY;
+			if ("saaj".equalsIgnoreCase(type)) {
+				service = new SoapHighScoreService(url, userKey);
+			} else {
+				service = new HighScoreClient(url, userKey,
+						Services.intValue(config, "highscore.maxConnections", 4),
+						Services.intValue(config, "highscore.connectTimeout",
+								2000), Services.intValue(config,
+								"highscore.readTimeout", 10000));
+			}
+		}
+		start(service, TwitterPublisher.INSTANCE,
+				Services.intValue(config, "highscore.workers", 2),
+				Services.intValue(config, "highscore.queueSize", 1000),
+				Services.intValue(config, "highscore.maxAttempts", 8));
+	}
+
+	/**
+	 * Start the publisher with the given services
+	 *
+	 * @param highScoreService
+	 * @param twitterPublisher
+	 * @param workerCount
+	 *            number of worker threads
+	 * @param queueSize
+	 *            maximum number of queued jobs, further jobs wait in the
+	 *            outbox
+	 * @param maxAttempts
+	 *            number of attempts before a job is marked as failed
+	 */
+	public synchronized void start(IHighScoreService highScoreService,
+			TwitterPublisher twitterPublisher, int workerCount, int queueSize,
+			int maxAttempts) {
+		if (running)
+			stop();
+
+		this.highScoreService = highScoreService;
+		this.twitterPublisher = twitterPublisher;
+		this.maxAttempts = maxAttempts;
+		this.queue = new ArrayBlockingQueue<>(queueSize);
+		this.workers = Executors.newFixedThreadPool(workerCount,
+				Services.daemonThreads("highscore-worker"));
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(Services
+				.daemonThreads("highscore-sweeper"));
+		this.running = true;
+
+		try {
+			int reset = transaction(false, new Function0<Integer>() {
+
+				@Override
+				public Integer apply() throws Throwable {
+					return QuizDAO.INSTANCE.resetQueuedPublishJobs();
+				}
+			});
+			if (reset > 0)
+				Logger.info("Submitting " + reset
+						+ " queued results to Twitter again.");
+		} catch (RuntimeException e) {
+			Logger.error("Could not reset queued publish jobs.", e);
+		}
+
+		for (int i = 0; i < workerCount; i++) {
+			workers.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					work();
+				}
+			});
+		}
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				sweep();
+			}
+		}, 0, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		Logger.info("High score publisher started with " + workerCount
+				+ " workers.");
+	}
+
+	public synchronized void stop() {
+		running = false;
+		if (workers != null)
+			workers.shutdownNow();
+		if (scheduler != null)
+			scheduler.shutdownNow();
+		inFlight.clear();
+	}
+
+	/**
+	 * Get the job of the given finished game, creating and scheduling it if
+	 * the result has not been published yet. Runs its own transactions, so it
+	 * must not be called within one.
+	 *
+	 * @param game
+	 * @param userName
+	 *            name of the user who played the game
+	 * @return
+	 */
+	public PublishJob publish(QuizGame game, String userName) {
+		final String gameId = game.getId();
+		PublishJob job = findJob(gameId);
+		if (job != null)
+			return job;
+
+		final PublishJob created = PublishJob.forGame(game, userName);
+		try {
+			transaction(false, new Function0<Void>() {
+
+				@Override
+				public Void apply() throws Throwable {
+					QuizDAO.INSTANCE.persist(created);
+					return null;
+				}
+			});
+		} catch (PersistenceException e) {
+			// the job was created by a concurrent request for the same game
+			job = findJob(gameId);
+			if (job == null)
+				throw e;
+			return job;
+		}
+		if (running)
+			enqueue(created.getId());
+		return created;
+	}
+
+	/**
+	 * Get the number of jobs waiting in the queue
+	 *
+	 * @return
+	 */
+	public int getQueueDepth() {
+		BlockingQueue<Long> current = queue;
+		return current == null ? 0 : current.size();
+	}
+
+	private void enqueue(long id) {
+		if (inFlight.add(id) && !queue.offer(id))
+			inFlight.remove(id);
+	}
+
+	private void work() {
+		while (running) {
+			try {
+				Long id = queue.poll(1, TimeUnit.SECONDS);
+				if (id != null) {
+					try {
+						process(id);
+					} finally {
+						inFlight.remove(id);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (Throwable e) {
+				Logger.error("High score worker failed.", e);
+			}
+		}
+	}
+
+	private PublishJob findJob(final String gameId) {
+		return transaction(true, new Function0<PublishJob>() {
+
+			@Override
+			public PublishJob apply() throws Throwable {
+				return QuizDAO.INSTANCE.findPublishJob(gameId);
+			}
+		});
+	}
+
+	private void sweep() {
+		try {
+			final int capacity = queue.remainingCapacity();
+			if (capacity == 0)
+				return;
+			List<PublishJob> due = JPA.withTransaction("default", true,
+					new Function0<List<PublishJob>>() {
+
+						@Override
+						public List<PublishJob> apply() throws Throwable {
+							return QuizDAO.INSTANCE.findDuePublishJobs(
+									new Date(), capacity);
+						}
+					});
+			for (PublishJob job : due)
+				enqueue(job.getId());
+		} catch (Throwable e) {
+			Logger.error("Could not read publish jobs from outbox.", e);
+		}
+	}
+
+	private void process(final long id) throws Throwable {
+		PublishJob job = JPA.withTransaction("default", true,
+				new Function0<PublishJob>() {
+
+					@Override
+					public PublishJob apply() throws Throwable {
+						return QuizDAO.INSTANCE.findEntity(id, PublishJob.class);
+					}
+				});
+		if (job == null
+				|| (job.getStatus() != Status.PENDING && job.getStatus() != Status.SUBMITTED))
+			return;
+
+		String uuid = job.getResultUuid();
+		if (job.getStatus() == Status.PENDING) {
+			try {
+				uuid = highScoreService.publish(job);
+			} catch (Exception e) {
+				Logger.warn("Publishing game " + job.getGameId() + " failed.",
+						e);
+				update(id, Status.PENDING, uuid, e);
+				return;
+			}
+		}
+		// queued before it is handed over, the callback may run right away
+		update(id, Status.QUEUED, uuid, null);
+		try {
+			twitterPublisher.publishUuid(new TwitterStatusMessage(job
+					.getUserName(), uuid, new Date()), new TwitterCallback(id,
+					uuid, scheduler));
+		} catch (IllegalStateException e) {
+			Logger.warn("Queueing game " + job.getGameId()
+					+ " for Twitter failed.", e);
+			update(id, Status.SUBMITTED, uuid, e);
+		}
+	}
+
+	private void update(final long id, final Status status, final String uuid,
+			final Exception error) throws Throwable {
+		JPA.withTransaction("default", false, new Function0<Void>() {
+
+			@Override
+			public Void apply() throws Throwable {
+				PublishJob job = QuizDAO.INSTANCE.findEntity(id,
+						PublishJob.class);
+				job.setStatus(status);
+				job.setResultUuid(uuid);
+				if (error != null) {
+					int attempts = job.getAttempts() + 1;
+					job.setAttempts(attempts);
+					job.setLastError(truncate(String.valueOf(error
+							.getMessage())));
+					job.setNextAttemptAt(new Date(System.currentTimeMillis()
+							+ backoff(attempts)));
+					if (attempts >= maxAttempts) {
+						job.setStatus(Status.FAILED);
+						Logger.error("Giving up publishing game "
+								+ job.getGameId() + " after " + attempts
+								+ " attempts.");
+					}
+				}
+				return null;
+			}
+		});
+	}
+
+	private static <T> T transaction(boolean readOnly, Function0<T> block) {
+		try {
+			return JPA.withTransaction("default", readOnly, block);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static long backoff(int attempts) {
+		long delay = BASE_BACKOFF_MILLIS << Math.min(attempts - 1, 20);
+		return Math.min(delay, MAX_BACKOFF_MILLIS);
+	}
+
+	private static String truncate(String message) {
+		return message.length() > MAX_ERROR_LENGTH ? message.substring(0,
+				MAX_ERROR_LENGTH) : message;
+	}
+
+	/**
+	 * Records the outcome reported by the Twitter publisher. The update runs on
+	 * the scheduler, not on the sender thread.
+	 */
+	private class TwitterCallback implements IPublicationCallback {
+
+		private final long id;
+		private final String uuid;
+		private final ScheduledExecutorService executor;
+
+		TwitterCallback(long id, String uuid, ScheduledExecutorService executor) {
+			this.id = id;
+			this.uuid = uuid;
+			this.executor = executor;
+		}
+
+		@Override
+		public void published(TwitterStatusMessage message) {
+			record(Status.PUBLISHED, null);
+		}
+
+		@Override
+		public void failed(TwitterStatusMessage message, Exception cause) {
+			record(Status.SUBMITTED, cause);
+		}
+
+		private void record(final Status status, final Exception error) {
+			try {
+				executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							update(id, status, uuid, error);
+						} catch (Throwable e) {
+							Logger.error("Could not update publish job " + id
+									+ ".", e);
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// stopped, the job is submitted again on the next start
+			}
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package highscore;
+
+import models.PublishJob;
+
+/**
+ * Interface for services publishing game results to the high score board
+ */
+public interface IHighScoreService {
+
+	/**
+	 * Publish the result described by the given job
+	 * 
+	 * @param job
+	 * @return the UUID assigned by the high score board
+	 * @throws Exception
+	 *             if the result could not be published
+	 */
+	public String publish(PublishJob job) throws Exception;
+
+}
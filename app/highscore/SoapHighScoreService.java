@@ -0,0 +1,154 @@
+package highscore;
+
+import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.Name;
+import javax.xml.soap.SOAPBody;
+import javax.xml.soap.SOAPBodyElement;
+import javax.xml.soap.SOAPConnection;
+import javax.xml.soap.SOAPConnectionFactory;
+import javax.xml.soap.SOAPElement;
+import javax.xml.soap.SOAPEnvelope;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPFactory;
+import javax.xml.soap.SOAPFault;
+import javax.xml.soap.SOAPMessage;
+import javax.xml.soap.SOAPPart;
+
+import models.PublishJob;
+import models.QuizUser.Gender;
+import play.Logger;
+
+/**
+ * Publishes game results to the high score board via SOAP
+ */
+public class SoapHighScoreService implements IHighScoreService {
+
+	private static final String DATA_NAMESPACE = "http://big.tuwien.ac.at/we/highscore/data";
+
+	private final URL endpoint;
+	private final String userKey;
+
+	public SoapHighScoreService(URL endpoint, String userKey) {
+		this.endpoint = endpoint;
+		this.userKey = userKey;
+	}
+
+	@Override
+	public String publish(PublishJob job) throws Exception {
+		SOAPMessage message = createSoapRequest(job);
+		return getSoapResponse(message);
+	}
+
+	private SOAPMessage createSoapRequest(PublishJob job) throws SOAPException {
+
+		SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+
+		SOAPFactory soapFactory = SOAPFactory.newInstance();
+
+		MessageFactory messageFactory = MessageFactory.newInstance();
+		SOAPMessage message = messageFactory.createMessage();
+		SOAPPart soapPart = message.getSOAPPart();
+
+		// Names
+		Name bodyName = soapFactory.createName("HighScoreRequest");
+		Name quizName = soapFactory.createName("quiz");
+		Name usersName = soapFactory.createName("users");
+		Name userName = soapFactory.createName("user");
+
+		// Create envelope
+		SOAPEnvelope envelope = soapPart.getEnvelope();
+		envelope.addNamespaceDeclaration("data", DATA_NAMESPACE);
+
+		// Create bodyElement
+		SOAPBody body = envelope.getBody();
+		SOAPBodyElement bodyElement = body.addBodyElement(bodyName);
+		bodyElement.setPrefix("data");
+
+		// Set node "UserKey" as child element of bodyElement
+		SOAPElement userKeyElement = bodyElement.addChildElement("UserKey",
+				"data");
+		userKeyElement.addTextNode(userKey);
+
+		// Set node "quiz" as child element of bodyElement
+		SOAPElement quizElement = bodyElement.addChildElement(quizName);
+
+		// Set node "users" as child element of quizElement
+		SOAPElement usersElement = quizElement.addChildElement(usersName);
+
+		// Set node "user" (player1) as child element of usersElement
+		addUser(soapFactory, sdf, usersElement.addChildElement(userName),
+				job.getPlayerOneGender(), job.isPlayerOneWinner(),
+				job.getPlayerOneFirstName(), job.getPlayerOneLastName(),
+				job.getPlayerOneBirthDate());
+
+		// Set node "user" (player2) as child element of usersElement
+		addUser(soapFactory, sdf, usersElement.addChildElement(userName),
+				job.getPlayerTwoGender(), job.isPlayerTwoWinner(),
+				job.getPlayerTwoFirstName(), job.getPlayerTwoLastName(),
+				job.getPlayerTwoBirthDate());
+
+		Logger.info("SOAP-Request created!");
+		return message;
+	}
+
+	private void addUser(SOAPFactory soapFactory, SimpleDateFormat sdf,
+			SOAPElement userElement, Gender gender, boolean winner,
+			String firstName, String lastName, Date birthDate)
+			throws SOAPException {
+
+		userElement.setAttribute("gender", String.valueOf(gender));
+		userElement.setAttribute("name", winner ? "winner" : "loser");
+
+		userElement.addChildElement(soapFactory.createName("password"))
+				.addTextNode("");
+		userElement.addChildElement(soapFactory.createName("firstname"))
+				.addTextNode(firstName == null ? "" : firstName);
+		userElement.addChildElement(soapFactory.createName("lastname"))
+				.addTextNode(lastName == null ? "" : lastName);
+		userElement.addChildElement(soapFactory.createName("birthdate"))
+				.addTextNode(birthDate == null ? "" : sdf.format(birthDate));
+	}
+
+	private String getSoapResponse(SOAPMessage message) throws SOAPException {
+
+		SOAPConnectionFactory soapConnectionFactory = SOAPConnectionFactory
+				.newInstance();
+		SOAPConnection soapConnection = soapConnectionFactory
+				.createConnection();
+
+		try {
+			Logger.info("SOAP-Request: Sending!");
+			SOAPMessage response = soapConnection.call(message, endpoint);
+			Logger.info("SOAP-Response: Received!");
+
+			SOAPBody body = response.getSOAPBody();
+			if (body.hasFault()) {
+
+				SOAPFault fault = body.getFault();
+				Name code = fault.getFaultCodeAsName();
+				throw new SOAPException("Fault at SOAP-Response:"
+						+ "\n\tFault code: " + code.getQualifiedName()
+						+ "\n\tFault string: " + fault.getFaultString()
+						+ "\n\tFault actor: " + fault.getFaultActor());
+			}
+
+			@SuppressWarnings("rawtypes")
+			Iterator iterator = body.getChildElements();
+			if (!iterator.hasNext())
+				throw new SOAPException("SOAP-Response has no child elements!");
+
+			SOAPBodyElement uuidElement = (SOAPBodyElement) iterator.next();
+			String uuid = uuidElement.getValue();
+
+			Logger.info("UUID caught: " + uuid);
+			return uuid;
+		} finally {
+			soapConnection.close();
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package highscore;
+
+import java.util.UUID;
+
+import models.PublishJob;
+
+/**
+ * Local stand-in for the high score board, which answers with a random UUID
+ * after an optional delay. Used for tests and offline development.
+ */
+public class StubHighScoreService implements IHighScoreService {
+
+	private final long delayMillis;
+
+	public StubHighScoreService(long delayMillis) {
+		this.delayMillis = delayMillis;
+	}
+
+	@Override
+	public String publish(PublishJob job) throws Exception {
+		if (delayMillis > 0)
+			Thread.sleep(delayMillis);
+		return UUID.randomUUID().toString();
+	}
+
+}
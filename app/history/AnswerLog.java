@@ -0,0 +1,254 @@
+package history;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import models.Answer;
+import models.AnswerEvent;
+import models.IGameListener;
+import models.QuizDAO;
+import models.QuizGame;
+import play.Configuration;
+import play.Logger;
+import play.db.jpa.JPA;
+import play.libs.F.Function0;
+import util.Services;
+
+/**
+ * Write-behind log of all accepted answers. Answers are put into a lock-free
+ * queue by the answering thread and written as {@link AnswerEvent}s in
+ * batches by a background thread, either periodically or as soon as a batch
+ * is full. A batch which could not be written is kept and written first on
+ * the next flush. If the queue holds too many answers, e.g. because the DB
+ * is not available, further answers are dropped instead of blocking
+ * requests.
+ */
+public class AnswerLog implements IGameListener {
+
+	public static final AnswerLog INSTANCE = new AnswerLog();
+
+	private static final int MAX_ATTEMPTS = 5;
+
+	private final ConcurrentLinkedQueue<AnswerEvent> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pendingCount = new AtomicInteger();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	// not the monitor of the log, stop() waits for the writer while holding it
+	private final Object flushLock = new Object();
+	// batch whose write failed and its number of attempts, guarded by
+	// flushLock; its answers are still counted as pending
+	private List<AnswerEvent> failed = Collections.emptyList();
+	private int failedAttempts;
+
+	private int batchSize;
+	private int maxPending;
+	private volatile ScheduledExecutorService writer;
+	private volatile boolean running;
+
+	// package-private for tests, which replace the writing of batches
+	AnswerLog() {
+	}
+
+	/**
+	 * Start the log with the settings of application.conf
+	 *
+	 * @param config
+	 */
+	public void start(Configuration config) {
+		start(Services.intValue(config, "history.batchSize", 50),
+				Services.intValue(config, "history.flushInterval", 1000),
+				Services.intValue(config, "history.maxPending", 100000));
+	}
+
+	/**
+	 * Start the log
+	 *
+	 * @param batchSize
+	 *            maximum number of answers written in one transaction
+	 * @param flushIntervalMillis
+	 *            maximum time an answer waits in the queue
+	 * @param maxPending
+	 *            maximum number of queued answers, further answers are
+	 *            dropped
+	 */
+	public synchronized void start(int batchSize, int flushIntervalMillis,
+			int maxPending) {
+		if (running)
+			stop();
+
+		this.batchSize = Math.max(1, batchSize);
+		this.maxPending = maxPending;
+		this.writer = Executors.newSingleThreadScheduledExecutor(Services
+				.daemonThreads("answer-log"));
+		this.running = true;
+		writer.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				flush();
+			}
+		}, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+		Logger.info("Answer log started with batches of " + this.batchSize
+				+ " answers.");
+	}
+
+	/**
+	 * Stop the background thread and write the remaining answers
+	 */
+	public synchronized void stop() {
+		running = false;
+		if (writer != null) {
+			writer.shutdown();
+			try {
+				writer.awaitTermination(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			writer = null;
+		}
+		flush();
+		synchronized (flushLock) {
+			if (pendingCount.get() > 0)
+				Logger.error("Stopped with " + pendingCount.get()
+						+ " answers which could not be written to the log.");
+		}
+	}
+
+	@Override
+	public void answerAccepted(QuizGame game, int roundNumber,
+			int questionNumber, Answer answer) {
+		if (!running)
+			return;
+		int count = pendingCount.incrementAndGet();
+		if (count > maxPending) {
+			pendingCount.decrementAndGet();
+			dropped.incrementAndGet();
+			return;
+		}
+		pending.offer(AnswerEvent.of(game, roundNumber, questionNumber,
+				answer));
+		if (count >= batchSize && flushScheduled.compareAndSet(false, true)) {
+			ExecutorService current = writer;
+			if (current != null) {
+				try {
+					current.execute(new Runnable() {
+
+						@Override
+						public void run() {
+							flushScheduled.set(false);
+							flush();
+						}
+					});
+				} catch (RuntimeException e) {
+					// shutting down, stop() writes the rest
+					flushScheduled.set(false);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void gameOver(QuizGame game) {
+	}
+
+	public int getPendingCount() {
+		return pendingCount.get();
+	}
+
+	public long getWrittenCount() {
+		return written.get();
+	}
+
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Write the failed batch and all queued answers. Stops at the first
+	 * failure, the failed batch is kept for the next flush and dropped after
+	 * {@link #MAX_ATTEMPTS} attempts.
+	 */
+	void flush() {
+		synchronized (flushLock) {
+			while (true) {
+				boolean retry = !failed.isEmpty();
+				List<AnswerEvent> batch = retry ? failed : drain();
+				if (batch.isEmpty())
+					return;
+				try {
+					write(batch);
+				} catch (Throwable e) {
+					fail(batch, retry, e);
+					return;
+				}
+				if (retry) {
+					pendingCount.addAndGet(-batch.size());
+					failed = Collections.emptyList();
+				}
+				written.addAndGet(batch.size());
+			}
+		}
+	}
+
+	private void fail(List<AnswerEvent> batch, boolean retry, Throwable cause) {
+		if (!retry) {
+			pendingCount.addAndGet(batch.size());
+			failedAttempts = 0;
+		}
+		if (++failedAttempts >= MAX_ATTEMPTS) {
+			pendingCount.addAndGet(-batch.size());
+			dropped.addAndGet(batch.size());
+			failed = Collections.emptyList();
+			Logger.error("Dropped " + batch.size() + " answers after "
+					+ failedAttempts + " attempts to write them to the log.",
+					cause);
+			return;
+		}
+		// the failed transaction left the ids of the entries assigned
+		List<AnswerEvent> copies = new ArrayList<>(batch.size());
+		for (AnswerEvent event : batch)
+			copies.add(event.copy());
+		failed = copies;
+		Logger.error("Could not write " + batch.size()
+				+ " answers to the log, trying again on the next flush.",
+				cause);
+	}
+
+	private List<AnswerEvent> drain() {
+		List<AnswerEvent> batch = new ArrayList<>(batchSize);
+		AnswerEvent event;
+		while (batch.size() < batchSize && (event = pending.poll()) != null) {
+			pendingCount.decrementAndGet();
+			batch.add(event);
+		}
+		return batch;
+	}
+
+	/**
+	 * Write a batch in one transaction
+	 *
+	 * @param batch
+	 * @throws Throwable
+	 */
+	void write(final List<AnswerEvent> batch) throws Throwable {
+		JPA.withTransaction("default", false, new Function0<Void>() {
+
+			@Override
+			public Void apply() throws Throwable {
+				for (AnswerEvent event : batch)
+					QuizDAO.INSTANCE.persist(event);
+				return null;
+			}
+		});
+	}
+}
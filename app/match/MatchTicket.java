@@ -0,0 +1,60 @@
+package match;
+
+import java.util.UUID;
+
+import models.QuizGame;
+import models.QuizUser;
+
+/**
+ * A user waiting for an opponent. The ticket is completed with the game once
+ * the user has been paired.
+ */
+public class MatchTicket {
+
+	private final String id = UUID.randomUUID().toString();
+	private final QuizUser user;
+	private final long createdAt = System.currentTimeMillis();
+	private volatile QuizGame game;
+	private volatile long lastSeen = createdAt;
+
+	MatchTicket(QuizUser user) {
+		this.user = user;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public QuizUser getUser() {
+		return user;
+	}
+
+	/**
+	 * Get the game of the user
+	 * 
+	 * @return the game or null while the user is still waiting
+	 */
+	public QuizGame getGame() {
+		return game;
+	}
+
+	public boolean isMatched() {
+		return game != null;
+	}
+
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
+	void complete(QuizGame game) {
+		this.game = game;
+	}
+
+	void touch() {
+		lastSeen = System.currentTimeMillis();
+	}
+
+	long getLastSeen() {
+		return lastSeen;
+	}
+}
@@ -0,0 +1,182 @@
+package match;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import models.GameListeners;
+import models.QuestionCatalog;
+import models.QuizGame;
+import models.QuizUser;
+import util.Services;
+
+/**
+ * Pairs users who want to play against another human. At most one user is
+ * waiting at any time; the next user joining takes the waiting ticket with a
+ * compare-and-set and starts the game, so pairing needs no lock. Running
+ * games are kept in memory until they are over or have not been accessed
+ * for a while, a background sweep removes them.
+ */
+public class Matchmaker {
+
+	public static final Matchmaker INSTANCE = new Matchmaker();
+
+	private static final long WAIT_TIMEOUT_MILLIS = 30 * 1000;
+	private static final long GAME_TIMEOUT_MILLIS = 30 * 60 * 1000;
+	private static final long SWEEP_INTERVAL_MILLIS = 60 * 1000;
+
+	private final AtomicReference<MatchTicket> waiting = new AtomicReference<>();
+	private final ConcurrentMap<String, MatchTicket> tickets = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, QuizGame> games = new ConcurrentHashMap<>();
+
+	private ScheduledExecutorService sweeper;
+
+	private Matchmaker() {
+	}
+
+	/**
+	 * Start removing abandoned tickets and games every sweep interval
+	 */
+	public synchronized void start() {
+		if (sweeper != null)
+			stop();
+		sweeper = Executors.newSingleThreadScheduledExecutor(Services
+				.daemonThreads("matchmaker-sweeper"));
+		sweeper.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				sweep();
+			}
+		}, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop sweeping and drop all tickets and games
+	 */
+	public synchronized void stop() {
+		if (sweeper != null) {
+			sweeper.shutdownNow();
+			sweeper = null;
+		}
+		waiting.set(null);
+		tickets.clear();
+		games.clear();
+	}
+
+	/**
+	 * Join the queue. If another user is waiting, both are paired and the
+	 * returned ticket already holds the game.
+	 * 
+	 * @param user
+	 *            the user, a detached instance used as player of the game
+	 * @param catalog
+	 *            catalog the game is played with
+	 * @return the ticket of the user
+	 */
+	public MatchTicket join(QuizUser user, QuestionCatalog catalog) {
+		MatchTicket ticket = new MatchTicket(user);
+		while (true) {
+			MatchTicket other = waiting.get();
+			if (other == null) {
+				if (waiting.compareAndSet(null, ticket)) {
+					tickets.put(ticket.getId(), ticket);
+					return ticket;
+				}
+			} else if (sameUser(other.getUser(), user)) {
+				other.touch();
+				return other;
+			} else if (isExpired(other, WAIT_TIMEOUT_MILLIS)) {
+				if (waiting.compareAndSet(other, null))
+					tickets.remove(other.getId());
+			} else if (waiting.compareAndSet(other, null)) {
+				QuizGame game = new QuizGame(catalog, other.getUser(), user);
+				game.setListener(GameListeners.INSTANCE);
+				game.startRound(1);
+				games.put(game.getId(), game);
+				tickets.put(ticket.getId(), ticket);
+				ticket.complete(game);
+				other.complete(game);
+				return ticket;
+			}
+		}
+	}
+
+	/**
+	 * Get the ticket with the given id
+	 * 
+	 * @param id
+	 * @return the ticket or null if it is unknown or has expired
+	 */
+	public MatchTicket getTicket(String id) {
+		MatchTicket ticket = tickets.get(id);
+		if (ticket != null)
+			ticket.touch();
+		return ticket;
+	}
+
+	/**
+	 * Leave the queue, has no effect if the user has already been paired
+	 * 
+	 * @param ticket
+	 */
+	public void cancel(MatchTicket ticket) {
+		if (waiting.compareAndSet(ticket, null))
+			tickets.remove(ticket.getId());
+	}
+
+	/**
+	 * Get a running game of two humans
+	 * 
+	 * @param id
+	 * @return the game or null if it is unknown or has expired
+	 */
+	public QuizGame getGame(String id) {
+		return games.get(id);
+	}
+
+	public int getWaitingCount() {
+		return waiting.get() == null ? 0 : 1;
+	}
+
+	public int getGameCount() {
+		return games.size();
+	}
+
+	/**
+	 * Remove tickets and games which have not been accessed for a while
+	 */
+	private void sweep() {
+		Set<String> abandoned = new HashSet<>();
+		Set<String> referenced = new HashSet<>();
+		for (Iterator<MatchTicket> it = tickets.values().iterator(); it
+				.hasNext();) {
+			MatchTicket ticket = it.next();
+			QuizGame game = ticket.getGame();
+			if (isExpired(ticket, GAME_TIMEOUT_MILLIS)) {
+				it.remove();
+				if (game != null)
+					abandoned.add(game.getId());
+			} else if (game != null) {
+				referenced.add(game.getId());
+			}
+		}
+		// games are dropped once none of their players has been seen
+		abandoned.removeAll(referenced);
+		games.keySet().removeAll(abandoned);
+	}
+
+	private static boolean isExpired(MatchTicket ticket, long timeout) {
+		return System.currentTimeMillis() - ticket.getLastSeen() > timeout;
+	}
+
+	private static boolean sameUser(QuizUser a, QuizUser b) {
+		return a == b || (a.getId() != null && a.getId().equals(b.getId()));
+	}
+}
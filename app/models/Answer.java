@@ -25,18 +25,55 @@ public class Answer {
 	
 	private Question question;
 	
+	//selected choices as bit mask and correctness, evaluated on first use;
+	//answers are read by the threads of both players
+	private volatile long selectedMask;
+	private volatile Boolean correct;
+	
 	public Answer() {
 		choices = new ArrayList<>();
 	}
 	
+	/**
+	 * Check whether exactly the correct choices were selected. The selected
+	 * choices are compared as a bit mask with the correct choices of the
+	 * question, the result is cached.
+	 * 
+	 * @return
+	 */
 	public boolean isCorrect() {
-		if(!choices.isEmpty()){
+		Boolean result = correct;
+		if(result == null){
+			result = evaluate();
+			correct = result;
+		}
+		return result;
+	}
+	
+	private boolean evaluate() {
+		if(question == null){
+			selectedMask = -1;
+			return false;
+		}
+		if(!question.hasChoiceMask()){
+			selectedMask = -1;
 			List<Choice> correctChoices = question.getCorrectChoices();
-			if(choices.size() == correctChoices.size()){
-				return correctChoices.containsAll(choices);
-			}
+			return !choices.isEmpty() && choices.size() == correctChoices.size()
+					&& correctChoices.containsAll(choices);
 		}
-		return false;
+		selectedMask = question.getChoiceMask(choices);
+		return selectedMask > 0 && selectedMask == question.getCorrectChoiceMask();
+	}
+	
+	/**
+	 * Get the selected choices as a bit mask, see
+	 * {@link Question#getChoiceMask(List)}
+	 * 
+	 * @return the mask or -1 if the choices cannot be represented as a mask
+	 */
+	public long getSelectedMask() {
+		isCorrect();
+		return selectedMask;
 	}
 
 	public void setTime(long time) {
@@ -57,6 +94,7 @@ public class Answer {
 
 	public void setChoices(List<Choice> choices) {
 		this.choices = choices;
+		this.correct = null;
 	}
 
 	public List<Choice> getChoices() {
@@ -73,6 +111,7 @@ public class Answer {
 
 	public void setQuestion(Question question) {
 		this.question = question;
+		this.correct = null;
 	}
 
 	public Question getQuestion() {
@@ -0,0 +1,187 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.Entity;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import org.hibernate.annotations.Index;
+
+/**
+ * Entry of the append-only log of accepted answers. The log contains enough
+ * to rebuild a game with {@link GameReplay}. Entries are never updated.
+ * Questions and choices are logged by their catalog keys, which are the same
+ * after the questions have been imported again, and by their ids.
+ */
+@Entity
+public class AnswerEvent extends BaseEntity {
+
+	@Index(name = "answer_event_game")
+	private String gameId;
+
+	private int roundNumber;
+	private int questionNumber;
+	// number of questions in the round
+	private int questionCount;
+
+	// index in the players of the game, the human or first player is 0
+	private int playerIndex;
+	// null for the computer
+	private Long playerId;
+	private String playerName;
+
+	private long questionId;
+	// comma separated ids of the selected choices
+	private String choiceIds;
+	// see QuestionCatalog#keyOf, null in older entries which have ids only
+	private Long questionKey;
+	// comma separated keys of the selected choices
+	private String choiceKeys;
+	private long time;
+	private boolean correct;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date createdAt = new Date();
+
+	/**
+	 * Create the entry of an accepted answer
+	 *
+	 * @param game
+	 * @param roundNumber
+	 * @param questionNumber
+	 * @param answer
+	 * @return
+	 */
+	public static AnswerEvent of(QuizGame game, int roundNumber,
+			int questionNumber, Answer answer) {
+		AnswerEvent event = new AnswerEvent();
+		QuizUser player = answer.getPlayer();
+		event.gameId = game.getId();
+		event.roundNumber = roundNumber;
+		event.questionNumber = questionNumber;
+		event.questionCount = answer.getRound().getQuestions().size();
+		event.playerIndex = game.getPlayers().indexOf(player);
+		event.playerId = player.getId();
+		event.playerName = player.getName();
+		event.questionId = answer.getQuestion().getId();
+		event.questionKey = game.getCatalog().keyOf(answer.getQuestion());
+		StringBuilder choiceIds = new StringBuilder();
+		StringBuilder choiceKeys = new StringBuilder();
+		for (Choice choice : answer.getChoices()) {
+			if (choiceIds.length() > 0) {
+				choiceIds.append(',');
+				choiceKeys.append(',');
+			}
+			choiceIds.append(choice.getId());
+			choiceKeys.append(game.getCatalog().keyOf(choice));
+		}
+		event.choiceIds = choiceIds.toString();
+		event.choiceKeys = choiceKeys.toString();
+		event.time = answer.getTime();
+		event.correct = answer.isCorrect();
+		return event;
+	}
+
+	/**
+	 * Create an unsaved copy, e.g. to write the entry again after its
+	 * transaction failed, which leaves the id of the entry assigned
+	 *
+	 * @return
+	 */
+	public AnswerEvent copy() {
+		AnswerEvent event = new AnswerEvent();
+		event.gameId = gameId;
+		event.roundNumber = roundNumber;
+		event.questionNumber = questionNumber;
+		event.questionCount = questionCount;
+		event.playerIndex = playerIndex;
+		event.playerId = playerId;
+		event.playerName = playerName;
+		event.questionId = questionId;
+		event.choiceIds = choiceIds;
+		event.questionKey = questionKey;
+		event.choiceKeys = choiceKeys;
+		event.time = time;
+		event.correct = correct;
+		event.createdAt = createdAt;
+		return event;
+	}
+
+	public String getGameId() {
+		return gameId;
+	}
+
+	public int getRoundNumber() {
+		return roundNumber;
+	}
+
+	public int getQuestionNumber() {
+		return questionNumber;
+	}
+
+	public int getQuestionCount() {
+		return questionCount;
+	}
+
+	public int getPlayerIndex() {
+		return playerIndex;
+	}
+
+	public Long getPlayerId() {
+		return playerId;
+	}
+
+	public String getPlayerName() {
+		return playerName;
+	}
+
+	public long getQuestionId() {
+		return questionId;
+	}
+
+	/**
+	 * @return the ids of the selected choices
+	 */
+	public List<Long> getChoiceIds() {
+		return split(choiceIds);
+	}
+
+	/**
+	 * @return the catalog key of the question or null if the entry has been
+	 *         logged by ids only
+	 */
+	public Long getQuestionKey() {
+		return questionKey;
+	}
+
+	/**
+	 * @return the catalog keys of the selected choices
+	 */
+	public List<Long> getChoiceKeys() {
+		return split(choiceKeys);
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public boolean isCorrect() {
+		return correct;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	private static List<Long> split(String values) {
+		List<Long> result = new ArrayList<>();
+		if (values != null && !values.isEmpty()) {
+			for (String value : values.split(","))
+				result.add(Long.valueOf(value));
+		}
+		return result;
+	}
+}
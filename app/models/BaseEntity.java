@@ -4,6 +4,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.SequenceGenerator;
 
 /**
  * Base entity for all JPA classes
@@ -11,8 +12,11 @@ import javax.persistence.MappedSuperclass;
 @MappedSuperclass
 public class BaseEntity {
 
+	// a pooled sequence lets Hibernate assign ids without an insert, so
+	// inserts can be batched
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "entity_seq")
+	@SequenceGenerator(name = "entity_seq", sequenceName = "entity_seq", allocationSize = 50)
     protected Long id;
 
     public Long getId() {
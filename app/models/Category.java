@@ -3,22 +3,24 @@ package models;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
 import javax.persistence.OneToMany;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * Represents a category, which is stored in the DB
  */
 @Entity
-public class Category extends BaseEntity {
-
-
-    private String nameDE;
-    private String nameEN;
-
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
+public class Category extends LocalizedEntity {
 
     //A list of questions in this category
+    @Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "category")
     private List<Question> questions = new ArrayList<Question>();
 
@@ -32,48 +34,47 @@ public class Category extends BaseEntity {
     }
 
     /**
-     * Set the name attribute based on the given language. Default to English if no or an invalid language is passed
+     * Set the name attribute based on the given language. Any language code is accepted
      * @param name
      * @param lang
      */
     public void setName(String name, String lang) {
-        if ("de".equalsIgnoreCase(lang)) {
-            this.nameDE = name;
-        }
-        else {
-            this.nameEN = name;
-        }
+        localize(name, Languages.id(lang));
     }
 
     /**
-     * Get the name attribute based on the given language. Default to English if no or an invalid language is passed
+     * Get the name attribute based on the given language. Falls back to the base language, then to English
      * @param lang
      * @return
      */
     public String getName(String lang) {
-        if ("de".equalsIgnoreCase(lang)) {
-            return this.nameDE;
-        }
-        else {
-            return this.nameEN;
-        }
+        return localized(Languages.id(lang));
+    }
+
+    /**
+     * Get the name attribute based on the interned language id, see {@link Languages}
+     * @param languageId
+     * @return
+     */
+    public String getName(int languageId) {
+        return localized(languageId);
     }
 
 
     public String getNameDE() {
-        return nameDE;
+        return getLocalizedText().getExact(Languages.DE);
     }
 
     public void setNameDE(String nameDE) {
-        this.nameDE = nameDE;
+        localize(nameDE, Languages.DE);
     }
 
     public String getNameEN() {
-        return nameEN;
+        return getLocalizedText().getExact(Languages.EN);
     }
 
     public void setNameEN(String nameEN) {
-        this.nameEN = nameEN;
+        localize(nameEN, Languages.EN);
     }
 
     public List<Question> getQuestions() {
@@ -1,17 +1,19 @@
 package models;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.ManyToOne;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * Represents a choice which is stored in the DB
  */
 @Entity
-public class Choice extends BaseEntity {
-
-
-    private String textDE;
-    private String textEN;
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
+public class Choice extends LocalizedEntity {
 
     //Indicates whether this is a correct choice or not
     private Boolean correctAnswer;
@@ -21,31 +23,30 @@ public class Choice extends BaseEntity {
     private Question question;
 
     /**
-     * Set the text attribute based on the given language. Default to English if no or an invalid language is passed
+     * Set the text attribute based on the given language. Any language code is accepted
      * @param name
      * @param lang
      */
     public void setText(String name, String lang) {
-        if ("de".equalsIgnoreCase(lang)) {
-            this.textDE = name;
-        }
-        else {
-            this.textEN = name;
-        }
+        localize(name, Languages.id(lang));
     }
 
     /**
-     * Get the text attribute based on the given language. Default to English if no or an invalid language is passed
+     * Get the text attribute based on the given language. Falls back to the base language, then to English
      * @param lang
      * @return
      */
     public String getText(String lang) {
-        if ("de".equalsIgnoreCase(lang)) {
-            return this.textDE;
-        }
-        else {
-            return this.textEN;
-        }
+        return localized(Languages.id(lang));
+    }
+
+    /**
+     * Get the text attribute based on the interned language id, see {@link Languages}
+     * @param languageId
+     * @return
+     */
+    public String getText(int languageId) {
+        return localized(languageId);
     }
 
     public Question getQuestion() {
@@ -57,19 +58,19 @@ public class Choice extends BaseEntity {
     }
 
     public String getTextDE() {
-        return textDE;
+        return getLocalizedText().getExact(Languages.DE);
     }
 
     public void setTextDE(String textDE) {
-        this.textDE = textDE;
+        localize(textDE, Languages.DE);
     }
 
     public String getTextEN() {
-        return textEN;
+        return getLocalizedText().getExact(Languages.EN);
     }
 
     public void setTextEN(String textEN) {
-        this.textEN = textEN;
+        localize(textEN, Languages.EN);
     }
 
     public Boolean getCorrectAnswer() {
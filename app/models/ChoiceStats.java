@@ -0,0 +1,42 @@
+package models;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+
+/**
+ * Number of answers which selected a choice, see
+ * {@link stats.QuestionStatistics}
+ */
+@Entity
+public class ChoiceStats extends BaseEntity {
+
+	@Column(unique = true)
+	private long choiceId;
+
+	private long questionId;
+	private long selected;
+
+	public long getChoiceId() {
+		return choiceId;
+	}
+
+	public void setChoiceId(long choiceId) {
+		this.choiceId = choiceId;
+	}
+
+	public long getQuestionId() {
+		return questionId;
+	}
+
+	public void setQuestionId(long questionId) {
+		this.questionId = questionId;
+	}
+
+	public long getSelected() {
+		return selected;
+	}
+
+	public void setSelected(long selected) {
+		this.selected = selected;
+	}
+}
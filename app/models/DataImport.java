@@ -0,0 +1,35 @@
+package models;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * Marks a finished import of questions. It is written in the transaction of
+ * the import, so the questions are imported once and keep their ids, which
+ * the statistics and the answer log refer to, across restarts.
+ */
+@Entity
+public class DataImport extends BaseEntity {
+
+	@Column(unique = true)
+	private String name;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date importedAt = new Date();
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Date getImportedAt() {
+		return importedAt;
+	}
+}
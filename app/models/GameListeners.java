@@ -0,0 +1,53 @@
+package models;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import play.Logger;
+
+/**
+ * Forwards the events of all played games to the registered listeners, e.g.
+ * the answer log and the leaderboard. A failing listener does not keep the
+ * others from being notified.
+ */
+public class GameListeners implements IGameListener {
+
+	public static final GameListeners INSTANCE = new GameListeners();
+
+	private final List<IGameListener> listeners = new CopyOnWriteArrayList<>();
+
+	private GameListeners() {
+	}
+
+	public void add(IGameListener listener) {
+		listeners.add(listener);
+	}
+
+	public void remove(IGameListener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public void answerAccepted(QuizGame game, int roundNumber,
+			int questionNumber, Answer answer) {
+		for (IGameListener listener : listeners) {
+			try {
+				listener.answerAccepted(game, roundNumber, questionNumber,
+						answer);
+			} catch (RuntimeException e) {
+				Logger.error("Game listener failed.", e);
+			}
+		}
+	}
+
+	@Override
+	public void gameOver(QuizGame game) {
+		for (IGameListener listener : listeners) {
+			try {
+				listener.gameOver(game);
+			} catch (RuntimeException e) {
+				Logger.error("Game listener failed.", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Rebuilds games from the {@link AnswerEvent} log. Questions and choices are
+ * resolved against the {@link QuestionCatalog} by their keys, or by their ids
+ * if an entry has no keys. The rebuilt game has no
+ * listener, so replaying does not log the answers again.
+ */
+public final class GameReplay {
+
+	private GameReplay() {
+	}
+
+	/**
+	 * Rebuild a game from its logged answers
+	 *
+	 * @param gameId
+	 * @param events
+	 *            the logged answers of the game, in any order
+	 * @param catalog
+	 * @return the game or null if there are no answers of the first player or
+	 *         the answers refer to questions no longer in the catalog. A round
+	 *         whose questions have not all been answered by any player ends
+	 *         the replay.
+	 */
+	public static QuizGame replay(String gameId, List<AnswerEvent> events,
+			QuestionCatalog catalog) {
+		List<AnswerEvent> sorted = new ArrayList<>(events);
+		Collections.sort(sorted, new Comparator<AnswerEvent>() {
+
+			@Override
+			public int compare(AnswerEvent a, AnswerEvent b) {
+				int result = Integer.compare(a.getRoundNumber(),
+						b.getRoundNumber());
+				if (result == 0)
+					result = Integer.compare(a.getQuestionNumber(),
+							b.getQuestionNumber());
+				if (result == 0)
+					result = Integer.compare(a.getPlayerIndex(),
+							b.getPlayerIndex());
+				return result;
+			}
+		});
+
+		QuizUser[] players = new QuizUser[2];
+		for (AnswerEvent event : sorted) {
+			int index = event.getPlayerIndex();
+			if (index >= 0 && index < players.length
+					&& event.getPlayerId() != null && players[index] == null)
+				players[index] = player(event);
+		}
+		if (players[0] == null)
+			return null;
+		QuizGame game = players[1] == null ? new QuizGame(catalog, players[0])
+				: new QuizGame(catalog, players[0], players[1]);
+		game.setId(gameId);
+
+		int from = 0;
+		while (from < sorted.size()) {
+			int roundNumber = sorted.get(from).getRoundNumber();
+			int to = from;
+			while (to < sorted.size()
+					&& sorted.get(to).getRoundNumber() == roundNumber)
+				to++;
+			List<AnswerEvent> roundEvents = sorted.subList(from, to);
+			from = to;
+
+			if (roundNumber != game.getCurrentRoundCount() + 1)
+				break;
+			List<Question> questions = questionsOf(roundEvents, catalog);
+			if (questions == null)
+				break;
+			Round round = game.restoreRound(questions);
+			for (AnswerEvent event : roundEvents) {
+				if (event.getPlayerIndex() < 0
+						|| event.getPlayerIndex() >= game.getPlayers().size()
+						|| event.getQuestionNumber() < 0
+						|| event.getQuestionNumber() >= questions.size())
+					continue;
+				List<Choice> choices = choicesOf(event,
+						questions.get(event.getQuestionNumber()), catalog);
+				if (choices == null)
+					return null;
+				round.answerQuestion(event.getQuestionNumber(), choices,
+						event.getTime(),
+						game.getPlayers().get(event.getPlayerIndex()));
+			}
+		}
+		return game.getCurrentRoundCount() == 0 ? null : game;
+	}
+
+	/**
+	 * @return the questions of the round or null if a question is unknown
+	 */
+	private static List<Question> questionsOf(List<AnswerEvent> events,
+			QuestionCatalog catalog) {
+		int count = events.get(0).getQuestionCount();
+		Question[] questions = new Question[count];
+		for (AnswerEvent event : events) {
+			int number = event.getQuestionNumber();
+			if (number >= 0 && number < count && questions[number] == null)
+				questions[number] = questionOf(event, catalog);
+		}
+		List<Question> result = new ArrayList<>(count);
+		for (Question question : questions) {
+			if (question == null)
+				return null;
+			result.add(question);
+		}
+		return result;
+	}
+
+	private static Question questionOf(AnswerEvent event,
+			QuestionCatalog catalog) {
+		if (event.getQuestionKey() == null)
+			return catalog.findQuestion(event.getQuestionId());
+		return catalog.findQuestionByKey(event.getQuestionKey());
+	}
+
+	/**
+	 * @return the selected choices or null if a choice is unknown
+	 */
+	private static List<Choice> choicesOf(AnswerEvent event,
+			Question question, QuestionCatalog catalog) {
+		List<Choice> choices = new ArrayList<>();
+		if (event.getQuestionKey() == null) {
+			for (Long id : event.getChoiceIds()) {
+				Choice choice = catalog.findChoice(id);
+				if (choice == null)
+					return null;
+				choices.add(choice);
+			}
+			return choices;
+		}
+		for (Long key : event.getChoiceKeys()) {
+			Choice choice = null;
+			for (Choice candidate : question.getChoices()) {
+				if (catalog.keyOf(candidate) == key)
+					choice = candidate;
+			}
+			if (choice == null)
+				return null;
+			choices.add(choice);
+		}
+		return choices;
+	}
+
+	private static QuizUser player(AnswerEvent event) {
+		QuizUser player = new QuizUser();
+		player.setId(event.getPlayerId());
+		player.setUserName(event.getPlayerName());
+		return player;
+	}
+}
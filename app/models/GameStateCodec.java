@@ -0,0 +1,237 @@
+package models;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encodes the state of a {@link QuizGame} into a compact binary form and
+ * rebuilds games from it. Only keys and times are stored, all questions and
+ * choices are resolved against the {@link QuestionCatalog} when decoding.
+ * Questions are stored by their catalog keys and choices by their position
+ * among the choices of the question instead of their ids, as the ids differ
+ * between the DBs of the nodes of a cluster.
+ *
+ * Layout: version, game id, human player id, number of rounds and for each
+ * round the question keys followed by the answers of each player (chosen
+ * positions and time). The chosen positions are written as a bit mask, so
+ * the size of an answer does not grow with the number of chosen choices.
+ * The game id and the question keys are written as longs, all other numbers
+ * as variable length integers.
+ */
+public final class GameStateCodec {
+
+	private static final int VERSION = 4;
+
+	private GameStateCodec() {
+	}
+
+	/**
+	 * Encode the given game
+	 *
+	 * @param game
+	 * @return
+	 */
+	public static byte[] encode(QuizGame game) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+			DataOutputStream out = new DataOutputStream(bytes);
+			List<QuizUser> players = game.getPlayers();
+			QuestionCatalog catalog = game.getCatalog();
+
+			writeVarLong(out, VERSION);
+			UUID gameId = UUID.fromString(game.getId());
+			out.writeLong(gameId.getMostSignificantBits());
+			out.writeLong(gameId.getLeastSignificantBits());
+			Long humanId = players.get(0).getId();
+			writeVarLong(out, humanId == null ? -1 : humanId);
+
+			List<Round> rounds = game.getRounds();
+			writeVarLong(out, rounds.size());
+			for (Round round : rounds) {
+				List<Question> questions = round.getQuestions();
+				writeVarLong(out, questions.size());
+				for (Question question : questions)
+					out.writeLong(catalog.keyOf(question));
+
+				for (QuizUser player : players) {
+					List<Answer> answers = answersOf(round, player,
+							questions.size());
+					writeVarLong(out, answers.size());
+					for (int a = 0; a < answers.size(); a++) {
+						Answer answer = answers.get(a);
+						writeChoices(out, catalog, questions.get(a),
+								answer.getChoices());
+						writeVarLong(out, answer.getTime());
+					}
+				}
+			}
+			out.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not encode game", e);
+		}
+	}
+
+	/**
+	 * Rebuild a game from its encoded state
+	 *
+	 * @param state
+	 *            the encoded game.
+	 * @param catalog
+	 *            catalog used to resolve questions and choices.
+	 * @param human
+	 *            the human player of the game.
+	 * @return the rebuilt game or null if the state could not be decoded,
+	 *         e.g. because it refers to questions no longer in the catalog.
+	 */
+	public static QuizGame decode(byte[] state, QuestionCatalog catalog,
+			QuizUser human) {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+					state));
+			if (readVarLong(in) != VERSION)
+				return null;
+			UUID gameId = new UUID(in.readLong(), in.readLong());
+			long humanId = readVarLong(in);
+			if (human == null || human.getId() == null
+					|| human.getId() != humanId)
+				return null;
+
+			QuizGame game = new QuizGame(catalog, human);
+			game.setId(gameId.toString());
+			List<QuizUser> players = game.getPlayers();
+
+			int roundCount = readCount(in);
+			for (int r = 0; r < roundCount; r++) {
+				int questionCount = readCount(in);
+				List<Question> questions = new ArrayList<>(questionCount);
+				for (int q = 0; q < questionCount; q++) {
+					Question question = catalog.findQuestionByKey(in
+							.readLong());
+					if (question == null)
+						return null;
+					questions.add(question);
+				}
+
+				Round round = game.restoreRound(questions);
+				for (QuizUser player : players) {
+					int answerCount = readCount(in);
+					if (answerCount > questionCount)
+						return null;
+					for (int a = 0; a < answerCount; a++) {
+						List<Choice> choices = readChoices(in, catalog,
+								questions.get(a));
+						long time = readVarLong(in);
+						round.answerCurrentQuestion(choices, time, player);
+					}
+				}
+			}
+			return game;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Write the positions of the chosen choices, as a bit mask if the question
+	 * has few enough choices
+	 */
+	private static void writeChoices(DataOutputStream out,
+			QuestionCatalog catalog, Question question, List<Choice> choices)
+			throws IOException {
+		if (question.hasChoiceMask()) {
+			long mask = 0;
+			for (Choice choice : choices)
+				mask |= 1L << choiceIndex(catalog, choice);
+			writeVarLong(out, mask);
+		} else {
+			writeVarLong(out, choices.size());
+			for (Choice choice : choices)
+				writeVarLong(out, choiceIndex(catalog, choice));
+		}
+	}
+
+	private static List<Choice> readChoices(DataInputStream in,
+			QuestionCatalog catalog, Question question) throws IOException {
+		List<Choice> choices = new ArrayList<>();
+		if (question.hasChoiceMask()) {
+			long mask = readVarLong(in);
+			for (int index = 0; mask != 0; index++, mask >>>= 1) {
+				if ((mask & 1) != 0)
+					choices.add(choiceAt(catalog, question, index));
+			}
+		} else {
+			int count = readCount(in);
+			for (int c = 0; c < count; c++)
+				choices.add(choiceAt(catalog, question, readVarLong(in)));
+		}
+		return choices;
+	}
+
+	private static int choiceIndex(QuestionCatalog catalog, Choice choice) {
+		int index = catalog.indexOf(choice);
+		if (index < 0)
+			throw new IllegalStateException("Choice " + choice.getId()
+					+ " is not part of the question catalog");
+		return index;
+	}
+
+	private static Choice choiceAt(QuestionCatalog catalog, Question question,
+			long index) throws IOException {
+		Choice choice = index > Integer.MAX_VALUE ? null : catalog.findChoice(
+				question, (int) index);
+		if (choice == null)
+			throw new IOException("Unknown choice " + index);
+		return choice;
+	}
+
+	private static List<Answer> answersOf(Round round, QuizUser player,
+			int questionCount) {
+		List<Answer> answers = new ArrayList<>(questionCount);
+		for (int i = 0; i < questionCount; i++) {
+			Answer answer = round.getAnswer(i, player);
+			if (answer == null)
+				break;
+			answers.add(answer);
+		}
+		return answers;
+	}
+
+	private static int readCount(DataInputStream in) throws IOException {
+		long count = readVarLong(in);
+		// every element takes at least one byte
+		if (count < 0 || count > in.available())
+			throw new IOException("Malformed count " + count);
+		return (int) count;
+	}
+
+	private static void writeVarLong(DataOutputStream out, long value)
+			throws IOException {
+		// zig-zag encoding keeps small negative values short
+		long v = (value << 1) ^ (value >> 63);
+		while ((v & ~0x7FL) != 0) {
+			out.writeByte((int) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.writeByte((int) v);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long v = 0;
+		int shift = 0;
+		while (shift < 64) {
+			int b = in.readUnsignedByte();
+			v |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return (v >>> 1) ^ -(v & 1);
+			shift += 7;
+		}
+		throw new IOException("Malformed variable length integer");
+	}
+}
@@ -0,0 +1,30 @@
+package models;
+
+/**
+ * Notified about the progress of a {@link QuizGame}. Listeners are called on
+ * the thread of the answering player and must return quickly.
+ */
+public interface IGameListener {
+
+	/**
+	 * Called after an answer has been accepted. Not called for answers which
+	 * are restored when a game is rebuilt.
+	 *
+	 * @param game
+	 * @param roundNumber
+	 *            number of the round, starting with 1
+	 * @param questionNumber
+	 *            index of the question in the round
+	 * @param answer
+	 */
+	public void answerAccepted(QuizGame game, int roundNumber,
+			int questionNumber, Answer answer);
+
+	/**
+	 * Called once when the last round of the game is over, on the thread of
+	 * the player finishing it
+	 *
+	 * @param game
+	 */
+	public void gameOver(QuizGame game);
+}
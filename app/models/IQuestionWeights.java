@@ -0,0 +1,17 @@
+package models;
+
+/**
+ * Relative weights of questions for the {@link WeightedSelectionStrategy}
+ */
+public interface IQuestionWeights {
+
+	/**
+	 * Get the weight of the question, questions with a higher weight are
+	 * selected more often
+	 * 
+	 * @param question
+	 * @return a weight >= 0
+	 */
+	public double weightOf(Question question);
+
+}
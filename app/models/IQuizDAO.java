@@ -46,4 +46,12 @@ public interface IQuizDAO {
      */
     public <E extends BaseEntity> List<E> findEntities(Class<E> entityClazz);
 
+
+    /**
+     * Get all categories with their questions and the choices of the questions initialized
+     *
+     * @return
+     */
+    public List<Category> findCategoriesWithQuestions();
+
 }
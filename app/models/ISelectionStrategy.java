@@ -0,0 +1,26 @@
+package models;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Strategy choosing the questions of a round
+ */
+public interface ISelectionStrategy {
+
+	/**
+	 * Select distinct questions of a category without copying the list
+	 * 
+	 * @param questions
+	 *            all questions of the category, must not be modified
+	 * @param count
+	 *            number of questions to select, at most the number of
+	 *            questions
+	 * @param random
+	 *            random source of the game
+	 * @return the indices of the selected questions
+	 */
+	public int[] selectQuestions(List<Question> questions, int count,
+			Random random);
+
+}
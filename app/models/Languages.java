@@ -0,0 +1,105 @@
+package models;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interned language ids. Every language code is mapped to a small id once,
+ * texts are stored and looked up by that id. Codes are compared case
+ * insensitively, <code>_</code> and <code>-</code> separate the region.
+ * <p>
+ * Every language has a fallback: a regional language (<code>de-at</code>)
+ * falls back to its base language (<code>de</code>), a base language to
+ * {@link #DEFAULT}.
+ */
+public final class Languages {
+
+	public static final int EN = 0;
+	public static final int DE = 1;
+	public static final int DEFAULT = EN;
+
+	/**
+	 * Upper bound of interned languages, further codes are mapped to
+	 * {@link #DEFAULT}
+	 */
+	public static final int MAX_LANGUAGES = 64;
+
+	private static final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+	private static volatile String[] codes = new String[0];
+	private static volatile int[] fallbacks = new int[0];
+
+	static {
+		intern("en");
+		intern("de");
+	}
+
+	private Languages() {
+	}
+
+	/**
+	 * Get the id of a language, interning it on first use
+	 *
+	 * @param code
+	 *            language code, e.g. <code>de</code> or <code>de-AT</code>
+	 * @return the id, {@link #DEFAULT} for null or empty codes
+	 */
+	public static int id(String code) {
+		if (code == null)
+			return DEFAULT;
+		Integer id = ids.get(code);
+		return id != null ? id : intern(code);
+	}
+
+	/**
+	 * @param id
+	 * @return the normalized code of the language
+	 */
+	public static String code(int id) {
+		return codes[id];
+	}
+
+	/**
+	 * @param id
+	 * @return the id of the language used if there is no text in the given
+	 *         language, or -1 for {@link #DEFAULT}
+	 */
+	public static int fallbackOf(int id) {
+		return fallbacks[id];
+	}
+
+	/**
+	 * @return the number of interned languages
+	 */
+	public static int count() {
+		return codes.length;
+	}
+
+	private static synchronized int intern(String code) {
+		String normalized = code.trim().toLowerCase(Locale.ENGLISH)
+				.replace('_', '-');
+		Integer id = ids.get(normalized);
+		if (id == null) {
+			if (normalized.isEmpty() || codes.length >= MAX_LANGUAGES)
+				return DEFAULT;
+			int dash = normalized.indexOf('-');
+			int fallback;
+			if (dash > 0)
+				fallback = intern(normalized.substring(0, dash));
+			else
+				fallback = codes.length == DEFAULT ? -1 : DEFAULT;
+
+			id = codes.length;
+			int[] newFallbacks = Arrays.copyOf(fallbacks, id + 1);
+			newFallbacks[id] = fallback;
+			String[] newCodes = Arrays.copyOf(codes, id + 1);
+			newCodes[id] = normalized;
+			fallbacks = newFallbacks;
+			codes = newCodes;
+			ids.put(normalized, id);
+		}
+		ids.put(code, id);
+		return id;
+	}
+}
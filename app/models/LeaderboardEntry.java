@@ -0,0 +1,74 @@
+package models;
+
+import java.util.Date;
+
+import javax.persistence.Entity;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * Checkpoint of a leaderboard score. The leaderboards are kept in memory and
+ * written to this table periodically, so they survive restarts.
+ */
+@Entity
+public class LeaderboardEntry extends BaseEntity {
+
+	// null for the global leaderboard
+	private Long categoryId;
+
+	private long userId;
+	private String userName;
+	private int score;
+	private long time;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date achievedAt;
+
+	public Long getCategoryId() {
+		return categoryId;
+	}
+
+	public void setCategoryId(Long categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public long getUserId() {
+		return userId;
+	}
+
+	public void setUserId(long userId) {
+		this.userId = userId;
+	}
+
+	public String getUserName() {
+		return userName;
+	}
+
+	public void setUserName(String userName) {
+		this.userName = userName;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public void setScore(int score) {
+		this.score = score;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public void setTime(long time) {
+		this.time = time;
+	}
+
+	public Date getAchievedAt() {
+		return achievedAt;
+	}
+
+	public void setAchievedAt(Date achievedAt) {
+		this.achievedAt = achievedAt;
+	}
+}
@@ -0,0 +1,45 @@
+package models;
+
+import javax.persistence.Lob;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Transient;
+
+/**
+ * Base entity for entities with a text in several languages. The texts are
+ * stored as one JSON object keyed by language code, so any number of
+ * languages is loaded with the entity itself.
+ */
+@MappedSuperclass
+public class LocalizedEntity extends BaseEntity {
+
+	@Lob
+	private String texts;
+
+	// decoded on first use
+	@Transient
+	private volatile LocalizedText localizedText;
+
+	/**
+	 * @return the texts of this entity in all languages
+	 */
+	public LocalizedText getLocalizedText() {
+		LocalizedText text = localizedText;
+		if (text == null)
+			localizedText = text = LocalizedText.decode(texts);
+		return text;
+	}
+
+	public void setLocalizedText(LocalizedText text) {
+		localizedText = text;
+		texts = text.encode();
+	}
+
+	protected String localized(int languageId) {
+		return getLocalizedText().get(languageId);
+	}
+
+	protected void localize(String value, int languageId) {
+		setLocalizedText(getLocalizedText().with(languageId, value));
+	}
+
+}
@@ -0,0 +1,107 @@
+package models;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Immutable text in several languages, stored in an array indexed by the
+ * {@link Languages} id. Lookups follow the fallback chain of the requested
+ * language and finally return a text in any language.
+ */
+public final class LocalizedText {
+
+	public static final LocalizedText EMPTY = new LocalizedText(new String[0]);
+
+	private static final Gson GSON = new Gson();
+
+	private final String[] values;
+
+	private LocalizedText(String[] values) {
+		this.values = values;
+	}
+
+	/**
+	 * Get the text in the given language or its fallbacks
+	 *
+	 * @param languageId
+	 * @return the text or null if there is no text in any language
+	 */
+	public String get(int languageId) {
+		for (int id = languageId; id >= 0; id = Languages.fallbackOf(id)) {
+			if (id < values.length && values[id] != null)
+				return values[id];
+		}
+		for (String value : values) {
+			if (value != null)
+				return value;
+		}
+		return null;
+	}
+
+	public String get(String lang) {
+		return get(Languages.id(lang));
+	}
+
+	/**
+	 * Get the text in exactly the given language
+	 *
+	 * @param languageId
+	 * @return the text or null
+	 */
+	public String getExact(int languageId) {
+		return languageId < values.length ? values[languageId] : null;
+	}
+
+	/**
+	 * @param languageId
+	 * @param value
+	 *            the text, null to remove it
+	 * @return a copy with the text of the language replaced
+	 */
+	public LocalizedText with(int languageId, String value) {
+		String[] copy = Arrays.copyOf(values,
+				Math.max(values.length, languageId + 1));
+		copy[languageId] = value;
+		return new LocalizedText(copy);
+	}
+
+	/**
+	 * @return the texts keyed by language code
+	 */
+	public Map<String, String> toMap() {
+		Map<String, String> map = new LinkedHashMap<>();
+		for (int id = 0; id < values.length; id++) {
+			if (values[id] != null)
+				map.put(Languages.code(id), values[id]);
+		}
+		return map;
+	}
+
+	/**
+	 * @return a JSON object of the texts keyed by language code, or null if
+	 *         there are no texts
+	 */
+	public String encode() {
+		Map<String, String> map = toMap();
+		return map.isEmpty() ? null : GSON.toJson(map);
+	}
+
+	static LocalizedText decode(String encoded) {
+		if (encoded == null || encoded.isEmpty())
+			return EMPTY;
+		LocalizedText text = EMPTY;
+		JsonObject object = new JsonParser().parse(encoded).getAsJsonObject();
+		for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+			if (!entry.getValue().isJsonNull())
+				text = text.with(Languages.id(entry.getKey()), entry
+						.getValue().getAsString());
+		}
+		return text;
+	}
+}
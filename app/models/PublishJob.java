@@ -0,0 +1,191 @@
+package models;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import models.QuizUser.Gender;
+
+/**
+ * Outbox entry for publishing the result of a finished game to the high score
+ * service and Twitter. Entries are processed in the background and survive
+ * restarts until they are published or have failed too often.
+ */
+@Entity
+public class PublishJob extends BaseEntity {
+
+	public enum Status {
+		/** waiting for the high score service */
+		PENDING,
+		/** UUID received, waiting for Twitter */
+		SUBMITTED,
+		/** queued at the Twitter publisher, waiting to be sent */
+		QUEUED,
+		/** UUID published on Twitter */
+		PUBLISHED,
+		/** gave up after too many attempts */
+		FAILED
+	}
+
+	@Column(unique = true)
+	private String gameId;
+
+	private String userName;
+
+	private String playerOneFirstName;
+	private String playerOneLastName;
+	private Gender playerOneGender;
+	@Temporal(TemporalType.DATE)
+	private Date playerOneBirthDate;
+	private boolean playerOneWinner;
+
+	private String playerTwoFirstName;
+	private String playerTwoLastName;
+	private Gender playerTwoGender;
+	@Temporal(TemporalType.DATE)
+	private Date playerTwoBirthDate;
+	private boolean playerTwoWinner;
+
+	@Enumerated(EnumType.STRING)
+	private Status status = Status.PENDING;
+
+	private int attempts;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date nextAttemptAt = new Date();
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date createdAt = new Date();
+
+	private String resultUuid;
+
+	private String lastError;
+
+	/**
+	 * Create a job for the given finished game
+	 *
+	 * @param game
+	 * @param userName
+	 *            name of the user who played the game
+	 * @return
+	 */
+	public static PublishJob forGame(QuizGame game, String userName) {
+		PublishJob job = new PublishJob();
+		QuizUser winner = game.getWinner();
+		QuizUser playerOne = game.getPlayers().get(0);
+		QuizUser playerTwo = game.getPlayers().get(1);
+
+		job.gameId = game.getId();
+		job.userName = userName;
+
+		job.playerOneFirstName = playerOne.getFirstName();
+		job.playerOneLastName = playerOne.getLastName();
+		job.playerOneGender = playerOne.getGender();
+		job.playerOneBirthDate = playerOne.getBirthDate();
+		job.playerOneWinner = playerOne.equals(winner);
+
+		job.playerTwoFirstName = playerTwo.getFirstName();
+		job.playerTwoLastName = playerTwo.getLastName();
+		job.playerTwoGender = playerTwo.getGender();
+		job.playerTwoBirthDate = playerTwo.getBirthDate();
+		job.playerTwoWinner = playerTwo.equals(winner);
+		return job;
+	}
+
+	public String getGameId() {
+		return gameId;
+	}
+
+	public String getUserName() {
+		return userName;
+	}
+
+	public String getPlayerOneFirstName() {
+		return playerOneFirstName;
+	}
+
+	public String getPlayerOneLastName() {
+		return playerOneLastName;
+	}
+
+	public Gender getPlayerOneGender() {
+		return playerOneGender;
+	}
+
+	public Date getPlayerOneBirthDate() {
+		return playerOneBirthDate;
+	}
+
+	public boolean isPlayerOneWinner() {
+		return playerOneWinner;
+	}
+
+	public String getPlayerTwoFirstName() {
+		return playerTwoFirstName;
+	}
+
+	public String getPlayerTwoLastName() {
+		return playerTwoLastName;
+	}
+
+	public Gender getPlayerTwoGender() {
+		return playerTwoGender;
+	}
+
+	public Date getPlayerTwoBirthDate() {
+		return playerTwoBirthDate;
+	}
+
+	public boolean isPlayerTwoWinner() {
+		return playerTwoWinner;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+
+	public Date getNextAttemptAt() {
+		return nextAttemptAt;
+	}
+
+	public void setNextAttemptAt(Date nextAttemptAt) {
+		this.nextAttemptAt = nextAttemptAt;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public String getResultUuid() {
+		return resultUuid;
+	}
+
+	public void setResultUuid(String resultUuid) {
+		this.resultUuid = resultUuid;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	public void setLastError(String lastError) {
+		this.lastError = lastError;
+	}
+}
@@ -4,21 +4,32 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.Transient;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Represents a question, which is stored in the DB
  */
 @Entity
-public class Question extends BaseEntity {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
+public class Question extends LocalizedEntity {
+
+    /**
+     * Maximum number of choices which can be represented in a choice mask,
+     * the sign bit is left out so masks are never negative
+     */
+    public static final int MAX_MASK_CHOICES = Long.SIZE - 1;
 
 
-    private String textDE;
-    private String textEN;
     private BigDecimal maxtime;
 
     //The category to which this question belongs to
@@ -27,9 +38,14 @@ public class Question extends BaseEntity {
 
 
     //A list of choices belonging to this question
+    @Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
     @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL, mappedBy = "question")
     private List<Choice> choices = new ArrayList<Choice>();
 
+    //Bit i is set if the i-th choice is correct, computed on first use
+    @Transient
+    private volatile Long correctChoiceMask;
+
 
     /**
      * Add a wrong choice
@@ -39,6 +55,7 @@ public class Question extends BaseEntity {
         choice.setQuestion(this);
         choice.setCorrectAnswer(Boolean.FALSE);
         choices.add(choice);
+        correctChoiceMask = null;
     }
 
 
@@ -50,35 +67,35 @@ public class Question extends BaseEntity {
         choice.setQuestion(this);
         choice.setCorrectAnswer(Boolean.TRUE);
         choices.add(choice);
+        correctChoiceMask = null;
     }
 
 
     /**
-     * Set the text attribute based on the given language. Default to English if no or an invalid language is passed
+     * Set the text attribute based on the given language. Any language code is accepted
      * @param name
      * @param lang
      */
     public void setText(String name, String lang) {
-        if ("de".equalsIgnoreCase(lang)) {
-            this.textDE = name;
-        }
-        else {
-            this.textEN = name;
-        }
+        localize(name, Languages.id(lang));
     }
 
     /**
-     * Get the text attribute based on the given language. Default to English if no or an invalid language is passed
+     * Get the text attribute based on the given language. Falls back to the base language, then to English
      * @param lang
      * @return
      */
     public String getText(String lang) {
-        if ("de".equalsIgnoreCase(lang)) {
-            return this.textDE;
-        }
-        else {
-            return this.textEN;
-        }
+        return localized(Languages.id(lang));
+    }
+
+    /**
+     * Get the text attribute based on the interned language id, see {@link Languages}
+     * @param languageId
+     * @return
+     */
+    public String getText(int languageId) {
+        return localized(languageId);
     }
 
 
@@ -92,19 +109,19 @@ public class Question extends BaseEntity {
     }
 
     public String getTextDE() {
-        return textDE;
+        return getLocalizedText().getExact(Languages.DE);
     }
 
     public void setTextDE(String textDE) {
-        this.textDE = textDE;
+        localize(textDE, Languages.DE);
     }
 
     public String getTextEN() {
-        return textEN;
+        return getLocalizedText().getExact(Languages.EN);
     }
 
     public void setTextEN(String textEN) {
-        this.textEN = textEN;
+        localize(textEN, Languages.EN);
     }
 
     public Category getCategory() {
@@ -121,6 +138,68 @@ public class Question extends BaseEntity {
 
     public void setChoices(List<Choice> choices) {
         this.choices = choices;
+        correctChoiceMask = null;
+    }
+
+    /**
+     * Check whether the choices of this question can be represented as a
+     * mask, see {@link #getCorrectChoiceMask()}
+     * @return
+     */
+    public boolean hasChoiceMask() {
+        return choices.size() <= MAX_MASK_CHOICES;
+    }
+
+    /**
+     * Get the correct choices as a bit mask, bit i is set if the i-th choice
+     * is correct. The choices must not be changed afterwards.
+     * @return
+     */
+    public long getCorrectChoiceMask() {
+        Long mask = correctChoiceMask;
+        if (mask == null) {
+            if (!hasChoiceMask()) {
+                throw new IllegalStateException("Question has more than "
+                        + MAX_MASK_CHOICES + " choices.");
+            }
+            long bits = 0;
+            for (int i = 0; i < choices.size(); i++) {
+                if (choices.get(i).isRight()) {
+                    bits |= 1L << i;
+                }
+            }
+            correctChoiceMask = mask = bits;
+        }
+        return mask;
+    }
+
+    /**
+     * Get the given choices as a bit mask, bit i is set if the i-th choice
+     * of this question is contained
+     * @param selected
+     * @return the mask or -1 if one of the choices does not belong to this question
+     */
+    public long getChoiceMask(List<Choice> selected) {
+        long mask = 0;
+        for (Choice choice : selected) {
+            int index = indexOf(choice);
+            if (index < 0 || index >= MAX_MASK_CHOICES) {
+                return -1;
+            }
+            mask |= 1L << index;
+        }
+        return mask;
+    }
+
+    private int indexOf(Choice choice) {
+        for (int i = 0; i < choices.size(); i++) {
+            Choice candidate = choices.get(i);
+            if (candidate == choice || (candidate.getId() != null
+                    && candidate.getId().equals(choice.getId()))) {
+                return i;
+            }
+        }
+        return -1;
     }
     
     public List<Choice> getCorrectChoices() {
@@ -0,0 +1,345 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.stat.Statistics;
+
+import play.Logger;
+import play.db.jpa.JPA;
+import play.libs.F.Function0;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Read-only snapshot of all categories, questions and choices. The catalog is
+ * built once from the DB and afterwards used for all game related lookups, so
+ * starting a game does not issue any SQL. The contained entities are detached
+ * and must not be modified.
+ */
+public final class QuestionCatalog {
+
+	private static volatile QuestionCatalog current = new QuestionCatalog(
+			Collections.<Category> emptyList());
+
+	private final Category[] categories;
+	private final Question[][] questions;
+	private final List<Category> categoryList;
+	private final List<List<Question>> questionLists;
+
+	private final Map<Long, Integer> categoryIndexById;
+	private final Map<Long, Question> questionsById;
+	private final Map<Long, Choice> choicesById;
+	private final Map<Long, List<Choice>> correctChoicesByQuestionId;
+	// keys derived from the texts, equal on all nodes unlike the ids
+	private final Map<Long, Long> keysById;
+	private final Map<Long, Question> questionsByKey;
+	// choices of each question ordered by their keys, for the same reason
+	private final Map<Long, Choice[]> choicesInKeyOrder;
+	private final Map<Long, Integer> choiceIndexById;
+
+	private QuestionCatalog(List<Category> source) {
+		// games refer to questions and choices by keys derived from their
+		// texts, so questions which can't be told apart by their keys are
+		// left out, all of them alike on every node
+		Map<Long, Integer> keyCounts = new HashMap<>();
+		for (Category category : source) {
+			for (Question question : category.getQuestions()) {
+				long key = questionKey(category, question);
+				Integer count = keyCounts.get(key);
+				keyCounts.put(key, count == null ? 1 : count + 1);
+			}
+		}
+		List<Category> usable = new ArrayList<>();
+		List<Question[]> distinctQuestions = new ArrayList<>();
+		int ambiguous = 0;
+		for (Category category : source) {
+			List<Question> distinct = new ArrayList<>();
+			for (Question question : category.getQuestions()) {
+				long key = questionKey(category, question);
+				if (keyCounts.get(key) == 1 && hasDistinctChoices(key, question))
+					distinct.add(question);
+				else
+					ambiguous++;
+			}
+			if (!distinct.isEmpty()) {
+				usable.add(category);
+				distinctQuestions.add(distinct.toArray(new Question[distinct
+						.size()]));
+			}
+		}
+		if (ambiguous > 0)
+			Logger.warn(ambiguous + " questions are left out of the catalog, "
+					+ "as their texts or the texts of their choices are not "
+					+ "unique.");
+
+		categories = usable.toArray(new Category[usable.size()]);
+		questions = distinctQuestions.toArray(new Question[categories.length][]);
+		categoryIndexById = new HashMap<>();
+		questionsById = new HashMap<>();
+		choicesById = new HashMap<>();
+		correctChoicesByQuestionId = new HashMap<>();
+		keysById = new HashMap<>();
+		questionsByKey = new HashMap<>();
+		choicesInKeyOrder = new HashMap<>();
+		choiceIndexById = new HashMap<>();
+
+		List<List<Question>> lists = new ArrayList<>(categories.length);
+		for (int i = 0; i < categories.length; i++) {
+			Category category = categories[i];
+			categoryIndexById.put(category.getId(), i);
+			category.getLocalizedText();
+			for (Question question : questions[i]) {
+				questionsById.put(question.getId(), question);
+				question.getLocalizedText();
+				long questionKey = questionKey(category, question);
+				keysById.put(question.getId(), questionKey);
+				questionsByKey.put(questionKey, question);
+				for (Choice choice : question.getChoices()) {
+					choicesById.put(choice.getId(), choice);
+					choice.getLocalizedText();
+					keysById.put(choice.getId(), choiceKey(questionKey, choice));
+				}
+				Choice[] ordered = question.getChoices().toArray(
+						new Choice[question.getChoices().size()]);
+				Arrays.sort(ordered, new Comparator<Choice>() {
+
+					@Override
+					public int compare(Choice a, Choice b) {
+						return Long.compare(keysById.get(a.getId()),
+								keysById.get(b.getId()));
+					}
+
+				});
+				choicesInKeyOrder.put(question.getId(), ordered);
+				for (int c = 0; c < ordered.length; c++)
+					choiceIndexById.put(ordered[c].getId(), c);
+				correctChoicesByQuestionId.put(question.getId(),
+						Collections.unmodifiableList(question
+								.getCorrectChoices()));
+				// computed here like the texts above, so they are published
+				// with the catalog
+				if (question.hasChoiceMask())
+					question.getCorrectChoiceMask();
+			}
+			lists.add(Collections.unmodifiableList(Arrays.asList(questions[i])));
+		}
+		categoryList = Collections.unmodifiableList(Arrays.asList(categories));
+		questionLists = Collections.unmodifiableList(lists);
+	}
+
+	/**
+	 * Get the catalog which is currently in use
+	 *
+	 * @return
+	 */
+	public static QuestionCatalog current() {
+		return current;
+	}
+
+	/**
+	 * Build a catalog of categories which have been loaded before, without
+	 * replacing the current one
+	 *
+	 * @param categories
+	 *            the categories with their questions and choices.
+	 * @return
+	 */
+	public static QuestionCatalog of(List<Category> categories) {
+		return new QuestionCatalog(categories);
+	}
+
+	/**
+	 * Build a new catalog from the DB and replace the current one. Must be
+	 * called whenever categories, questions or choices have been changed.
+	 *
+	 * @return the new catalog
+	 */
+	public static QuestionCatalog reload() {
+		try {
+			QuestionCatalog catalog = JPA.withTransaction("default", true,
+					new Function0<QuestionCatalog>() {
+
+						@Override
+						public QuestionCatalog apply() throws Throwable {
+							return load();
+						}
+
+					});
+			current = catalog;
+			Logger.info("Question catalog loaded with "
+					+ catalog.categories.length + " categories and "
+					+ catalog.questionsById.size() + " questions.");
+			return catalog;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Could not load question catalog",
+					e);
+		}
+	}
+
+	/**
+	 * Build a catalog from the DB. Requires an active transaction.
+	 *
+	 * @return
+	 */
+	private static QuestionCatalog load() {
+		Statistics statistics = QuizDAO.INSTANCE.getStatistics();
+		long statements = statistics.getPrepareStatementCount();
+		QuestionCatalog catalog = new QuestionCatalog(
+				QuizDAO.INSTANCE.findCategoriesWithQuestions());
+		if (statistics.isStatisticsEnabled())
+			Logger.info("Question catalog loaded with "
+					+ (statistics.getPrepareStatementCount() - statements)
+					+ " SQL statements.");
+		return catalog;
+	}
+
+	public List<Category> getCategories() {
+		return categoryList;
+	}
+
+	public List<Question> getQuestions(Category category) {
+		Integer index = categoryIndexById.get(category.getId());
+		if (index == null)
+			return Collections.emptyList();
+		return questionLists.get(index);
+	}
+
+	/**
+	 * Get the position of the category in {@link #getCategories()}
+	 *
+	 * @param category
+	 * @return the index or -1 if the category is not part of this catalog
+	 */
+	public int indexOf(Category category) {
+		Integer index = category == null ? null : categoryIndexById
+				.get(category.getId());
+		return index == null ? -1 : index;
+	}
+
+	public Category findCategory(long id) {
+		Integer index = categoryIndexById.get(id);
+		return index == null ? null : categories[index];
+	}
+
+	public Question findQuestion(long id) {
+		return questionsById.get(id);
+	}
+
+	public Choice findChoice(long id) {
+		return choicesById.get(id);
+	}
+
+	/**
+	 * Get the key of a question of this catalog. Unlike the id, the key is
+	 * derived from the category name and the question text, so it is the same
+	 * on every node of a cluster.
+	 *
+	 * @param question
+	 * @return
+	 */
+	public long keyOf(Question question) {
+		Long key = keysById.get(question.getId());
+		if (key != null)
+			return key;
+		return questionKey(question.getCategory(), question);
+	}
+
+	/**
+	 * Get the key of a choice of this catalog, see {@link #keyOf(Question)}
+	 *
+	 * @param choice
+	 * @return
+	 */
+	public long keyOf(Choice choice) {
+		Long key = keysById.get(choice.getId());
+		if (key != null)
+			return key;
+		return choiceKey(keyOf(choice.getQuestion()), choice);
+	}
+
+	public Question findQuestionByKey(long key) {
+		return questionsByKey.get(key);
+	}
+
+	/**
+	 * Get the position of a choice among the choices of its question, ordered
+	 * by their keys. Like the key, it is the same on every node of a cluster,
+	 * but much smaller.
+	 *
+	 * @param choice
+	 * @return the index or -1 if the choice is not part of this catalog
+	 */
+	public int indexOf(Choice choice) {
+		Integer index = choiceIndexById.get(choice.getId());
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Get a choice by its position, see {@link #indexOf(Choice)}
+	 *
+	 * @param question
+	 * @param index
+	 * @return the choice or null if there is none at this position
+	 */
+	public Choice findChoice(Question question, int index) {
+		Choice[] choices = choicesInKeyOrder.get(question.getId());
+		if (choices == null || index < 0 || index >= choices.length)
+			return null;
+		return choices[index];
+	}
+
+	/**
+	 * Get the precomputed, unmodifiable list of correct choices of a question
+	 *
+	 * @param question
+	 * @return
+	 */
+	public List<Choice> getCorrectChoices(Question question) {
+		List<Choice> correct = correctChoicesByQuestionId.get(question.getId());
+		if (correct == null)
+			return question.getCorrectChoices();
+		return correct;
+	}
+
+	public boolean isEmpty() {
+		return categories.length == 0;
+	}
+
+	private static boolean hasDistinctChoices(long questionKey,
+			Question question) {
+		Set<Long> keys = new HashSet<>();
+		for (Choice choice : question.getChoices()) {
+			if (!keys.add(choiceKey(questionKey, choice)))
+				return false;
+		}
+		return true;
+	}
+
+	private static long questionKey(Category category, Question question) {
+		return stableKey(category == null ? null : category
+				.getName(Languages.DEFAULT), question.getText(Languages.DEFAULT));
+	}
+
+	private static long choiceKey(long questionKey, Choice choice) {
+		return stableKey(String.valueOf(questionKey),
+				choice.getText(Languages.DEFAULT));
+	}
+
+	private static long stableKey(String parent, String text) {
+		Hasher hasher = Hashing.murmur3_128().newHasher();
+		hasher.putString(String.valueOf(parent), Charsets.UTF_8);
+		hasher.putByte((byte) 0);
+		hasher.putString(String.valueOf(text), Charsets.UTF_8);
+		return hasher.hash().asLong();
+	}
+}
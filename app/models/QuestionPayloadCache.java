@@ -0,0 +1,133 @@
+package models;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import play.libs.Json;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+/**
+ * Serialized JSON representations of questions, built once per question and
+ * language. The cache belongs to a {@link QuestionCatalog} and is dropped when
+ * the catalog is replaced.
+ */
+public class QuestionPayloadCache {
+
+	public static final QuestionPayloadCache INSTANCE = new QuestionPayloadCache();
+
+	private volatile Snapshot snapshot = new Snapshot(null);
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * The JSON of a question in one language. The node is shared and must not
+	 * be modified.
+	 */
+	public static final class Payload {
+
+		private final ObjectNode node;
+		private final byte[] bytes;
+		private final String etag;
+
+		private Payload(ObjectNode node) {
+			this.node = node;
+			this.bytes = Json.stringify(node).getBytes(Charsets.UTF_8);
+			this.etag = "\""
+					+ Hashing.sha1().hashBytes(bytes).toString()
+							.substring(0, 20) + "\"";
+		}
+
+		public ObjectNode getNode() {
+			return node;
+		}
+
+		/**
+		 * @return the UTF-8 encoded JSON, must not be modified
+		 */
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return a strong, quoted entity tag derived from the content
+		 */
+		public String getETag() {
+			return etag;
+		}
+	}
+
+	private static final class Snapshot {
+
+		private final QuestionCatalog catalog;
+		private final ConcurrentMap<Long, Payload> payloads = new ConcurrentHashMap<>();
+
+		private Snapshot(QuestionCatalog catalog) {
+			this.catalog = catalog;
+		}
+	}
+
+	/**
+	 * Get the payload of a question of the current catalog
+	 *
+	 * @param question
+	 * @param lang
+	 *            language code of the texts
+	 * @return
+	 */
+	public Payload get(Question question, String lang) {
+		Snapshot current = snapshot();
+		int language = Languages.id(lang);
+		Long key = question.getId() * Languages.MAX_LANGUAGES + language;
+		Payload payload = current.payloads.get(key);
+		if (payload != null) {
+			hits.incrementAndGet();
+			return payload;
+		}
+		misses.incrementAndGet();
+		payload = new Payload(toJson(question, language));
+		Payload existing = current.payloads.putIfAbsent(key, payload);
+		return existing != null ? existing : payload;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public int size() {
+		return snapshot.payloads.size();
+	}
+
+	private Snapshot snapshot() {
+		QuestionCatalog catalog = QuestionCatalog.current();
+		Snapshot current = snapshot;
+		if (current.catalog != catalog) {
+			current = new Snapshot(catalog);
+			snapshot = current;
+		}
+		return current;
+	}
+
+	private static ObjectNode toJson(Question question, int lang) {
+		ObjectNode node = Json.newObject();
+		node.put("id", question.getId());
+		node.put("category", question.getCategory().getName(lang));
+		node.put("text", question.getText(lang));
+		node.put("maxTime", question.getMaxTime());
+		ArrayNode choices = node.putArray("choices");
+		for (Choice choice : question.getChoices()) {
+			ObjectNode choiceNode = choices.addObject();
+			choiceNode.put("id", choice.getId());
+			choiceNode.put("text", choice.getText(lang));
+		}
+		return node;
+	}
+}
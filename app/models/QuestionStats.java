@@ -0,0 +1,60 @@
+package models;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+
+/**
+ * Totals of the answers to a question, see {@link stats.QuestionStatistics}
+ */
+@Entity
+public class QuestionStats extends BaseEntity {
+
+	@Column(unique = true)
+	private long questionId;
+
+	private long answered;
+	private long correct;
+	// milliseconds of the time limit used by the answers and the time limit
+	private long timeUsed;
+	private long timeAvailable;
+
+	public long getQuestionId() {
+		return questionId;
+	}
+
+	public void setQuestionId(long questionId) {
+		this.questionId = questionId;
+	}
+
+	public long getAnswered() {
+		return answered;
+	}
+
+	public void setAnswered(long answered) {
+		this.answered = answered;
+	}
+
+	public long getCorrect() {
+		return correct;
+	}
+
+	public void setCorrect(long correct) {
+		this.correct = correct;
+	}
+
+	public long getTimeUsed() {
+		return timeUsed;
+	}
+
+	public void setTimeUsed(long timeUsed) {
+		this.timeUsed = timeUsed;
+	}
+
+	public long getTimeAvailable() {
+		return timeAvailable;
+	}
+
+	public void setTimeAvailable(long timeAvailable) {
+		this.timeAvailable = timeAvailable;
+	}
+}
@@ -1,11 +1,15 @@
 package models;
 
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
-import javax.persistence.TypedQuery;
 
 import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
 
 import play.db.jpa.JPA;
 
@@ -15,6 +19,25 @@ import play.db.jpa.JPA;
 public class QuizDAO implements IQuizDAO {
 	public static final QuizDAO INSTANCE = new QuizDAO();
 
+	private static final int EXPECTED_USER_NAMES = 1000000;
+	private static final int CACHED_USER_NAMES = 10000;
+
+	/**
+	 * ids of recently looked up user names
+	 */
+	private final Map<String, Long> userIdsByName = new LinkedHashMap<String, Long>(
+			16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+			return size() > CACHED_USER_NAMES;
+		}
+	};
+
+	private volatile UserNameFilter userNameFilter;
+
 	private QuizDAO() {
 	}
 
@@ -37,21 +60,178 @@ public class QuizDAO implements IQuizDAO {
 	}
 
 	/**
-	 * Get a given quiz user based on the name
+	 * Check whether the given user name is already in use. Once the Bloom
+	 * filter is loaded, names which have never been registered are recognized
+	 * without any query.
+	 * 
+	 * @param name
+	 * @return
+	 */
+	public boolean isUserNameTaken(String name) {
+		if (name == null || name.isEmpty()) {
+			return false;
+		}
+		UserNameFilter filter = userNameFilter;
+		if (filter != null && !filter.mightContain(name)) {
+			return false;
+		}
+		return getByUserName(name) != null;
+	}
+
+	/**
+	 * Get a given quiz user based on the name. Known names are resolved to the
+	 * id from the cache and loaded by primary key, otherwise the indexed user
+	 * name column is queried.
 	 * 
 	 * @param name
 	 * @return
 	 */
 	private QuizUser getByUserName(String name) {
+		Long id;
+		synchronized (userIdsByName) {
+			id = userIdsByName.get(name);
+		}
+		if (id != null) {
+			QuizUser user = em().find(QuizUser.class, id);
+			if (user != null && name.equals(user.getUserName())) {
+				return user;
+			}
+			synchronized (userIdsByName) {
+				userIdsByName.remove(name);
+			}
+		}
+
 		String queryStr = "from QuizUser where userName = :userName";
-		TypedQuery<QuizUser> query = em().createQuery(queryStr, QuizUser.class)
-				.setParameter("userName", name);
-		List<QuizUser> list = query.getResultList();
+		List<QuizUser> list = em().createQuery(queryStr, QuizUser.class)
+				.setParameter("userName", name).setMaxResults(1)
+				.getResultList();
 		if (list.isEmpty()) {
 			return null;
-		} else {
-			return list.get(0);
 		}
+		QuizUser user = list.get(0);
+		synchronized (userIdsByName) {
+			userIdsByName.put(name, user.getId());
+		}
+		return user;
+	}
+
+	/**
+	 * Fill the Bloom filter of registered user names from the DB, called on
+	 * start before requests are served. Without the filter every check
+	 * queries the DB, which is required if several nodes register users, as
+	 * the filter only learns the names registered on this node. Requires an
+	 * active transaction.
+	 */
+	public synchronized void loadUserNames() {
+		UserNameFilter filter = new UserNameFilter(EXPECTED_USER_NAMES);
+		List<String> names = em().createQuery("select userName from QuizUser",
+				String.class).getResultList();
+		for (String name : names) {
+			filter.put(name);
+		}
+		userNameFilter = filter;
+	}
+
+	/**
+	 * Replace the password of a user by its hash. Updates the row directly,
+	 * the entity is not validated.
+	 * 
+	 * @param userId
+	 * @param passwordHash
+	 */
+	public void updatePasswordHash(long userId, String passwordHash) {
+		em().createQuery(
+				"update QuizUser set passwordHash = :hash, legacyPassword = null where id = :id")
+				.setParameter("hash", passwordHash).setParameter("id", userId)
+				.executeUpdate();
+	}
+
+	/**
+	 * Check whether the import of the given name has finished before
+	 * 
+	 * @param name
+	 * @return
+	 */
+	public boolean isImported(String name) {
+		return !em()
+				.createQuery("from DataImport where name = :name",
+						DataImport.class).setParameter("name", name)
+				.setMaxResults(1).getResultList().isEmpty();
+	}
+
+	/**
+	 * Record the import of the given name as finished, in the transaction of
+	 * the import
+	 * 
+	 * @param name
+	 */
+	public void markImported(String name) {
+		DataImport dataImport = new DataImport();
+		dataImport.setName(name);
+		persist(dataImport);
+	}
+
+	/**
+	 * Get the publish job of a given game
+	 * 
+	 * @param gameId
+	 * @return
+	 */
+	public PublishJob findPublishJob(String gameId) {
+		List<PublishJob> list = em()
+				.createQuery("from PublishJob where gameId = :gameId",
+						PublishJob.class).setParameter("gameId", gameId)
+				.setMaxResults(1).getResultList();
+		return list.isEmpty() ? null : list.get(0);
+	}
+
+	/**
+	 * Get the logged answers of a game
+	 * 
+	 * @param gameId
+	 * @return
+	 */
+	public List<AnswerEvent> findAnswerEvents(String gameId) {
+		return em()
+				.createQuery(
+						"from AnswerEvent where gameId = :gameId "
+								+ "order by roundNumber, questionNumber, playerIndex",
+						AnswerEvent.class).setParameter("gameId", gameId)
+				.getResultList();
+	}
+
+	/**
+	 * Get publish jobs which are not done yet and due for their next attempt
+	 * 
+	 * @param now
+	 * @param limit
+	 * @return
+	 */
+	public List<PublishJob> findDuePublishJobs(Date now, int limit) {
+		String queryStr = "from PublishJob where status in (:open) and nextAttemptAt <= :now order by nextAttemptAt";
+		return em()
+				.createQuery(queryStr, PublishJob.class)
+				.setParameter(
+						"open",
+						Arrays.asList(PublishJob.Status.PENDING,
+								PublishJob.Status.SUBMITTED))
+				.setParameter("now", now).setMaxResults(limit)
+				.getResultList();
+	}
+
+	/**
+	 * Put jobs which were waiting in the queue of the Twitter publisher back
+	 * to the outbox, the queue does not survive a restart
+	 * 
+	 * @return number of jobs put back
+	 */
+	public int resetQueuedPublishJobs() {
+		return em()
+				.createQuery(
+						"update PublishJob set status = :submitted where status = :queued")
+				.setParameter("submitted", PublishJob.Status.SUBMITTED)
+				.setParameter("queued", PublishJob.Status.QUEUED)
+				.executeUpdate();
 	}
 
 	/**
@@ -65,6 +245,10 @@ public class QuizDAO implements IQuizDAO {
 	public void persist(BaseEntity entity) {
 
 		em().persist(entity);
+		UserNameFilter filter = userNameFilter;
+		if (filter != null && entity instanceof QuizUser) {
+			filter.put(((QuizUser) entity).getUserName());
+		}
 	}
 
 	/**
@@ -110,6 +294,37 @@ public class QuizDAO implements IQuizDAO {
 				.list();
 	}
 
+	/**
+	 * Get all categories with their questions and choices in two queries.
+	 * Both collections are bags, which can't be fetched in the same query.
+	 * The questions are loaded first with their choices, so the eagerly
+	 * fetched choices are already initialized when the second query fetches
+	 * the questions of the categories.
+	 * 
+	 * @return
+	 */
+	@Override
+	public List<Category> findCategoriesWithQuestions() {
+		em().createQuery(
+				"select distinct q from Question q join fetch q.category "
+						+ "left join fetch q.choices", Question.class)
+				.getResultList();
+		return em().createQuery(
+				"select distinct c from Category c left join fetch c.questions",
+				Category.class).getResultList();
+	}
+
+	/**
+	 * Get the statistics of the session factory, e.g. the number of issued
+	 * statements. Requires an active transaction.
+	 * 
+	 * @return
+	 */
+	public Statistics getStatistics() {
+		return ((Session) em().getDelegate()).getSessionFactory()
+				.getStatistics();
+	}
+
 	/**
 	 * Get the entity manager
 	 * 
@@ -1,57 +1,139 @@
 package models;
 
-import static java.lang.Math.random;
-import static java.lang.Math.round;
-
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import models.QuizUser.Gender;
+import play.Logger;
 
 public class QuizGame {
 	private static int NUM_ROUNDS = 5;
 	private static int NUM_QUESTIONS = 3;
 
+	/**
+	 * unique id of the game, kept when the game is rebuilt from its state
+	 */
+	private String id;
+
 	private List<Round> rounds;
 
 	private QuizUser human;
+	/**
+	 * the computer player, null in a game of two humans
+	 */
 	private QuizUser computer;
 
-	private List<Category> categories;
+	/**
+	 * unmodifiable list of both players, the human first
+	 */
+	private List<QuizUser> players;
+
+	private QuestionCatalog catalog;
+
+	private ISelectionStrategy selectionStrategy;
+
+	/**
+	 * random source of this game, not shared with other games
+	 */
+	private Random random;
+
+	/**
+	 * catalog indices of the already chosen categories during the game
+	 */
+	private BitSet chosenCategories;
+
+	/**
+	 * number of won rounds per player, updated whenever a round is over
+	 */
+	private Map<QuizUser, Integer> wonRounds;
 
 	/**
-	 * list of already chosen categories during the game
+	 * notified about accepted answers and the end of the game, null if nobody
+	 * listens
 	 */
-	private List<Category> chosenCategories;
+	private volatile IGameListener listener;
 
-	public QuizGame(List<Category> categories) {
-		this.categories = categories;
-		initializeQuizGame();
+	public QuizGame(QuestionCatalog catalog) {
+		this.catalog = catalog;
+		initializeQuizGame(SelectionStrategies.current(), new Random());
 		initializePlayers();
+		players = playerList(human, computer);
 	}
 
 	/**
 	 * Create a game with one {@code human} {@link User} against a computer
 	 * user.
 	 * 
-	 * @param factory
-	 *            factory to use.
+	 * @param catalog
+	 *            catalog to choose categories and questions from.
+	 * @param human
+	 *            the human user.
+	 */
+	public QuizGame(QuestionCatalog catalog, QuizUser human) {
+		this(catalog, human, SelectionStrategies.current(), new Random());
+	}
+
+	/**
+	 * Create a game with one {@code human} {@link User} against a computer
+	 * user, selecting the questions with the given strategy.
+	 * 
+	 * @param catalog
+	 *            catalog to choose categories and questions from.
 	 * @param human
 	 *            the human user.
+	 * @param selectionStrategy
+	 *            strategy choosing the questions of a round.
+	 * @param random
+	 *            random source used only by this game.
 	 */
-	public QuizGame(List<Category> categories, QuizUser human) {
+	public QuizGame(QuestionCatalog catalog, QuizUser human,
+			ISelectionStrategy selectionStrategy, Random random) {
 		this.human = human;
-		this.categories = categories;
+		this.catalog = catalog;
 		this.computer = createComputerPlayer();
-		initializeQuizGame();
+		this.players = playerList(human, computer);
+		initializeQuizGame(selectionStrategy, random);
+	}
+
+	/**
+	 * Create a game of two human users, who answer the questions
+	 * concurrently.
+	 * 
+	 * @param catalog
+	 *            catalog to choose categories and questions from.
+	 * @param first
+	 *            the first user.
+	 * @param second
+	 *            the second user.
+	 */
+	public QuizGame(QuestionCatalog catalog, QuizUser first, QuizUser second) {
+		this.human = first;
+		this.catalog = catalog;
+		this.players = playerList(first, second);
+		initializeQuizGame(SelectionStrategies.current(), new Random());
+	}
+
+	private static List<QuizUser> playerList(QuizUser first, QuizUser second) {
+		return Collections.unmodifiableList(Arrays.asList(first, second));
 	}
 
-	private void initializeQuizGame() {
-		rounds = new ArrayList<Round>();
-		chosenCategories = new ArrayList<>();
+	private void initializeQuizGame(ISelectionStrategy selectionStrategy,
+			Random random) {
+		this.selectionStrategy = selectionStrategy;
+		this.random = random;
+		id = UUID.randomUUID().toString();
+		rounds = new CopyOnWriteArrayList<Round>();
+		chosenCategories = new BitSet();
+		wonRounds = new ConcurrentHashMap<>();
 	}
 
 	private void initializePlayers() {
@@ -75,6 +157,18 @@ public class QuizGame {
 		return user;
 	}
 
+	public String getId() {
+		return id;
+	}
+
+	void setId(String id) {
+		this.id = id;
+	}
+
+	QuestionCatalog getCatalog() {
+		return catalog;
+	}
+
 	public Round getCurrentRound() {
 		return rounds.get(rounds.size() - 1);
 	}
@@ -83,63 +177,163 @@ public class QuizGame {
 		return rounds.size();
 	}
 
-	public void startNewRound() {
-		Category category = chooseCategory();
+	/**
+	 * Get a round of the game
+	 * 
+	 * @param roundNumber
+	 *            number of the round, starting with 1.
+	 * @return the round or null if it has not been started
+	 */
+	public Round getRound(int roundNumber) {
+		if (roundNumber < 1 || roundNumber > rounds.size())
+			return null;
+		return rounds.get(roundNumber - 1);
+	}
 
-		// Category might not be attached to Peristence Context any more -
-		// reattach if necessary
-		category = QuizDAO.INSTANCE.merge(category);
+	/**
+	 * Start the round with the given number unless it has already been
+	 * started, e.g. by the other player of the game.
+	 * 
+	 * @param roundNumber
+	 *            number of the round, starting with 1.
+	 * @return true if the round has been started by this call.
+	 */
+	public synchronized boolean startRound(int roundNumber) {
+		if (rounds.size() != roundNumber - 1 || roundNumber > NUM_ROUNDS
+				|| (!rounds.isEmpty() && !isRoundOver()))
+			return false;
+		startNewRound();
+		return true;
+	}
 
+	/**
+	 * Start the next round with questions of a category not chosen yet
+	 * 
+	 * @throws IllegalStateException
+	 *             if the catalog has no categories
+	 */
+	public synchronized void startNewRound() {
+		Category category = chooseCategory();
 		List<Question> questions = chooseQuestions(category);
 		Round round = new Round();
 		round.initialize(getPlayers(), questions);
 		rounds.add(round);
+		round.setGame(this);
 	}
 
-	private Category chooseCategory() {
-		List<Category> availableCategories = getAvailableCategories();
-		int randomCategoryIndex = (int) round(random()
-				* maxIndex(availableCategories));
-		Category category = availableCategories.get(randomCategoryIndex);
-		chosenCategories.add(category);
-		return category;
+	/**
+	 * Add a round which has already been started before, e.g. when the game is
+	 * rebuilt from its encoded state. Answers have to be restored on the
+	 * returned round.
+	 * 
+	 * @param questions
+	 *            the questions of the round.
+	 * @return the restored round.
+	 */
+	synchronized Round restoreRound(List<Question> questions) {
+		if (!questions.isEmpty()) {
+			int index = catalog.indexOf(questions.get(0).getCategory());
+			if (chosenCategories.cardinality() >= catalog.getCategories()
+					.size())
+				chosenCategories.clear();
+			if (index >= 0)
+				chosenCategories.set(index);
+		}
+		Round round = new Round();
+		round.initialize(getPlayers(), questions);
+		rounds.add(round);
+		round.setGame(this);
+		return round;
 	}
 
-	private List<Category> getAvailableCategories() {
-		if (chosenCategories.size() == categories.size())
-			chosenCategories.clear();
-		List<Category> availableCategories = new ArrayList<Category>();
-		for (Category category : categories) {
-			if (!chosenCategories.contains(category)) {
-				availableCategories.add(category);
+	/**
+	 * Set the listener notified about accepted answers and the end of the
+	 * game. Rebuilt games get their listener after their answers have been
+	 * restored.
+	 * 
+	 * @param listener
+	 *            the listener or null
+	 */
+	public void setListener(IGameListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Called by the round whenever an answer has been accepted
+	 * 
+	 * @param round
+	 * @param questionNumber
+	 * @param answer
+	 */
+	void answered(Round round, int questionNumber, Answer answer) {
+		IGameListener current = listener;
+		if (current == null)
+			return;
+		try {
+			current.answerAccepted(this, rounds.indexOf(round) + 1,
+					questionNumber, answer);
+		} catch (RuntimeException e) {
+			Logger.error("Game listener failed.", e);
+		}
+	}
+
+	/**
+	 * Called by the round once all players have answered all questions
+	 * 
+	 * @param round
+	 */
+	void roundOver(Round round) {
+		QuizUser winner = round.getRoundWinner();
+		if (winner != null)
+			wonRounds.put(winner, getWonRounds(winner) + 1);
+
+		IGameListener current = listener;
+		if (current != null && isGameOver()) {
+			try {
+				current.gameOver(this);
+			} catch (RuntimeException e) {
+				Logger.error("Game listener failed.", e);
 			}
 		}
-		return availableCategories;
 	}
 
-	private int maxIndex(List<?> list) {
-		return list.size() - 1;
+	List<Round> getRounds() {
+		return rounds;
 	}
 
-	private List<Question> chooseQuestions(Category category) {
+	/**
+	 * Choose a category which has not been chosen yet. Once all categories
+	 * have been chosen, all of them are available again.
+	 */
+	private Category chooseCategory() {
+		List<Category> categories = catalog.getCategories();
+		if (categories.isEmpty())
+			throw new IllegalStateException(
+					"The question catalog has no categories.");
+		if (chosenCategories.cardinality() >= categories.size())
+			chosenCategories.clear();
+		int available = categories.size() - chosenCategories.cardinality();
+		int index = chosenCategories.nextClearBit(0);
+		for (int skip = random.nextInt(available); skip > 0; skip--)
+			index = chosenCategories.nextClearBit(index + 1);
+		chosenCategories.set(index);
+		return categories.get(index);
+	}
 
-		List<Question> questions = new ArrayList<>();
-		List<Question> availableQuestions = new ArrayList<>(
-				category.getQuestions());
-		for (int i = 0; i < Math.min(NUM_QUESTIONS, availableQuestions.size()); i++) {
-			int randomQuestionIndex = (int) round(random()
-					* maxIndex(availableQuestions));
-			Question question = availableQuestions.get(randomQuestionIndex);
-			questions.add(question);
-			availableQuestions.remove(question);
-		}
+	private List<Question> chooseQuestions(Category category) {
+		List<Question> availableQuestions = catalog.getQuestions(category);
+		int[] indices = selectionStrategy.selectQuestions(availableQuestions,
+				Math.min(NUM_QUESTIONS, availableQuestions.size()), random);
+		List<Question> questions = new ArrayList<>(indices.length);
+		for (int index : indices)
+			questions.add(availableQuestions.get(index));
 		return questions;
 	}
 
 	public void answerCurrentQuestion(QuizUser player, List<Choice> answers,
 			long time) {
 		getCurrentRound().answerCurrentQuestion(answers, time, player);
-		if (player == human)
+		if (player == human && computer != null)
 			doAutomaticAnswerOfComputer();
 	}
 
@@ -147,23 +341,23 @@ public class QuizGame {
 		Round round = getCurrentRound();
 		Question question = round.getCurrentQuestion(computer);
 		// correct cast of complete result to long
-		long time = (long) (random() * question.getMaxTime().doubleValue());
+		long time = (long) (random.nextDouble() * question.getMaxTime()
+				.doubleValue());
 		List<Choice> answers = chooseComputerAnswers(question);
 		round.answerCurrentQuestion(answers, time, computer);
 	}
 
 	private List<Choice> chooseComputerAnswers(Question question) {
-		if (random() < 0.5) {
-			return Collections.unmodifiableList(question.getCorrectChoices());
+		if (random.nextDouble() < 0.5) {
+			return catalog.getCorrectChoices(question);
 		} else {
 			return Collections.emptyList();
 		}
 	}
 
 	public boolean isGameOver() {
-		Round currentRound = getCurrentRound();
 		return rounds.size() >= NUM_ROUNDS
-				&& currentRound.areAllQuestionsAnswered();
+				&& getCurrentRound().areAllQuestionsAnswered();
 	}
 
 	public boolean isRoundOver() {
@@ -171,18 +365,30 @@ public class QuizGame {
 	}
 
 	public List<QuizUser> getPlayers() {
-		return Arrays.asList(new QuizUser[] { human, computer });
+		return players;
 	}
 
-	public int getWonRounds(QuizUser player) {
-		int counter = 0;
-		for (Round round : rounds) {
-			if (round.getRoundWinner() != null
-					&& round.getRoundWinner().equals(player)) {
-				counter++;
-			}
+	/**
+	 * Get the player of this game who is the user with the given id
+	 * 
+	 * @param userId
+	 * @return the player or null if the user does not take part in the game
+	 */
+	public QuizUser getPlayer(long userId) {
+		for (QuizUser player : players) {
+			if (player.getId() != null && player.getId() == userId)
+				return player;
 		}
-		return counter;
+		return null;
+	}
+
+	public boolean isAgainstComputer() {
+		return computer != null;
+	}
+
+	public int getWonRounds(QuizUser player) {
+		Integer count = wonRounds.get(player);
+		return count == null ? 0 : count;
 	}
 
 	public QuizUser getWinner() {
@@ -191,13 +397,7 @@ public class QuizGame {
 			int bestCount = 0;
 
 			for (QuizUser player : getPlayers()) {
-				int count = 0;
-				for (Round round : rounds) {
-					// added missing null check
-					if (round.getRoundWinner() != null
-							&& round.getRoundWinner().equals(player))
-						count++;
-				}
+				int count = getWonRounds(player);
 
 				if (count > bestCount) {
 					bestUsers.clear();
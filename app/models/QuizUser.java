@@ -4,8 +4,11 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Transient;
 
+import auth.PasswordHasher;
 import play.data.validation.Constraints;
 import play.data.validation.ValidationError;
 
@@ -19,13 +22,23 @@ public class QuizUser extends BaseEntity {
 	@Constraints.Required
 	@Constraints.MinLength(4)
 	@Constraints.MaxLength(8)
+	@Column(unique = true)
 	private String userName;
 
+	// the password entered at registration, only its hash is stored
 	@Constraints.Required
 	@Constraints.MinLength(4)
 	@Constraints.MaxLength(8)
+	@Transient
 	private String password;
 
+	// plain text password of users registered before passwords were hashed,
+	// cleared when they log in the next time
+	@Column(name = "password")
+	private String legacyPassword;
+
+	private String passwordHash;
+
 	private String firstName;
 	private String lastName;
 	private Date birthDate;
@@ -55,6 +68,18 @@ public class QuizUser extends BaseEntity {
 		this.password = password;
 	}
 
+	public String getLegacyPassword() {
+		return legacyPassword;
+	}
+
+	public String getPasswordHash() {
+		return passwordHash;
+	}
+
+	public void setPasswordHash(String passwordHash) {
+		this.passwordHash = passwordHash;
+	}
+
 	public String getFirstName() {
 		return firstName;
 	}
@@ -95,16 +120,22 @@ public class QuizUser extends BaseEntity {
 	}
 
 	private boolean userNameIsTaken() {
-		return QuizDAO.INSTANCE.findByUserName(userName) != null;
-	}
-
-	public boolean authenticate() {
-		QuizUser user = QuizDAO.INSTANCE.findByUserName(userName);
-		return user != null && user.authenticate(password);
-	}
-
-	public boolean authenticate(String password) {
-		return this.getPassword().equals(password);
+		return QuizDAO.INSTANCE.isUserNameTaken(userName);
+	}
+
+	/**
+	 * Check the password against the stored hash, or the plain text password
+	 * of users who have not logged in since passwords are hashed
+	 * 
+	 * @param password
+	 * @param hasher
+	 *            verifies the stored hash
+	 * @return
+	 */
+	public boolean authenticate(String password, PasswordHasher hasher) {
+		if (passwordHash != null)
+			return hasher.verify(password, passwordHash);
+		return hasher.verifyPlain(password, legacyPassword);
 	}
 
     public Long getId() {
@@ -11,91 +11,159 @@
 package models;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 
+/**
+ * A round of questions answered by all players. Every player has its own
+ * answer slots, which are claimed by compare-and-set, so the players of a
+ * game can answer concurrently from different threads without locking.
+ */
 public class Round {
 	
-	private Map<QuizUser, List<Answer>> answers;
+	//answer slots and running tallies per player, in the order of the players
+	private PlayerAnswers[] answers;
 	
 	private List<Question> questions;
 	
-	private QuizUser winner =  null;
+	private volatile QuizUser winner =  null;
 	
 	private List<QuizUser> players;
 	
+	//number of players who answered all questions
+	private final AtomicInteger finishedPlayers = new AtomicInteger();
+	
+	//game which is notified about accepted answers and when the round is over
+	private QuizGame game;
+	
 	public void initialize(List<QuizUser> players, List<Question> questions) {
-		answers = new HashMap<>();
-		for(QuizUser player : players){
-			answers.put(player, new ArrayList<Answer>());
-		}
-		
 		if(questions != null){
-			this.questions = questions;
+			this.questions = Collections.unmodifiableList(new ArrayList<Question>(questions));
 		}else{
-			this.questions = new ArrayList<Question>();
+			this.questions = Collections.emptyList();
+		}
+		
+		answers = new PlayerAnswers[players.size()];
+		for(int i = 0; i < answers.length; i++){
+			answers[i] = new PlayerAnswers(players.get(i), this.questions.size());
 		}
 		
 		this.players = players;
+		this.finishedPlayers.set(this.questions.isEmpty() ? answers.length : 0);
+	}
+	
+	/**
+	 * Set the game which is notified about the round, after the round has
+	 * been added to it. A round without questions is over right away.
+	 * 
+	 * @param game
+	 */
+	void setGame(QuizGame game) {
+		this.game = game;
+		if(questions.isEmpty()){
+			determineWinner();
+		}
 	}
 
 	public Answer getAnswer(int questionnumber, QuizUser player) {
-		
-		if(answers.containsKey(player)){
-			List<Answer> playerAnswers = answers.get(player);
-			if(questionnumber < playerAnswers.size()){
-				return playerAnswers.get(questionnumber);
-			}
+		PlayerAnswers playerAnswers = answersOf(player);
+		if(playerAnswers != null && questionnumber >= 0 && questionnumber < questions.size()){
+			return playerAnswers.answers.get(questionnumber);
 		}
 		return null;
 	}
 
+	/**
+	 * Answer the current question of the player and update the player's
+	 * tally. Answers of players who have already answered all questions are
+	 * ignored.
+	 * 
+	 * @param choices
+	 * @param time
+	 * @param player
+	 */
 	public void answerCurrentQuestion(List<Choice> choices, long time, QuizUser player) {
-		if(answers.containsKey(player)){
-			//int questionnumber = answers.get(player).size();
-			Answer answer = new Answer();
-			answer.setPlayer(player);
-			answer.setTime(time);
-			answer.setChoices(choices);
-			answer.setQuestion(getCurrentQuestion(player));
-			answers.get(player).add(answer);
-		}
-		if(areAllQuestionsAnswered()){
+		PlayerAnswers playerAnswers = answersOf(player);
+		if(playerAnswers != null){
+			answerQuestion(playerAnswers.answered.get(), choices, time, player);
+		}
+	}
+	
+	/**
+	 * Answer the question with the given number, which must be the current
+	 * question of the player. Of concurrent answers to the same question only
+	 * the first one is accepted.
+	 * 
+	 * @param questionNumber
+	 * @param choices
+	 * @param time
+	 * @param player
+	 * @return true if the answer has been accepted
+	 */
+	public boolean answerQuestion(int questionNumber, List<Choice> choices, long time, QuizUser player) {
+		PlayerAnswers playerAnswers = answersOf(player);
+		if(playerAnswers == null || questionNumber != playerAnswers.answered.get()
+				|| questionNumber >= questions.size()){
+			return false;
+		}
+		Answer answer = new Answer();
+		answer.setPlayer(player);
+		answer.setTime(time);
+		answer.setChoices(choices);
+		answer.setQuestion(questions.get(questionNumber));
+		answer.setRound(this);
+		if(!playerAnswers.answers.compareAndSet(questionNumber, null, answer)){
+			return false;
+		}
+		
+		if(answer.isCorrect()){
+			playerAnswers.correctQuestions.incrementAndGet();
+		}
+		playerAnswers.totalTime.addAndGet(time);
+		// publishes the answer and the tally to other threads
+		playerAnswers.answered.set(questionNumber + 1);
+		
+		if(game != null){
+			game.answered(this, questionNumber, answer);
+		}
+		
+		if(questionNumber + 1 == questions.size()
+				&& finishedPlayers.incrementAndGet() == answers.length){
 			determineWinner();
 		}
+		return true;
 	}
 	
+	/**
+	 * Called exactly once, by the thread of the last player finishing the
+	 * round or when a round without questions is added to the game
+	 */
 	private void determineWinner() {
-
-		ArrayList<RoundStatistics> playerStats = new ArrayList<>(players.size());
-		for(QuizUser player : players){
-			List<Answer> playerAnswers = answers.get(player);
-			RoundStatistics statistics = new RoundStatistics();
-			statistics.player = player;
-			for(Answer answer : playerAnswers){
-				if(answer.isCorrect()){
-					statistics.correctQuestions++;
-				}
-				statistics.totalTime += answer.getTime();
-			}
-			playerStats.add(statistics);
+		if(answers.length == 0){
+			return;
 		}
-		
-		ArrayList<RoundStatistics> bestStatistics = new ArrayList<>();
-		bestStatistics.add(playerStats.get(0));
-		for(RoundStatistics statistics : playerStats){
+
+		ArrayList<PlayerAnswers> bestStatistics = new ArrayList<>();
+		bestStatistics.add(answers[0]);
+		for(PlayerAnswers statistics : answers){
 			if(statistics != bestStatistics.get(0)){
-				RoundStatistics other = bestStatistics.get(0);
-				if(statistics.correctQuestions > other.correctQuestions){
+				PlayerAnswers other = bestStatistics.get(0);
+				int correct = statistics.correctQuestions.get();
+				int otherCorrect = other.correctQuestions.get();
+				if(correct > otherCorrect){
 					bestStatistics.clear();
 					bestStatistics.add(statistics);
-				}else if(statistics.correctQuestions == other.correctQuestions){
-					if(statistics.totalTime < other.totalTime){
+				}else if(correct == otherCorrect){
+					long time = statistics.totalTime.get();
+					long otherTime = other.totalTime.get();
+					if(time < otherTime){
 						bestStatistics.clear();
 						bestStatistics.add(statistics);
-					}else if(statistics.totalTime == other.totalTime){
+					}else if(time == otherTime){
 						bestStatistics.add(statistics);
 					}
 				}
@@ -106,12 +174,48 @@ public class Round {
 			winner = bestStatistics.get(0).player;
 		}
 		
+		if(game != null){
+			game.roundOver(this);
+		}
 	}
 
 	public QuizUser getRoundWinner() {
 		return winner;
 	}
 
+	/**
+	 * Get the number of correctly answered questions of the player
+	 * 
+	 * @param player
+	 * @return
+	 */
+	public int getCorrectAnswers(QuizUser player) {
+		PlayerAnswers playerAnswers = answersOf(player);
+		return playerAnswers == null ? 0 : playerAnswers.correctQuestions.get();
+	}
+
+	/**
+	 * Get the total time the player needed for the answered questions
+	 * 
+	 * @param player
+	 * @return
+	 */
+	public long getTotalTime(QuizUser player) {
+		PlayerAnswers playerAnswers = answersOf(player);
+		return playerAnswers == null ? 0 : playerAnswers.totalTime.get();
+	}
+
+	/**
+	 * Get the number of questions the player has answered
+	 * 
+	 * @param player
+	 * @return
+	 */
+	public int getAnsweredQuestions(QuizUser player) {
+		PlayerAnswers playerAnswers = answersOf(player);
+		return playerAnswers == null ? 0 : playerAnswers.answered.get();
+	}
+
 	public Question getQuestion(int questionNumber) {
 		if(questionNumber < questions.size()){
 			return questions.get(questionNumber);
@@ -120,16 +224,13 @@ public class Round {
 	}
 
 	public boolean areAllQuestionsAnswered() {
-		boolean allQuestionsAnswered = true; 
-		for(QuizUser user : answers.keySet()){
-			allQuestionsAnswered = allQuestionsAnswered && answers.get(user).size() == questions.size();
-		}
-		return allQuestionsAnswered;
+		return finishedPlayers.get() == answers.length;
 	}
 
 	public Question getCurrentQuestion(QuizUser player) {
-		if(answers.containsKey(player)){
-			return getQuestion(answers.get(player).size());
+		PlayerAnswers playerAnswers = answersOf(player);
+		if(playerAnswers != null){
+			return getQuestion(playerAnswers.answered.get());
 		}
 		return null;
 	}
@@ -138,10 +239,33 @@ public class Round {
 		return questions;
 	}
 
+	public List<QuizUser> getPlayers() {
+		return players;
+	}
+	
+	private PlayerAnswers answersOf(QuizUser player) {
+		for(PlayerAnswers playerAnswers : answers){
+			if(playerAnswers.player == player){
+				return playerAnswers;
+			}
+		}
+		return null;
+	}
+
 }
 
-class RoundStatistics{
-	QuizUser player;
-	long totalTime = 0;
-	int correctQuestions = 0;
+/**
+ * Answers and running tally of one player in a round
+ */
+class PlayerAnswers{
+	final QuizUser player;
+	final AtomicReferenceArray<Answer> answers;
+	final AtomicInteger answered = new AtomicInteger();
+	final AtomicLong totalTime = new AtomicLong();
+	final AtomicInteger correctQuestions = new AtomicInteger();
+	
+	PlayerAnswers(QuizUser player, int questionCount){
+		this.player = player;
+		this.answers = new AtomicReferenceArray<>(questionCount);
+	}
 }
@@ -0,0 +1,51 @@
+package models;
+
+import play.Configuration;
+import play.Logger;
+import stats.QuestionStatistics;
+
+/**
+ * Holds the strategy new games use to select their questions
+ */
+public class SelectionStrategies {
+
+	private static volatile ISelectionStrategy current = UniformSelectionStrategy.INSTANCE;
+
+	private SelectionStrategies() {
+	}
+
+	public static ISelectionStrategy current() {
+		return current;
+	}
+
+	public static void set(ISelectionStrategy strategy) {
+		current = strategy;
+	}
+
+	/**
+	 * Make the current strategy pick up changed weights
+	 */
+	public static void weightsChanged() {
+		ISelectionStrategy strategy = current;
+		if (strategy instanceof WeightedSelectionStrategy)
+			((WeightedSelectionStrategy) strategy).invalidate();
+	}
+
+	/**
+	 * Use the strategy configured in application.conf
+	 * 
+	 * @param config
+	 */
+	public static void configure(Configuration config) {
+		if ("weighted".equalsIgnoreCase(config.getString("game.selection"))) {
+			set(new WeightedSelectionStrategy(TimeLimitWeights.INSTANCE));
+		} else if ("adaptive".equalsIgnoreCase(config
+				.getString("game.selection"))) {
+			set(new WeightedSelectionStrategy(QuestionStatistics.INSTANCE));
+		} else {
+			set(UniformSelectionStrategy.INSTANCE);
+		}
+		Logger.info("Questions are selected by "
+				+ current.getClass().getSimpleName() + ".");
+	}
+}
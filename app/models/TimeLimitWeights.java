@@ -0,0 +1,18 @@
+package models;
+
+/**
+ * Uses the time limit of a question as a measure of its difficulty
+ */
+public class TimeLimitWeights implements IQuestionWeights {
+
+	public static final TimeLimitWeights INSTANCE = new TimeLimitWeights();
+
+	private TimeLimitWeights() {
+	}
+
+	@Override
+	public double weightOf(Question question) {
+		return question.getMaxTime() == null ? 1 : Math.max(1, question
+				.getMaxTime().doubleValue());
+	}
+}
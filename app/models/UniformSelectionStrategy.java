@@ -0,0 +1,67 @@
+package models;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Selects questions with equal probability. The selection is a partial
+ * Fisher-Yates shuffle over the virtual index array 0..n-1, where only the
+ * swapped positions are recorded, so selecting k of n questions takes O(k²)
+ * time and O(k) memory regardless of n.
+ */
+public class UniformSelectionStrategy implements ISelectionStrategy {
+
+	public static final UniformSelectionStrategy INSTANCE = new UniformSelectionStrategy();
+
+	private UniformSelectionStrategy() {
+	}
+
+	@Override
+	public int[] selectQuestions(List<Question> questions, int count,
+			Random random) {
+		return sample(questions.size(), count, random);
+	}
+
+	/**
+	 * Draw distinct indices uniformly from 0..size-1
+	 * 
+	 * @param size
+	 * @param count
+	 *            number of indices, limited to size
+	 * @param random
+	 * @return the indices in the order they were drawn
+	 */
+	public static int[] sample(int size, int count, Random random) {
+		int k = Math.max(0, Math.min(count, size));
+		int[] result = new int[k];
+		// positions which have been swapped and the index now stored there
+		int[] positions = new int[k];
+		int[] values = new int[k];
+		int swapped = 0;
+
+		for (int i = 0; i < k; i++) {
+			int j = i + random.nextInt(size - i);
+			int slot = find(positions, swapped, j);
+			result[i] = slot < 0 ? j : values[slot];
+			// position i is not read again, its value moves to position j
+			int current = find(positions, swapped, i);
+			int value = current < 0 ? i : values[current];
+			if (slot < 0) {
+				positions[swapped] = j;
+				values[swapped] = value;
+				swapped++;
+			} else {
+				values[slot] = value;
+			}
+		}
+		return result;
+	}
+
+	private static int find(int[] positions, int length, int position) {
+		for (int i = 0; i < length; i++) {
+			if (positions[i] == position)
+				return i;
+		}
+		return -1;
+	}
+}
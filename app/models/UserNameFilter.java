@@ -0,0 +1,30 @@
+package models;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * Thread-safe Bloom filter of registered user names. A negative answer is
+ * definite, so free names can be confirmed without a query.
+ */
+class UserNameFilter {
+
+	private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+	private final BloomFilter<CharSequence> filter;
+
+	UserNameFilter(int expectedNames) {
+		filter = BloomFilter.create(Funnels.stringFunnel(), expectedNames,
+				FALSE_POSITIVE_PROBABILITY);
+	}
+
+	synchronized void put(String name) {
+		if (name != null) {
+			filter.put(name);
+		}
+	}
+
+	synchronized boolean mightContain(String name) {
+		return filter.mightContain(name);
+	}
+}
@@ -0,0 +1,79 @@
+package models;
+
+import java.util.Date;
+
+import models.QuizUser.Gender;
+
+/**
+ * Immutable, detached view of a {@link QuizUser} holding everything needed
+ * while playing. Does not contain the password.
+ */
+public final class UserView {
+
+	private final long id;
+	private final String userName;
+	private final String firstName;
+	private final String lastName;
+	private final Long birthDate;
+	private final Gender gender;
+
+	public UserView(long id, String userName, String firstName,
+			String lastName, Date birthDate, Gender gender) {
+		this.id = id;
+		this.userName = userName;
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.birthDate = birthDate == null ? null : birthDate.getTime();
+		this.gender = gender;
+	}
+
+	public static UserView of(QuizUser user) {
+		return new UserView(user.getId(), user.getUserName(),
+				user.getFirstName(), user.getLastName(), user.getBirthDate(),
+				user.getGender());
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getUserName() {
+		return userName;
+	}
+
+	public String getName() {
+		return userName;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public Date getBirthDate() {
+		return birthDate == null ? null : new Date(birthDate);
+	}
+
+	public Gender getGender() {
+		return gender;
+	}
+
+	/**
+	 * Create a transient player for a {@link QuizGame} from this view
+	 * 
+	 * @return
+	 */
+	public QuizUser toPlayer() {
+		QuizUser player = new QuizUser();
+		player.setId(id);
+		player.setUserName(userName);
+		player.setFirstName(firstName);
+		player.setLastName(lastName);
+		player.setBirthDate(getBirthDate());
+		player.setGender(gender);
+		return player;
+	}
+}
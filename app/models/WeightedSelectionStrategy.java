@@ -0,0 +1,114 @@
+package models;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Selects questions with a probability proportional to their weight. The
+ * prefix sums of the weights are computed once per category and catalog, a
+ * question is then drawn by a binary search. Duplicates are drawn again.
+ */
+public class WeightedSelectionStrategy implements ISelectionStrategy {
+
+	private static final int MAX_DRAWS_PER_QUESTION = 16;
+
+	private final IQuestionWeights weights;
+	private final ConcurrentMap<Long, PrefixSums> prefixSums = new ConcurrentHashMap<>();
+
+	public WeightedSelectionStrategy(IQuestionWeights weights) {
+		this.weights = weights;
+	}
+
+	@Override
+	public int[] selectQuestions(List<Question> questions, int count,
+			Random random) {
+		int size = questions.size();
+		int k = Math.max(0, Math.min(count, size));
+		if (k == 0)
+			return new int[0];
+
+		double[] sums = prefixSums(questions);
+		double total = sums[size - 1];
+		if (!(total > 0))
+			return UniformSelectionStrategy.sample(size, k, random);
+
+		int[] result = new int[k];
+		int selected = 0;
+		for (int draws = 0; selected < k && draws < k * MAX_DRAWS_PER_QUESTION; draws++) {
+			int index = search(sums, random.nextDouble() * total);
+			if (!contains(result, selected, index))
+				result[selected++] = index;
+		}
+		// the weight is concentrated on a few questions, fill up uniformly
+		while (selected < k) {
+			int index = random.nextInt(size);
+			if (!contains(result, selected, index))
+				result[selected++] = index;
+		}
+		return result;
+	}
+
+	/**
+	 * Drop the cached prefix sums, e.g. after the weights have changed
+	 */
+	public void invalidate() {
+		prefixSums.clear();
+	}
+
+	private double[] prefixSums(List<Question> questions) {
+		Category category = questions.get(0).getCategory();
+		Long key = category == null ? null : category.getId();
+		if (key != null) {
+			PrefixSums cached = prefixSums.get(key);
+			if (cached != null && cached.questions == questions)
+				return cached.sums;
+		}
+
+		double[] sums = new double[questions.size()];
+		double sum = 0;
+		for (int i = 0; i < sums.length; i++) {
+			sum += Math.max(0, weights.weightOf(questions.get(i)));
+			sums[i] = sum;
+		}
+		if (key != null)
+			prefixSums.put(key, new PrefixSums(questions, sums));
+		return sums;
+	}
+
+	/**
+	 * Get the first index whose prefix sum exceeds the value
+	 */
+	private static int search(double[] sums, double value) {
+		int low = 0;
+		int high = sums.length - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sums[mid] > value)
+				high = mid;
+			else
+				low = mid + 1;
+		}
+		return low;
+	}
+
+	private static boolean contains(int[] indices, int length, int index) {
+		for (int i = 0; i < length; i++) {
+			if (indices[i] == index)
+				return true;
+		}
+		return false;
+	}
+
+	private static class PrefixSums {
+
+		private final List<Question> questions;
+		private final double[] sums;
+
+		PrefixSums(List<Question> questions, double[] sums) {
+			this.questions = questions;
+			this.sums = sums;
+		}
+	}
+}
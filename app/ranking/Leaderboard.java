@@ -0,0 +1,278 @@
+package ranking;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import models.Answer;
+import models.Category;
+import models.IGameListener;
+import models.LeaderboardEntry;
+import models.QuizDAO;
+import models.QuizGame;
+import models.QuizUser;
+import models.Round;
+import play.Configuration;
+import play.Logger;
+import play.db.jpa.JPA;
+import play.libs.F.Function0;
+import util.Services;
+
+/**
+ * Global and per category leaderboards of finished games. Scores are added
+ * when a game is over, reads are served from a snapshot of all boards which
+ * is replaced as a whole, at most every refresh interval. The boards are
+ * written to the {@link LeaderboardEntry} table periodically and loaded from
+ * it on start.
+ * <p>
+ * The score of a game is the number of correctly answered questions, ties are
+ * broken by the total time. The score in a category counts the rounds of the
+ * category only.
+ */
+public class Leaderboard implements IGameListener {
+
+	public static final Leaderboard INSTANCE = new Leaderboard();
+
+	private static final int DEFAULT_SIZE = 100;
+
+	private volatile ScoreBoard global = new ScoreBoard(DEFAULT_SIZE);
+	private final ConcurrentMap<Long, ScoreBoard> categories = new ConcurrentHashMap<>();
+	private volatile LeaderboardSnapshot snapshot = LeaderboardSnapshot.EMPTY;
+
+	// incremented on every change, compared to find out what is outdated
+	private final AtomicLong version = new AtomicLong();
+	private volatile long snapshotVersion;
+	private volatile long checkpointVersion;
+
+	private int size = DEFAULT_SIZE;
+	private ScheduledExecutorService scheduler;
+
+	private Leaderboard() {
+	}
+
+	/**
+	 * Load the boards from the last checkpoint and start refreshing and
+	 * checkpointing them with the settings of application.conf
+	 *
+	 * @param config
+	 */
+	public void start(Configuration config) {
+		start(Services.intValue(config, "leaderboard.size", DEFAULT_SIZE),
+				Services.intValue(config, "leaderboard.refreshInterval", 1000),
+				Services.intValue(config, "leaderboard.checkpointInterval",
+						60000));
+	}
+
+	/**
+	 * Load the boards from the last checkpoint and start refreshing and
+	 * checkpointing them
+	 *
+	 * @param size
+	 *            number of scores kept per board
+	 * @param refreshIntervalMillis
+	 *            maximum age of the snapshot served to readers
+	 * @param checkpointIntervalMillis
+	 *            interval of writing the boards to the DB
+	 */
+	public synchronized void start(int size, int refreshIntervalMillis,
+			int checkpointIntervalMillis) {
+		if (scheduler != null)
+			stop();
+
+		this.size = size;
+		this.global = new ScoreBoard(size);
+		this.categories.clear();
+		load();
+		refresh();
+		checkpointVersion = version.get();
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(Services
+				.daemonThreads("leaderboard"));
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				refresh();
+			}
+		}, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				checkpoint();
+			}
+		}, checkpointIntervalMillis, checkpointIntervalMillis,
+				TimeUnit.MILLISECONDS);
+		Logger.info("Leaderboard started with " + snapshot.getGlobal().size()
+				+ " scores.");
+	}
+
+	/**
+	 * Stop refreshing and write the last checkpoint
+	 */
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		checkpoint();
+	}
+
+	/**
+	 * Get the current state of the boards, at most one refresh interval old
+	 *
+	 * @return
+	 */
+	public LeaderboardSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	@Override
+	public void answerAccepted(QuizGame game, int roundNumber,
+			int questionNumber, Answer answer) {
+	}
+
+	@Override
+	public void gameOver(QuizGame game) {
+		long now = System.currentTimeMillis();
+		for (QuizUser player : game.getPlayers()) {
+			// the computer has no id and is not ranked
+			if (player.getId() == null)
+				continue;
+			int score = 0;
+			long time = 0;
+			Map<Long, int[]> categoryScores = new HashMap<>();
+			Map<Long, long[]> categoryTimes = new HashMap<>();
+			for (int r = 1; r <= game.getCurrentRoundCount(); r++) {
+				Round round = game.getRound(r);
+				int correct = round.getCorrectAnswers(player);
+				long roundTime = round.getTotalTime(player);
+				score += correct;
+				time += roundTime;
+				if (round.getQuestions().isEmpty())
+					continue;
+				Category category = round.getQuestions().get(0).getCategory();
+				Long categoryId = category.getId();
+				if (!categoryScores.containsKey(categoryId)) {
+					categoryScores.put(categoryId, new int[1]);
+					categoryTimes.put(categoryId, new long[1]);
+				}
+				categoryScores.get(categoryId)[0] += correct;
+				categoryTimes.get(categoryId)[0] += roundTime;
+			}
+
+			boolean changed = global.offer(new ScoreEntry(player.getId(),
+					player.getName(), score, time, now));
+			for (Map.Entry<Long, int[]> entry : categoryScores.entrySet()) {
+				changed |= board(entry.getKey()).offer(
+						new ScoreEntry(player.getId(), player.getName(), entry
+								.getValue()[0], categoryTimes.get(entry
+								.getKey())[0], now));
+			}
+			if (changed)
+				version.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Replace the snapshot if any board has changed
+	 */
+	private void refresh() {
+		long current = version.get();
+		if (current == snapshotVersion && snapshot != LeaderboardSnapshot.EMPTY)
+			return;
+		Map<Long, List<ScoreEntry>> categorySnapshots = new HashMap<>();
+		for (Map.Entry<Long, ScoreBoard> entry : categories.entrySet())
+			categorySnapshots.put(entry.getKey(), entry.getValue().snapshot());
+		snapshot = new LeaderboardSnapshot(global.snapshot(),
+				categorySnapshots, System.currentTimeMillis());
+		snapshotVersion = current;
+	}
+
+	/**
+	 * Replace the checkpoint in the DB with the current boards in one
+	 * transaction
+	 */
+	private void checkpoint() {
+		long current = version.get();
+		if (current == checkpointVersion)
+			return;
+		refresh();
+		final LeaderboardSnapshot boards = snapshot;
+		try {
+			JPA.withTransaction("default", false, new Function0<Void>() {
+
+				@Override
+				public Void apply() throws Throwable {
+					JPA.em().createQuery("delete from LeaderboardEntry")
+							.executeUpdate();
+					for (ScoreEntry score : boards.getGlobal())
+						QuizDAO.INSTANCE.persist(entity(null, score));
+					for (Long categoryId : boards.getCategoryIds()) {
+						for (ScoreEntry score : boards.getCategory(categoryId))
+							QuizDAO.INSTANCE.persist(entity(categoryId, score));
+					}
+					return null;
+				}
+			});
+			checkpointVersion = current;
+		} catch (Throwable e) {
+			Logger.error("Could not write leaderboard checkpoint.", e);
+		}
+	}
+
+	private void load() {
+		try {
+			List<LeaderboardEntry> entries = JPA.withTransaction("default",
+					true, new Function0<List<LeaderboardEntry>>() {
+
+						@Override
+						public List<LeaderboardEntry> apply() throws Throwable {
+							return QuizDAO.INSTANCE
+									.findEntities(LeaderboardEntry.class);
+						}
+					});
+			for (LeaderboardEntry entry : entries) {
+				ScoreEntry score = new ScoreEntry(entry.getUserId(),
+						entry.getUserName(), entry.getScore(),
+						entry.getTime(), entry.getAchievedAt().getTime());
+				if (entry.getCategoryId() == null)
+					global.offer(score);
+				else
+					board(entry.getCategoryId()).offer(score);
+			}
+			version.incrementAndGet();
+		} catch (Throwable e) {
+			Logger.error("Could not load leaderboard checkpoint.", e);
+		}
+	}
+
+	private ScoreBoard board(Long categoryId) {
+		ScoreBoard board = categories.get(categoryId);
+		if (board == null) {
+			ScoreBoard created = new ScoreBoard(size);
+			board = categories.putIfAbsent(categoryId, created);
+			if (board == null)
+				board = created;
+		}
+		return board;
+	}
+
+	private static LeaderboardEntry entity(Long categoryId, ScoreEntry score) {
+		LeaderboardEntry entry = new LeaderboardEntry();
+		entry.setCategoryId(categoryId);
+		entry.setUserId(score.getUserId());
+		entry.setUserName(score.getUserName());
+		entry.setScore(score.getScore());
+		entry.setTime(score.getTime());
+		entry.setAchievedAt(new Date(score.getAchievedAt()));
+		return entry;
+	}
+}
@@ -0,0 +1,54 @@
+package ranking;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable state of all leaderboards at one point in time
+ */
+public final class LeaderboardSnapshot {
+
+	static final LeaderboardSnapshot EMPTY = new LeaderboardSnapshot(
+			Collections.<ScoreEntry> emptyList(),
+			Collections.<Long, List<ScoreEntry>> emptyMap(), 0);
+
+	private final List<ScoreEntry> global;
+	private final Map<Long, List<ScoreEntry>> categories;
+	private final long createdAt;
+
+	LeaderboardSnapshot(List<ScoreEntry> global,
+			Map<Long, List<ScoreEntry>> categories, long createdAt) {
+		this.global = global;
+		this.categories = Collections.unmodifiableMap(categories);
+		this.createdAt = createdAt;
+	}
+
+	/**
+	 * @return the best scores of all games, best first
+	 */
+	public List<ScoreEntry> getGlobal() {
+		return global;
+	}
+
+	/**
+	 * @param categoryId
+	 * @return the best scores in rounds of the category, best first
+	 */
+	public List<ScoreEntry> getCategory(long categoryId) {
+		List<ScoreEntry> entries = categories.get(categoryId);
+		return entries != null ? entries : Collections.<ScoreEntry> emptyList();
+	}
+
+	/**
+	 * @return the ids of the categories with scores
+	 */
+	public Set<Long> getCategoryIds() {
+		return categories.keySet();
+	}
+
+	public long getCreatedAt() {
+		return createdAt;
+	}
+}
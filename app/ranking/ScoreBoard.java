@@ -0,0 +1,58 @@
+package ranking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The best K scores of a leaderboard, at most one per user. Scores are kept
+ * sorted in a tree, so adding a score takes O(log K). Scores which don't make
+ * it into the top K are dropped right away. All access is guarded by the
+ * board; readers are served from the snapshots of the {@link Leaderboard},
+ * so only game ends and the refresh compete for it.
+ */
+final class ScoreBoard {
+
+	private final int capacity;
+	private final TreeSet<ScoreEntry> ranking = new TreeSet<>();
+	private final Map<Long, ScoreEntry> bestByUser = new HashMap<>();
+
+	ScoreBoard(int capacity) {
+		this.capacity = Math.max(1, capacity);
+	}
+
+	/**
+	 * Add the score unless the user already has a better one or it is not
+	 * good enough for the board
+	 *
+	 * @param entry
+	 * @return true if the board has changed
+	 */
+	synchronized boolean offer(ScoreEntry entry) {
+		ScoreEntry current = bestByUser.get(entry.getUserId());
+		if (current != null) {
+			if (entry.compareTo(current) >= 0)
+				return false;
+			ranking.remove(current);
+		} else if (ranking.size() >= capacity
+				&& entry.compareTo(ranking.last()) >= 0) {
+			return false;
+		}
+		ranking.add(entry);
+		bestByUser.put(entry.getUserId(), entry);
+
+		if (ranking.size() > capacity)
+			bestByUser.remove(ranking.pollLast().getUserId());
+		return true;
+	}
+
+	/**
+	 * @return an unmodifiable copy of the scores, best first
+	 */
+	synchronized List<ScoreEntry> snapshot() {
+		return Collections.unmodifiableList(new ArrayList<>(ranking));
+	}
+}
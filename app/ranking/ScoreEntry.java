@@ -0,0 +1,70 @@
+package ranking;
+
+/**
+ * Best score of a user on a leaderboard. Entries are ordered from best to
+ * worst: more correct answers first, then less time, then the earlier
+ * achievement.
+ */
+public final class ScoreEntry implements Comparable<ScoreEntry> {
+
+	private final long userId;
+	private final String userName;
+	private final int score;
+	private final long time;
+	private final long achievedAt;
+
+	public ScoreEntry(long userId, String userName, int score, long time,
+			long achievedAt) {
+		this.userId = userId;
+		this.userName = userName;
+		this.score = score;
+		this.time = time;
+		this.achievedAt = achievedAt;
+	}
+
+	@Override
+	public int compareTo(ScoreEntry other) {
+		if (score != other.score)
+			return score > other.score ? -1 : 1;
+		if (time != other.time)
+			return time < other.time ? -1 : 1;
+		if (achievedAt != other.achievedAt)
+			return achievedAt < other.achievedAt ? -1 : 1;
+		return Long.compare(userId, other.userId);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof ScoreEntry))
+			return false;
+		return compareTo((ScoreEntry) obj) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (userId ^ (userId >>> 32)) * 31 + score;
+	}
+
+	public long getUserId() {
+		return userId;
+	}
+
+	public String getUserName() {
+		return userName;
+	}
+
+	/**
+	 * @return the number of correct answers
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public long getAchievedAt() {
+		return achievedAt;
+	}
+}
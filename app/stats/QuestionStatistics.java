@@ -0,0 +1,391 @@
+package stats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import models.Answer;
+import models.Choice;
+import models.ChoiceStats;
+import models.IGameListener;
+import models.IQuestionWeights;
+import models.Question;
+import models.QuestionStats;
+import models.QuizDAO;
+import models.QuizGame;
+import models.SelectionStrategies;
+import play.Configuration;
+import play.Logger;
+import play.db.jpa.JPA;
+import play.libs.F.Function0;
+import util.Services;
+
+/**
+ * Counts how often each question is answered correctly, how much of its time
+ * limit is used and how often each choice is selected. Answers only add to
+ * striped in-memory counters, the totals are written to the
+ * {@link QuestionStats} and {@link ChoiceStats} tables periodically by a
+ * background thread.
+ * <p>
+ * After each write the questions are weighted by how close their rate of
+ * correct answers is to the target rate, so the "adaptive" selection
+ * strategy prefers questions of the targeted difficulty. Selecting questions
+ * never queries the DB.
+ */
+public class QuestionStatistics implements IGameListener, IQuestionWeights {
+
+	public static final QuestionStatistics INSTANCE = new QuestionStatistics();
+
+	private static final int ANSWERED = 0;
+	private static final int CORRECT = 1;
+	private static final int TIME_USED = 2;
+	private static final int TIME_AVAILABLE = 3;
+	// followed by one counter per choice
+	private static final int CHOICES = 4;
+
+	// questions with a weight below are hardly ever selected
+	private static final double MIN_WEIGHT = 0.05;
+
+	private final ConcurrentMap<Long, QuestionCounters> counters = new ConcurrentHashMap<>();
+	private final AtomicLong writtenRows = new AtomicLong();
+	private final AtomicLong failedFlushes = new AtomicLong();
+	// not the monitor of the statistics, stop() waits for the writer while
+	// holding it
+	private final Object flushLock = new Object();
+
+	// totals written before the start, guarded by flushLock
+	private Map<Long, long[]> loaded = Collections.emptyMap();
+	private volatile Map<Long, Double> weights = Collections.emptyMap();
+	private int minAnswers;
+	private double targetCorrectRate;
+	private volatile ScheduledExecutorService writer;
+	private volatile boolean running;
+
+	private QuestionStatistics() {
+	}
+
+	/**
+	 * Start counting with the settings of application.conf
+	 *
+	 * @param config
+	 */
+	public void start(Configuration config) {
+		start(Services.intValue(config, "stats.flushInterval", 10000),
+				Services.intValue(config, "stats.minAnswers", 10),
+				Services.intValue(config, "stats.targetCorrectPercent", 50));
+	}
+
+	/**
+	 * Load the written totals and start counting
+	 *
+	 * @param flushIntervalMillis
+	 *            interval of writing the counters to the DB
+	 * @param minAnswers
+	 *            number of answers before the statistics affect the weight
+	 *            of a question
+	 * @param targetCorrectPercent
+	 *            rate of correct answers of the questions which are
+	 *            preferred
+	 */
+	public synchronized void start(int flushIntervalMillis, int minAnswers,
+			int targetCorrectPercent) {
+		if (running)
+			stop();
+
+		this.minAnswers = Math.max(0, minAnswers);
+		this.targetCorrectRate = Math.max(0, Math.min(100,
+				targetCorrectPercent)) / 100.0;
+		synchronized (flushLock) {
+			load();
+			updateWeights();
+		}
+		this.writer = Executors.newSingleThreadScheduledExecutor(Services
+				.daemonThreads("question-stats"));
+		this.running = true;
+		writer.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				flush();
+			}
+		}, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+		Logger.info("Question statistics started with " + loaded.size()
+				+ " questions.");
+	}
+
+	/**
+	 * Stop the background thread and write the remaining counts
+	 */
+	public synchronized void stop() {
+		running = false;
+		if (writer != null) {
+			writer.shutdown();
+			try {
+				writer.awaitTermination(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			writer = null;
+		}
+		flush();
+	}
+
+	@Override
+	public void answerAccepted(QuizGame game, int roundNumber,
+			int questionNumber, Answer answer) {
+		Question question = answer.getQuestion();
+		// the computer answers at random
+		if (!running || question == null || question.getId() == null
+				|| answer.getPlayer() == null
+				|| answer.getPlayer().getId() == null)
+			return;
+
+		StripedCounters counts = countersOf(question).counts;
+		counts.add(ANSWERED, 1);
+		if (answer.isCorrect())
+			counts.add(CORRECT, 1);
+		if (question.getMaxTime() != null) {
+			// the time of an answer is the time left in seconds
+			long maxTime = question.getMaxTime().longValue() * 1000;
+			long timeLeft = Math.max(0, Math.min(maxTime, answer.getTime() * 1000));
+			counts.add(TIME_USED, maxTime - timeLeft);
+			counts.add(TIME_AVAILABLE, maxTime);
+		}
+		List<Choice> choices = question.getChoices();
+		for (Choice choice : answer.getChoices()) {
+			int index = indexOf(choices, choice);
+			if (index >= 0 && CHOICES + index < counts.size())
+				counts.add(CHOICES + index, 1);
+		}
+	}
+
+	@Override
+	public void gameOver(QuizGame game) {
+	}
+
+	/**
+	 * Get the weight of the question from the last written statistics.
+	 * Questions with less than the minimum number of answers have the weight
+	 * 1, the others up to 1 depending on how close their rate of correct
+	 * answers is to the target.
+	 */
+	@Override
+	public double weightOf(Question question) {
+		Double weight = weights.get(question.getId());
+		return weight == null ? 1 : weight;
+	}
+
+	public int getQuestionCount() {
+		return counters.size();
+	}
+
+	public long getWrittenRows() {
+		return writtenRows.get();
+	}
+
+	public long getFailedFlushes() {
+		return failedFlushes.get();
+	}
+
+	private QuestionCounters countersOf(Question question) {
+		QuestionCounters current = counters.get(question.getId());
+		if (current == null) {
+			QuestionCounters created = new QuestionCounters(question);
+			current = counters.putIfAbsent(question.getId(), created);
+			if (current == null)
+				current = created;
+		}
+		return current;
+	}
+
+	/**
+	 * Write the counts added since the last flush and update the weights
+	 */
+	private void flush() {
+		synchronized (flushLock) {
+			final List<QuestionCounters> changed = new ArrayList<>();
+			final List<long[]> deltas = new ArrayList<>();
+			final List<long[]> sums = new ArrayList<>();
+			for (QuestionCounters questionCounters : counters.values()) {
+				long[] current = questionCounters.counts.sums();
+				long[] delta = new long[current.length];
+				boolean any = false;
+				for (int i = 0; i < current.length; i++) {
+					delta[i] = current[i] - questionCounters.written[i];
+					any |= delta[i] != 0;
+				}
+				if (any) {
+					changed.add(questionCounters);
+					deltas.add(delta);
+					sums.add(current);
+				}
+			}
+			if (changed.isEmpty())
+				return;
+
+			try {
+				int rows = JPA.withTransaction("default", false,
+						new Function0<Integer>() {
+
+							@Override
+							public Integer apply() throws Throwable {
+								int rows = 0;
+								for (int i = 0; i < changed.size(); i++)
+									rows += write(changed.get(i).question,
+											deltas.get(i));
+								return rows;
+							}
+						});
+				for (int i = 0; i < changed.size(); i++)
+					changed.get(i).written = sums.get(i);
+				writtenRows.addAndGet(rows);
+			} catch (Throwable e) {
+				// the counters are kept, the next flush writes them again
+				failedFlushes.incrementAndGet();
+				Logger.error("Could not write the statistics of "
+						+ changed.size() + " questions.", e);
+			}
+			updateWeights();
+		}
+	}
+
+	/**
+	 * Add the counts to the rows of the question and its choices
+	 *
+	 * @return the number of written rows
+	 */
+	private static int write(Question question, long[] delta) {
+		int rows = 1;
+		int updated = JPA
+				.em()
+				.createQuery(
+						"update QuestionStats s set s.answered = s.answered + :answered,"
+								+ " s.correct = s.correct + :correct,"
+								+ " s.timeUsed = s.timeUsed + :timeUsed,"
+								+ " s.timeAvailable = s.timeAvailable + :timeAvailable"
+								+ " where s.questionId = :questionId")
+				.setParameter("answered", delta[ANSWERED])
+				.setParameter("correct", delta[CORRECT])
+				.setParameter("timeUsed", delta[TIME_USED])
+				.setParameter("timeAvailable", delta[TIME_AVAILABLE])
+				.setParameter("questionId", question.getId()).executeUpdate();
+		if (updated == 0) {
+			QuestionStats stats = new QuestionStats();
+			stats.setQuestionId(question.getId());
+			stats.setAnswered(delta[ANSWERED]);
+			stats.setCorrect(delta[CORRECT]);
+			stats.setTimeUsed(delta[TIME_USED]);
+			stats.setTimeAvailable(delta[TIME_AVAILABLE]);
+			QuizDAO.INSTANCE.persist(stats);
+		}
+
+		List<Choice> choices = question.getChoices();
+		for (int i = CHOICES; i < delta.length; i++) {
+			if (delta[i] == 0)
+				continue;
+			Choice choice = choices.get(i - CHOICES);
+			updated = JPA
+					.em()
+					.createQuery(
+							"update ChoiceStats s set s.selected = s.selected + :selected"
+									+ " where s.choiceId = :choiceId")
+					.setParameter("selected", delta[i])
+					.setParameter("choiceId", choice.getId()).executeUpdate();
+			if (updated == 0) {
+				ChoiceStats stats = new ChoiceStats();
+				stats.setChoiceId(choice.getId());
+				stats.setQuestionId(question.getId());
+				stats.setSelected(delta[i]);
+				QuizDAO.INSTANCE.persist(stats);
+			}
+			rows++;
+		}
+		return rows;
+	}
+
+	private void load() {
+		Map<Long, long[]> totals = new HashMap<>();
+		try {
+			List<QuestionStats> rows = JPA.withTransaction("default", true,
+					new Function0<List<QuestionStats>>() {
+
+						@Override
+						public List<QuestionStats> apply() throws Throwable {
+							return QuizDAO.INSTANCE
+									.findEntities(QuestionStats.class);
+						}
+					});
+			for (QuestionStats row : rows)
+				totals.put(row.getQuestionId(), new long[] { row.getAnswered(),
+						row.getCorrect() });
+		} catch (Throwable e) {
+			Logger.error("Could not load the question statistics.", e);
+		}
+		loaded = totals;
+	}
+
+	/**
+	 * Compute the weights from the loaded and the counted answers and make
+	 * the selection strategy use them
+	 */
+	private void updateWeights() {
+		Map<Long, long[]> totals = new HashMap<>(loaded.size());
+		for (Map.Entry<Long, long[]> entry : loaded.entrySet())
+			totals.put(entry.getKey(), entry.getValue().clone());
+		for (Map.Entry<Long, QuestionCounters> entry : counters.entrySet()) {
+			long[] written = entry.getValue().written;
+			long[] total = totals.get(entry.getKey());
+			if (total == null)
+				totals.put(entry.getKey(), new long[] { written[ANSWERED],
+						written[CORRECT] });
+			else {
+				total[ANSWERED] += written[ANSWERED];
+				total[CORRECT] += written[CORRECT];
+			}
+		}
+
+		Map<Long, Double> newWeights = new HashMap<>();
+		for (Map.Entry<Long, long[]> entry : totals.entrySet()) {
+			long answered = entry.getValue()[ANSWERED];
+			if (answered < minAnswers || answered == 0)
+				continue;
+			// smoothed, so a few answers don't give a rate of 0 or 1
+			double rate = (entry.getValue()[CORRECT] + 1.0) / (answered + 2.0);
+			newWeights.put(entry.getKey(), Math.max(MIN_WEIGHT,
+					1 - Math.abs(rate - targetCorrectRate)));
+		}
+		weights = Collections.unmodifiableMap(newWeights);
+		SelectionStrategies.weightsChanged();
+	}
+
+	private static int indexOf(List<Choice> choices, Choice choice) {
+		for (int i = 0; i < choices.size(); i++) {
+			if (choices.get(i).getId().equals(choice.getId()))
+				return i;
+		}
+		return -1;
+	}
+
+	private static class QuestionCounters {
+
+		private final Question question;
+		private final StripedCounters counts;
+		// sums at the last successful flush, guarded by flushLock
+		private long[] written;
+
+		QuestionCounters(Question question) {
+			this.question = question;
+			this.counts = new StripedCounters(CHOICES
+					+ question.getChoices().size());
+			this.written = new long[counts.size()];
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed number of counters which are updated by many threads without
+ * contention. Like the LongAdder of Java 8 every counter starts as a single
+ * cell; once an update fails under contention the counters are split into
+ * stripes, a thread adds to the stripe selected by its id and reads sum up
+ * the cell and all stripes. The stripes of a thread are padded to a cache
+ * line, so threads on different stripes don't invalidate each other's caches.
+ */
+final class StripedCounters {
+
+	// 8 longs fill a cache line of 64 bytes
+	private static final int LINE = 8;
+	private static final int STRIPES = stripeCount();
+
+	private final int size;
+	private final int stride;
+	private final AtomicLongArray base;
+	// null until an update has been contended
+	private volatile AtomicLongArray cells;
+
+	/**
+	 * @param size
+	 *            number of counters
+	 */
+	StripedCounters(int size) {
+		this.size = size;
+		this.stride = (size + LINE - 1) / LINE * LINE;
+		this.base = new AtomicLongArray(size);
+	}
+
+	int size() {
+		return size;
+	}
+
+	void add(int counter, long delta) {
+		AtomicLongArray cells = this.cells;
+		if (cells == null) {
+			long value = base.get(counter);
+			if (base.compareAndSet(counter, value, value + delta))
+				return;
+			cells = stripes();
+		}
+		int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+		cells.getAndAdd(stripe * stride + counter, delta);
+	}
+
+	/**
+	 * Sum up the stripes of a counter. Concurrent updates may or may not be
+	 * included.
+	 *
+	 * @param counter
+	 * @return
+	 */
+	long sum(int counter) {
+		long sum = base.get(counter);
+		AtomicLongArray cells = this.cells;
+		if (cells != null) {
+			for (int stripe = 0; stripe < STRIPES; stripe++)
+				sum += cells.get(stripe * stride + counter);
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the sums of all counters
+	 */
+	long[] sums() {
+		long[] sums = new long[size];
+		for (int i = 0; i < size; i++)
+			sums[i] = sum(i);
+		return sums;
+	}
+
+	/**
+	 * Allocate the stripes on the first contended update
+	 */
+	private synchronized AtomicLongArray stripes() {
+		if (cells == null)
+			cells = new AtomicLongArray(STRIPES * stride);
+		return cells;
+	}
+
+	/**
+	 * Get the next power of two of the number of processors, at most 64
+	 */
+	private static int stripeCount() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		int stripes = 1;
+		while (stripes < processors && stripes < 64)
+			stripes <<= 1;
+		return stripes;
+	}
+}
@@ -0,0 +1,139 @@
+package store;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import play.Configuration;
+import play.Logger;
+import play.Play;
+import cluster.ClusterNode;
+import cluster.ClusteredGameStateStore;
+import cluster.ConsistentHashRing;
+import cluster.HttpClusterTransport;
+import util.Services;
+
+/**
+ * Creates the {@link IGameStateStore} configured in application.conf
+ * ({@code game.store.type} is either {@code memory} or {@code mapped}). If
+ * {@code cluster.self} is set, the store is shared with the nodes listed in
+ * {@code cluster.nodes}.
+ */
+public class GameStateStores {
+
+	private static final int DEFAULT_CAPACITY = 10000;
+	static final int DEFAULT_SLOT_SIZE = 1024;
+	private static final int DEFAULT_TIME_TO_LIVE = 3600;
+	private static final int DEFAULT_REPLICAS = 2;
+
+	private static IGameStateStore localStore;
+	private static IGameStateStore store;
+
+	private GameStateStores() {
+	}
+
+	/**
+	 * Get the store used for all games, creating it on first use
+	 *
+	 * @return
+	 */
+	public static synchronized IGameStateStore get() {
+		if (store == null) {
+			Configuration config = Play.application().configuration();
+			localStore = createLocalStore(config);
+			store = createClusteredStore(config, localStore);
+		}
+		return store;
+	}
+
+	/**
+	 * Get the store holding the games of this node only
+	 *
+	 * @return
+	 */
+	public static synchronized IGameStateStore local() {
+		get();
+		return localStore;
+	}
+
+	/**
+	 * Stop the replication of a clustered store. The stores are created again
+	 * on next use.
+	 */
+	public static synchronized void shutdown() {
+		if (store instanceof ClusteredGameStateStore)
+			((ClusteredGameStateStore) store).shutdown();
+		store = null;
+		localStore = null;
+	}
+
+	/**
+	 * @return true if the games are shared with other nodes
+	 */
+	public static synchronized boolean isClustered() {
+		return get() instanceof ClusteredGameStateStore;
+	}
+
+	private static IGameStateStore createLocalStore(Configuration config) {
+		String type = config.getString("game.store.type");
+		int capacity = Services.intValue(config, "game.store.capacity",
+				DEFAULT_CAPACITY);
+		long timeToLiveMillis = Services.intValue(config, "game.store.ttl",
+				DEFAULT_TIME_TO_LIVE) * 1000L;
+
+		if ("mapped".equalsIgnoreCase(type)) {
+			String path = config.getString("game.store.file");
+			File file = path != null ? new File(path) : new File(
+					System.getProperty("java.io.tmpdir"), "quiz-games.bin");
+			int slotSize = Services.intValue(config, "game.store.slotSize",
+					DEFAULT_SLOT_SIZE);
+			try {
+				Logger.info("Storing game state in mapped file '" + file + "'.");
+				return new MappedFileGameStateStore(file, capacity, slotSize,
+						timeToLiveMillis);
+			} catch (IOException e) {
+				Logger.error("Could not map game state file '" + file
+						+ "', falling back to memory store.", e);
+			}
+		}
+		return new LruGameStateStore(capacity, timeToLiveMillis);
+	}
+
+	private static IGameStateStore createClusteredStore(Configuration config,
+			IGameStateStore local) {
+		String selfId = config.getString("cluster.self");
+		Configuration nodesConfig = config.getConfig("cluster.nodes");
+		if (selfId == null || nodesConfig == null)
+			return local;
+
+		List<ClusterNode> nodes = new ArrayList<>();
+		ClusterNode self = null;
+		for (String id : nodesConfig.subKeys()) {
+			ClusterNode node = new ClusterNode(id, nodesConfig.getString(id));
+			nodes.add(node);
+			if (id.equals(selfId))
+				self = node;
+		}
+		if (self == null) {
+			Logger.error("Node '" + selfId
+					+ "' is not listed in cluster.nodes, running standalone.");
+			return local;
+		}
+
+		String secret = config.getString("cluster.secret");
+		if (secret == null || secret.isEmpty()) {
+			Logger.error("cluster.secret is not set, running standalone.");
+			return local;
+		}
+		HttpClusterTransport transport = new HttpClusterTransport(secret,
+				Services.intValue(config, "cluster.connectTimeout", 500),
+				Services.intValue(config, "cluster.readTimeout", 2000));
+
+		Logger.info("Node " + self + " joins cluster of " + nodes.size()
+				+ " nodes.");
+		return new ClusteredGameStateStore(self, new ConsistentHashRing(nodes),
+				local, transport, Services.intValue(config, "cluster.replicas",
+						DEFAULT_REPLICAS));
+	}
+}
@@ -0,0 +1,39 @@
+package store;
+
+/**
+ * Interface for stores holding the encoded state of running games
+ */
+public interface IGameStateStore {
+
+	/**
+	 * Get the encoded state stored under the given key
+	 * 
+	 * @param key
+	 * @return the state or null if there is none or it has expired
+	 */
+	public byte[] get(String key);
+
+	/**
+	 * Store the encoded state under the given key, replacing any previous
+	 * state
+	 * 
+	 * @param key
+	 * @param state
+	 */
+	public void put(String key, byte[] state);
+
+	/**
+	 * Remove the state stored under the given key
+	 * 
+	 * @param key
+	 */
+	public void remove(String key);
+
+	/**
+	 * Get the size of the largest state this store can hold
+	 * 
+	 * @return the size in bytes
+	 */
+	public int getMaxStateSize();
+
+}
@@ -0,0 +1,69 @@
+package store;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * On-heap game state store, which keeps at most {@code capacity} entries and
+ * evicts the least recently used one when full
+ */
+public class LruGameStateStore implements IGameStateStore {
+
+	private final Map<String, Entry> entries;
+	private final long timeToLiveMillis;
+
+	public LruGameStateStore(final int capacity, long timeToLiveMillis) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive.");
+
+		this.timeToLiveMillis = timeToLiveMillis;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	@Override
+	public synchronized byte[] get(String key) {
+		Entry entry = entries.get(key);
+		if (entry == null)
+			return null;
+		if (entry.expiresAt < System.currentTimeMillis()) {
+			entries.remove(key);
+			return null;
+		}
+		return entry.state;
+	}
+
+	@Override
+	public synchronized void put(String key, byte[] state) {
+		entries.put(key, new Entry(state, System.currentTimeMillis()
+				+ timeToLiveMillis));
+	}
+
+	@Override
+	public synchronized void remove(String key) {
+		entries.remove(key);
+	}
+
+	@Override
+	public int getMaxStateSize() {
+		return Integer.MAX_VALUE;
+	}
+
+	private static class Entry {
+
+		private final byte[] state;
+		private final long expiresAt;
+
+		Entry(byte[] state, long expiresAt) {
+			this.state = state;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
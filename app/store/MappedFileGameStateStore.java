@@ -0,0 +1,224 @@
+package store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Game state store backed by a memory-mapped file. The file is divided into
+ * fixed-size slots, a key is hashed to a slot and collisions are resolved by
+ * linear probing over a few slots. If all probed slots are taken, the entry
+ * which expires first is overwritten. Reads lock a single slot, writes lock
+ * all slots they probe, so two writes can't pick the same free slot.
+ *
+ * Slot layout: expiry time (long), key length (short), key bytes, state
+ * length (int) and state bytes.
+ */
+public class MappedFileGameStateStore implements IGameStateStore {
+
+	private static final int MAX_KEY_LENGTH = 64;
+	private static final int HEADER_SIZE = 8 + 2 + MAX_KEY_LENGTH + 4;
+	private static final int MAX_PROBES = 8;
+	private static final int LOCK_STRIPES = 64;
+
+	private final MappedByteBuffer buffer;
+	private final int slotCount;
+	private final int slotSize;
+	private final long timeToLiveMillis;
+	private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+	public MappedFileGameStateStore(File file, int slotCount, int slotSize,
+			long timeToLiveMillis) throws IOException {
+		if (slotCount <= 0 || slotSize <= HEADER_SIZE)
+			throw new IllegalArgumentException("Invalid slot configuration.");
+		if ((long) slotCount * slotSize > Integer.MAX_VALUE)
+			throw new IllegalArgumentException(
+					"Slots exceed the maximum file size of 2 GB.");
+
+		this.slotCount = slotCount;
+		this.slotSize = slotSize;
+		this.timeToLiveMillis = timeToLiveMillis;
+		for (int i = 0; i < locks.length; i++)
+			locks[i] = new ReentrantLock();
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+				FileChannel channel = raf.getChannel()) {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					(long) slotCount * slotSize);
+		}
+	}
+
+	@Override
+	public byte[] get(String key) {
+		byte[] keyBytes = keyBytes(key);
+		int home = homeSlot(keyBytes);
+		long now = System.currentTimeMillis();
+		for (int probe = 0; probe < MAX_PROBES; probe++) {
+			int slot = (home + probe) % slotCount;
+			ReentrantLock lock = lockFor(slot);
+			lock.lock();
+			try {
+				ByteBuffer view = slotView(slot);
+				if (matches(view, keyBytes)) {
+					if (view.getLong(0) < now) {
+						view.putLong(0, 0L);
+						return null;
+					}
+					int length = view.getInt(8 + 2 + MAX_KEY_LENGTH);
+					byte[] state = new byte[length];
+					view.position(HEADER_SIZE);
+					view.get(state);
+					return state;
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void put(String key, byte[] state) {
+		if (state.length > getMaxStateSize())
+			throw new IllegalArgumentException("State of " + state.length
+					+ " bytes exceeds slot size.");
+
+		byte[] keyBytes = keyBytes(key);
+		int home = homeSlot(keyBytes);
+		long now = System.currentTimeMillis();
+
+		// the probed slots stay locked until the state is written
+		int[] stripes = probedStripes(home);
+		for (int stripe : stripes)
+			locks[stripe].lock();
+		try {
+			int target = -1;
+			int free = -1;
+			int oldest = -1;
+			long oldestExpiry = Long.MAX_VALUE;
+			for (int probe = 0; probe < MAX_PROBES; probe++) {
+				int slot = (home + probe) % slotCount;
+				ByteBuffer view = slotView(slot);
+				if (matches(view, keyBytes)) {
+					target = slot;
+					break;
+				}
+				long expiresAt = view.getLong(0);
+				if (expiresAt < now) {
+					if (free < 0)
+						free = slot;
+				} else if (expiresAt < oldestExpiry) {
+					oldest = slot;
+					oldestExpiry = expiresAt;
+				}
+			}
+			if (target < 0)
+				target = free >= 0 ? free : oldest;
+
+			ByteBuffer view = slotView(target);
+			view.putLong(0, now + timeToLiveMillis);
+			view.putShort(8, (short) keyBytes.length);
+			view.position(8 + 2);
+			view.put(keyBytes);
+			view.putInt(8 + 2 + MAX_KEY_LENGTH, state.length);
+			view.position(HEADER_SIZE);
+			view.put(state);
+		} finally {
+			for (int i = stripes.length - 1; i >= 0; i--)
+				locks[stripes[i]].unlock();
+		}
+	}
+
+	@Override
+	public void remove(String key) {
+		byte[] keyBytes = keyBytes(key);
+		int home = homeSlot(keyBytes);
+		for (int probe = 0; probe < MAX_PROBES; probe++) {
+			int slot = (home + probe) % slotCount;
+			ReentrantLock lock = lockFor(slot);
+			lock.lock();
+			try {
+				ByteBuffer view = slotView(slot);
+				if (matches(view, keyBytes)) {
+					view.putLong(0, 0L);
+					view.putShort(8, (short) 0);
+					return;
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public int getMaxStateSize() {
+		return slotSize - HEADER_SIZE;
+	}
+
+	private boolean matches(ByteBuffer view, byte[] keyBytes) {
+		if (view.getShort(8) != keyBytes.length)
+			return false;
+		byte[] stored = new byte[keyBytes.length];
+		view.position(8 + 2);
+		view.get(stored);
+		return Arrays.equals(stored, keyBytes);
+	}
+
+	/**
+	 * Get a view of the given slot. The view has its own position, so
+	 * concurrent access to different slots does not interfere.
+	 */
+	private ByteBuffer slotView(int slot) {
+		// fits in an int, the size of the file is checked on creation
+		int offset = (int) ((long) slot * slotSize);
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset);
+		view.limit(offset + slotSize);
+		return view.slice();
+	}
+
+	private ReentrantLock lockFor(int slot) {
+		return locks[slot % LOCK_STRIPES];
+	}
+
+	/**
+	 * Get the lock stripes of the slots probed from the home slot, in
+	 * ascending order so writes always lock in the same order
+	 */
+	private int[] probedStripes(int home) {
+		boolean[] used = new boolean[LOCK_STRIPES];
+		int count = 0;
+		for (int probe = 0; probe < MAX_PROBES; probe++) {
+			int stripe = ((home + probe) % slotCount) % LOCK_STRIPES;
+			if (!used[stripe]) {
+				used[stripe] = true;
+				count++;
+			}
+		}
+		int[] stripes = new int[count];
+		int next = 0;
+		for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+			if (used[stripe])
+				stripes[next++] = stripe;
+		}
+		return stripes;
+	}
+
+	private int homeSlot(byte[] keyBytes) {
+		return (Arrays.hashCode(keyBytes) & 0x7FFFFFFF) % slotCount;
+	}
+
+	private static byte[] keyBytes(String key) {
+		byte[] bytes = key.getBytes(Charsets.UTF_8);
+		if (bytes.length > MAX_KEY_LENGTH)
+			throw new IllegalArgumentException("Key '" + key + "' is too long.");
+		return bytes;
+	}
+}
@@ -0,0 +1,53 @@
+package twitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Status message announcing several UUIDs at once, used when more messages
+ * are waiting than can be published one by one. The status lists the UUIDs
+ * only, so several of them fit into one update.
+ */
+public class CoalescedStatusMessage extends TwitterStatusMessage {
+
+	private List<TwitterStatusMessage> messages;
+
+	public CoalescedStatusMessage(List<TwitterStatusMessage> messages) {
+		super(first(messages).getFrom(), first(messages).getUuid(), first(
+				messages).getDateTime());
+		this.messages = Collections
+				.unmodifiableList(new ArrayList<>(messages));
+	}
+
+	private static TwitterStatusMessage first(
+			List<TwitterStatusMessage> messages) {
+		if (messages == null || messages.isEmpty())
+			throw new IllegalArgumentException("Messages must not be empty.");
+		return messages.get(0);
+	}
+
+	public List<TwitterStatusMessage> getMessages() {
+		return messages;
+	}
+
+	/**
+	 * Return the string to be published on Twitter
+	 * 
+	 * @return
+	 */
+	@Override
+	public String getTwitterPublicationString() {
+		if (messages.size() == 1)
+			return messages.get(0).getTwitterPublicationString();
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("UUIDs am Highscoreboard: ");
+		for (int i = 0; i < messages.size(); i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(messages.get(i).getUuid());
+		}
+		return sb.toString();
+	}
+}
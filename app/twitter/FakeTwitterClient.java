@@ -0,0 +1,46 @@
+package twitter;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import play.Logger;
+
+/**
+ * Twitter client which does not contact Twitter. It simulates the latency
+ * and an optional failure rate, so the publishing pipeline can be load tested
+ * offline.
+ */
+public class FakeTwitterClient implements ITwitterClient {
+
+	private final long latencyMillis;
+	private final double failureRate;
+	private final Random random = new Random();
+	private final AtomicLong published = new AtomicLong();
+
+	public FakeTwitterClient(long latencyMillis, double failureRate) {
+		this.latencyMillis = latencyMillis;
+		this.failureRate = failureRate;
+	}
+
+	@Override
+	public void publishUuid(TwitterStatusMessage message) throws Exception {
+		if (latencyMillis > 0)
+			Thread.sleep(latencyMillis);
+		if (random.nextDouble() < failureRate)
+			throw new IllegalStateException("Simulated Twitter failure");
+
+		published.incrementAndGet();
+		Logger.debug("Fake Twitter status: "
+				+ message.getTwitterPublicationString());
+	}
+
+	/**
+	 * Get the number of published status updates
+	 * 
+	 * @return
+	 */
+	public long getPublished() {
+		return published.get();
+	}
+
+}
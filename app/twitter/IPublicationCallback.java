@@ -0,0 +1,13 @@
+package twitter;
+
+/**
+ * Notified by the {@link TwitterPublisher} once a queued message has been
+ * sent to Twitter or has been given up. Called on the threads of the
+ * publisher, so implementations must return quickly.
+ */
+public interface IPublicationCallback {
+
+	public void published(TwitterStatusMessage message);
+
+	public void failed(TwitterStatusMessage message, Exception cause);
+}
@@ -0,0 +1,370 @@
+package twitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import play.Configuration;
+import play.Logger;
+import twitter4j.RateLimitStatus;
+import twitter4j.TwitterException;
+import util.Services;
+
+/**
+ * Application wide Twitter client. Messages are queued and sent by a single
+ * background thread through one long-lived client, so OAuth setup happens
+ * only once. The sender respects a configurable rate limit and, when several
+ * messages are waiting, coalesces them into one status update. Failed
+ * updates are put back to the queue after a delay, while the sender goes on
+ * with the other messages.
+ */
+public class TwitterPublisher implements ITwitterClient {
+
+	public static final TwitterPublisher INSTANCE = new TwitterPublisher();
+
+	private static final long RETRY_DELAY_MILLIS = 5000;
+
+	private final AtomicLong sentStatuses = new AtomicLong();
+	private final AtomicLong publishedMessages = new AtomicLong();
+	private final AtomicLong failedMessages = new AtomicLong();
+	private final AtomicLong totalLatencyMillis = new AtomicLong();
+	private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+	private ITwitterClient client;
+	private LinkedBlockingDeque<Pending> queue = new LinkedBlockingDeque<>(1);
+	private int maxBatchSize;
+	private int maxStatusLength;
+	private int maxAttempts;
+
+	// token bucket for the rate limit
+	private double tokens;
+	private double capacity;
+	private double tokensPerMilli;
+	private long lastRefill;
+	// no status is sent before, set when Twitter reports the limit exceeded
+	private long pausedUntil;
+
+	private Thread sender;
+	private ScheduledExecutorService retries;
+	private volatile boolean running;
+
+	private TwitterPublisher() {
+	}
+
+	/**
+	 * Start the publisher with the client configured in application.conf
+	 *
+	 * @param config
+	 */
+	public void start(Configuration config) {
+		ITwitterClient client;
+		if ("fake".equalsIgnoreCase(config.getString("twitter.client"))) {
+			client = new FakeTwitterClient(Services.intValue(config,
+					"twitter.fake.latency", 50), 0);
+		} else {
+			client = new TwitterClientImpl();
+		}
+		start(client, Services.intValue(config, "twitter.queueSize", 1000),
+				Services.intValue(config, "twitter.rateLimit.statuses", 300),
+				Services.intValue(config, "twitter.rateLimit.window",
+						3 * 60 * 60),
+				Services.intValue(config, "twitter.maxBatchSize", 5),
+				Services.intValue(config, "twitter.maxStatusLength", 140));
+	}
+
+	/**
+	 * Start the publisher
+	 *
+	 * @param client
+	 *            client used to send the status updates
+	 * @param queueSize
+	 *            maximum number of waiting messages
+	 * @param statusesPerWindow
+	 *            number of status updates allowed per window
+	 * @param windowSeconds
+	 *            length of the rate limit window
+	 * @param maxBatchSize
+	 *            maximum number of messages coalesced into one update
+	 * @param maxStatusLength
+	 *            maximum length of a status update
+	 */
+	public synchronized void start(ITwitterClient client, int queueSize,
+			int statusesPerWindow, int windowSeconds, int maxBatchSize,
+			int maxStatusLength) {
+		if (running)
+			stop();
+
+		this.client = client;
+		this.queue = new LinkedBlockingDeque<>(queueSize);
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.maxStatusLength = maxStatusLength;
+		this.maxAttempts = 3;
+		this.capacity = Math.max(1, statusesPerWindow);
+		this.tokens = capacity;
+		this.tokensPerMilli = capacity / (windowSeconds * 1000.0);
+		this.lastRefill = System.currentTimeMillis();
+		this.pausedUntil = 0;
+		this.retries = Executors.newSingleThreadScheduledExecutor(Services
+				.daemonThreads("twitter-retries"));
+		this.running = true;
+
+		sender = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				send();
+			}
+		}, "twitter-publisher");
+		sender.setDaemon(true);
+		sender.start();
+		Logger.info("Twitter publisher started.");
+	}
+
+	public synchronized void stop() {
+		running = false;
+		if (sender != null)
+			sender.interrupt();
+		if (retries != null)
+			retries.shutdownNow();
+	}
+
+	/**
+	 * Queue the message for publication. Returns immediately.
+	 *
+	 * @throws IllegalStateException
+	 *             if the queue is full
+	 */
+	@Override
+	public void publishUuid(TwitterStatusMessage message) throws Exception {
+		publishUuid(message, null);
+	}
+
+	/**
+	 * Queue the message for publication. Returns immediately, the callback is
+	 * notified once the message has been sent or given up.
+	 *
+	 * @param message
+	 * @param callback
+	 *            may be null
+	 * @throws IllegalStateException
+	 *             if the queue is full
+	 */
+	public void publishUuid(TwitterStatusMessage message,
+			IPublicationCallback callback) {
+		if (!queue.offer(new Pending(message, callback)))
+			throw new IllegalStateException("Twitter queue is full.");
+	}
+
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	public long getSentStatuses() {
+		return sentStatuses.get();
+	}
+
+	public long getPublishedMessages() {
+		return publishedMessages.get();
+	}
+
+	public long getFailedMessages() {
+		return failedMessages.get();
+	}
+
+	/**
+	 * Get the average time from queueing a message until it was published
+	 *
+	 * @return
+	 */
+	public long getAverageLatencyMillis() {
+		long published = publishedMessages.get();
+		return published == 0 ? 0 : totalLatencyMillis.get() / published;
+	}
+
+	public long getMaxLatencyMillis() {
+		return maxLatencyMillis.get();
+	}
+
+	private void send() {
+		while (running) {
+			try {
+				Pending first = queue.poll(1, TimeUnit.SECONDS);
+				if (first == null)
+					continue;
+				List<Pending> batch = collectBatch(first);
+				awaitToken();
+				publish(batch);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Take further waiting messages as long as the combined status still fits
+	 */
+	private List<Pending> collectBatch(Pending first) {
+		List<Pending> batch = new ArrayList<>();
+		batch.add(first);
+		List<TwitterStatusMessage> messages = new ArrayList<>();
+		messages.add(first.message);
+		while (batch.size() < maxBatchSize) {
+			Pending next = queue.peekFirst();
+			if (next == null)
+				break;
+			messages.add(next.message);
+			if (new CoalescedStatusMessage(messages)
+					.getTwitterPublicationString().length() > maxStatusLength
+					|| queue.pollFirst() != next) {
+				messages.remove(messages.size() - 1);
+				break;
+			}
+			batch.add(next);
+		}
+		return batch;
+	}
+
+	private void publish(List<Pending> batch) throws InterruptedException {
+		List<TwitterStatusMessage> messages = new ArrayList<>(batch.size());
+		for (Pending pending : batch)
+			messages.add(pending.message);
+
+		try {
+			client.publishUuid(messages.size() == 1 ? messages.get(0)
+					: new CoalescedStatusMessage(messages));
+			sentStatuses.incrementAndGet();
+			long now = System.currentTimeMillis();
+			for (Pending pending : batch) {
+				recordLatency(now - pending.queuedAt);
+				pending.published();
+			}
+			publishedMessages.addAndGet(batch.size());
+		} catch (TwitterException e) {
+			if (e.exceededRateLimitation()) {
+				RateLimitStatus status = e.getRateLimitStatus();
+				long wait = status != null ? status.getSecondsUntilReset() * 1000L
+						: RETRY_DELAY_MILLIS;
+				Logger.warn("Twitter rate limit exceeded, waiting " + wait
+						+ " ms.");
+				requeue(batch, e);
+				pausedUntil = System.currentTimeMillis()
+						+ Math.max(wait, RETRY_DELAY_MILLIS);
+			} else {
+				retryOrDrop(batch, e);
+			}
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			retryOrDrop(batch, e);
+		}
+	}
+
+	/**
+	 * Drop the messages which failed too often and put the others back to
+	 * the queue after the retry delay
+	 */
+	private void retryOrDrop(List<Pending> batch, final Exception e) {
+		Logger.error("Could not send/receive data to/from Twitter!", e);
+		final List<Pending> retry = new ArrayList<>(batch.size());
+		for (Pending pending : batch) {
+			if (++pending.attempts >= maxAttempts) {
+				failedMessages.incrementAndGet();
+				pending.failed(e);
+			} else {
+				retry.add(pending);
+			}
+		}
+		if (retry.isEmpty())
+			return;
+		try {
+			retries.schedule(new Runnable() {
+
+				@Override
+				public void run() {
+					requeue(retry, e);
+				}
+			}, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException stopped) {
+			for (Pending pending : retry) {
+				failedMessages.incrementAndGet();
+				pending.failed(e);
+			}
+		}
+	}
+
+	/**
+	 * Put the messages back to the front of the queue, keeping their order
+	 */
+	private void requeue(List<Pending> batch, Exception cause) {
+		for (int i = batch.size() - 1; i >= 0; i--) {
+			Pending pending = batch.get(i);
+			if (!queue.offerFirst(pending)) {
+				failedMessages.incrementAndGet();
+				pending.failed(cause);
+			}
+		}
+	}
+
+	private void awaitToken() throws InterruptedException {
+		long pause = pausedUntil - System.currentTimeMillis();
+		if (pause > 0)
+			Thread.sleep(pause);
+		while (true) {
+			long now = System.currentTimeMillis();
+			tokens = Math.min(capacity, tokens + (now - lastRefill)
+					* tokensPerMilli);
+			lastRefill = now;
+			if (tokens >= 1) {
+				tokens -= 1;
+				return;
+			}
+			Thread.sleep((long) Math.ceil((1 - tokens) / tokensPerMilli));
+		}
+	}
+
+	private void recordLatency(long latency) {
+		totalLatencyMillis.addAndGet(latency);
+		long max;
+		while (latency > (max = maxLatencyMillis.get())
+				&& !maxLatencyMillis.compareAndSet(max, latency))
+			;
+	}
+
+	private static class Pending {
+
+		private final TwitterStatusMessage message;
+		private final IPublicationCallback callback;
+		private final long queuedAt = System.currentTimeMillis();
+		private int attempts;
+
+		Pending(TwitterStatusMessage message, IPublicationCallback callback) {
+			this.message = message;
+			this.callback = callback;
+		}
+
+		void published() {
+			if (callback == null)
+				return;
+			try {
+				callback.published(message);
+			} catch (RuntimeException e) {
+				Logger.error("Publication callback failed.", e);
+			}
+		}
+
+		void failed(Exception cause) {
+			if (callback == null)
+				return;
+			try {
+				callback.failed(message, cause);
+			} catch (RuntimeException e) {
+				Logger.error("Publication callback failed.", e);
+			}
+		}
+	}
+}
@@ -34,6 +34,18 @@ public class TwitterStatusMessage {
 	
 	
 	
+	public String getFrom() {
+		return from;
+	}
+
+	public String getUuid() {
+		return uuid;
+	}
+
+	public Date getDateTime() {
+		return dateTime;
+	}
+
 	/**
 	 * Return the string to be published on Twitter
 	 * @return
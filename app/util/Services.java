@@ -0,0 +1,52 @@
+package util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import play.Configuration;
+
+/**
+ * Helpers shared by the background services started with the application
+ */
+public class Services {
+
+	private Services() {
+	}
+
+	/**
+	 * Read an integer setting of application.conf
+	 *
+	 * @param config
+	 * @param key
+	 * @param defaultValue
+	 *            used if the setting is missing
+	 * @return
+	 */
+	public static int intValue(Configuration config, String key,
+			int defaultValue) {
+		Integer value = config.getInt(key);
+		return value != null ? value : defaultValue;
+	}
+
+	/**
+	 * Create daemon threads named after the service, so they don't keep the
+	 * JVM from exiting
+	 *
+	 * @param name
+	 *            prefix of the thread names, followed by a counter
+	 * @return
+	 */
+	public static ThreadFactory daemonThreads(final String name) {
+		final AtomicInteger counter = new AtomicInteger();
+		return new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name + "-"
+						+ counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+}
@@ -0,0 +1,99 @@
+/*
+    Client of the WebSocket of the quiz page. Answers are sent over the socket
+    and the next question is filled into the page, so the page is not loaded
+    again for every question. Round and game results are still shown on their
+    own pages. If the browser does not support WebSockets or the socket is not
+    open, the question form is posted as before.
+*/
+
+/*
+    sets the timer of the question to the given number of seconds
+*/
+function setTimer(maxtime) {
+    var meter = $("#timer meter");
+
+    $("#timeleftvalue").val(maxtime);
+    meter.attr('max', maxtime);
+    meter.attr('low', maxtime/100*20);
+    meter.val(maxtime);
+    $("#timeleft").text(secToMMSS(maxtime));
+}
+
+function connectQuizSocket(url) {
+    if(!('WebSocket' in window)){
+        return;
+    }
+
+    var socket = new WebSocket(url);
+    var open = false;
+    var pending = false;
+
+    socket.onopen = function(){
+        open = true;
+    };
+    socket.onclose = function(){
+        open = false;
+    };
+    socket.onmessage = function(event){
+        var state = JSON.parse(event.data);
+        pending = false;
+        $("#next").prop('disabled', false);
+
+        if(state.type === 'error'){
+            // let the server decide with the HTML routes
+            open = false;
+            socket.close();
+            return;
+        }
+        showAnswers(state.players);
+        if(state.type === 'question'){
+            if(state.question.id != $("#questionid").val()){
+                showQuestion(state.question);
+            }
+        } else {
+            window.location = state.next;
+        }
+    };
+
+    $("#questionform").on('submit', function(event){
+        if(!open){
+            return true;
+        }
+        event.preventDefault();
+        if(!pending){
+            pending = true;
+            $("#next").prop('disabled', true);
+            socket.send(JSON.stringify({
+                type: 'answer',
+                question: parseInt($("#questionid").val()),
+                choices: $("#answers input:checked").map(function(){
+                    return parseInt(this.value);
+                }).get(),
+                timeleft: parseInt($("#timeleftvalue").val())
+            }));
+        }
+        return false;
+    });
+}
+
+function showAnswers(players) {
+    $.each(players, function(p, player){
+        $.each(player.answers, function(i, answer){
+            $("#player" + (p + 1) + "answer" + i).attr('class', answer);
+        });
+    });
+}
+
+function showQuestion(question) {
+    var answers = $("#answers").empty();
+
+    $("#currentcategoryname").text(question.category);
+    $("#questiontext").text(question.text);
+    $.each(question.choices, function(i, choice){
+        answers.append($('<li/>')
+            .append($('<input/>', {name: 'choices[]', id: 'option' + i, type: 'checkbox', value: choice.id}))
+            .append($('<label/>', {id: 'labeloption' + i, 'for': 'option' + i, text: choice.text})));
+    });
+    $("#questionid").val(question.id);
+    setTimer(question.maxTime);
+}
@@ -0,0 +1,104 @@
+package auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import models.QuizDAO;
+import models.QuizUser;
+import models.TestApplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import play.db.jpa.JPA;
+import play.libs.F.Function0;
+import play.test.FakeApplication;
+
+public class AuthServiceTest {
+
+	private static final int ITERATIONS = 100;
+	private static final long TIMEOUT_MILLIS = 5000;
+
+	private FakeApplication app;
+
+	@Before
+	public void setUp() {
+		app = TestApplication.start();
+		AuthService.INSTANCE.start(ITERATIONS, 2, 10);
+	}
+
+	@After
+	public void tearDown() {
+		AuthService.INSTANCE.stop();
+		TestApplication.stop(app);
+	}
+
+	@Test
+	public void legacyPasswordIsHashedOnLogin() throws Throwable {
+		TestApplication.insertUsers(0, 1, null);
+		JPA.withTransaction(new Function0<Void>() {
+
+			@Override
+			public Void apply() throws Throwable {
+				JPA.em().createNativeQuery(
+						"update QuizUser set password = 'legacy' "
+								+ "where userName = ?")
+						.setParameter(1, TestApplication.userName(0))
+						.executeUpdate();
+				return null;
+			}
+		});
+		long migrated = AuthService.INSTANCE.getMigratedCount();
+
+		assertNull(login("wrong"));
+		assertNotNull(login("legacy"));
+		assertEquals(migrated + 1, AuthService.INSTANCE.getMigratedCount());
+		QuizUser stored = storedUser();
+		assertNull(stored.getLegacyPassword());
+		assertTrue(new PasswordHasher(ITERATIONS).verify("legacy",
+				stored.getPasswordHash()));
+
+		// the next login verifies the hash and keeps it
+		assertNotNull(login("legacy"));
+		assertEquals(migrated + 1, AuthService.INSTANCE.getMigratedCount());
+		assertEquals(stored.getPasswordHash(), storedUser().getPasswordHash());
+	}
+
+	@Test
+	public void hashOfOutdatedCostIsReplacedOnLogin() throws Throwable {
+		TestApplication.insertUsers(0, 1,
+				new PasswordHasher(ITERATIONS / 2).hash("pass"));
+		assertNotNull(login("pass"));
+		String hash = storedUser().getPasswordHash();
+		assertFalse(new PasswordHasher(ITERATIONS).needsRehash(hash));
+		assertTrue(new PasswordHasher(ITERATIONS).verify("pass", hash));
+	}
+
+	@Test
+	public void unknownUserIsRejected() {
+		assertNull(AuthService.INSTANCE.authenticate("nobody", "pass").get(
+				TIMEOUT_MILLIS));
+	}
+
+	private static QuizUser login(String password) {
+		return AuthService.INSTANCE.authenticate(TestApplication.userName(0),
+				password).get(TIMEOUT_MILLIS);
+	}
+
+	private static QuizUser storedUser() throws Throwable {
+		return JPA.withTransaction("default", true,
+				new Function0<QuizUser>() {
+
+					@Override
+					public QuizUser apply() throws Throwable {
+						JPA.em().clear();
+						return QuizDAO.INSTANCE.findByUserName(TestApplication
+								.userName(0));
+					}
+				});
+	}
+}
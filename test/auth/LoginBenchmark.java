@@ -0,0 +1,77 @@
+package auth;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import models.QuizUser;
+import models.TestApplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import play.test.FakeApplication;
+
+/**
+ * Logins per second through the authentication pool at each hashing cost,
+ * for registered and for unknown users, which are verified against a dummy
+ * hash and should not be faster. Run with
+ * <code>test:run-main org.openjdk.jmh.Main LoginBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class LoginBenchmark {
+
+	private static final int USERS = 1000;
+	private static final long TIMEOUT_MILLIS = 60 * 1000;
+
+	@Param({ "1000", "10000", "100000" })
+	public int iterations;
+
+	private FakeApplication app;
+
+	@Setup
+	public void setUp() throws Throwable {
+		app = TestApplication.start();
+		TestApplication.insertUsers(0, USERS,
+				new PasswordHasher(iterations).hash("pass"));
+		AuthService.INSTANCE.start(iterations, Runtime.getRuntime()
+				.availableProcessors(), 1000);
+	}
+
+	@TearDown
+	public void tearDown() {
+		AuthService.INSTANCE.stop();
+		TestApplication.stop(app);
+	}
+
+	@Benchmark
+	public QuizUser registeredUser() {
+		return AuthService.INSTANCE.authenticate(
+				TestApplication.userName(ThreadLocalRandom.current().nextInt(
+						USERS)), "pass").get(TIMEOUT_MILLIS);
+	}
+
+	@Benchmark
+	public QuizUser unknownUser() {
+		return AuthService.INSTANCE.authenticate(
+				TestApplication.userName(USERS
+						+ ThreadLocalRandom.current().nextInt(USERS)), "pass")
+				.get(TIMEOUT_MILLIS);
+	}
+}
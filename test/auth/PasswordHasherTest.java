@@ -0,0 +1,59 @@
+package auth;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PasswordHasherTest {
+
+	private final PasswordHasher hasher = new PasswordHasher(100);
+
+	@Test
+	public void hashVerifiesOnlyItsPassword() {
+		String hash = hasher.hash("secret");
+		assertTrue(hash.startsWith("pbkdf2$100$"));
+		assertTrue(hasher.verify("secret", hash));
+		assertFalse(hasher.verify("Secret", hash));
+		assertFalse(hasher.verify("", hash));
+		assertFalse(hasher.verify(null, hash));
+	}
+
+	@Test
+	public void hashesOfTheSamePasswordDifferBySalt() {
+		String first = hasher.hash("secret");
+		String second = hasher.hash("secret");
+		assertFalse(first.equals(second));
+		assertTrue(hasher.verify("secret", first));
+		assertTrue(hasher.verify("secret", second));
+	}
+
+	@Test
+	public void hashOfOtherCostIsVerifiedAndNeedsRehash() {
+		String cheap = new PasswordHasher(10).hash("secret");
+		assertTrue(hasher.verify("secret", cheap));
+		assertTrue(hasher.needsRehash(cheap));
+		assertFalse(hasher.needsRehash(hasher.hash("secret")));
+		assertTrue(hasher.needsRehash("md5$100$abc$def"));
+	}
+
+	@Test
+	public void malformedHashesDoNotVerify() {
+		String hash = hasher.hash("secret");
+		String[] malformed = { null, "", "secret", "pbkdf2$100$abc",
+				hash.replace("pbkdf2", "md5"),
+				hash.replace("$100$", "$many$"),
+				hash.substring(0, hash.lastIndexOf('$') + 1) + "%%%" };
+		for (String stored : malformed)
+			assertFalse(stored, hasher.verify("secret", stored));
+	}
+
+	@Test
+	public void plainPasswordIsComparedExactly() {
+		assertTrue(hasher.verifyPlain("secret", "secret"));
+		assertFalse(hasher.verifyPlain("secret", "secret "));
+		assertFalse(hasher.verifyPlain("secret", "Secret"));
+		assertFalse(hasher.verifyPlain("secret", null));
+		assertFalse(hasher.verifyPlain(null, "secret"));
+	}
+}
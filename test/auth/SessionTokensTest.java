@@ -0,0 +1,136 @@
+package auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import models.QuizUser.Gender;
+import models.UserView;
+
+import org.junit.Test;
+
+import play.Configuration;
+
+import com.typesafe.config.ConfigFactory;
+
+public class SessionTokensTest {
+
+	private final SessionTokens tokens = SessionTokens.INSTANCE;
+	private final UserView user = new UserView(42, "u0000042", "First",
+			null, new Date(86400000L), Gender.female);
+
+	@Test
+	public void issuedTokenHoldsTheUser() {
+		configure("a", 3600, "a", "secret-a");
+		UserView verified = tokens.verify(tokens.issue(user));
+		assertNotNull(verified);
+		assertEquals(42, verified.getId());
+		assertEquals("u0000042", verified.getUserName());
+		assertEquals("First", verified.getFirstName());
+		assertNull(verified.getLastName());
+		assertEquals(user.getBirthDate(), verified.getBirthDate());
+		assertEquals(Gender.female, verified.getGender());
+	}
+
+	@Test
+	public void tokenSignedWithAnotherSecretIsRejected() {
+		configure("a", 3600, "a", "secret-a");
+		String token = tokens.issue(user);
+		configure("a", 3600, "a", "forged");
+		long rejected = tokens.getRejectedCount();
+		assertNull(tokens.verify(token));
+		assertEquals(rejected + 1, tokens.getRejectedCount());
+	}
+
+	@Test
+	public void tamperedTokensAreRejected() {
+		configure("a", 3600, "a", "secret-a");
+		String token = tokens.issue(user);
+		String other = tokens.issue(new UserView(1, "admin", null, null,
+				null, null));
+		// the payload of one token with the signature of the other
+		String swapped = other.substring(0, other.lastIndexOf('.'))
+				+ token.substring(token.lastIndexOf('.'));
+		assertNull(tokens.verify(swapped));
+
+		int payloadStart = token.indexOf('.') + 1;
+		char changed = token.charAt(payloadStart) == 'A' ? 'B' : 'A';
+		assertNull(tokens.verify(token.substring(0, payloadStart) + changed
+				+ token.substring(payloadStart + 1)));
+		String signature = token.substring(token.lastIndexOf('.') + 1);
+		assertNull(tokens.verify(token.substring(0, token.lastIndexOf('.'))
+				+ "." + new StringBuilder(signature).reverse()));
+	}
+
+	@Test
+	public void expiredTokenIsRejected() throws InterruptedException {
+		configure("a", 0, "a", "secret-a");
+		String token = tokens.issue(user);
+		Thread.sleep(10);
+		assertNull(tokens.verify(token));
+	}
+
+	@Test
+	public void tokenOfUnknownKeyIsRejected() {
+		configure("a", 3600, "a", "secret-a");
+		String token = tokens.issue(user);
+		assertNull(tokens.verify("b" + token.substring(1)));
+		configure("b", 3600, "b", "secret-a");
+		assertNull(tokens.verify(token));
+	}
+
+	@Test
+	public void tokensOfTheOldKeyVerifyAfterRotation() {
+		configure("old", 3600, "old", "secret-old", "new", "secret-new");
+		String old = tokens.issue(user);
+		assertFalse(tokens.needsRenewal(old));
+
+		configure("new", 3600, "old", "secret-old", "new", "secret-new");
+		assertNotNull(tokens.verify(old));
+		assertTrue(tokens.needsRenewal(old));
+		String renewed = tokens.issue(user);
+		assertTrue(renewed.startsWith("new."));
+		assertNotNull(tokens.verify(renewed));
+		assertFalse(tokens.needsRenewal(renewed));
+
+		// once the old key is removed its tokens are rejected
+		configure("new", 3600, "new", "secret-new");
+		assertNull(tokens.verify(old));
+		assertNotNull(tokens.verify(renewed));
+	}
+
+	@Test
+	public void malformedTokensAreRejected() {
+		configure("a", 3600, "a", "secret-a");
+		String token = tokens.issue(user);
+		String[] malformed = { null, "", ".", "..", "a", "a.", "a..",
+				".payload.signature", "a.payload", "a.!!!.???",
+				token.substring(0, token.lastIndexOf('.')),
+				token.substring(0, token.lastIndexOf('.') + 1),
+				token.substring(token.indexOf('.')), token + ".extra" };
+		for (String value : malformed)
+			assertNull(value, tokens.verify(value));
+	}
+
+	/**
+	 * @param currentKey
+	 * @param ttl
+	 *            time to live in seconds
+	 * @param keys
+	 *            key ids followed by their secrets
+	 */
+	private void configure(String currentKey, int ttl, String... keys) {
+		Map<String, Object> config = new HashMap<>();
+		for (int i = 0; i < keys.length; i += 2)
+			config.put("auth.token.keys." + keys[i], keys[i + 1]);
+		config.put("auth.token.currentKey", currentKey);
+		config.put("auth.token.ttl", ttl);
+		tokens.configure(new Configuration(ConfigFactory.parseMap(config)));
+	}
+}
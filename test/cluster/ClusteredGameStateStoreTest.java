@@ -0,0 +1,266 @@
+package cluster;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import store.IGameStateStore;
+import store.LruGameStateStore;
+
+import com.google.common.base.Charsets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs several nodes in-process, each with its own store and an HTTP server
+ * on loopback serving the /cluster/games routes like
+ * {@link controllers.Cluster}
+ */
+public class ClusteredGameStateStoreTest {
+
+	private static final String SECRET = "test-secret";
+	private static final int NODES = 3;
+
+	private final List<Node> nodes = new ArrayList<>();
+
+	@Before
+	public void setUp() throws IOException {
+		List<ClusterNode> clusterNodes = new ArrayList<>();
+		for (int i = 0; i < NODES; i++) {
+			Node node = new Node();
+			node.server = HttpServer.create(new InetSocketAddress(
+					InetAddress.getLoopbackAddress(), 0), 0);
+			node.server.createContext("/cluster/games/", node);
+			node.server.start();
+			node.clusterNode = new ClusterNode("node" + i, "http://127.0.0.1:"
+					+ node.server.getAddress().getPort());
+			clusterNodes.add(node.clusterNode);
+			nodes.add(node);
+		}
+		ConsistentHashRing ring = new ConsistentHashRing(clusterNodes);
+		for (final Node node : nodes) {
+			node.store = new ClusteredGameStateStore(node.clusterNode, ring,
+					node.local, new HttpClusterTransport(SECRET, 500, 2000), 2) {
+
+				@Override
+				long now() {
+					return super.now() + node.clockSkew;
+				}
+			};
+		}
+	}
+
+	@After
+	public void tearDown() {
+		for (Node node : nodes) {
+			node.store.shutdown();
+			node.server.stop(0);
+		}
+	}
+
+	@Test
+	public void everyNodeReadsTheGamesWrittenOnAnyNode() {
+		for (int i = 0; i < 20; i++) {
+			String key = "game." + i;
+			byte[] state = bytes("state " + i);
+			nodes.get(i % NODES).store.put(key, state);
+			for (Node node : nodes)
+				assertArrayEquals(state, node.store.get(key));
+		}
+	}
+
+	@Test
+	public void removedGamesAreGoneOnAllNodes() throws Exception {
+		nodes.get(0).store.put("game", bytes("state"));
+		nodes.get(1).store.remove("game");
+		// removal from the owner runs in the background
+		waitUntil(new Condition() {
+
+			@Override
+			public boolean holds() {
+				for (Node node : nodes) {
+					if (node.store.get("game") != null)
+						return false;
+				}
+				return true;
+			}
+		});
+		for (Node node : nodes)
+			assertNull(node.store.get("game"));
+	}
+
+	@Test
+	public void writeKeptLocallyWinsOverOutdatedCopyOfTheOwner()
+			throws Exception {
+		final String key = "game.owner-down";
+		ConsistentHashRing ring = new ConsistentHashRing(clusterNodes());
+		final Node owner = nodeOf(ring.ownerOf(key));
+		Node writer = null;
+		for (Node node : nodes) {
+			if (node != owner && !ring.nodesFor(key, 2).contains(node.clusterNode))
+				writer = node;
+		}
+		if (writer == null)
+			writer = nodes.get((nodes.indexOf(owner) + 1) % NODES);
+
+		writer.store.put(key, bytes("first"));
+		owner.down = true;
+		writer.store.put(key, bytes("second"));
+		owner.down = false;
+
+		assertArrayEquals(bytes("second"), writer.store.get(key));
+		// the owner gets the newer state by read repair
+		waitUntil(new Condition() {
+
+			@Override
+			public boolean holds() {
+				byte[] state = owner.store.getLocalStore().get(key);
+				return state != null
+						&& new String(state, Charsets.UTF_8).endsWith("second");
+			}
+		});
+		for (Node node : nodes)
+			assertArrayEquals(bytes("second"), node.store.get(key));
+	}
+
+	@Test
+	public void writeAfterReadWinsOverStateOfNodeWithClockAhead() {
+		Node ahead = nodes.get(0);
+		Node behind = nodes.get(1);
+		ahead.clockSkew = 3600000;
+		ahead.store.put("game", bytes("first"));
+		assertArrayEquals(bytes("first"), behind.store.get("game"));
+
+		behind.store.put("game", bytes("second"));
+		for (Node node : nodes)
+			assertArrayEquals(bytes("second"), node.store.get("game"));
+
+		// the node ahead reads the state before it writes again as well
+		assertArrayEquals(bytes("second"), ahead.store.get("game"));
+		ahead.store.put("game", bytes("third"));
+		for (Node node : nodes)
+			assertArrayEquals(bytes("third"), node.store.get("game"));
+	}
+
+	@Test
+	public void statesAreStoredWithAVersion() {
+		Node node = nodes.get(0);
+		node.store.put("game", bytes("state"));
+		byte[] stored = nodeOf(
+				new ConsistentHashRing(clusterNodes()).ownerOf("game")).local
+				.get("game");
+		assertEquals(bytes("state").length + 8, stored.length);
+	}
+
+	private List<ClusterNode> clusterNodes() {
+		List<ClusterNode> clusterNodes = new ArrayList<>();
+		for (Node node : nodes)
+			clusterNodes.add(node.clusterNode);
+		return clusterNodes;
+	}
+
+	private Node nodeOf(ClusterNode clusterNode) {
+		for (Node node : nodes) {
+			if (node.clusterNode.equals(clusterNode))
+				return node;
+		}
+		throw new IllegalArgumentException("Unknown node " + clusterNode);
+	}
+
+	private static void waitUntil(Condition condition)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.holds() && System.currentTimeMillis() < deadline)
+			Thread.sleep(20);
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(Charsets.UTF_8);
+	}
+
+	private interface Condition {
+		boolean holds();
+	}
+
+	/**
+	 * A node with its local store, answering like {@link controllers.Cluster}
+	 */
+	private static class Node implements HttpHandler {
+
+		private final IGameStateStore local = new LruGameStateStore(1000,
+				60000);
+		private HttpServer server;
+		private ClusterNode clusterNode;
+		private ClusteredGameStateStore store;
+		private volatile boolean down;
+		private volatile long clockSkew;
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				byte[] body = readFully(exchange.getRequestBody());
+				if (down) {
+					exchange.sendResponseHeaders(503, -1);
+					return;
+				}
+				if (!SECRET.equals(exchange.getRequestHeaders().getFirst(
+						HttpClusterTransport.SECRET_HEADER))) {
+					exchange.sendResponseHeaders(403, -1);
+					return;
+				}
+				String path = exchange.getRequestURI().getRawPath();
+				String key = URLDecoder.decode(
+						path.substring("/cluster/games/".length()), "UTF-8");
+				switch (exchange.getRequestMethod()) {
+				case "GET":
+					byte[] state = local.get(key);
+					if (state == null) {
+						exchange.sendResponseHeaders(404, -1);
+					} else {
+						exchange.sendResponseHeaders(200, state.length);
+						try (OutputStream out = exchange.getResponseBody()) {
+							out.write(state);
+						}
+					}
+					break;
+				case "PUT":
+					local.put(key, body);
+					exchange.sendResponseHeaders(204, -1);
+					break;
+				case "DELETE":
+					local.remove(key);
+					exchange.sendResponseHeaders(204, -1);
+					break;
+				default:
+					exchange.sendResponseHeaders(405, -1);
+				}
+			} finally {
+				exchange.close();
+			}
+		}
+
+		private static byte[] readFully(InputStream in) throws IOException {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[512];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+				out.write(buffer, 0, read);
+			return out.toByteArray();
+		}
+	}
+}
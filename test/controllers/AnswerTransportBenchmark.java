@@ -0,0 +1,75 @@
+package controllers;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import models.QuizGame;
+import models.UserView;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import play.i18n.Lang;
+import play.libs.Json;
+import views.html.quiz.quiz;
+
+/**
+ * The response to an answer over the game socket, the JSON state of the
+ * game, against the question page rendered by the GET following the
+ * POST and its redirect. The bytes of both responses are printed on setup.
+ * Run with
+ * <code>test:run-main org.openjdk.jmh.Main AnswerTransportBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnswerTransportBenchmark {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final RenderState state = new RenderState();
+	private final Lang lang = Lang.forCode("en");
+	private QuizGame game;
+	private GameSession session;
+
+	@Setup
+	public void setUp() throws Throwable {
+		state.start();
+		game = state.game(1);
+		session = new GameSession(UserView.of(game.getPlayers().get(0)),
+				"benchmark");
+		System.out.println("Bytes per answer: socket "
+				+ socketState().getBytes(UTF8).length + ", page "
+				+ questionPage().getBytes(UTF8).length);
+	}
+
+	@TearDown
+	public void tearDown() {
+		state.stop();
+	}
+
+	@Benchmark
+	public String socketState() {
+		return Json.stringify(GameJson.state(session, game, lang));
+	}
+
+	@Benchmark
+	public String questionPage() {
+		return quiz.render(
+				game,
+				QuestionFragments.INSTANCE.get(session.currentQuestion(game),
+						lang.code())).body();
+	}
+}
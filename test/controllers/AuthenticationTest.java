@@ -0,0 +1,73 @@
+package controllers;
+
+import static org.junit.Assert.assertEquals;
+import static play.test.Helpers.POST;
+import static play.test.Helpers.fakeRequest;
+import static play.test.Helpers.header;
+import static play.test.Helpers.route;
+import static play.test.Helpers.status;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import models.TestApplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import play.mvc.Http;
+import play.mvc.Result;
+import play.test.FakeApplication;
+import auth.AuthService;
+
+/**
+ * Logins and registrations while the authentication pool is saturated
+ */
+public class AuthenticationTest {
+
+	// a hash of this cost takes long enough to keep the only thread busy
+	private static final int SLOW_ITERATIONS = 2000000;
+
+	private FakeApplication app;
+
+	@Before
+	public void setUp() {
+		app = TestApplication.start();
+		// one thread hashing and one waiting task fill the pool
+		AuthService.INSTANCE.start(SLOW_ITERATIONS, 1, 1);
+		AuthService.INSTANCE.hash("running");
+		AuthService.INSTANCE.hash("waiting");
+	}
+
+	@After
+	public void tearDown() {
+		AuthService.INSTANCE.stop();
+		TestApplication.stop(app);
+	}
+
+	@Test
+	public void loginIsRejectedWhenThePoolIsFull() {
+		long rejected = AuthService.INSTANCE.getRejectedCount();
+		Result result = route(fakeRequest(POST, "/authenticate")
+				.withFormUrlEncodedBody(form()));
+		assertEquals(Http.Status.SERVICE_UNAVAILABLE, status(result));
+		assertEquals("1", header(Http.HeaderNames.RETRY_AFTER, result));
+		assertEquals(rejected + 1, AuthService.INSTANCE.getRejectedCount());
+	}
+
+	@Test
+	public void registrationIsRejectedWhenThePoolIsFull() {
+		Result result = route(fakeRequest(POST, "/registration")
+				.withFormUrlEncodedBody(form()));
+		assertEquals(Http.Status.SERVICE_UNAVAILABLE, status(result));
+		assertEquals("1", header(Http.HeaderNames.RETRY_AFTER, result));
+	}
+
+	private static Map<String, String> form() {
+		Map<String, String> form = new HashMap<>();
+		form.put("userName", TestApplication.userName(1));
+		form.put("password", "pass");
+		return form;
+	}
+}
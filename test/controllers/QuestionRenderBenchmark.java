@@ -0,0 +1,66 @@
+package controllers;
+
+import java.util.concurrent.TimeUnit;
+
+import models.Languages;
+import models.Question;
+import models.QuizGame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import play.api.templates.Html;
+import views.html.quiz.quiz;
+
+/**
+ * Rendering the quiz page of a running round with the cached question
+ * fragment and, as before the fragments were cached, with the question
+ * rendered on every request. Run with
+ * <code>test:run-main org.openjdk.jmh.Main QuestionRenderBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionRenderBenchmark {
+
+	private final RenderState state = new RenderState();
+	private QuizGame game;
+	private Question question;
+
+	@Setup
+	public void setUp() throws Throwable {
+		state.start();
+		game = state.game(1);
+		question = game.getCurrentRound().getCurrentQuestion(
+				game.getPlayers().get(0));
+	}
+
+	@TearDown
+	public void tearDown() {
+		state.stop();
+	}
+
+	@Benchmark
+	public Html cachedFragment() {
+		return quiz.render(game,
+				QuestionFragments.INSTANCE.get(question, "en"));
+	}
+
+	@Benchmark
+	public Html renderedFragment() {
+		return quiz.render(game, new QuestionFragments.Fragment(question,
+				Languages.id("en")));
+	}
+}
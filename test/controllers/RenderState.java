@@ -0,0 +1,56 @@
+package controllers;
+
+import java.util.Random;
+
+import models.Question;
+import models.QuestionCatalog;
+import models.QuizGame;
+import models.QuizUser;
+import models.TestApplication;
+import models.UniformSelectionStrategy;
+import play.core.j.JavaHelpers$;
+import play.mvc.Http;
+import play.test.FakeApplication;
+import play.test.FakeRequest;
+
+/**
+ * Application with a generated catalog and an HTTP context, for benchmarks
+ * rendering the quiz pages outside of a request
+ */
+class RenderState {
+
+	private FakeApplication app;
+	private QuestionCatalog catalog;
+
+	void start() throws Throwable {
+		app = TestApplication.start();
+		catalog = TestApplication.insertCategories(5, 10);
+		Http.Context.current.set(JavaHelpers$.MODULE$
+				.createJavaContext(new FakeRequest("GET", "/quiz/question")
+						.getWrappedRequest()));
+	}
+
+	void stop() {
+		Http.Context.current.remove();
+		TestApplication.stop(app);
+	}
+
+	/**
+	 * Start a game against the computer and answer the given number of
+	 * questions of the first round
+	 */
+	QuizGame game(int answeredQuestions) {
+		QuizUser user = new QuizUser();
+		user.setId(1L);
+		user.setName("player");
+		QuizGame game = new QuizGame(catalog, user,
+				UniformSelectionStrategy.INSTANCE, new Random(1));
+		game.startNewRound();
+		for (int i = 0; i < answeredQuestions && !game.isRoundOver(); i++) {
+			Question question = game.getCurrentRound().getCurrentQuestion(user);
+			game.answerCurrentQuestion(user,
+					catalog.getCorrectChoices(question), 10);
+		}
+		return game;
+	}
+}
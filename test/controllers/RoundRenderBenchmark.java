@@ -0,0 +1,70 @@
+package controllers;
+
+import java.util.concurrent.TimeUnit;
+
+import models.Answer;
+import models.QuizGame;
+import models.QuizUser;
+import models.Round;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import play.api.templates.Html;
+import views.html.quiz.roundover;
+
+/**
+ * Rendering the result page of a finished round, which evaluates every
+ * answer of both players, and the evaluation on its own. Run with
+ * <code>test:run-main org.openjdk.jmh.Main RoundRenderBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundRenderBenchmark {
+
+	private final RenderState state = new RenderState();
+	private QuizGame game;
+
+	@Setup
+	public void setUp() throws Throwable {
+		state.start();
+		game = state.game(Integer.MAX_VALUE);
+	}
+
+	@TearDown
+	public void tearDown() {
+		state.stop();
+	}
+
+	@Benchmark
+	public Html renderRoundResult() {
+		return roundover.render(game);
+	}
+
+	@Benchmark
+	public int evaluateAnswers() {
+		Round round = game.getCurrentRound();
+		int correct = 0;
+		for (QuizUser player : game.getPlayers()) {
+			for (int i = 0; i < round.getQuestions().size(); i++) {
+				Answer answer = round.getAnswer(i, player);
+				if (answer != null && answer.isCorrect())
+					correct++;
+			}
+		}
+		return correct;
+	}
+}
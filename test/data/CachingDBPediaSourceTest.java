@@ -0,0 +1,132 @@
+package data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+public class CachingDBPediaSourceTest {
+
+	private static final String QUERY = "?subject a <http://dbpedia.org/ontology/Country>";
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("dbpedia-cache").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files)
+				file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void everyResourceIsLoadedOnce() {
+		FakeDBPediaSource delegate = new FakeDBPediaSource(false);
+		CachingDBPediaSource source = new CachingDBPediaSource(delegate, null);
+
+		Resource first = source.loadResource("Austria");
+		Resource second = source.loadResource("Austria");
+		assertEquals("Austria", first.getProperty(RDFS.label).getString());
+		assertEquals(first, second);
+		assertEquals(1, delegate.loads.get());
+
+		source.loadResource("Germany");
+		assertEquals(2, delegate.loads.get());
+	}
+
+	@Test
+	public void concurrentLoadsWaitForTheFirst() throws Exception {
+		final FakeDBPediaSource delegate = new FakeDBPediaSource(true);
+		final CachingDBPediaSource source = new CachingDBPediaSource(delegate,
+				null);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Model>> models = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				models.add(executor.submit(new Callable<Model>() {
+
+					@Override
+					public Model call() {
+						return source.loadModel(QUERY);
+					}
+				}));
+			}
+			while (delegate.loads.get() == 0)
+				Thread.sleep(5);
+			delegate.release.countDown();
+
+			Model first = models.get(0).get();
+			assertNotNull(first);
+			for (Future<Model> model : models)
+				assertTrue(first == model.get());
+			assertEquals(1, delegate.loads.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void failedLoadsAreNotCached() {
+		FakeDBPediaSource delegate = new FakeDBPediaSource(false);
+		CachingDBPediaSource source = new CachingDBPediaSource(delegate,
+				directory);
+
+		delegate.failing = true;
+		assertNull(source.loadModel(QUERY));
+		assertEquals(0, directory.list().length);
+
+		delegate.failing = false;
+		assertEquals(3, source.loadModel(QUERY).listSubjects().toList()
+				.size());
+		assertEquals(2, delegate.loads.get());
+	}
+
+	@Test
+	public void modelsAreReadFromDiskAfterRestart() {
+		FakeDBPediaSource delegate = new FakeDBPediaSource(false);
+		Model loaded = new CachingDBPediaSource(delegate, directory)
+				.loadModel(QUERY);
+
+		FakeDBPediaSource offline = new FakeDBPediaSource(false);
+		offline.available = false;
+		CachingDBPediaSource restarted = new CachingDBPediaSource(offline,
+				directory);
+		assertTrue(restarted.isAvailable());
+		Model read = restarted.loadModel(QUERY);
+		assertTrue(loaded.isIsomorphicWith(read));
+		assertEquals(0, offline.loads.get());
+	}
+
+	@Test
+	public void unavailableWithoutDelegateAndCache() {
+		FakeDBPediaSource offline = new FakeDBPediaSource(false);
+		offline.available = false;
+		assertFalse(new CachingDBPediaSource(offline, directory).isAvailable());
+	}
+}
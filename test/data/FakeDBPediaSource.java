@@ -0,0 +1,66 @@
+package data;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import at.ac.tuwien.big.we14.lab4.dbpedia.vocabulary.DBPedia;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+/**
+ * Source answering every resource and query with a small model of its own,
+ * counting the loads. Loads can be held until released and made to fail.
+ */
+class FakeDBPediaSource implements IDBPediaSource {
+
+	final AtomicInteger loads = new AtomicInteger();
+	final CountDownLatch release = new CountDownLatch(1);
+	volatile boolean available = true;
+	volatile boolean failing;
+
+	FakeDBPediaSource(boolean held) {
+		if (!held)
+			release.countDown();
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return available;
+	}
+
+	@Override
+	public Resource loadResource(String name) {
+		Model model = load();
+		if (model == null)
+			return null;
+		Resource resource = model.createResource(DBPedia.createResource(name)
+				.getURI());
+		resource.addProperty(RDFS.label, name, "en");
+		return resource;
+	}
+
+	@Override
+	public Model loadModel(String selectQuery) {
+		Model model = load();
+		if (model == null)
+			return null;
+		for (int i = 0; i < 3; i++)
+			model.createResource(DBPedia.createResource("Subject" + i).getURI())
+					.addProperty(RDFS.comment, selectQuery);
+		return model;
+	}
+
+	private Model load() {
+		loads.incrementAndGet();
+		try {
+			release.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		return failing ? null : ModelFactory.createDefaultModel();
+	}
+}
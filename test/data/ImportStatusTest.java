@@ -0,0 +1,50 @@
+package data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import data.ImportStatus.Phase;
+
+public class ImportStatusTest {
+
+	private final ImportStatus status = ImportStatus.INSTANCE;
+
+	@Before
+	public void setUp() {
+		status.start();
+	}
+
+	@Test
+	public void readyOnceTheCatalogIsLoaded() {
+		assertFalse(status.isReady());
+		status.catalogFinished(true);
+		assertTrue(status.isReady());
+		status.dbpediaStarted();
+		status.dbpediaFinished(false, true);
+		assertTrue(status.isReady());
+		assertEquals(Phase.FAILED, status.getDBPediaPhase());
+	}
+
+	@Test
+	public void readyOnceDBPediaFillsAnEmptyCatalog() {
+		status.catalogFinished(false);
+		assertFalse(status.isReady());
+		status.dbpediaStarted();
+		status.dbpediaFinished(true, true);
+		assertTrue(status.isReady());
+		assertEquals(Phase.DONE, status.getCatalogPhase());
+		assertTrue(status.getCatalogMillis() >= 0);
+	}
+
+	@Test
+	public void notReadyWhileTheCatalogStaysEmpty() {
+		status.catalogFinished(false);
+		status.dbpediaStarted();
+		status.dbpediaFinished(true, false);
+		assertFalse(status.isReady());
+	}
+}
@@ -0,0 +1,28 @@
+package data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class JSONStreamInserterTest {
+
+	@Test
+	public void languageIsTheSuffixOfTheProperty() {
+		assertEquals("DE", JSONStreamInserter.languageOf("textDE", "text"));
+		assertEquals("en", JSONStreamInserter.languageOf("nameen", "name"));
+		assertEquals("de-AT",
+				JSONStreamInserter.languageOf("textde-AT", "text"));
+		assertEquals("pt_BR",
+				JSONStreamInserter.languageOf("textpt_BR", "text"));
+	}
+
+	@Test
+	public void otherPropertiesAreNoLanguages() {
+		assertNull(JSONStreamInserter.languageOf("text", "text"));
+		assertNull(JSONStreamInserter.languageOf("textSize", "text"));
+		assertNull(JSONStreamInserter.languageOf("nameSpace", "name"));
+		assertNull(JSONStreamInserter.languageOf("textDe", "text"));
+		assertNull(JSONStreamInserter.languageOf("questions", "text"));
+	}
+}
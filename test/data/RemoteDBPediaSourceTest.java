@@ -0,0 +1,101 @@
+package data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the queries against a SPARQL endpoint on loopback
+ */
+public class RemoteDBPediaSourceTest {
+
+	private static final String ASK_RESULT = "<?xml version=\"1.0\"?>"
+			+ "<sparql xmlns=\"http://www.w3.org/2005/sparql-results#\">"
+			+ "<head/><boolean>true</boolean></sparql>";
+
+	private static final String CONSTRUCT_RESULT = "<?xml version=\"1.0\"?>"
+			+ "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\""
+			+ " xmlns:rdfs=\"http://www.w3.org/2000/01/rdf-schema#\">"
+			+ "<rdf:Description rdf:about=\"http://dbpedia.org/resource/Austria\">"
+			+ "<rdfs:label xml:lang=\"en\">Austria</rdfs:label>"
+			+ "</rdf:Description></rdf:RDF>";
+
+	private HttpServer server;
+	private volatile boolean failing;
+	private volatile String lastQuery;
+	private RemoteDBPediaSource source;
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(
+				InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/sparql", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				String query = URLDecoder.decode(exchange.getRequestURI()
+						.getRawQuery(), "UTF-8");
+				lastQuery = query;
+				if (failing) {
+					exchange.sendResponseHeaders(500, -1);
+					exchange.close();
+					return;
+				}
+				boolean ask = query.contains("ASK");
+				byte[] body = (ask ? ASK_RESULT : CONSTRUCT_RESULT)
+						.getBytes(Charsets.UTF_8);
+				exchange.getResponseHeaders().set(
+						"Content-Type",
+						ask ? "application/sparql-results+xml"
+								: "application/rdf+xml");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			}
+		});
+		server.start();
+		source = new RemoteDBPediaSource("http://127.0.0.1:"
+				+ server.getAddress().getPort() + "/sparql");
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	public void resourceIsConstructedFromTheEndpoint() {
+		assertTrue(source.isAvailable());
+		Resource resource = source.loadResource("Austria");
+		assertEquals("Austria", resource.getProperty(RDFS.label).getString());
+		assertTrue(lastQuery
+				.contains("CONSTRUCT { <http://dbpedia.org/resource/Austria>"));
+	}
+
+	@Test
+	public void failingEndpointIsUnavailableAndLoadsNothing() {
+		failing = true;
+		assertFalse(source.isAvailable());
+		assertNull(source.loadResource("Austria"));
+		assertNull(source.loadModel("?subject a ?type"));
+	}
+}
@@ -0,0 +1,129 @@
+package data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import models.Category;
+import models.Choice;
+import models.Question;
+import models.QuestionCatalog;
+import models.QuizDAO;
+import models.TestApplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import play.db.jpa.JPA;
+import play.libs.F.Function0;
+import play.test.FakeApplication;
+
+public class TextColumnMigrationTest {
+
+	private FakeApplication app;
+
+	@Before
+	public void setUp() {
+		app = TestApplication.start();
+	}
+
+	@After
+	public void tearDown() {
+		TestApplication.stop(app);
+	}
+
+	@Test
+	public void textsOfOldColumnsAreMovedAndImportsRecorded()
+			throws Throwable {
+		JPA.withTransaction(new Function0<Void>() {
+
+			@Override
+			public Void apply() throws Throwable {
+				EntityManager em = JPA.em();
+				for (String table : new String[] { "Question", "Choice" }) {
+					addColumn(em, table, "textDE");
+					addColumn(em, table, "textEN");
+				}
+				addColumn(em, "Category", "nameDE");
+				addColumn(em, "Category", "nameEN");
+				execute(em, "insert into Category (id, nameDE, nameEN) "
+						+ "values (-1, 'Kategorie', 'Category')");
+				execute(em, "insert into Question "
+						+ "(id, textDE, textEN, maxtime, category_id) "
+						+ "values (-2, 'Frage', 'Question', 30, -1)");
+				execute(em, "insert into Choice "
+						+ "(id, textDE, textEN, correctAnswer, question_id) "
+						+ "values (-3, 'Antwort', 'Answer', true, -2)");
+				return null;
+			}
+		});
+
+		assertEquals(3, migrate());
+		QuestionCatalog catalog = QuestionCatalog.reload();
+		Category category = catalog.findCategory(-1);
+		assertEquals("Kategorie", category.getName("de"));
+		Question question = catalog.findQuestion(-2);
+		assertEquals("Question", question.getText("en"));
+		Choice choice = catalog.findChoice(-3);
+		assertEquals("Antwort", choice.getText("de"));
+
+		JPA.withTransaction("default", true, new Function0<Void>() {
+
+			@Override
+			public Void apply() throws Throwable {
+				assertTrue(QuizDAO.INSTANCE
+						.isImported(JSONDataInserter.IMPORT_NAME));
+				assertFalse(QuizDAO.INSTANCE
+						.isImported(DBPediaDataInserter.IMPORT_NAME));
+				List<?> columns = JPA.em().createNativeQuery(
+						"select COLUMN_NAME from INFORMATION_SCHEMA.COLUMNS "
+								+ "where COLUMN_NAME in ('TEXTDE', 'NAMEEN')")
+						.getResultList();
+				assertTrue(columns.isEmpty());
+				return null;
+			}
+		});
+		// nothing left to migrate on the next start
+		assertEquals(0, migrate());
+	}
+
+	@Test
+	public void currentSchemaIsLeftAlone() throws Throwable {
+		TestApplication.insertCategories(2, 3);
+		assertEquals(0, migrate());
+		JPA.withTransaction("default", true, new Function0<Void>() {
+
+			@Override
+			public Void apply() throws Throwable {
+				assertFalse(QuizDAO.INSTANCE
+						.isImported(JSONDataInserter.IMPORT_NAME));
+				return null;
+			}
+		});
+	}
+
+	private static int migrate() throws Throwable {
+		return JPA.withTransaction(new Function0<Integer>() {
+
+			@Override
+			public Integer apply() throws Throwable {
+				return TextColumnMigration.migrate();
+			}
+		});
+	}
+
+	private static void addColumn(EntityManager em, String table,
+			String column) {
+		execute(em, "alter table " + table + " add column " + column
+				+ " varchar(255)");
+	}
+
+	private static void execute(EntityManager em, String sql) {
+		em.createNativeQuery(sql).executeUpdate();
+	}
+}
@@ -0,0 +1,78 @@
+package highscore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Charsets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * High score board on loopback which answers every request with the same
+ * SOAP response
+ */
+class FakeHighScoreBoard implements HttpHandler {
+
+	static final String UUID = "1a2b3c4d-0000-0000-0000-000000000000";
+
+	static final String RESPONSE = "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+			+ "<SOAP-ENV:Header/><SOAP-ENV:Body>"
+			+ "<data:HighScoreResponse xmlns:data=\"http://big.tuwien.ac.at/we/highscore/data\">"
+			+ UUID
+			+ "</data:HighScoreResponse></SOAP-ENV:Body></SOAP-ENV:Envelope>";
+
+	private final HttpServer server;
+	private final AtomicInteger requests = new AtomicInteger();
+	private volatile String response = RESPONSE;
+
+	FakeHighScoreBoard() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(
+				InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/highscore", this);
+		server.start();
+	}
+
+	URL getUrl() throws MalformedURLException {
+		return new URL("http://127.0.0.1:" + server.getAddress().getPort()
+				+ "/highscore");
+	}
+
+	void setResponse(String response) {
+		this.response = response;
+	}
+
+	int getRequests() {
+		return requests.get();
+	}
+
+	void stop() {
+		server.stop(0);
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		InputStream in = exchange.getRequestBody();
+		ByteArrayOutputStream request = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) >= 0)
+			request.write(buffer, 0, read);
+
+		byte[] body = response.getBytes(Charsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type",
+				"text/xml; charset=utf-8");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+}
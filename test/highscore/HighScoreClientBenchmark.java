@@ -0,0 +1,69 @@
+package highscore;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import models.PublishJob;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares publishing a result with the {@link SoapHighScoreService}, which
+ * builds a SAAJ message and connection per result, to the
+ * {@link HighScoreClient}. Both talk to a {@link FakeHighScoreBoard} on
+ * loopback, so the numbers are the client side cost. Run with
+ * <code>test:run-main org.openjdk.jmh.Main HighScoreClientBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class HighScoreClientBenchmark {
+
+	private FakeHighScoreBoard board;
+	private SoapHighScoreService soapService;
+	private HighScoreClient client;
+	private PublishJob job;
+
+	@Setup
+	public void setUp() throws IOException {
+		board = new FakeHighScoreBoard();
+		soapService = new SoapHighScoreService(board.getUrl(), "key");
+		client = new HighScoreClient(board.getUrl(), "key", 4, 1000, 2000);
+		job = HighScoreClientTest.job();
+	}
+
+	@TearDown
+	public void tearDown() {
+		board.stop();
+	}
+
+	@Benchmark
+	public String soapService() throws Exception {
+		return soapService.publish(job);
+	}
+
+	@Benchmark
+	public String highScoreClient() throws Exception {
+		return client.publish(job);
+	}
+
+	@Benchmark
+	public byte[] highScoreClientRequestOnly() throws Exception {
+		return client.createRequest(job);
+	}
+}
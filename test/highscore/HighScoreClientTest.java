@@ -0,0 +1,81 @@
+package highscore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Random;
+
+import javax.xml.stream.XMLStreamException;
+
+import models.PublishJob;
+import models.QuestionCatalog;
+import models.QuizGame;
+import models.QuizUser;
+import models.QuizUser.Gender;
+import models.UniformSelectionStrategy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+public class HighScoreClientTest {
+
+	private FakeHighScoreBoard board;
+	private HighScoreClient client;
+
+	@Before
+	public void setUp() throws IOException {
+		board = new FakeHighScoreBoard();
+		client = new HighScoreClient(board.getUrl(), "key", 2, 1000, 2000);
+	}
+
+	@After
+	public void tearDown() {
+		board.stop();
+	}
+
+	@Test
+	public void publishReturnsTheUuidOfTheResponse() throws Exception {
+		assertEquals(FakeHighScoreBoard.UUID, client.publish(job()));
+		assertEquals(FakeHighScoreBoard.UUID, client.publish(job()));
+		assertEquals(2, board.getRequests());
+	}
+
+	@Test
+	public void requestContainsBothPlayers() throws Exception {
+		String request = new String(client.createRequest(job()),
+				Charsets.UTF_8);
+		assertTrue(request.contains("<firstname>Max</firstname>"));
+		assertTrue(request.contains("<firstname>Com</firstname>"));
+		assertTrue(request.contains("<data:UserKey>key</data:UserKey>"));
+	}
+
+	@Test
+	public void externalEntitiesInTheResponseAreNotResolved() throws Exception {
+		board.setResponse("<?xml version=\"1.0\"?>"
+				+ "<!DOCTYPE foo [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>"
+				+ FakeHighScoreBoard.RESPONSE.replace(FakeHighScoreBoard.UUID,
+						"&xxe;"));
+		try {
+			assertFalse(client.publish(job()).contains("root:"));
+		} catch (XMLStreamException e) {
+			// rejected, which is fine as well
+		}
+	}
+
+	static PublishJob job() {
+		QuizUser user = new QuizUser();
+		user.setName("max");
+		user.setFirstName("Max");
+		user.setLastName("Mustermann");
+		user.setGender(Gender.male);
+		user.setBirthDate(new Date(0));
+		return PublishJob.forGame(new QuizGame(QuestionCatalog.current(),
+				user, UniformSelectionStrategy.INSTANCE, new Random(1)), "max");
+	}
+}
@@ -0,0 +1,110 @@
+package history;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import models.AnswerEvent;
+import models.Question;
+import models.QuizGame;
+import models.QuizUser;
+import models.Round;
+import models.TestApplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import play.test.FakeApplication;
+
+public class AnswerLogTest {
+
+	private FakeApplication app;
+	private RecordingLog log;
+	private QuizGame game;
+
+	@Before
+	public void setUp() throws Throwable {
+		app = TestApplication.start();
+		QuizUser human = new QuizUser();
+		human.setId(1L);
+		human.setName("Human");
+		game = new QuizGame(TestApplication.insertCategories(5, 3), human);
+		game.startRound(1);
+		log = new RecordingLog();
+		// flushed by the tests only
+		log.start(100, 3600000, 1000);
+		game.setListener(log);
+	}
+
+	@After
+	public void tearDown() {
+		log.stop();
+		TestApplication.stop(app);
+	}
+
+	@Test
+	public void failedBatchIsWrittenFirstOnTheNextFlush() {
+		answerNextQuestion();
+		log.failures = 1;
+		log.flush();
+		assertEquals(2, log.getPendingCount());
+		assertEquals(0, log.getWrittenCount());
+
+		answerNextQuestion();
+		log.flush();
+		assertEquals(0, log.getPendingCount());
+		assertEquals(4, log.getWrittenCount());
+		assertEquals(2, log.batches.size());
+		for (AnswerEvent event : log.batches.get(0))
+			assertEquals(0, event.getQuestionNumber());
+		for (AnswerEvent event : log.batches.get(1))
+			assertEquals(1, event.getQuestionNumber());
+	}
+
+	@Test
+	public void failedBatchIsDroppedAfterTheLastAttempt() {
+		answerNextQuestion();
+		log.failures = Integer.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, log.getDroppedCount());
+			log.flush();
+		}
+		assertEquals(0, log.getPendingCount());
+		assertEquals(2, log.getDroppedCount());
+
+		log.failures = 0;
+		answerNextQuestion();
+		log.flush();
+		assertEquals(2, log.getWrittenCount());
+	}
+
+	private void answerNextQuestion() {
+		Round round = game.getCurrentRound();
+		for (QuizUser player : game.getPlayers()) {
+			Question question = round.getCurrentQuestion(player);
+			round.answerCurrentQuestion(question.getChoices().subList(0, 1),
+					1000, player);
+		}
+	}
+
+	/**
+	 * Records the written batches instead of storing them, after failing the
+	 * given number of times
+	 */
+	private static class RecordingLog extends AnswerLog {
+
+		private final List<List<AnswerEvent>> batches = new ArrayList<>();
+		private int failures;
+
+		@Override
+		void write(List<AnswerEvent> batch) throws Throwable {
+			if (failures > 0) {
+				failures--;
+				throw new IllegalStateException("DB not available");
+			}
+			batches.add(new ArrayList<>(batch));
+		}
+	}
+}
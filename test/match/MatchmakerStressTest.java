@@ -0,0 +1,195 @@
+package match;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import models.Answer;
+import models.Choice;
+import models.GameListeners;
+import models.IGameListener;
+import models.Question;
+import models.QuestionCatalog;
+import models.QuizGame;
+import models.QuizUser;
+import models.Round;
+import models.TestApplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import play.test.FakeApplication;
+
+/**
+ * Many users join the matchmaker at once and play their games concurrently.
+ * Every player answers the even questions correctly, the first player of a
+ * game a second faster, so the tallies and the winners of all rounds are
+ * known in advance.
+ */
+public class MatchmakerStressTest {
+
+	private static final int PAIRS = 32;
+	private static final int ROUNDS = 5;
+
+	private FakeApplication app;
+	private QuestionCatalog catalog;
+	private final AtomicInteger answers = new AtomicInteger();
+	private final List<QuizGame> gamesOver = new CopyOnWriteArrayList<>();
+	private final IGameListener listener = new IGameListener() {
+
+		@Override
+		public void answerAccepted(QuizGame game, int roundNumber,
+				int questionNumber, Answer answer) {
+			answers.incrementAndGet();
+		}
+
+		@Override
+		public void gameOver(QuizGame game) {
+			gamesOver.add(game);
+		}
+	};
+
+	@Before
+	public void setUp() throws Throwable {
+		app = TestApplication.start();
+		catalog = TestApplication.insertCategories(ROUNDS, 10);
+		Matchmaker.INSTANCE.stop();
+		GameListeners.INSTANCE.add(listener);
+	}
+
+	@After
+	public void tearDown() {
+		GameListeners.INSTANCE.remove(listener);
+		Matchmaker.INSTANCE.stop();
+		TestApplication.stop(app);
+	}
+
+	@Test
+	public void concurrentPlayersFinishTheirGamesOnce() throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<MatchTicket> tickets = new CopyOnWriteArrayList<>();
+		final List<Throwable> failures = new CopyOnWriteArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 2 * PAIRS; i++) {
+			final QuizUser user = new QuizUser();
+			user.setName("user" + i);
+			threads.add(new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						start.await();
+						MatchTicket ticket = Matchmaker.INSTANCE.join(user,
+								catalog);
+						tickets.add(ticket);
+						while (!ticket.isMatched())
+							Thread.yield();
+						play(ticket.getGame(), ticket.getUser());
+					} catch (Throwable e) {
+						failures.add(e);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		start.countDown();
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals(Collections.emptyList(), failures);
+		assertEquals(0, Matchmaker.INSTANCE.getWaitingCount());
+		assertEquals(PAIRS, Matchmaker.INSTANCE.getGameCount());
+
+		Set<QuizGame> games = Collections
+				.newSetFromMap(new IdentityHashMap<QuizGame, Boolean>());
+		Set<QuizUser> players = Collections
+				.newSetFromMap(new IdentityHashMap<QuizUser, Boolean>());
+		int questions = 0;
+		for (MatchTicket ticket : tickets) {
+			QuizGame game = ticket.getGame();
+			assertNotNull(Matchmaker.INSTANCE.getGame(game.getId()));
+			assertTrue(game.getPlayers().contains(ticket.getUser()));
+			assertTrue(players.add(ticket.getUser()));
+			if (games.add(game))
+				questions += checkTallies(game);
+		}
+		assertEquals(PAIRS, games.size());
+		assertEquals(2 * questions, answers.get());
+
+		// the last round of a game being over more than once would notify
+		// twice
+		assertEquals(PAIRS, gamesOver.size());
+		Set<QuizGame> distinct = Collections
+				.newSetFromMap(new IdentityHashMap<QuizGame, Boolean>());
+		distinct.addAll(gamesOver);
+		assertEquals(games, distinct);
+	}
+
+	/**
+	 * Play all rounds, the round is started by whichever player comes first
+	 */
+	private static void play(QuizGame game, QuizUser player) {
+		int offset = game.getPlayers().indexOf(player);
+		for (int r = 1; r <= ROUNDS; r++) {
+			while (game.getCurrentRoundCount() < r)
+				if (!game.startRound(r))
+					Thread.yield();
+			Round round = game.getRound(r);
+			Question question;
+			while ((question = round.getCurrentQuestion(player)) != null) {
+				int number = round.getAnsweredQuestions(player);
+				game.answerCurrentQuestion(player, choices(question, number),
+						number + 1 + offset);
+			}
+			while (!round.areAllQuestionsAnswered())
+				Thread.yield();
+		}
+	}
+
+	private static List<Choice> choices(Question question, int number) {
+		return number % 2 == 0 ? question.getCorrectChoices() : Collections
+				.<Choice> emptyList();
+	}
+
+	/**
+	 * Check the tallies of all rounds and that every round has been counted
+	 * once for the first player, who wins all of them
+	 *
+	 * @return the number of questions of the game
+	 */
+	private static int checkTallies(QuizGame game) {
+		assertEquals(ROUNDS, game.getCurrentRoundCount());
+		assertTrue(game.isGameOver());
+		List<QuizUser> players = game.getPlayers();
+		int questions = 0;
+		for (int r = 1; r <= ROUNDS; r++) {
+			Round round = game.getRound(r);
+			int count = round.getQuestions().size();
+			questions += count;
+			for (int p = 0; p < players.size(); p++) {
+				QuizUser player = players.get(p);
+				assertEquals(count, round.getAnsweredQuestions(player));
+				assertEquals((count + 1) / 2, round.getCorrectAnswers(player));
+				assertEquals(count * (count + 1) / 2 + count * p,
+						round.getTotalTime(player));
+			}
+			assertSame(players.get(0), round.getRoundWinner());
+		}
+		assertEquals(ROUNDS, game.getWonRounds(players.get(0)));
+		assertEquals(0, game.getWonRounds(players.get(1)));
+		assertSame(players.get(0), game.getWinner());
+		return questions;
+	}
+}
@@ -0,0 +1,124 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import play.test.FakeApplication;
+
+public class GameReplayTest {
+
+	private FakeApplication app;
+
+	@Before
+	public void setUp() {
+		app = TestApplication.start();
+	}
+
+	@After
+	public void tearDown() {
+		TestApplication.stop(app);
+	}
+
+	@Test
+	public void replayedGameHasTheLoggedAnswers() throws Throwable {
+		QuestionCatalog catalog = TestApplication.insertCategories(5, 3);
+		List<AnswerEvent> events = new ArrayList<>();
+		QuizGame game = playedGame(catalog, events);
+
+		assertSameAnswers(game, GameReplay.replay("game", events, catalog));
+	}
+
+	@Test
+	public void gameIsReplayedAfterTheQuestionsHaveBeenImportedAgain()
+			throws Throwable {
+		List<AnswerEvent> events = new ArrayList<>();
+		QuizGame game = playedGame(TestApplication.insertCategories(5, 3),
+				events);
+
+		TestApplication.stop(app);
+		app = TestApplication.start();
+		// take the ids the questions had before
+		TestApplication.insertUsers(0, 100, "hash");
+		QuestionCatalog imported = TestApplication.insertCategories(5, 3);
+		AnswerEvent first = events.get(0);
+		assertTrue(first.getQuestionId() != imported
+				.findQuestionByKey(first.getQuestionKey()).getId());
+
+		assertSameAnswers(game, GameReplay.replay("game", events, imported));
+	}
+
+	private static QuizGame playedGame(QuestionCatalog catalog,
+			final List<AnswerEvent> events) {
+		QuizUser human = new QuizUser();
+		human.setId(1L);
+		human.setName("Human");
+		QuizGame game = new QuizGame(catalog, human);
+		game.setId("game");
+		game.setListener(new IGameListener() {
+
+			@Override
+			public void answerAccepted(QuizGame game, int roundNumber,
+					int questionNumber, Answer answer) {
+				events.add(AnswerEvent.of(game, roundNumber, questionNumber,
+						answer));
+			}
+
+			@Override
+			public void gameOver(QuizGame game) {
+			}
+		});
+		int n = 0;
+		for (int r = 1; game.startRound(r); r++) {
+			Round round = game.getCurrentRound();
+			for (Question question : round.getQuestions()) {
+				for (QuizUser player : game.getPlayers()) {
+					n++;
+					round.answerCurrentQuestion(question.getChoices()
+							.subList(0, n % 4), 1000 * n, player);
+				}
+			}
+		}
+		assertTrue(game.isGameOver());
+		return game;
+	}
+
+	private static void assertSameAnswers(QuizGame expected, QuizGame actual) {
+		assertNotNull(actual);
+		assertEquals(expected.getCurrentRoundCount(),
+				actual.getCurrentRoundCount());
+		for (int r = 0; r < expected.getRounds().size(); r++) {
+			Round expectedRound = expected.getRounds().get(r);
+			Round actualRound = actual.getRounds().get(r);
+			for (int p = 0; p < expected.getPlayers().size(); p++) {
+				for (int q = 0; q < expectedRound.getQuestions().size(); q++) {
+					Answer expectedAnswer = expectedRound.getAnswer(q,
+							expected.getPlayers().get(p));
+					Answer actualAnswer = actualRound.getAnswer(q, actual
+							.getPlayers().get(p));
+					assertEquals(keys(expected.getCatalog(),
+							expectedAnswer.getChoices()),
+							keys(actual.getCatalog(), actualAnswer.getChoices()));
+					assertEquals(expectedAnswer.getTime(),
+							actualAnswer.getTime());
+				}
+			}
+		}
+		assertEquals(expected.isGameOver(), actual.isGameOver());
+	}
+
+	private static List<Long> keys(QuestionCatalog catalog,
+			List<Choice> choices) {
+		List<Long> keys = new ArrayList<>();
+		for (Choice choice : choices)
+			keys.add(catalog.keyOf(choice));
+		return keys;
+	}
+}
@@ -0,0 +1,123 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import play.db.jpa.JPA;
+import play.libs.F.Function0;
+import play.test.FakeApplication;
+
+public class QuestionCatalogTest {
+
+	private FakeApplication app;
+
+	@Before
+	public void setUp() {
+		app = TestApplication.start();
+	}
+
+	@After
+	public void tearDown() {
+		TestApplication.stop(app);
+	}
+
+	@Test
+	public void categoriesAreLoadedWithTwoStatements() throws Throwable {
+		TestApplication.insertCategories(3, 4);
+		assertEquals(2, statementsOfLoading(3, 4));
+	}
+
+	@Test
+	public void statementCountDoesNotGrowWithTheCatalog() throws Throwable {
+		TestApplication.insertCategories(20, 25);
+		assertEquals(2, statementsOfLoading(20, 25));
+	}
+
+	@Test
+	public void catalogHoldsAllQuestions() throws Throwable {
+		QuestionCatalog catalog = TestApplication.insertCategories(5, 10);
+		assertEquals(5, catalog.getCategories().size());
+		for (Category category : catalog.getCategories()) {
+			List<Question> questions = catalog.getQuestions(category);
+			assertEquals(10, questions.size());
+			for (Question question : questions)
+				assertEquals(2, catalog.getCorrectChoices(question).size());
+		}
+	}
+
+	@Test
+	public void questionsWhichCantBeToldApartAreLeftOut() throws Throwable {
+		JPA.withTransaction(new Function0<Void>() {
+
+			@Override
+			public Void apply() throws Throwable {
+				Category category = new Category();
+				category.setName("Duplicates", "en");
+				category.setName("Duplikate", "de");
+				category.addQuestion(question("Same text", "A", "B"));
+				category.addQuestion(question("Same text", "C", "D"));
+				category.addQuestion(question("Same choices", "A", "A"));
+				category.addQuestion(question("Unique", "A", "B"));
+				QuizDAO.INSTANCE.persist(category);
+				return null;
+			}
+		});
+		QuestionCatalog catalog = QuestionCatalog.reload();
+		List<Question> questions = catalog.getQuestions(catalog
+				.getCategories().get(0));
+		assertEquals(1, questions.size());
+		assertEquals("Unique", questions.get(0).getText("en"));
+	}
+
+	private static Question question(String text, String right, String wrong) {
+		Question question = new Question();
+		question.setText(text, "en");
+		question.setText(text, "de");
+		question.setMaxTime(new BigDecimal(30));
+		Choice rightChoice = new Choice();
+		rightChoice.setText(right, "en");
+		rightChoice.setText(right, "de");
+		question.addRightChoice(rightChoice);
+		Choice wrongChoice = new Choice();
+		wrongChoice.setText(wrong, "en");
+		wrongChoice.setText(wrong, "de");
+		question.addWrongChoice(wrongChoice);
+		return question;
+	}
+
+	/**
+	 * Load the categories with a cleared persistence context and walk all
+	 * questions and choices
+	 *
+	 * @return the number of statements issued
+	 */
+	private static long statementsOfLoading(final int categories,
+			final int questionsPerCategory) throws Throwable {
+		return JPA.withTransaction("default", true, new Function0<Long>() {
+
+			@Override
+			public Long apply() throws Throwable {
+				JPA.em().clear();
+				Statistics statistics = QuizDAO.INSTANCE.getStatistics();
+				long before = statistics.getPrepareStatementCount();
+				List<Category> loaded = QuizDAO.INSTANCE
+						.findCategoriesWithQuestions();
+				assertEquals(categories, loaded.size());
+				for (Category category : loaded) {
+					assertEquals(questionsPerCategory, category.getQuestions()
+							.size());
+					for (Question question : category.getQuestions())
+						assertEquals(4, question.getChoices().size());
+				}
+				return statistics.getPrepareStatementCount() - before;
+			}
+		});
+	}
+}
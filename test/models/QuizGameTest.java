@@ -0,0 +1,23 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class QuizGameTest {
+
+	@Test(expected = IllegalStateException.class)
+	public void noRoundWithoutCategories() {
+		QuestionCatalog empty = QuestionCatalog.of(Collections
+				.<Category> emptyList());
+		QuizUser user = new QuizUser();
+		user.setName("player");
+		QuizGame game = new QuizGame(empty, user,
+				UniformSelectionStrategy.INSTANCE, new Random(1));
+		assertEquals(0, empty.getCategories().size());
+		game.startNewRound();
+	}
+}
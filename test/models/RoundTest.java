@@ -0,0 +1,378 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class RoundTest {
+
+	private static final int QUESTIONS = 3;
+	private static final int THREADS = 8;
+
+	private final QuizUser first = player("first");
+	private final QuizUser second = player("second");
+
+	@Test
+	public void answerIsAcceptedOncePerSlot() {
+		Round round = round(questions(QUESTIONS));
+		Question question = round.getQuestion(0);
+		assertTrue(round.answerQuestion(0, question.getCorrectChoices(), 5,
+				first));
+		assertFalse(round.answerQuestion(0, question.getWrongChoices(), 1,
+				first));
+
+		Answer answer = round.getAnswer(0, first);
+		assertTrue(answer.isCorrect());
+		assertEquals(5, answer.getTime());
+		assertEquals(1, round.getAnsweredQuestions(first));
+		assertEquals(0, round.getAnsweredQuestions(second));
+		assertNull(round.getAnswer(0, second));
+	}
+
+	@Test
+	public void answerOfAnotherThanTheCurrentQuestionIsRejected() {
+		Round round = round(questions(QUESTIONS));
+		assertFalse(round.answerQuestion(1,
+				round.getQuestion(1).getCorrectChoices(), 5, first));
+		assertFalse(round.answerQuestion(QUESTIONS,
+				Collections.<Choice> emptyList(), 5, first));
+		assertFalse(round.answerQuestion(0,
+				Collections.<Choice> emptyList(), 5, player("other")));
+		assertEquals(0, round.getAnsweredQuestions(first));
+		assertSame(round.getQuestion(0), round.getCurrentQuestion(first));
+	}
+
+	@Test
+	public void talliesCountCorrectAnswersAndTime() {
+		Round round = round(questions(QUESTIONS));
+		for (int i = 0; i < QUESTIONS; i++) {
+			Question question = round.getQuestion(i);
+			round.answerCurrentQuestion(i == 1 ? question.getWrongChoices()
+					: question.getCorrectChoices(), 10 + i, first);
+			round.answerCurrentQuestion(question.getCorrectChoices(), 20,
+					second);
+		}
+		assertEquals(2, round.getCorrectAnswers(first));
+		assertEquals(33, round.getTotalTime(first));
+		assertEquals(3, round.getCorrectAnswers(second));
+		assertEquals(60, round.getTotalTime(second));
+		assertSame(second, round.getRoundWinner());
+	}
+
+	@Test
+	public void ignoresAnswersOfFinishedPlayers() {
+		Round round = round(questions(QUESTIONS));
+		answerAll(round, first, 1);
+		round.answerCurrentQuestion(
+				round.getQuestion(0).getCorrectChoices(), 1, first);
+		assertEquals(QUESTIONS, round.getAnsweredQuestions(first));
+		assertEquals(QUESTIONS, round.getTotalTime(first));
+		assertNull(round.getCurrentQuestion(first));
+	}
+
+	@Test
+	public void roundIsOverOnceAllPlayersFinished() {
+		CountingGame game = new CountingGame(first, second);
+		Round round = game.restoreRound(questions(QUESTIONS));
+		answerAll(round, first, 1);
+		assertFalse(round.areAllQuestionsAnswered());
+		assertEquals(0, game.roundsOver.get());
+
+		answerAll(round, second, 2);
+		assertTrue(round.areAllQuestionsAnswered());
+		assertEquals(1, game.roundsOver.get());
+		// same number of correct answers, the faster player wins
+		assertSame(first, round.getRoundWinner());
+		assertEquals(1, game.getWonRounds(first));
+	}
+
+	@Test
+	public void tieHasNoWinner() {
+		Round round = round(questions(QUESTIONS));
+		answerAll(round, first, 1);
+		answerAll(round, second, 1);
+		assertTrue(round.areAllQuestionsAnswered());
+		assertNull(round.getRoundWinner());
+	}
+
+	@Test
+	public void roundWithoutQuestionsIsOverRightAway() {
+		CountingGame game = new CountingGame(first, second);
+		Round round = game.restoreRound(Collections.<Question> emptyList());
+		assertTrue(round.areAllQuestionsAnswered());
+		assertTrue(game.isRoundOver());
+		assertNull(round.getCurrentQuestion(first));
+		assertNull(round.getRoundWinner());
+		assertEquals(1, game.roundsOver.get());
+	}
+
+	@Test
+	public void gameOfRoundsWithoutQuestionsEnds() {
+		CountingGame game = new CountingGame(first, second);
+		final AtomicInteger gamesOver = new AtomicInteger();
+		game.setListener(new IGameListener() {
+
+			@Override
+			public void answerAccepted(QuizGame game, int roundNumber,
+					int questionNumber, Answer answer) {
+			}
+
+			@Override
+			public void gameOver(QuizGame game) {
+				gamesOver.incrementAndGet();
+			}
+		});
+		while (!game.isGameOver())
+			game.restoreRound(Collections.<Question> emptyList());
+		assertEquals(game.getCurrentRoundCount(), game.roundsOver.get());
+		assertEquals(1, gamesOver.get());
+		assertNull(game.getWinner());
+	}
+
+	@Test
+	public void concurrentAnswersClaimEachSlotOnce() throws Exception {
+		for (int run = 0; run < 50; run++) {
+			final CountingGame game = new CountingGame(first, second);
+			final Round round = game.restoreRound(questions(QUESTIONS));
+			final AtomicInteger accepted = new AtomicInteger();
+			final CountDownLatch start = new CountDownLatch(1);
+			List<Thread> threads = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				final QuizUser player = t % 2 == 0 ? first : second;
+				final long time = t + 1;
+				threads.add(new Thread() {
+
+					@Override
+					public void run() {
+						try {
+							start.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						for (int i = 0; i < QUESTIONS; i++) {
+							if (round.answerQuestion(i, round.getQuestion(i)
+									.getCorrectChoices(), time, player))
+								accepted.incrementAndGet();
+							while (round.getAnsweredQuestions(player) <= i)
+								Thread.yield();
+						}
+					}
+				});
+			}
+			for (Thread thread : threads)
+				thread.start();
+			start.countDown();
+			for (Thread thread : threads)
+				thread.join();
+
+			assertEquals(2 * QUESTIONS, accepted.get());
+			assertEquals(1, game.roundsOver.get());
+			assertTrue(round.areAllQuestionsAnswered());
+			for (QuizUser player : Arrays.asList(first, second)) {
+				assertEquals(QUESTIONS, round.getAnsweredQuestions(player));
+				assertEquals(QUESTIONS, round.getCorrectAnswers(player));
+				long time = 0;
+				for (int i = 0; i < QUESTIONS; i++)
+					time += round.getAnswer(i, player).getTime();
+				assertEquals(time, round.getTotalTime(player));
+			}
+		}
+	}
+
+	@Test
+	public void talliesMatchARescanOfRandomGames() {
+		Random random = new Random(13);
+		for (int run = 0; run < 200; run++) {
+			CountingGame game = new CountingGame(first, second);
+			Map<QuizUser, Integer> wonRounds = new HashMap<>();
+			while (!game.isGameOver()) {
+				List<Question> questions = new ArrayList<>();
+				for (int q = random.nextInt(5); q > 0; q--)
+					questions.add(randomQuestion(random));
+				Round round = game.restoreRound(questions);
+				// the players answer in random order
+				while (!round.areAllQuestionsAnswered()) {
+					QuizUser player = random.nextBoolean() ? first : second;
+					Question question = round.getCurrentQuestion(player);
+					if (question == null)
+						continue;
+					round.answerCurrentQuestion(randomChoices(random,
+							question), random.nextInt(4), player);
+					for (QuizUser each : Arrays.asList(first, second)) {
+						assertEquals(rescanCorrectAnswers(round, each),
+								round.getCorrectAnswers(each));
+						assertEquals(rescanTotalTime(round, each),
+								round.getTotalTime(each));
+					}
+				}
+				QuizUser winner = rescanWinner(round);
+				assertSame(winner, round.getRoundWinner());
+				if (winner != null)
+					wonRounds.put(winner, wonRounds.containsKey(winner)
+							? wonRounds.get(winner) + 1 : 1);
+			}
+			for (QuizUser player : Arrays.asList(first, second))
+				assertEquals(wonRounds.containsKey(player) ? wonRounds
+						.get(player) : 0, game.getWonRounds(player));
+		}
+	}
+
+	private static int rescanCorrectAnswers(Round round, QuizUser player) {
+		int correct = 0;
+		for (int i = 0; i < round.getQuestions().size(); i++) {
+			Answer answer = round.getAnswer(i, player);
+			if (answer == null)
+				continue;
+			Set<Choice> selected = new HashSet<>(answer.getChoices());
+			if (!selected.isEmpty()
+					&& selected.equals(new HashSet<>(round.getQuestion(i)
+							.getCorrectChoices())))
+				correct++;
+		}
+		return correct;
+	}
+
+	private static long rescanTotalTime(Round round, QuizUser player) {
+		long time = 0;
+		for (int i = 0; i < round.getQuestions().size(); i++) {
+			Answer answer = round.getAnswer(i, player);
+			if (answer != null)
+				time += answer.getTime();
+		}
+		return time;
+	}
+
+	/**
+	 * @return the player with the most correct answers, of those the fastest
+	 *         one, or null on a tie
+	 */
+	private static QuizUser rescanWinner(Round round) {
+		QuizUser best = null;
+		boolean tie = false;
+		for (QuizUser player : round.getPlayers()) {
+			if (best == null) {
+				best = player;
+				continue;
+			}
+			int correct = rescanCorrectAnswers(round, player);
+			int bestCorrect = rescanCorrectAnswers(round, best);
+			long time = rescanTotalTime(round, player);
+			long bestTime = rescanTotalTime(round, best);
+			if (correct > bestCorrect
+					|| (correct == bestCorrect && time < bestTime)) {
+				best = player;
+				tie = false;
+			} else if (correct == bestCorrect && time == bestTime) {
+				tie = true;
+			}
+		}
+		return tie ? null : best;
+	}
+
+	/**
+	 * A question with up to six choices, sometimes with too many choices for a
+	 * choice mask
+	 */
+	private static Question randomQuestion(Random random) {
+		Question question = new Question();
+		question.setTextEN("Question");
+		question.setMaxTime(BigDecimal.valueOf(30));
+		int choices = random.nextInt(20) == 0 ? Question.MAX_MASK_CHOICES + 1
+				: 1 + random.nextInt(6);
+		for (int c = 0; c < choices; c++) {
+			Choice choice = new Choice();
+			choice.setTextEN("Choice " + c);
+			if (random.nextBoolean())
+				question.addRightChoice(choice);
+			else
+				question.addWrongChoice(choice);
+		}
+		return question;
+	}
+
+	/**
+	 * Mostly the correct choices, otherwise any subset of the choices
+	 */
+	private static List<Choice> randomChoices(Random random, Question question) {
+		if (random.nextBoolean())
+			return question.getCorrectChoices();
+		List<Choice> choices = new ArrayList<>();
+		for (Choice choice : question.getChoices()) {
+			if (random.nextInt(3) == 0)
+				choices.add(choice);
+		}
+		return choices;
+	}
+
+	private Round round(List<Question> questions) {
+		Round round = new Round();
+		round.initialize(Arrays.asList(first, second), questions);
+		return round;
+	}
+
+	private static void answerAll(Round round, QuizUser player, long time) {
+		for (int i = 0; i < round.getQuestions().size(); i++)
+			assertTrue(round.answerQuestion(i, round.getQuestion(i)
+					.getCorrectChoices(), time, player));
+	}
+
+	private static List<Question> questions(int count) {
+		List<Question> questions = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Question question = new Question();
+			question.setTextEN("Question " + i);
+			question.setMaxTime(BigDecimal.valueOf(30));
+			for (int c = 0; c < 4; c++) {
+				Choice choice = new Choice();
+				choice.setTextEN("Choice " + c);
+				if (c % 2 == 0)
+					question.addRightChoice(choice);
+				else
+					question.addWrongChoice(choice);
+			}
+			questions.add(question);
+		}
+		return questions;
+	}
+
+	private static QuizUser player(String name) {
+		QuizUser user = new QuizUser();
+		user.setName(name);
+		return user;
+	}
+
+	/**
+	 * Game of two players counting the rounds which are over
+	 */
+	private static class CountingGame extends QuizGame {
+
+		private final AtomicInteger roundsOver = new AtomicInteger();
+
+		CountingGame(QuizUser first, QuizUser second) {
+			super(QuestionCatalog.current(), first, second);
+		}
+
+		@Override
+		void roundOver(Round round) {
+			roundsOver.incrementAndGet();
+			super.roundOver(round);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package models;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import play.GlobalSettings;
+import play.db.jpa.JPA;
+import play.libs.F.Function0;
+import play.test.FakeApplication;
+import play.test.Helpers;
+
+/**
+ * Application with an empty in-memory DB for tests and benchmarks which need
+ * JPA. The questions are not imported and no background service is started,
+ * {@link #insertCategories(int, int)} stores generated ones. Unlike in
+ * production the statistics of Hibernate are collected, so tests can count
+ * statements.
+ */
+public class TestApplication {
+
+	private TestApplication() {
+	}
+
+	public static FakeApplication start() {
+		Map<String, Object> config = new HashMap<String, Object>(
+				Helpers.inMemoryDatabase("default"));
+		FakeApplication app = Helpers.fakeApplication(config,
+				new GlobalSettings());
+		Helpers.start(app);
+		try {
+			JPA.withTransaction(new Function0<Void>() {
+
+				@Override
+				public Void apply() throws Throwable {
+					QuizDAO.INSTANCE.getStatistics().setStatisticsEnabled(true);
+					return null;
+				}
+			});
+		} catch (Throwable e) {
+			Helpers.stop(app);
+			throw new IllegalStateException(e);
+		}
+		return app;
+	}
+
+	public static void stop(FakeApplication app) {
+		Helpers.stop(app);
+	}
+
+	/**
+	 * Store users named {@link #userName(int)} with the given password hash,
+	 * in transactions of 1000 users
+	 *
+	 * @param from
+	 *            number of the first user
+	 * @param count
+	 * @param passwordHash
+	 */
+	public static void insertUsers(final int from, int count,
+			final String passwordHash) throws Throwable {
+		for (int start = from; start < from + count; start += 1000) {
+			final int end = Math.min(start + 1000, from + count);
+			final int first = start;
+			JPA.withTransaction(new Function0<Void>() {
+
+				@Override
+				public Void apply() throws Throwable {
+					for (int i = first; i < end; i++) {
+						QuizUser user = new QuizUser();
+						user.setUserName(userName(i));
+						user.setPassword("pass");
+						user.setPasswordHash(passwordHash);
+						user.setFirstName("First" + i);
+						user.setLastName("Last" + i);
+						QuizDAO.INSTANCE.persist(user);
+					}
+					JPA.em().flush();
+					JPA.em().clear();
+					return null;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Store categories with questions of two correct and two wrong choices
+	 * and load them into the {@link QuestionCatalog}
+	 *
+	 * @param categories
+	 * @param questionsPerCategory
+	 * @return the loaded catalog
+	 */
+	public static QuestionCatalog insertCategories(int categories,
+			int questionsPerCategory) throws Throwable {
+		return insertCategories(categories, questionsPerCategory, 4);
+	}
+
+	/**
+	 * Store categories with questions of which the first half of the choices
+	 * is correct and load them into the {@link QuestionCatalog}
+	 *
+	 * @param categories
+	 * @param questionsPerCategory
+	 * @param choicesPerQuestion
+	 * @return the loaded catalog
+	 */
+	public static QuestionCatalog insertCategories(final int categories,
+			final int questionsPerCategory, final int choicesPerQuestion)
+			throws Throwable {
+		JPA.withTransaction(new Function0<Void>() {
+
+			@Override
+			public Void apply() throws Throwable {
+				for (int c = 0; c < categories; c++) {
+					Category category = new Category();
+					category.setName("Category " + c, "en");
+					category.setName("Kategorie " + c, "de");
+					for (int q = 0; q < questionsPerCategory; q++) {
+						Question question = new Question();
+						question.setText("Question " + c + "." + q, "en");
+						question.setText("Frage " + c + "." + q, "de");
+						question.setMaxTime(new BigDecimal(30));
+						for (int i = 0; i < choicesPerQuestion; i++) {
+							Choice choice = new Choice();
+							choice.setText("Choice " + i, "en");
+							choice.setText("Antwort " + i, "de");
+							if (i < choicesPerQuestion / 2)
+								question.addRightChoice(choice);
+							else
+								question.addWrongChoice(choice);
+						}
+						category.addQuestion(question);
+					}
+					QuizDAO.INSTANCE.persist(category);
+				}
+				return null;
+			}
+		});
+		return QuestionCatalog.reload();
+	}
+
+	/**
+	 * @param number
+	 * @return a valid user name, unique for each number below 10 million
+	 */
+	public static String userName(int number) {
+		return String.format("u%07d", number);
+	}
+}
@@ -0,0 +1,93 @@
+package models;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import play.db.jpa.JPA;
+import play.libs.F.Function0;
+import play.test.FakeApplication;
+
+/**
+ * Latency of the user name lookups of login and registration for a growing
+ * number of registered users. Run with
+ * <code>test:run-main org.openjdk.jmh.Main UserLookupBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserLookupBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int users;
+
+	private FakeApplication app;
+
+	@Setup
+	public void setUp() throws Throwable {
+		app = TestApplication.start();
+		TestApplication.insertUsers(0, users, null);
+		JPA.withTransaction(new Function0<Void>() {
+
+			@Override
+			public Void apply() throws Throwable {
+				QuizDAO.INSTANCE.loadUserNames();
+				return null;
+			}
+		});
+	}
+
+	@TearDown
+	public void tearDown() {
+		TestApplication.stop(app);
+	}
+
+	/**
+	 * Load a registered user like the login does
+	 */
+	@Benchmark
+	public QuizUser login() throws Throwable {
+		final String name = TestApplication.userName(ThreadLocalRandom
+				.current().nextInt(users));
+		return JPA.withTransaction("default", true,
+				new Function0<QuizUser>() {
+
+					@Override
+					public QuizUser apply() throws Throwable {
+						return QuizDAO.INSTANCE.findByUserName(name);
+					}
+				});
+	}
+
+	/**
+	 * Check a name which is still free like the registration does
+	 */
+	@Benchmark
+	public boolean freeUserName() throws Throwable {
+		final String name = TestApplication.userName(users
+				+ ThreadLocalRandom.current().nextInt(users));
+		return JPA.withTransaction("default", true,
+				new Function0<Boolean>() {
+
+					@Override
+					public Boolean apply() throws Throwable {
+						return QuizDAO.INSTANCE.isUserNameTaken(name);
+					}
+				});
+	}
+}
@@ -0,0 +1,87 @@
+package ranking;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ScoreBoardTest {
+
+	@Test
+	public void keepsTheBestScoresInOrder() {
+		ScoreBoard board = new ScoreBoard(2);
+		assertTrue(board.offer(new ScoreEntry(1, "a", 5, 100, 0)));
+		assertTrue(board.offer(new ScoreEntry(2, "b", 7, 100, 0)));
+		assertTrue(board.offer(new ScoreEntry(3, "c", 5, 50, 0)));
+		assertFalse(board.offer(new ScoreEntry(4, "d", 1, 10, 0)));
+		assertEquals(userIds(2, 3), userIds(board.snapshot()));
+	}
+
+	@Test
+	public void keepsOnlyTheBestScoreOfAUser() {
+		ScoreBoard board = new ScoreBoard(3);
+		assertTrue(board.offer(new ScoreEntry(1, "a", 5, 100, 0)));
+		assertFalse(board.offer(new ScoreEntry(1, "a", 4, 100, 1)));
+		assertTrue(board.offer(new ScoreEntry(1, "a", 6, 100, 2)));
+		assertTrue(board.offer(new ScoreEntry(2, "b", 3, 100, 0)));
+		List<ScoreEntry> scores = board.snapshot();
+		assertEquals(userIds(1, 2), userIds(scores));
+		assertEquals(6, scores.get(0).getScore());
+	}
+
+	@Test
+	public void userDroppedFromAFullBoardCanReturn() {
+		ScoreBoard board = new ScoreBoard(1);
+		assertTrue(board.offer(new ScoreEntry(1, "a", 5, 100, 0)));
+		assertTrue(board.offer(new ScoreEntry(2, "b", 6, 100, 0)));
+		assertTrue(board.offer(new ScoreEntry(1, "a", 7, 100, 1)));
+		assertEquals(userIds(1), userIds(board.snapshot()));
+	}
+
+	@Test
+	public void concurrentOffersKeepTheBestScores() throws Exception {
+		final ScoreBoard board = new ScoreBoard(10);
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			final int thread = t;
+			threads.add(new Thread() {
+
+				@Override
+				public void run() {
+					for (int i = 0; i < 1000; i++)
+						board.offer(new ScoreEntry(i, "u" + i, i % 100, thread,
+								0));
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+
+		List<ScoreEntry> scores = board.snapshot();
+		assertEquals(10, scores.size());
+		for (ScoreEntry score : scores) {
+			assertEquals(99, score.getScore());
+			assertEquals(0, score.getTime());
+		}
+	}
+
+	private static List<Long> userIds(long... ids) {
+		List<Long> result = new ArrayList<>();
+		for (long id : ids)
+			result.add(id);
+		return result;
+	}
+
+	private static List<Long> userIds(List<ScoreEntry> scores) {
+		List<Long> result = new ArrayList<>();
+		for (ScoreEntry score : scores)
+			result.add(score.getUserId());
+		return result;
+	}
+}
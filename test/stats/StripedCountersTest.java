@@ -0,0 +1,52 @@
+package stats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class StripedCountersTest {
+
+	@Test
+	public void uncontendedUpdatesAreSummedUp() {
+		StripedCounters counters = new StripedCounters(3);
+		counters.add(0, 1);
+		counters.add(2, 5);
+		counters.add(2, -2);
+		assertArrayEquals(new long[] { 1, 0, 3 }, counters.sums());
+	}
+
+	@Test
+	public void concurrentUpdatesAreNotLost() throws Exception {
+		final int threads = 8;
+		final int updates = 100000;
+		final StripedCounters counters = new StripedCounters(10);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		for (int i = 0; i < threads; i++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int j = 0; j < updates; j++)
+						counters.add(j % counters.size(), 1);
+				}
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+
+		for (long sum : counters.sums())
+			assertEquals(threads * updates / counters.size(), sum);
+	}
+}
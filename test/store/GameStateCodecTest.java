@@ -0,0 +1,179 @@
+package store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import models.Answer;
+import models.GameStateCodec;
+import models.Question;
+import models.QuestionCatalog;
+import models.QuizGame;
+import models.QuizUser;
+import models.Round;
+import models.TestApplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import play.test.FakeApplication;
+
+public class GameStateCodecTest {
+
+	// a clustered store puts a version of 8 bytes in front of the state
+	private static final int VERSION_SIZE = 8;
+	private static final long HOUR = 3600000L;
+
+	private FakeApplication app;
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		app = TestApplication.start();
+		file = File.createTempFile("games", ".bin");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+		TestApplication.stop(app);
+	}
+
+	@Test
+	public void finishedGameWithAllChoicesSelectedFitsTheDefaultSlot()
+			throws Throwable {
+		QuestionCatalog catalog = TestApplication.insertCategories(5, 3,
+				Question.MAX_MASK_CHOICES);
+		QuizGame game = finishedGame(catalog, human(), HOUR);
+		byte[] state = GameStateCodec.encode(game);
+
+		MappedFileGameStateStore store = new MappedFileGameStateStore(file, 1,
+				GameStateStores.DEFAULT_SLOT_SIZE, 60000);
+		assertTrue(state.length + " bytes", state.length + VERSION_SIZE
+				<= store.getMaxStateSize());
+		store.put("game", state);
+		assertArrayEquals(state, store.get("game"));
+	}
+
+	@Test
+	public void gameWithAnswersIsRestored() throws Throwable {
+		QuestionCatalog catalog = TestApplication.insertCategories(5, 3);
+		QuizUser human = human();
+		QuizGame game = new QuizGame(catalog, human);
+		// three finished rounds and one answer of the fourth
+		for (int n = 0; n < 10; n++) {
+			if (game.getCurrentRoundCount() == 0 || game.isRoundOver())
+				game.startNewRound();
+			Question question = game.getCurrentRound().getCurrentQuestion(
+					human);
+			game.answerCurrentQuestion(human,
+					question.getChoices().subList(0, n % 5), 1000 * n + 7);
+		}
+
+		QuizGame restored = GameStateCodec.decode(GameStateCodec.encode(game),
+				catalog, human);
+		assertNotNull(restored);
+		assertEquals(game.getId(), restored.getId());
+		assertEquals(4, restored.getCurrentRoundCount());
+		for (int r = 1; r <= 4; r++) {
+			Round round = game.getRound(r);
+			Round restoredRound = restored.getRound(r);
+			assertEquals(round.getQuestions(), restoredRound.getQuestions());
+			for (int p = 0; p < 2; p++) {
+				for (int q = 0; q < round.getQuestions().size(); q++)
+					assertSameAnswer(round.getAnswer(q, game.getPlayers()
+							.get(p)), restoredRound.getAnswer(q, restored
+							.getPlayers().get(p)));
+			}
+		}
+		assertEquals(game.getWonRounds(human), restored.getWonRounds(human));
+	}
+
+	@Test
+	public void truncatedStateIsNotDecoded() throws Throwable {
+		QuestionCatalog catalog = TestApplication.insertCategories(5, 3);
+		QuizUser human = human();
+		byte[] state = GameStateCodec.encode(finishedGame(catalog, human, 5000));
+		for (int length = 0; length < state.length; length++)
+			assertNull(GameStateCodec.decode(Arrays.copyOf(state, length),
+					catalog, human));
+	}
+
+	@Test
+	public void stateOfOtherVersionIsNotDecoded() throws Throwable {
+		QuestionCatalog catalog = TestApplication.insertCategories(5, 3);
+		QuizUser human = human();
+		byte[] state = GameStateCodec.encode(finishedGame(catalog, human, 5000));
+		// the version is the first byte, a zig-zag encoded variable length
+		// integer
+		state[0] += 2;
+		assertNull(GameStateCodec.decode(state, catalog, human));
+	}
+
+	@Test
+	public void stateOfOtherPlayerIsNotDecoded() throws Throwable {
+		QuestionCatalog catalog = TestApplication.insertCategories(5, 3);
+		byte[] state = GameStateCodec.encode(finishedGame(catalog, human(),
+				5000));
+		QuizUser other = human();
+		other.setId(2L);
+		assertNull(GameStateCodec.decode(state, catalog, other));
+	}
+
+	@Test
+	public void stateWithQuestionsMissingFromTheCatalogIsNotDecoded()
+			throws Throwable {
+		QuestionCatalog catalog = TestApplication.insertCategories(5, 3);
+		QuizUser human = human();
+		byte[] state = GameStateCodec.encode(finishedGame(catalog, human, 5000));
+		// every round has been played with another category
+		QuestionCatalog reduced = QuestionCatalog.of(catalog.getCategories()
+				.subList(0, 1));
+		assertNull(GameStateCodec.decode(state, reduced, human));
+	}
+
+	private static void assertSameAnswer(Answer expected, Answer actual) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertNotNull(actual);
+		// restored choices are ordered by their keys
+		assertEquals(new HashSet<>(expected.getChoices()), new HashSet<>(
+				actual.getChoices()));
+		assertEquals(expected.getTime(), actual.getTime());
+	}
+
+	/**
+	 * Play all rounds of a game against the computer, in which both players
+	 * select every choice
+	 */
+	static QuizGame finishedGame(QuestionCatalog catalog, QuizUser human,
+			long time) {
+		QuizGame game = new QuizGame(catalog, human);
+		for (int r = 1; game.startRound(r); r++) {
+			Round round = game.getCurrentRound();
+			for (Question question : round.getQuestions()) {
+				for (QuizUser player : game.getPlayers())
+					round.answerCurrentQuestion(question.getChoices(), time,
+							player);
+			}
+		}
+		assertTrue(game.isGameOver());
+		return game;
+	}
+
+	static QuizUser human() {
+		QuizUser human = new QuizUser();
+		human.setId(1L);
+		human.setName("Human");
+		return human;
+	}
+}
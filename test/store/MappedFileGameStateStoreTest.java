@@ -0,0 +1,90 @@
+package store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+public class MappedFileGameStateStoreTest {
+
+	private static final int SLOTS = 8;
+
+	private File file;
+	private MappedFileGameStateStore store;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("games", ".bin");
+		store = new MappedFileGameStateStore(file, SLOTS, 256, 60000);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void putReplacesTheStateOfAKey() {
+		store.put("game", bytes("first"));
+		store.put("game", bytes("second"));
+		assertArrayEquals(bytes("second"), store.get("game"));
+	}
+
+	@Test
+	public void removedKeysAreNotFound() {
+		store.put("game", bytes("state"));
+		store.remove("game");
+		assertNull(store.get("game"));
+	}
+
+	@Test
+	public void concurrentPutsDoNotOverwriteEachOther() throws Exception {
+		// every key probes all slots, so each put has to take a different one
+		for (int round = 0; round < 200; round++) {
+			for (int i = 0; i < SLOTS; i++)
+				store.remove(key(round - 1, i));
+
+			ExecutorService executor = Executors.newFixedThreadPool(SLOTS);
+			final CountDownLatch start = new CountDownLatch(1);
+			for (int i = 0; i < SLOTS; i++) {
+				final String key = key(round, i);
+				executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							start.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						store.put(key, bytes(key));
+					}
+				});
+			}
+			start.countDown();
+			executor.shutdown();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+
+			for (int i = 0; i < SLOTS; i++)
+				assertArrayEquals(bytes(key(round, i)), store.get(key(round, i)));
+		}
+	}
+
+	private static String key(int round, int i) {
+		return "game." + round + "." + i;
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(Charsets.UTF_8);
+	}
+}
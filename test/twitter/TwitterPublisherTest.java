@@ -0,0 +1,116 @@
+package twitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TwitterPublisherTest {
+
+	private final TwitterPublisher publisher = TwitterPublisher.INSTANCE;
+
+	@After
+	public void tearDown() {
+		publisher.stop();
+	}
+
+	@Test
+	public void waitingMessagesAreSentAsOneStatus() throws Exception {
+		BlockingClient client = new BlockingClient();
+		publisher.start(client, 100, 1000, 60, 5, 140);
+
+		publisher.publishUuid(message("first"));
+		assertTrue(client.called.await(5, TimeUnit.SECONDS));
+		// both wait while the first status is being sent
+		publisher.publishUuid(message("second"));
+		publisher.publishUuid(message("third"));
+		client.release.countDown();
+
+		List<TwitterStatusMessage> statuses = client.awaitStatuses(2);
+		assertEquals(2, statuses.size());
+		TwitterStatusMessage coalesced = statuses.get(1);
+		assertTrue(coalesced instanceof CoalescedStatusMessage);
+		assertEquals(2, ((CoalescedStatusMessage) coalesced).getMessages()
+				.size());
+		assertTrue(coalesced.getTwitterPublicationString().length() <= 140);
+		long end = System.currentTimeMillis() + 5000;
+		while (publisher.getPublishedMessages() < 3
+				&& System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals(3, publisher.getPublishedMessages());
+		assertEquals(2, publisher.getSentStatuses());
+	}
+
+	@Test
+	public void callbackIsNotifiedOnceTheStatusIsSent() throws Exception {
+		BlockingClient client = new BlockingClient();
+		client.release.countDown();
+		publisher.start(client, 100, 1000, 60, 5, 140);
+
+		final CountDownLatch published = new CountDownLatch(1);
+		publisher.publishUuid(message("first"), new IPublicationCallback() {
+
+			@Override
+			public void published(TwitterStatusMessage message) {
+				published.countDown();
+			}
+
+			@Override
+			public void failed(TwitterStatusMessage message, Exception cause) {
+			}
+		});
+		assertTrue(published.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void threeUuidsFitIntoOneStatus() {
+		CoalescedStatusMessage status = new CoalescedStatusMessage(
+				Arrays.asList(message("a"), message("b"), message("c")));
+		assertTrue(status.getTwitterPublicationString().length() <= 140);
+	}
+
+	private static TwitterStatusMessage message(String from) {
+		return new TwitterStatusMessage(from, UUID.randomUUID().toString(),
+				new Date());
+	}
+
+	/**
+	 * Records the statuses, the first one is held until it is released
+	 */
+	private static class BlockingClient implements ITwitterClient {
+
+		final CountDownLatch called = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		private final List<TwitterStatusMessage> statuses = new ArrayList<>();
+
+		@Override
+		public void publishUuid(TwitterStatusMessage message) throws Exception {
+			called.countDown();
+			release.await();
+			synchronized (statuses) {
+				statuses.add(message);
+				statuses.notifyAll();
+			}
+		}
+
+		List<TwitterStatusMessage> awaitStatuses(int count)
+				throws InterruptedException {
+			long end = System.currentTimeMillis() + 5000;
+			synchronized (statuses) {
+				while (statuses.size() < count
+						&& System.currentTimeMillis() < end)
+					statuses.wait(100);
+				return new ArrayList<>(statuses);
+			}
+		}
+	}
+}